@@ -0,0 +1,34 @@
+package com.demo;
+
+import com.demo.controlller.CachingController;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * VirtualThreadConfiguration is compiled by the java21 profile only. It runs every Tomcat request on its own virtual
+ * thread and gives the cache a virtual thread per asynchronous load, so a request or a load blocked on the database
+ * holds no platform thread and tens of thousands of slow misses can wait at once.
+ */
+@Configuration
+public class VirtualThreadConfiguration {
+
+    /**
+     * @return a customizer replacing Tomcat's request thread pool with a virtual thread per request
+     */
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadRequests() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * @return the executor CachingController hands to its CachingService for asynchronous loads
+     */
+    @Bean(name = CachingController.LOAD_EXECUTOR, destroyMethod = "close")
+    public ExecutorService cacheLoadExecutor() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("cache-load-", 0).factory());
+    }
+}
@@ -0,0 +1,94 @@
+package com.demo.benchmark;
+
+import com.demo.model.CacheEntity;
+import com.demo.service.CachingService;
+import com.demo.service.engine.EvictionPolicyType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of CachingService reads and writes through the write-through path, for a mix of reads and writes,
+ * a key distribution, a cache size and an eviction policy. A read that misses loads the entity from the database.
+ * The number of threads is set with JMH's -t option (-Djmh.threads with the jmh profile), for example 1, 4 or max.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CachingServiceBenchmark {
+
+    /** The share of operations that are reads; the rest are writes. */
+    public enum Workload {
+        READ_HEAVY(0.95), MIXED(0.5), WRITE_HEAVY(0.05);
+
+        final double readRatio;
+
+        Workload(double readRatio) {
+            this.readRatio = readRatio;
+        }
+    }
+
+    @Param({"READ_HEAVY", "MIXED", "WRITE_HEAVY"})
+    public Workload workload;
+
+    @Param({"UNIFORM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Param({"1000", "10000", "100000"})
+    public int maxSize;
+
+    @Param({"100000"})
+    public int keys;
+
+    @Param({"LRU", "TINY_LFU"})
+    public EvictionPolicyType policy;
+
+    private CachingService service;
+    private KeyDistribution.KeyGenerator generator;
+    private CacheEntity[] entities;
+    private CacheEntity[] lookups;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        service = CachingService.builder().maxSize(maxSize).evictionPolicy(policy).build();
+        generator = distribution.generator(keys);
+        entities = new CacheEntity[keys];
+        lookups = new CacheEntity[keys];
+        for (int i = 0; i < keys; i++) {
+            entities[i] = new CacheEntity(Integer.toString(i), "value-" + i);
+            lookups[i] = new CacheEntity(entities[i].getId(), null);
+            service.add(entities[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.close();
+    }
+
+    @Benchmark
+    public CacheEntity operation() {
+        int key = generator.next();
+        if (ThreadLocalRandom.current().nextDouble() < workload.readRatio) {
+            return service.get(lookups[key], true);
+        }
+        service.add(entities[key]);
+        return entities[key];
+    }
+}
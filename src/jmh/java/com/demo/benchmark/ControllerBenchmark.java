@@ -0,0 +1,92 @@
+package com.demo.benchmark;
+
+import com.demo.Application;
+import com.demo.controlller.CacheEntityHttpMessageConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a full HTTP round trip through CachingController: the application is started in-process on a random
+ * port and called over loopback, so the numbers include Tomcat, Spring MVC and JSON (de)serialization, or the
+ * binary CacheEntity form for {@code getBinary}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+    private static final String ENTITY = "{\"id\":\"1\",\"data\":\"value\"}";
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest get;
+    private HttpRequest getBinary;
+    private HttpRequest add;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, InterruptedException {
+        context = SpringApplication.run(Application.class, "--server.port=0");
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        URI base = URI.create("http://localhost:" + port + "/cache");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        add = HttpRequest.newBuilder(base)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(ENTITY))
+                .build();
+        get = HttpRequest.newBuilder(URI.create(base + "/1?loadFromDB=true")).GET().build();
+        getBinary = HttpRequest.newBuilder(URI.create(base + "/1?loadFromDB=true"))
+                .header("Accept", CacheEntityHttpMessageConverter.MEDIA_TYPE_VALUE)
+                .GET().build();
+        send(add);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String get() throws IOException, InterruptedException {
+        return send(get);
+    }
+
+    @Benchmark
+    public String getBinary() throws IOException, InterruptedException {
+        return send(getBinary);
+    }
+
+    @Benchmark
+    public String add() throws IOException, InterruptedException {
+        return send(add);
+    }
+
+    private String send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " for " + request.uri());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,102 @@
+package com.demo.benchmark;
+
+import com.demo.dao.DatabaseDao;
+import com.demo.dao.FileDatabaseDao;
+import com.demo.dao.MockDatabaseDao;
+import com.demo.model.CacheEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Throughput of single saves and gets against the in-memory MockDatabaseDao and the file-backed FileDatabaseDao,
+ * the latter with and without an fsync per write.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoBenchmark {
+
+    /** The store under test. */
+    public enum Store {
+        MOCK, FILE, FILE_SYNC
+    }
+
+    @Param({"MOCK", "FILE", "FILE_SYNC"})
+    public Store store;
+
+    @Param({"10000"})
+    public int keys;
+
+    @Param({"100"})
+    public int valueLength;
+
+    private Path directory;
+    private DatabaseDao dao;
+    private CacheEntity[] entities;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        switch (store) {
+            case MOCK:
+                dao = new MockDatabaseDao();
+                break;
+            case FILE:
+            case FILE_SYNC:
+                directory = Files.createTempDirectory("dao-benchmark");
+                dao = new FileDatabaseDao(directory, FileDatabaseDao.DEFAULT_SEGMENT_BYTES, store == Store.FILE_SYNC);
+                break;
+            default:
+                throw new IllegalStateException("Unknown store " + store);
+        }
+        String value = "x".repeat(valueLength);
+        entities = new CacheEntity[keys];
+        for (int i = 0; i < keys; i++) {
+            entities[i] = new CacheEntity(Integer.toString(i), value);
+            dao.save(entities[i]);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dao.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public CacheEntity save() {
+        CacheEntity entity = entities[ThreadLocalRandom.current().nextInt(keys)];
+        dao.save(entity);
+        return entity;
+    }
+
+    @Benchmark
+    public CacheEntity get() {
+        return dao.get(entities[ThreadLocalRandom.current().nextInt(keys)].getId());
+    }
+}
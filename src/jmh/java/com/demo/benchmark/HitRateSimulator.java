@@ -0,0 +1,131 @@
+package com.demo.benchmark;
+
+import com.demo.service.engine.CacheEngine;
+import com.demo.service.engine.EvictionPolicyType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * HitRateSimulator replays a key trace against a CacheEngine with each eviction policy and cache size, and reports
+ * the hit rates as JSON, so changes to a policy can be compared on the same workload across commits.
+ * <p>
+ * A trace is a text file with one access per line; the first whitespace-separated token of a line is the key.
+ * Without a trace file a Zipfian trace of {@value #SYNTHETIC_ACCESSES} accesses over {@value #SYNTHETIC_KEYS}
+ * keys is generated with a fixed seed.
+ * <p>
+ * Usage: {@code HitRateSimulator [--trace file] [--sizes 1000,10000] [--output file]}
+ */
+public final class HitRateSimulator {
+    private static final int SYNTHETIC_ACCESSES = 1_000_000;
+    private static final int SYNTHETIC_KEYS = 100_000;
+
+    private HitRateSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path trace = null;
+        Path output = Paths.get("target", "hit-rates.json");
+        long[] sizes = {1_000, 10_000};
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--trace":
+                    trace = Paths.get(args[i + 1]);
+                    break;
+                case "--sizes":
+                    sizes = parseSizes(args[i + 1]);
+                    break;
+                case "--output":
+                    output = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        String[] keys = (trace != null) ? readTrace(trace) : syntheticTrace();
+        List<Map<String, Object>> results = new ArrayList<>();
+        for (long size : sizes) {
+            for (EvictionPolicyType policy : EvictionPolicyType.values()) {
+                double hitRate = replay(keys, policy, size);
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("trace", (trace != null) ? trace.toString() : "zipfian");
+                result.put("accesses", keys.length);
+                result.put("policy", policy.name());
+                result.put("maxSize", size);
+                result.put("hitRate", hitRate);
+                results.add(result);
+                System.out.printf("%-9s %8d  %.4f%n", policy, size, hitRate);
+            }
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), results);
+        System.out.println("Results written to " + output);
+    }
+
+    /**
+     * Replays the trace on an empty cache: every access is a read, and a miss inserts the key.
+     * @param keys the trace
+     * @param policy the eviction policy
+     * @param maxSize the maximum number of entries
+     * @return the fraction of accesses that hit
+     */
+    static double replay(String[] keys, EvictionPolicyType policy, long maxSize) {
+        CacheEngine<String, String> cache = CacheEngine.<String, String>builder()
+                .maximumSize(maxSize)
+                .evictionPolicy(policy)
+                .build();
+        long hits = 0;
+        for (String key : keys) {
+            if (cache.get(key) != null) {
+                hits++;
+            } else {
+                cache.put(key, key);
+            }
+        }
+        return (double) hits / keys.length;
+    }
+
+    private static String[] readTrace(Path trace) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(trace)) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty()) {
+                    keys.add(trimmed.split("\\s+", 2)[0]);
+                }
+            }
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private static String[] syntheticTrace() {
+        ZipfianGenerator zipfian = new ZipfianGenerator(SYNTHETIC_KEYS, ZipfianGenerator.DEFAULT_SKEW);
+        Random random = new Random(42);
+        String[] keys = new String[SYNTHETIC_ACCESSES];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = Integer.toString(zipfian.next(random));
+        }
+        return keys;
+    }
+
+    private static long[] parseSizes(String sizes) {
+        String[] parts = sizes.split(",");
+        long[] parsed = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            parsed[i] = Long.parseLong(parts[i].trim());
+        }
+        return parsed;
+    }
+}
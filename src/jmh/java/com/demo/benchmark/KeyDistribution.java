@@ -0,0 +1,38 @@
+package com.demo.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The key access patterns the benchmarks draw from.
+ */
+public enum KeyDistribution {
+    /** Every key is equally likely. */
+    UNIFORM {
+        @Override
+        KeyGenerator generator(int keys) {
+            return () -> ThreadLocalRandom.current().nextInt(keys);
+        }
+    },
+    /** A few keys take most accesses, as in YCSB's default workloads (skew 0.99). */
+    ZIPFIAN {
+        @Override
+        KeyGenerator generator(int keys) {
+            ZipfianGenerator zipfian = new ZipfianGenerator(keys, ZipfianGenerator.DEFAULT_SKEW);
+            return () -> zipfian.next(ThreadLocalRandom.current());
+        }
+    };
+
+    /**
+     * @param keys the number of distinct keys, drawn from 0 to keys - 1
+     * @return a thread-safe generator of keys following this distribution
+     */
+    abstract KeyGenerator generator(int keys);
+
+    /**
+     * Draws the next key.
+     */
+    @FunctionalInterface
+    interface KeyGenerator {
+        int next();
+    }
+}
@@ -0,0 +1,64 @@
+package com.demo.benchmark;
+
+import java.util.Random;
+
+/**
+ * ZipfianGenerator draws integers from 0 to n - 1 with probability proportional to 1 / (rank + 1)^skew, using the
+ * constant-time method of Gray et al., "Quickly Generating Billion-Record Synthetic Databases", as YCSB does.
+ * The ranks are scrambled with a hash so the hottest keys are spread over the key space rather than clustered at 0.
+ */
+final class ZipfianGenerator {
+    static final double DEFAULT_SKEW = 0.99;
+
+    private final int items;
+    private final double alpha;
+    private final double zetan;
+    private final double eta;
+    private final double half;
+
+    ZipfianGenerator(int items, double skew) {
+        if (items <= 0 || skew <= 0 || skew == 1) {
+            throw new IllegalArgumentException("items must be positive and skew positive and not 1");
+        }
+        this.items = items;
+        this.zetan = zeta(items, skew);
+        double zeta2 = zeta(2, skew);
+        this.alpha = 1.0 / (1.0 - skew);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - skew)) / (1 - zeta2 / zetan);
+        this.half = 1 + Math.pow(0.5, skew);
+    }
+
+    /**
+     * @param random the source of randomness, for example the calling thread's ThreadLocalRandom
+     * @return the next key
+     */
+    int next(Random random) {
+        return scramble(nextRank(random));
+    }
+
+    private int nextRank(Random random) {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1) {
+            return 0;
+        }
+        if (uz < half) {
+            return 1;
+        }
+        return (int) Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    private int scramble(int rank) {
+        long hash = rank * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return (int) Math.floorMod(hash, (long) items);
+    }
+
+    private static double zeta(long n, double skew) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1 / Math.pow(i, skew);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,234 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCodec;
+import com.demo.service.CacheNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BinaryCacheClient is a cluster member reached through its {@link BinaryCacheServer}. Requests from every thread are
+ * pipelined over one connection: each is written as soon as it is made, and a reader thread completes them in order
+ * as the answers arrive. The connection is opened on first use and again after it failed, so members can start in
+ * any order. Opening it waits at most the request timeout, and does not hold up a close or a failing connection.
+ */
+public final class BinaryCacheClient implements CacheNode {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryCacheClient.class);
+
+    private final InetSocketAddress address;
+    private final long timeoutMillis;
+    private final Object connectLock = new Object(); // held while opening a connection, so one is opened at a time
+    private final Object writeLock = new Object();
+    private Connection connection; // guarded by writeLock; null until first use and after a failure
+    private boolean closed; // guarded by writeLock
+
+    /**
+     * Constructs a BinaryCacheClient; it connects on the first request.
+     * @param address the address the member's binary protocol listens on
+     * @param timeout how long to wait for a connection, and then for an answer, before failing a request
+     */
+    public BinaryCacheClient(InetSocketAddress address, Duration timeout) {
+        this.address = address;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    @Override
+    public CompletableFuture<CacheEntity> get(String id, boolean loadFromDB) {
+        return send(BinaryProtocol.get(id, loadFromDB)).thenApply(payload -> (payload == null) ? null : CacheEntityCodec.decode(payload));
+    }
+
+    @Override
+    public CompletableFuture<List<CacheEntity>> getAll(Collection<String> ids, boolean loadFromDB) {
+        return send(BinaryProtocol.getAll(ids, loadFromDB)).thenApply(CacheEntityCodec::decodeBatch);
+    }
+
+    @Override
+    public CompletableFuture<Void> add(CacheEntity entity, Duration ttl) {
+        ByteBuffer request = (ttl == null) ? BinaryProtocol.put(entity) : BinaryProtocol.put(entity, ttl.toMillis());
+        return send(request).thenApply(payload -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAll(Collection<CacheEntity> entities) {
+        return send(BinaryProtocol.putAll(entities)).thenApply(payload -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> fill(Collection<CacheEntity> entities) {
+        return send(BinaryProtocol.fill(entities)).thenApply(payload -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<String> ids) {
+        return send(BinaryProtocol.removeAll(ids)).thenApply(payload -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll() {
+        return send(BinaryProtocol.removeEverything()).thenApply(payload -> null);
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            closed = true;
+            if (connection != null) {
+                connection.fail(new IOException("Client closed"));
+            }
+        }
+    }
+
+    // Completes with the payload of an OK answer, with null for NOT_FOUND, and exceptionally for an ERROR answer
+    private CompletableFuture<ByteBuffer> send(ByteBuffer request) {
+        CompletableFuture<ByteBuffer> response = new CompletableFuture<>();
+        boolean connected;
+        synchronized (writeLock) {
+            connected = connection != null;
+        }
+        if (!connected) {
+            try {
+                connect();
+            } catch (IOException e) {
+                response.completeExceptionally(new UncheckedIOException("Cannot connect to " + address, e));
+                return response;
+            }
+        }
+        synchronized (writeLock) {
+            if (closed) {
+                response.completeExceptionally(new IllegalStateException("Client closed"));
+                return response;
+            }
+            Connection current = connection;
+            if (current == null) {
+                // Failed as soon as it was opened
+                response.completeExceptionally(new UncheckedIOException("Connection to " + address + " failed",
+                        new IOException("Connection closed")));
+                return response;
+            }
+            try {
+                // Queued before it is written, so the answer always finds it
+                current.pending.add(response);
+                while (request.hasRemaining()) {
+                    current.channel.write(request);
+                }
+            } catch (IOException e) {
+                current.fail(e);
+            }
+        }
+        // A late answer still completes the future it was queued with, which is then a no-op, so answers stay in step
+        return response.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Opens the connection unless another thread did meanwhile, without holding the write lock while connecting
+    private void connect() throws IOException {
+        synchronized (connectLock) {
+            synchronized (writeLock) {
+                if (connection != null || closed) {
+                    return;
+                }
+            }
+            SocketChannel channel = SocketChannel.open();
+            try {
+                channel.socket().connect(address, (int) Math.min(timeoutMillis, Integer.MAX_VALUE));
+                synchronized (writeLock) {
+                    if (!closed) {
+                        connection = new Connection(channel);
+                        return;
+                    }
+                }
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            channel.close();
+        }
+    }
+
+    /**
+     * One connection and the requests waiting for an answer on it.
+     */
+    private final class Connection implements Runnable {
+        final SocketChannel channel;
+        final Queue<CompletableFuture<ByteBuffer>> pending = new ConcurrentLinkedQueue<>();
+
+        Connection(SocketChannel channel) throws IOException {
+            this.channel = channel;
+            channel.socket().setTcpNoDelay(true);
+            Thread reader = new Thread(this, "cache-binary-client-" + address);
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+                while (true) {
+                    byte[] frame = new byte[in.readInt()];
+                    in.readFully(frame);
+                    CompletableFuture<ByteBuffer> response = pending.poll();
+                    if (response == null) {
+                        throw new IOException("Unexpected answer");
+                    }
+                    complete(response, ByteBuffer.wrap(frame));
+                }
+            } catch (IOException | RuntimeException e) {
+                synchronized (writeLock) {
+                    fail(e);
+                }
+            }
+        }
+
+        // Called with the write lock held
+        void fail(Exception cause) {
+            if (connection == this) {
+                connection = null;
+                if (!closed) {
+                    logger.warn("Connection to {} failed: {}", address, cause.toString());
+                }
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing left to do with it
+            }
+            UncheckedIOException failure = new UncheckedIOException("Connection to " + address + " failed",
+                    (cause instanceof IOException) ? (IOException) cause : new IOException(cause));
+            for (CompletableFuture<ByteBuffer> response = pending.poll(); response != null; response = pending.poll()) {
+                response.completeExceptionally(failure);
+            }
+        }
+    }
+
+    private static void complete(CompletableFuture<ByteBuffer> response, ByteBuffer frame) {
+        byte status = frame.get();
+        switch (status) {
+            case BinaryProtocol.OK:
+                response.complete(frame);
+                break;
+            case BinaryProtocol.NOT_FOUND:
+                response.complete(null);
+                break;
+            default:
+                byte[] message = new byte[frame.getInt()];
+                frame.get(message);
+                response.completeExceptionally(new IllegalStateException(new String(message, StandardCharsets.UTF_8)));
+        }
+    }
+}
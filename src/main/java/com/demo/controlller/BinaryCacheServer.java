@@ -0,0 +1,350 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCodec;
+import com.demo.service.CachingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * BinaryCacheServer serves a CachingService over TCP in the {@link BinaryProtocol}, for internal clients that need
+ * more throughput than JSON over HTTP allows. One selector thread handles every connection.
+ * <p>
+ * Requests on a connection are pipelined: they are executed in order, each after the previous one completed, and
+ * answered in order. A hit is answered on the selector thread itself; a miss is loaded on the service's load
+ * executor and a write, which may block on the database, runs on the write executor, so the selector never blocks.
+ * Ready responses are sent with one gathering write, each entity straight from the buffer it was encoded into.
+ * A connection with too many unanswered requests is not read until it catches up.
+ */
+public final class BinaryCacheServer implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(BinaryCacheServer.class);
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_PENDING_RESPONSES = 1_024;
+    private static final CompletableFuture<ByteBuffer[]> DONE = CompletableFuture.completedFuture(null);
+
+    private final CachingService service;
+    private final Executor writeExecutor;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    // Connections with a response completed off the selector thread
+    private final Queue<Connection> completed = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Binds the server and starts accepting connections.
+     * @param service the service to serve
+     * @param port the port to listen on, 0 for any free port
+     * @param writeExecutor runs the writes and batch reads, which may block on the database or on other loads
+     * @throws IOException if the port cannot be bound
+     */
+    public BinaryCacheServer(CachingService service, int port, Executor writeExecutor) throws IOException {
+        this.service = service;
+        this.writeExecutor = writeExecutor;
+        this.selector = Selector.open();
+        try {
+            this.serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::run, "cache-binary-server");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Binary protocol listening on port {}.", getPort());
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Stops the server and closes every connection; requests not answered yet are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(5_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                for (Connection connection = completed.poll(); connection != null; connection = completed.poll()) {
+                    connection.flushOrClose();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        ((Connection) key.attachment()).handle(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Binary protocol server failed.", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel != null) {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+    }
+
+    /**
+     * The state of one client connection. Only the selector thread touches it, except for the completion callbacks,
+     * which only queue it on {@link #completed}.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        // Responses in request order; the head is sent as soon as it is done
+        private final ArrayDeque<CompletableFuture<ByteBuffer[]>> responses = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        // Completes when the last request received has been executed
+        private CompletableFuture<ByteBuffer[]> tail = DONE;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void handle(SelectionKey key) {
+            try {
+                if (key.isWritable()) {
+                    flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read();
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+            }
+        }
+
+        void flushOrClose() {
+            if (channel.isOpen()) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    close();
+                }
+            }
+        }
+
+        private void read() throws IOException {
+            if (channel.read(input) < 0) {
+                close();
+                return;
+            }
+            input.flip();
+            while (input.remaining() >= Integer.BYTES) {
+                int length = input.getInt(input.position());
+                if (length <= 0 || length > BinaryProtocol.MAX_FRAME_LENGTH) {
+                    throw new IOException("Invalid frame length " + length);
+                }
+                if (input.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                // Copied out, since the request may run after the buffer has been reused
+                byte[] frame = new byte[length];
+                input.position(input.position() + Integer.BYTES);
+                input.get(frame);
+                submit(ByteBuffer.wrap(frame));
+            }
+            input.compact();
+            if (input.position() >= Integer.BYTES && Integer.BYTES + input.getInt(0) > input.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(Integer.BYTES + input.getInt(0));
+                input.flip();
+                input = larger.put(input);
+            }
+            flush();
+        }
+
+        private void submit(ByteBuffer frame) {
+            CompletableFuture<ByteBuffer[]> response = tail
+                    .thenCompose(previous -> execute(frame))
+                    .exceptionally(t -> new ByteBuffer[]{BinaryProtocol.error(rootMessage(t))});
+            tail = response;
+            responses.add(response);
+            if (!response.isDone()) {
+                response.whenComplete((buffers, t) -> {
+                    completed.add(this);
+                    selector.wakeup();
+                });
+            }
+        }
+
+        private CompletableFuture<ByteBuffer[]> execute(ByteBuffer frame) {
+            byte opcode = frame.get();
+            switch (opcode) {
+                case BinaryProtocol.GET: {
+                    boolean loadFromDB = frame.get() != 0;
+                    String id = CacheEntityCodec.readString(frame);
+                    return service.getAsync(new CacheEntity(id, null), loadFromDB).thenApply(BinaryCacheServer::entity);
+                }
+                case BinaryProtocol.PUT: {
+                    CacheEntity entity = CacheEntityCodec.decode(frame);
+                    return write(() -> service.add(entity));
+                }
+                case BinaryProtocol.REMOVE: {
+                    String id = CacheEntityCodec.readString(frame);
+                    return write(() -> service.remove(new CacheEntity(id, null)));
+                }
+                case BinaryProtocol.GET_ALL: {
+                    boolean loadFromDB = frame.get() != 0;
+                    List<String> ids = readIds(frame);
+                    // Even without the database, a miss may wait on another caller's load, so it must leave the selector
+                    return CompletableFuture.supplyAsync(() -> batch(service.getAll(ids, loadFromDB).values()), writeExecutor);
+                }
+                case BinaryProtocol.PUT_ALL: {
+                    List<CacheEntity> entities = CacheEntityCodec.decodeBatch(frame);
+                    return write(() -> service.putAll(entities));
+                }
+                case BinaryProtocol.PUT_EXPIRING: {
+                    Duration ttl = Duration.ofMillis(frame.getLong());
+                    CacheEntity entity = CacheEntityCodec.decode(frame);
+                    return write(() -> service.add(entity, ttl));
+                }
+                case BinaryProtocol.REMOVE_ALL: {
+                    List<String> ids = readIds(frame);
+                    return write(() -> service.removeAll(ids));
+                }
+                case BinaryProtocol.FILL: {
+                    List<CacheEntity> entities = CacheEntityCodec.decodeBatch(frame);
+                    return write(() -> service.fill(entities));
+                }
+                case BinaryProtocol.REMOVE_EVERYTHING:
+                    return write(service::removeAll);
+                default:
+                    return CompletableFuture.completedFuture(new ByteBuffer[]{BinaryProtocol.error("Unknown opcode " + opcode)});
+            }
+        }
+
+        private CompletableFuture<ByteBuffer[]> write(Runnable write) {
+            return CompletableFuture.supplyAsync(() -> {
+                write.run();
+                return new ByteBuffer[]{BinaryProtocol.header(BinaryProtocol.OK, 0)};
+            }, writeExecutor);
+        }
+
+        private void flush() throws IOException {
+            while (!responses.isEmpty() && responses.peek().isDone()) {
+                for (ByteBuffer buffer : responses.poll().join()) {
+                    output.add(buffer);
+                }
+            }
+            if (!output.isEmpty()) {
+                channel.write(output.toArray(new ByteBuffer[0]));
+                while (!output.isEmpty() && !output.peek().hasRemaining()) {
+                    output.poll();
+                }
+            }
+            // Wait for the socket to drain before writing more, and for the responses to catch up before reading more
+            int interest = output.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (responses.size() < MAX_PENDING_RESPONSES) {
+                interest |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interest);
+        }
+
+        private void close() {
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+
+    private static List<String> readIds(ByteBuffer frame) {
+        int count = frame.getInt();
+        List<String> ids = new ArrayList<>(Math.min(count, frame.remaining() / Integer.BYTES));
+        for (int i = 0; i < count; i++) {
+            ids.add(CacheEntityCodec.readString(frame));
+        }
+        return ids;
+    }
+
+    private static ByteBuffer[] entity(CacheEntity entity) {
+        if (entity == null) {
+            return new ByteBuffer[]{BinaryProtocol.header(BinaryProtocol.NOT_FOUND, 0)};
+        }
+        ByteBuffer encoded = CacheEntityCodec.encode(entity);
+        return new ByteBuffer[]{BinaryProtocol.header(BinaryProtocol.OK, encoded.remaining()), encoded};
+    }
+
+    private static ByteBuffer[] batch(Collection<CacheEntity> entities) {
+        ByteBuffer[] buffers = new ByteBuffer[entities.size() + 2];
+        ByteBuffer count = ByteBuffer.allocate(Integer.BYTES).putInt(entities.size()).flip();
+        int length = Integer.BYTES;
+        int i = 2;
+        for (CacheEntity entity : entities) {
+            buffers[i] = CacheEntityCodec.encode(entity);
+            length += buffers[i++].remaining();
+        }
+        buffers[0] = BinaryProtocol.header(BinaryProtocol.OK, length);
+        buffers[1] = count;
+        return buffers;
+    }
+
+    private static String rootMessage(Throwable t) {
+        while (t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t.getClass().getSimpleName() + ": " + t.getMessage();
+    }
+}
@@ -0,0 +1,188 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCodec;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * BinaryProtocol defines the frames exchanged with a {@link BinaryCacheServer}, and builds them for clients.
+ * <p>
+ * A request is {@code [int length][byte opcode][payload]} and a response is {@code [int length][byte status][payload]},
+ * where the length counts the bytes after it. Entities and batches of entities are in the {@link CacheEntityCodec}
+ * form, and a string is {@code [int length][UTF-8]}. A client may send any number of requests without waiting:
+ * they are executed in order and answered in order.
+ * <ul>
+ *   <li>{@link #GET} {@code [byte loadFromDB][string id]}: {@link #OK} with the entity, or {@link #NOT_FOUND}</li>
+ *   <li>{@link #PUT} {@code [entity]}: {@link #OK}</li>
+ *   <li>{@link #REMOVE} {@code [string id]}: {@link #OK}</li>
+ *   <li>{@link #GET_ALL} {@code [byte loadFromDB][int count][string id]...}: {@link #OK} with the batch found</li>
+ *   <li>{@link #PUT_ALL} {@code [batch]}: {@link #OK}</li>
+ *   <li>{@link #PUT_EXPIRING} {@code [long ttlMillis][entity]}: {@link #OK}</li>
+ *   <li>{@link #REMOVE_ALL} {@code [int count][string id]...}: {@link #OK}</li>
+ *   <li>{@link #FILL} {@code [batch]}: {@link #OK}</li>
+ *   <li>{@link #REMOVE_EVERYTHING}, without a payload: {@link #OK}</li>
+ * </ul>
+ * Any request may also be answered with {@link #ERROR} and a string message.
+ */
+public final class BinaryProtocol {
+    /** Reads an entity. */
+    public static final byte GET = 1;
+    /** Adds an entity. */
+    public static final byte PUT = 2;
+    /** Removes an entity. */
+    public static final byte REMOVE = 3;
+    /** Reads a batch of entities. */
+    public static final byte GET_ALL = 4;
+    /** Adds a batch of entities. */
+    public static final byte PUT_ALL = 5;
+    /** Adds an entity that stays cached for at most a time to live. */
+    public static final byte PUT_EXPIRING = 6;
+    /** Removes a batch of entities. */
+    public static final byte REMOVE_ALL = 7;
+    /** Caches a batch of entities handed off by another member, without writing them to the database. */
+    public static final byte FILL = 8;
+    /** Removes every entity, from the cache and the database. */
+    public static final byte REMOVE_EVERYTHING = 9;
+
+    /** The request succeeded. */
+    public static final byte OK = 0;
+    /** The entity requested does not exist. */
+    public static final byte NOT_FOUND = 1;
+    /** The request was malformed or failed. */
+    public static final byte ERROR = 2;
+
+    /** Frames larger than this are refused, and the connection closed. */
+    public static final int MAX_FRAME_LENGTH = 16 << 20;
+
+    static final int HEADER_SIZE = Integer.BYTES + 1;
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * @param id the ID of the entity
+     * @param loadFromDB whether to load it from the database on a miss
+     * @return a GET request frame
+     */
+    public static ByteBuffer get(String id, boolean loadFromDB) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        return frame(GET, 1 + Integer.BYTES + idBytes.length)
+                .put((byte) (loadFromDB ? 1 : 0)).putInt(idBytes.length).put(idBytes).flip();
+    }
+
+    /**
+     * @param entity the entity to add
+     * @return a PUT request frame
+     */
+    public static ByteBuffer put(CacheEntity entity) {
+        return frame(PUT, CacheEntityCodec.encodedSize(entity)).put(CacheEntityCodec.encode(entity)).flip();
+    }
+
+    /**
+     * @param id the ID of the entity to remove
+     * @return a REMOVE request frame
+     */
+    public static ByteBuffer remove(String id) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        return frame(REMOVE, Integer.BYTES + idBytes.length).putInt(idBytes.length).put(idBytes).flip();
+    }
+
+    /**
+     * @param entity the entity to add
+     * @param ttlMillis how long the entity may stay cached, in milliseconds
+     * @return a PUT_EXPIRING request frame
+     */
+    public static ByteBuffer put(CacheEntity entity, long ttlMillis) {
+        return frame(PUT_EXPIRING, Long.BYTES + CacheEntityCodec.encodedSize(entity))
+                .putLong(ttlMillis).put(CacheEntityCodec.encode(entity)).flip();
+    }
+
+    /**
+     * @param ids the IDs of the entities to remove
+     * @return a REMOVE_ALL request frame
+     */
+    public static ByteBuffer removeAll(Collection<String> ids) {
+        return ids(REMOVE_ALL, ids, Integer.BYTES).flip();
+    }
+
+    /**
+     * @return a REMOVE_EVERYTHING request frame
+     */
+    public static ByteBuffer removeEverything() {
+        return frame(REMOVE_EVERYTHING, 0).flip();
+    }
+
+    /**
+     * @param ids the IDs of the entities
+     * @param loadFromDB whether to load the misses from the database
+     * @return a GET_ALL request frame
+     */
+    public static ByteBuffer getAll(Collection<String> ids, boolean loadFromDB) {
+        ByteBuffer frame = ids(GET_ALL, ids, 1 + Integer.BYTES);
+        return frame.put(HEADER_SIZE, (byte) (loadFromDB ? 1 : 0)).flip();
+    }
+
+    /**
+     * @param entities the entities to add
+     * @return a PUT_ALL request frame
+     */
+    public static ByteBuffer putAll(Collection<CacheEntity> entities) {
+        return batch(PUT_ALL, entities);
+    }
+
+    /**
+     * @param entities the entities handed off
+     * @return a FILL request frame
+     */
+    public static ByteBuffer fill(Collection<CacheEntity> entities) {
+        return batch(FILL, entities);
+    }
+
+    // Allocates a frame with its header written, positioned at the payload
+    private static ByteBuffer frame(byte type, int payloadLength) {
+        return ByteBuffer.allocate(HEADER_SIZE + payloadLength).putInt(1 + payloadLength).put(type);
+    }
+
+    // A frame whose payload is a batch of entities
+    private static ByteBuffer batch(byte type, Collection<CacheEntity> entities) {
+        int length = Integer.BYTES;
+        for (CacheEntity entity : entities) {
+            length += CacheEntityCodec.encodedSize(entity);
+        }
+        ByteBuffer frame = frame(type, length).putInt(entities.size());
+        for (CacheEntity entity : entities) {
+            frame.put(CacheEntityCodec.encode(entity));
+        }
+        return frame.flip();
+    }
+
+    // A frame ending with a counted list of IDs, after a payload prefix of the given length (count included)
+    private static ByteBuffer ids(byte type, Collection<String> ids, int prefixLength) {
+        byte[][] idBytes = new byte[ids.size()][];
+        int length = prefixLength;
+        int i = 0;
+        for (String id : ids) {
+            idBytes[i] = id.getBytes(StandardCharsets.UTF_8);
+            length += Integer.BYTES + idBytes[i++].length;
+        }
+        ByteBuffer frame = frame(type, length);
+        frame.position(HEADER_SIZE + prefixLength - Integer.BYTES).putInt(idBytes.length);
+        for (byte[] id : idBytes) {
+            frame.putInt(id.length).put(id);
+        }
+        return frame;
+    }
+
+    // The header of a response whose payload is written separately
+    static ByteBuffer header(byte status, int payloadLength) {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(1 + payloadLength).put(status).flip();
+    }
+
+    static ByteBuffer error(String message) {
+        byte[] bytes = String.valueOf(message).getBytes(StandardCharsets.UTF_8);
+        return frame(ERROR, Integer.BYTES + bytes.length).putInt(bytes.length).put(bytes).flip();
+    }
+}
@@ -0,0 +1,20 @@
+package com.demo.controlller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers the binary CacheEntity converter after the default ones, so JSON stays the answer to clients that
+ * accept anything and the binary form is only used when it is asked for.
+ */
+@Configuration
+public class BinaryProtocolConfiguration implements WebMvcConfigurer {
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new CacheEntityHttpMessageConverter());
+    }
+}
@@ -0,0 +1,129 @@
+package com.demo.controlller;
+
+import com.demo.dao.DatabaseDao;
+import com.demo.dao.FileDatabaseDao;
+import com.demo.service.CacheManager;
+import com.demo.service.CacheMetrics;
+import com.demo.service.CachingService;
+import com.demo.service.UdpInvalidationTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Creates the CacheManager bean from the regions in {@link CacheProperties}. A default region is added if none is
+ * configured.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfiguration {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfiguration.class);
+
+    private static final int INVALIDATION_BATCH_SIZE = 1_000;
+    private static final Duration INVALIDATION_INTERVAL = Duration.ofMillis(10);
+
+    // Every region logs its cache events once per second in aggregate instead of per operation, runs asynchronous
+    // loads on the cacheLoadExecutor bean when there is one, and publishes its meters tagged with its name, to the
+    // application's registry when there is one and to Micrometer's global registry otherwise. IDs missing from the
+    // database are remembered for cache.negative.ttl, up to cache.negative.capacity of them per region; a capacity of
+    // 0 disables it. The default region of instances that each cache the whole database invalidates the others'
+    // copies over UDP when cache.invalidation.port is set, sending to the host:port pairs of cache.invalidation.peers.
+    // The manager is closed when the application shuts down, after the controller.
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManager(CacheProperties properties, BeanFactory beanFactory,
+                                     ObjectProvider<MeterRegistry> meterRegistry,
+                                     @Qualifier(CachingController.LOAD_EXECUTOR) ObjectProvider<Executor> loadExecutor,
+                                     @Value("${cache.negative.capacity:10000}") int negativeCapacity,
+                                     @Value("${cache.negative.ttl:30s}") Duration negativeTtl,
+                                     @Value("${cache.invalidation.port:-1}") int invalidationPort,
+                                     @Value("${cache.invalidation.peers:}") String invalidationPeers) throws IOException {
+        CacheManager.Builder manager = CacheManager.builder();
+        if (properties.getMemoryBudget() != null) {
+            manager.memoryBudget(properties.getMemoryBudget().toBytes());
+        }
+        Map<String, CacheProperties.Region> regions = new LinkedHashMap<>(properties.getRegions());
+        regions.putIfAbsent(CacheManager.DEFAULT_REGION, new CacheProperties.Region());
+        for (Map.Entry<String, CacheProperties.Region> entry : regions.entrySet()) {
+            String name = entry.getKey();
+            CacheProperties.Region region = entry.getValue();
+            CachingService.Builder builder = CachingService.builder()
+                    .evictionPolicy(region.getEvictionPolicy())
+                    .expireAfterWrite(region.getExpireAfterWrite())
+                    .expireAfterAccess(region.getExpireAfterAccess())
+                    .database(database(name, region, beanFactory))
+                    .eventListener(summary -> logger.info("Cache events in {}: {}", name, summary));
+            if (region.getMaxSize() != null) {
+                builder.maxSize(region.getMaxSize());
+            }
+            if (region.getMaxWeight() != null) {
+                builder.maxWeight(region.getMaxWeight().toBytes());
+            }
+            if (region.getMissRatioCurve() != null) {
+                builder.missRatioCurve(region.getMissRatioCurve().getSamplingRate(), region.getMissRatioCurve().getMaxTrackedKeys());
+            }
+            if (region.getCompactTier() != null) {
+                builder.compactTier(region.getCompactTier().toBytes());
+            }
+            if (region.getHotKeys() != null) {
+                builder.hotKeys(region.getHotKeys().getCapacity(), region.getHotKeys().getWindow(),
+                                region.getHotKeys().getSampleOneIn())
+                        .pinHotKeys(region.getHotKeys().getPin());
+            }
+            CacheProperties.AutoSize autoSize = region.getAutoSize();
+            if (autoSize != null) {
+                long minimum = (region.getMaxSize() != null) ? autoSize.getMinSize() : autoSize.getMinWeight().toBytes();
+                builder.autoSize(autoSize.getTargetHitRate(), minimum, autoSize.getInterval());
+            }
+            loadExecutor.ifAvailable(builder::loadExecutor);
+            if (negativeCapacity > 0) {
+                builder.negativeCaching(negativeCapacity, negativeTtl);
+            }
+            if (name.equals(CacheManager.DEFAULT_REGION) && invalidationPort >= 0) {
+                List<InetSocketAddress> peers = new ArrayList<>();
+                for (String peer : invalidationPeers.split(",")) {
+                    if (!peer.isBlank()) {
+                        InetSocketAddress address = CachingController.parseAddress(peer);
+                        peers.add(new InetSocketAddress(address.getHostString(), address.getPort()));
+                    }
+                }
+                builder.invalidationBus(new UdpInvalidationTransport(invalidationPort, peers), INVALIDATION_BATCH_SIZE, INVALIDATION_INTERVAL);
+            }
+            manager.region(name, builder);
+        }
+        CacheManager cacheManager = manager.build();
+        MeterRegistry registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        for (String name : cacheManager.getRegionNames()) {
+            new CacheMetrics(cacheManager.getRegion(name), name).bindTo(registry);
+        }
+        return cacheManager;
+    }
+
+    // A DatabaseDao bean, a file store of the region's own, or an in-memory store by default
+    private static DatabaseDao database(String name, CacheProperties.Region region, BeanFactory beanFactory) {
+        if (region.getDatabase() != null && region.getDatabasePath() != null) {
+            throw new IllegalStateException("Region " + name + " sets both database and database-path");
+        }
+        if (region.getDatabase() != null) {
+            return beanFactory.getBean(region.getDatabase(), DatabaseDao.class);
+        }
+        return (region.getDatabasePath() != null) ? new FileDatabaseDao(region.getDatabasePath()) : null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCodec;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes CacheEntity objects and collections of them in the {@link CacheEntityCodec} binary form, under
+ * the {@value #MEDIA_TYPE_VALUE} content type, so HTTP clients can skip JSON by asking for it.
+ */
+public class CacheEntityHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+    /** The content type of the binary form. */
+    public static final String MEDIA_TYPE_VALUE = "application/x-cache-entity";
+    /** The content type of the binary form. */
+    public static final MediaType MEDIA_TYPE = MediaType.valueOf(MEDIA_TYPE_VALUE);
+
+    public CacheEntityHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CacheEntity.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Type type, @Nullable Class<?> contextClass, @Nullable MediaType mediaType) {
+        // A batch is read into a List
+        return (isEntity(type) || (isEntityCollection(type) && ResolvableType.forType(type).toClass().isAssignableFrom(List.class)))
+                && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(@Nullable Type type, Class<?> clazz, @Nullable MediaType mediaType) {
+        return (supports(clazz) || (type != null && isEntityCollection(type))) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, @Nullable Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        ByteBuffer body = ByteBuffer.wrap(StreamUtils.copyToByteArray(inputMessage.getBody()));
+        try {
+            Object value = isEntity(type) ? CacheEntityCodec.decode(body) : CacheEntityCodec.decodeBatch(body);
+            if (body.hasRemaining()) {
+                throw new IllegalArgumentException(body.remaining() + " trailing bytes");
+            }
+            return value;
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Malformed binary entity: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected void writeInternal(Object value, @Nullable Type type, HttpOutputMessage outputMessage) throws IOException {
+        if (value instanceof CacheEntity) {
+            CacheEntityCodec.write((CacheEntity) value, outputMessage.getBody());
+        } else {
+            CacheEntityCodec.writeBatch((Collection<CacheEntity>) value, outputMessage.getBody());
+        }
+    }
+
+    private static boolean isEntity(Type type) {
+        return type instanceof Class && CacheEntity.class.isAssignableFrom((Class<?>) type);
+    }
+
+    private static boolean isEntityCollection(Type type) {
+        ResolvableType resolved = ResolvableType.forType(type);
+        return Collection.class.isAssignableFrom(resolved.toClass())
+                && CacheEntity.class.isAssignableFrom(resolved.asCollection().getGeneric().toClass());
+    }
+}
@@ -0,0 +1,339 @@
+package com.demo.controlller;
+
+import com.demo.service.engine.EvictionPolicyType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The cache regions configured under {@code cache} in application.yml, and the memory budget they share.
+ * <pre>
+ * cache:
+ *   memory-budget: 64MB
+ *   regions:
+ *     sessions:
+ *       max-weight: 16MB
+ *       eviction-policy: TINY_LFU
+ *       expire-after-access: 30m
+ *       compact-tier: 256MB
+ *       database-path: data/sessions
+ *       miss-ratio-curve:
+ *         sampling-rate: 0.01
+ *       auto-size:
+ *         target-hit-rate: 0.9
+ *         min-weight: 1MB
+ *       hot-keys:
+ *         capacity: 256
+ *         window: 60s
+ *         pin: 16
+ * </pre>
+ */
+@ConfigurationProperties("cache")
+public class CacheProperties {
+    private DataSize memoryBudget;
+    private Map<String, Region> regions = new LinkedHashMap<>();
+
+    /**
+     * @return the total weight of the regions, or null for no budget
+     */
+    public DataSize getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(DataSize memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return the regions by name, in the order they are configured
+     */
+    public Map<String, Region> getRegions() {
+        return regions;
+    }
+
+    public void setRegions(Map<String, Region> regions) {
+        this.regions = regions;
+    }
+
+    /**
+     * The settings of one region. A region sets at most one of its bounds; with a memory budget it may set neither
+     * and get a share of what the others leave.
+     */
+    public static class Region {
+        private Integer maxSize;
+        private DataSize maxWeight;
+        private EvictionPolicyType evictionPolicy = EvictionPolicyType.LRU;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+        private String database;
+        private Path databasePath;
+        private MissRatioCurve missRatioCurve;
+        private AutoSize autoSize;
+        private HotKeys hotKeys;
+        private DataSize compactTier;
+
+        /**
+         * @return the maximum number of entities, or null
+         */
+        public Integer getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(Integer maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * @return the maximum estimated heap footprint of the entities, or null
+         */
+        public DataSize getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(DataSize maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+
+        /**
+         * @return the policy choosing which entities to evict; LRU by default
+         */
+        public EvictionPolicyType getEvictionPolicy() {
+            return evictionPolicy;
+        }
+
+        public void setEvictionPolicy(EvictionPolicyType evictionPolicy) {
+            this.evictionPolicy = evictionPolicy;
+        }
+
+        /**
+         * @return how long an entity stays cached after it was written, or null to keep it until evicted
+         */
+        public Duration getExpireAfterWrite() {
+            return expireAfterWrite;
+        }
+
+        public void setExpireAfterWrite(Duration expireAfterWrite) {
+            this.expireAfterWrite = expireAfterWrite;
+        }
+
+        /**
+         * @return how long an entity stays cached after it was last read or written, or null
+         */
+        public Duration getExpireAfterAccess() {
+            return expireAfterAccess;
+        }
+
+        public void setExpireAfterAccess(Duration expireAfterAccess) {
+            this.expireAfterAccess = expireAfterAccess;
+        }
+
+        /**
+         * @return the name of the DatabaseDao bean the region reads and writes through, or null
+         */
+        public String getDatabase() {
+            return database;
+        }
+
+        public void setDatabase(String database) {
+            this.database = database;
+        }
+
+        /**
+         * @return the directory of a FileDatabaseDao of the region's own, or null
+         */
+        public Path getDatabasePath() {
+            return databasePath;
+        }
+
+        public void setDatabasePath(Path databasePath) {
+            this.databasePath = databasePath;
+        }
+
+        /**
+         * @return how the region's miss ratio curve is estimated, or null not to estimate it
+         */
+        public MissRatioCurve getMissRatioCurve() {
+            return missRatioCurve;
+        }
+
+        public void setMissRatioCurve(MissRatioCurve missRatioCurve) {
+            this.missRatioCurve = missRatioCurve;
+        }
+
+        /**
+         * @return how the region is resized from its miss ratio curve, or null to keep its bound
+         */
+        public AutoSize getAutoSize() {
+            return autoSize;
+        }
+
+        public void setAutoSize(AutoSize autoSize) {
+            this.autoSize = autoSize;
+        }
+
+        /**
+         * @return the bytes of IDs and data the region keeps in a compact tier once evicted, or null for none
+         */
+        public DataSize getCompactTier() {
+            return compactTier;
+        }
+
+        public void setCompactTier(DataSize compactTier) {
+            this.compactTier = compactTier;
+        }
+
+        /**
+         * @return how the region's hot keys are tracked, or null not to track them
+         */
+        public HotKeys getHotKeys() {
+            return hotKeys;
+        }
+
+        public void setHotKeys(HotKeys hotKeys) {
+            this.hotKeys = hotKeys;
+        }
+    }
+
+    /**
+     * The sampling of a region's reads for its miss ratio curve.
+     */
+    public static class MissRatioCurve {
+        private double samplingRate = 0.01;
+        private int maxTrackedKeys = 8_192;
+
+        /**
+         * @return the fraction of the keys sampled at first; 0.01 by default
+         */
+        public double getSamplingRate() {
+            return samplingRate;
+        }
+
+        public void setSamplingRate(double samplingRate) {
+            this.samplingRate = samplingRate;
+        }
+
+        /**
+         * @return the maximum number of sampled keys tracked; 8192 by default
+         */
+        public int getMaxTrackedKeys() {
+            return maxTrackedKeys;
+        }
+
+        public void setMaxTrackedKeys(int maxTrackedKeys) {
+            this.maxTrackedKeys = maxTrackedKeys;
+        }
+    }
+
+    /**
+     * The tracking of a region's most accessed keys, and how many of them are pinned in its near cache.
+     */
+    public static class HotKeys {
+        private int capacity = 256;
+        private Duration window = Duration.ofSeconds(60);
+        private int sampleOneIn = 16;
+        private int pin;
+
+        /**
+         * @return the number of keys counted per sixth of the window; 256 by default
+         */
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * @return the length of the window the counts cover; 60 seconds by default
+         */
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        /**
+         * @return one access in this many is counted, 1 to count them all; 16 by default
+         */
+        public int getSampleOneIn() {
+            return sampleOneIn;
+        }
+
+        public void setSampleOneIn(int sampleOneIn) {
+            this.sampleOneIn = sampleOneIn;
+        }
+
+        /**
+         * @return the number of hottest keys pinned in the near cache; 0 by default
+         */
+        public int getPin() {
+            return pin;
+        }
+
+        public void setPin(int pin) {
+            this.pin = pin;
+        }
+    }
+
+    /**
+     * The range and target of a region's auto-sizing. The region's own bound is the largest size it is given; the
+     * smallest is min-size for a region bounded by size and min-weight for one bounded by weight.
+     */
+    public static class AutoSize {
+        private double targetHitRate;
+        private int minSize;
+        private DataSize minWeight = DataSize.ofBytes(0);
+        private Duration interval = Duration.ofSeconds(30);
+
+        /**
+         * @return the hit rate to reach
+         */
+        public double getTargetHitRate() {
+            return targetHitRate;
+        }
+
+        public void setTargetHitRate(double targetHitRate) {
+            this.targetHitRate = targetHitRate;
+        }
+
+        /**
+         * @return the smallest number of entities of a region bounded by size; 0 by default
+         */
+        public int getMinSize() {
+            return minSize;
+        }
+
+        public void setMinSize(int minSize) {
+            this.minSize = minSize;
+        }
+
+        /**
+         * @return the smallest weight of a region bounded by weight; 0 by default
+         */
+        public DataSize getMinWeight() {
+            return minWeight;
+        }
+
+        public void setMinWeight(DataSize minWeight) {
+            this.minWeight = minWeight;
+        }
+
+        /**
+         * @return how often the bound is reconsidered; 30 seconds by default
+         */
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+    }
+}
@@ -1,8 +1,48 @@
 package com.demo.controlller;
 
 import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCodec;
+import com.demo.model.CacheStats;
+import com.demo.model.ClusterStats;
+import com.demo.model.CompressionStats;
+import com.demo.model.InvalidationStats;
+import com.demo.model.FootprintStats;
+import com.demo.model.HotKeyStats;
+import com.demo.model.MissRatioCurve;
+import com.demo.model.OffHeapStats;
+import com.demo.model.RegionStats;
+import com.demo.model.WriteBehindStats;
+import com.demo.service.CacheManager;
+import com.demo.service.CacheNode;
 import com.demo.service.CachingService;
+import com.demo.service.ShardedCache;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 @RestController
 @RequestMapping("/cache")
@@ -12,31 +52,71 @@ import org.springframework.web.bind.annotation.*;
  */
 public class CachingController {
 
-    private final CachingService cachingService = new CachingService(2); // Example max size
+    private static final Logger logger = LoggerFactory.getLogger(CachingController.class);
+
+    /** Name of the optional Executor bean that runs asynchronous loads, e.g. one virtual thread per load. */
+    public static final String LOAD_EXECUTOR = "cacheLoadExecutor";
+
+    /** Number of points per node on the cluster's hash ring. */
+    public static final int VIRTUAL_NODES = 128;
+    private static final Duration FORWARD_TIMEOUT = Duration.ofSeconds(5);
+    // The first segments of other endpoints, which would hide the entity endpoints of a region of that name
+    private static final Set<String> RESERVED_REGION_NAMES = Set.of("async", "batch");
+
+    private final CacheManager cacheManager;
+    private final CachingService cachingService; // the default region
+    private final ShardedCache cluster; // routes every key to its owner; a single node owns them all
+    private final ObjectMapper objectMapper;
+    private final BinaryCacheServer binaryServer; // null unless cache.binary.port is set
+
+    // Spring's configured mapper, used to stream batch responses, and the cache regions of CacheConfiguration; the
+    // endpoints that name no region serve the default one. The binary protocol listens on cache.binary.port when it
+    // is set, running its writes on the cacheLoadExecutor bean when there is one, and on the common fork/join pool
+    // otherwise. With cache.cluster.nodes set to name=host:port pairs of the binary listeners, the default region's
+    // keys are sharded over those nodes, this one being cache.cluster.self.
+    public CachingController(ObjectMapper objectMapper, CacheManager cacheManager,
+                             @Qualifier(LOAD_EXECUTOR) ObjectProvider<Executor> loadExecutor,
+                             @Value("${cache.binary.port:-1}") int binaryPort,
+                             @Value("${cache.cluster.self:local}") String clusterSelf,
+                             @Value("${cache.cluster.nodes:}") String clusterNodes) throws IOException {
+        this.objectMapper = objectMapper;
+        this.cacheManager = cacheManager;
+        for (String name : cacheManager.getRegionNames()) {
+            if (RESERVED_REGION_NAMES.contains(name)) {
+                throw new IllegalStateException("A cache region cannot be named " + name);
+            }
+        }
+        this.cachingService = cacheManager.getRegion(CacheManager.DEFAULT_REGION);
+        this.binaryServer = (binaryPort >= 0)
+                ? new BinaryCacheServer(cachingService, binaryPort, loadExecutor.getIfAvailable(ForkJoinPool::commonPool))
+                : null;
+        Map<String, CacheNode> peers = peers(clusterSelf, parseNodes(clusterNodes));
+        if (!peers.isEmpty() && binaryServer == null) {
+            throw new IllegalStateException("cache.cluster.nodes requires cache.binary.port, which the other nodes forward to");
+        }
+        this.cluster = new ShardedCache(clusterSelf, cachingService, peers, VIRTUAL_NODES);
+    }
+
     /**
      * Constructor for CachingController.
      * Initializes the caching service with a specified maximum size.
      */
     @PostMapping
-    public String add(@RequestBody CacheEntity entity) {
-        cachingService.add(entity);
+    public String add(@RequestBody CacheEntity entity, @RequestParam(required = false) Long ttl) {
+        cluster.add(entity, (ttl != null && ttl > 0) ? Duration.ofSeconds(ttl) : null);
         return "Entity added";
     }
     /**
      * Adds a CacheEntity to the cache and database.
      * If the entity is null or has a null ID, it logs a warning and does not add it.
      * The cache uses a write-through strategy, meaning it writes to the database immediately.
+     * An optional ttl (in seconds) limits how long the entity stays cached.
      *
      * @param entity the CacheEntity to add
      */
     @GetMapping("/{id}")
     public CacheEntity get(@PathVariable String id, @RequestParam(defaultValue = "false") boolean loadFromDB) {
-        CacheEntity entity = new CacheEntity(id, null);
-        if (loadFromDB) {
-            return cachingService.get(entity, true);
-        } else {
-            return cachingService.get(entity,false);
-        }
+        return cluster.get(id, loadFromDB);
     }
     /**
      * Retrieves a CacheEntity by its ID.
@@ -49,8 +129,7 @@ public class CachingController {
      */
     @DeleteMapping("/{id}")
     public String remove(@PathVariable String id) {
-        CacheEntity entity = new CacheEntity(id, null);
-        cachingService.remove(entity);
+        cluster.remove(id);
         return "Entity removed";
     }
     /**
@@ -62,7 +141,7 @@ public class CachingController {
      */
     @DeleteMapping("/all")
     public String removeAll() {
-        cachingService.removeAll();
+        cluster.removeAll();
         return "All entities removed";
     }
     /**
@@ -75,6 +154,17 @@ public class CachingController {
     public int cacheSize() {
         return cachingService.cacheSize();
     }
+
+    /**
+     * Returns the current weight of the cache.
+     * With a weight bound this is the estimated number of bytes held, otherwise it equals the cache size.
+     *
+     * @return the weight of the cache
+     */
+    @GetMapping("/cacheWeight")
+    public long cacheWeight() {
+        return cachingService.cacheWeight();
+    }
     /**
      * Returns the current size of the cache.
      * It counts the number of entities currently stored in the cache.
@@ -85,4 +175,326 @@ public class CachingController {
     public int dbSize() {
         return cachingService.dbSize();
     }
+
+    /**
+     * Returns how far database persistence is behind the cache when write-behind mode is enabled.
+     *
+     * @return the pending write count, lag and flush counters
+     */
+    @GetMapping("/writeBehind")
+    public WriteBehindStats writeBehind() {
+        return cachingService.getWriteBehindStats();
+    }
+
+    /**
+     * Returns the state of the off-heap tier.
+     * It reports how many entities are held in direct memory and how many moved between it and the heap.
+     *
+     * @return the off-heap tier statistics
+     */
+    @GetMapping("/offHeap")
+    public OffHeapStats offHeap() {
+        return cachingService.getOffHeapStats();
+    }
+
+    /**
+     * Returns how much value compression saves: the compression ratio, and the CPU time spent compressing
+     * and decompressing.
+     *
+     * @return the compression statistics
+     */
+    @GetMapping("/compression")
+    public CompressionStats compression() {
+        return cachingService.getCompressionStats();
+    }
+
+    /**
+     * Returns how many invalidations this instance sent to and received from the others caching the same database.
+     *
+     * @return the invalidation statistics
+     */
+    @GetMapping("/invalidation")
+    public InvalidationStats invalidation() {
+        return cachingService.getInvalidationStats();
+    }
+
+    /**
+     * Returns the cache's statistics: hits, misses and hit rate, loads and load failures, removals by cause,
+     * and latency percentiles of reads, writes and loads.
+     *
+     * @return the cache statistics
+     */
+    @GetMapping("/stats")
+    public CacheStats stats() {
+        return cachingService.getStats();
+    }
+
+    /**
+     * Retrieves a CacheEntity by its ID without holding a request thread while a miss is loaded from the database.
+     * The request is suspended until the load completes, so many slow misses can be in flight at once.
+     *
+     * @param id the identifier of the entity to retrieve
+     * @param loadFromDB whether to load from database if not found in cache
+     * @return a future completed with the CacheEntity if found, otherwise with null
+     */
+    @GetMapping("/async/{id}")
+    public CompletableFuture<CacheEntity> getAsync(@PathVariable String id, @RequestParam(defaultValue = "false") boolean loadFromDB) {
+        return cluster.getAsync(id, loadFromDB);
+    }
+
+    /**
+     * Adds a batch of CacheEntity objects to the cache and database.
+     * In write-through mode the whole batch is written to the database with one call.
+     *
+     * @param entities the CacheEntity objects to add
+     * @return a confirmation message
+     */
+    @PostMapping("/batch")
+    public String addAll(@RequestBody List<CacheEntity> entities) {
+        cluster.putAll(entities);
+        return entities.size() + " entities added";
+    }
+
+    /**
+     * Retrieves a batch of CacheEntity objects by their IDs.
+     * Hits are served from the cache and, if loadFromDB is true, all misses are loaded with one database call.
+     * The found entities are streamed back in request order, as a JSON array or, if the client accepts only the
+     * binary form, as a binary batch; IDs not found are left out.
+     *
+     * @param ids the identifiers of the entities to retrieve
+     * @param loadFromDB whether to load from database if not found in cache
+     * @param accept the media types the client accepts
+     * @return the found entities, written to the response as they are serialized
+     */
+    @PostMapping(value = "/batch/get", produces = {MediaType.APPLICATION_JSON_VALUE, CacheEntityHttpMessageConverter.MEDIA_TYPE_VALUE})
+    public ResponseEntity<StreamingResponseBody> getAll(@RequestBody List<String> ids, @RequestParam(defaultValue = "false") boolean loadFromDB,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, defaultValue = MediaType.ALL_VALUE) String accept) {
+        Collection<CacheEntity> entities = cluster.getAll(ids, loadFromDB).values();
+        if (acceptsOnlyBinary(accept)) {
+            return ResponseEntity.ok().contentType(CacheEntityHttpMessageConverter.MEDIA_TYPE)
+                    .body(out -> CacheEntityCodec.writeBatch(entities, out));
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartArray();
+                for (CacheEntity entity : entities) {
+                    generator.writeObject(entity);
+                }
+                generator.writeEndArray();
+            }
+        });
+    }
+
+    private static boolean acceptsOnlyBinary(String accept) {
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        if (mediaTypes.isEmpty()) {
+            return false;
+        }
+        for (MediaType mediaType : mediaTypes) {
+            if (!CacheEntityHttpMessageConverter.MEDIA_TYPE.equalsTypeAndSubtype(mediaType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Deletes a batch of CacheEntity objects by their IDs.
+     * It removes the entities from both the cache and the database.
+     *
+     * @param ids the identifiers of the entities to delete
+     * @return a confirmation message
+     */
+    @PostMapping("/batch/remove")
+    public String removeAll(@RequestBody List<String> ids) {
+        cluster.removeAll(ids);
+        return "Entities removed";
+    }
+
+    /**
+     * Returns this node's view of the cluster: the members of the hash ring and how many requests were forwarded.
+     * The size and statistics endpoints report this node only.
+     *
+     * @return the cluster statistics
+     */
+    @GetMapping("/cluster")
+    public ClusterStats clusterStats() {
+        return cluster.getStats();
+    }
+
+    /**
+     * Changes the members of the cluster on this node, handing the entities it no longer owns off to their new
+     * owners. Every node must be sent the same members, each with the others.
+     *
+     * @param nodes the addresses of the binary listeners of all the nodes, by name, this one included
+     * @return the cluster statistics after the change
+     */
+    @PutMapping("/cluster")
+    public ClusterStats setClusterMembers(@RequestBody Map<String, String> nodes) {
+        Map<String, InetSocketAddress> addresses = new LinkedHashMap<>();
+        nodes.forEach((name, address) -> addresses.put(name, parseAddress(address)));
+        Map<String, CacheNode> peers = peers(cluster.getStats().getSelf(), addresses);
+        if (!peers.isEmpty() && binaryServer == null) {
+            throw new IllegalStateException("A cluster requires cache.binary.port, which the other nodes forward to");
+        }
+        cluster.setPeers(peers);
+        return cluster.getStats();
+    }
+
+    /**
+     * Returns a region's estimated miss ratio at other sizes, from a sample of its reads, with its current bound and
+     * the one auto-sizing last chose.
+     *
+     * @param region the name of the region
+     * @return the miss ratio curve
+     */
+    @GetMapping("/mrc")
+    public MissRatioCurve missRatioCurve(@RequestParam(defaultValue = CacheManager.DEFAULT_REGION) String region) {
+        return region(region).getMissRatioCurve();
+    }
+
+    /**
+     * Returns the memory a region uses per entry, in its heap cache and its compact tier. Walks every heap entry.
+     *
+     * @param region the name of the region
+     * @return the footprint of each tier of the region
+     */
+    @GetMapping("/footprint")
+    public FootprintStats footprint(@RequestParam(defaultValue = CacheManager.DEFAULT_REGION) String region) {
+        return region(region).getFootprint();
+    }
+
+    /**
+     * Returns a region's most read and written IDs over the recent window, with their estimated hits, misses and
+     * writes and whether they are pinned in the near cache.
+     *
+     * @param region the name of the region
+     * @param limit  the maximum number of IDs returned
+     * @return the hot keys
+     */
+    @GetMapping("/hotkeys")
+    public HotKeyStats hotKeys(@RequestParam(defaultValue = CacheManager.DEFAULT_REGION) String region,
+                               @RequestParam(defaultValue = "20") int limit) {
+        return region(region).getHotKeys(limit);
+    }
+
+    /**
+     * Returns every cache region with its size and weight against its bound.
+     *
+     * @return the statistics of the regions
+     */
+    @GetMapping("/regions")
+    public List<RegionStats> regions() {
+        return cacheManager.getRegionStats();
+    }
+
+    /**
+     * Adds a CacheEntity to a region and its database.
+     * An optional ttl (in seconds) limits how long the entity stays cached.
+     *
+     * @param region the name of the region
+     * @param entity the CacheEntity to add
+     * @param ttl    the time to live in seconds, or the region's default if absent
+     * @return a confirmation message
+     */
+    @PostMapping("/{region}")
+    public String add(@PathVariable String region, @RequestBody CacheEntity entity, @RequestParam(required = false) Long ttl) {
+        if (region.equals(CacheManager.DEFAULT_REGION)) {
+            return add(entity, ttl);
+        }
+        region(region).add(entity, (ttl != null && ttl > 0) ? Duration.ofSeconds(ttl) : null);
+        return "Entity added";
+    }
+
+    /**
+     * Retrieves a CacheEntity from a region by its ID.
+     * If loadFromDB is true, it fetches the entity from the region's database if not found in the region.
+     *
+     * @param region     the name of the region
+     * @param id         the identifier of the entity to retrieve
+     * @param loadFromDB whether to load from database if not found in cache
+     * @return the CacheEntity if found, otherwise null
+     */
+    @GetMapping("/{region}/{id}")
+    public CacheEntity get(@PathVariable String region, @PathVariable String id,
+                           @RequestParam(defaultValue = "false") boolean loadFromDB) {
+        if (region.equals(CacheManager.DEFAULT_REGION)) {
+            return get(id, loadFromDB);
+        }
+        return region(region).get(new CacheEntity(id, null), loadFromDB);
+    }
+
+    /**
+     * Deletes a CacheEntity from a region and its database.
+     *
+     * @param region the name of the region
+     * @param id     the identifier of the entity to delete
+     * @return a confirmation message
+     */
+    @DeleteMapping("/{region}/{id}")
+    public String remove(@PathVariable String region, @PathVariable String id) {
+        if (region.equals(CacheManager.DEFAULT_REGION)) {
+            return remove(id);
+        }
+        region(region).remove(new CacheEntity(id, null));
+        return "Entity removed";
+    }
+
+    private CachingService region(String name) {
+        CachingService region = cacheManager.getRegion(name);
+        if (region == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No cache region " + name);
+        }
+        return region;
+    }
+
+    // name=host:port,name=host:port
+    static Map<String, InetSocketAddress> parseNodes(String nodes) {
+        Map<String, InetSocketAddress> addresses = new LinkedHashMap<>();
+        for (String node : nodes.split(",")) {
+            if (node.isBlank()) {
+                continue;
+            }
+            int equals = node.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected name=host:port, got " + node);
+            }
+            addresses.put(node.substring(0, equals).trim(), parseAddress(node.substring(equals + 1)));
+        }
+        return addresses;
+    }
+
+    static InetSocketAddress parseAddress(String address) {
+        int colon = address.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected host:port, got " + address);
+        }
+        return InetSocketAddress.createUnresolved(address.substring(0, colon).trim(),
+                Integer.parseInt(address.substring(colon + 1).trim()));
+    }
+
+    private static Map<String, CacheNode> peers(String self, Map<String, InetSocketAddress> nodes) {
+        if (!nodes.isEmpty() && !nodes.containsKey(self)) {
+            throw new IllegalArgumentException("The cluster nodes " + nodes.keySet() + " do not include this node, " + self);
+        }
+        Map<String, CacheNode> peers = new LinkedHashMap<>();
+        nodes.forEach((name, address) -> {
+            if (!name.equals(self)) {
+                peers.put(name, new BinaryCacheClient(new InetSocketAddress(address.getHostString(), address.getPort()), FORWARD_TIMEOUT));
+            }
+        });
+        return peers;
+    }
+
+    /**
+     * Stops forwarding and the binary protocol before the application shuts down; the regions are closed by their
+     * CacheManager, which persists any queued writes.
+     */
+    @PreDestroy
+    public void shutdown() {
+        cluster.close();
+        if (binaryServer != null) {
+            binaryServer.close();
+        }
+    }
 }
\ No newline at end of file
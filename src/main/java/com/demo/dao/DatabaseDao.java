@@ -0,0 +1,68 @@
+package com.demo.dao;
+
+import com.demo.model.CacheEntity;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The backing store behind the cache. CacheEntity objects are stored and looked up by their ID.
+ * Implementations must be thread-safe.
+ */
+public interface DatabaseDao extends AutoCloseable {
+
+    /**
+     * Inserts or updates a CacheEntity.
+     * @param entity the CacheEntity to be added or updated
+     */
+    void save(CacheEntity entity);
+
+    /**
+     * Inserts or updates a batch of CacheEntity objects.
+     * @param entities the CacheEntity objects to be added or updated
+     */
+    void saveAll(Collection<CacheEntity> entities);
+
+    /**
+     * Fetches a CacheEntity by its unique identifier.
+     * @param id the identifier of the entity to retrieve
+     * @return the corresponding CacheEntity, or null if not found
+     */
+    CacheEntity get(String id);
+
+    /**
+     * Fetches a batch of CacheEntity objects by their unique identifiers.
+     * @param ids the identifiers of the entities to retrieve
+     * @return the entities found, keyed by ID; IDs that are not stored are absent
+     */
+    Map<String, CacheEntity> getAll(Collection<String> ids);
+
+    /**
+     * Deletes a CacheEntity using its ID.
+     * @param id the identifier of the entity to delete
+     */
+    void remove(String id);
+
+    /**
+     * Deletes a batch of CacheEntity objects using their IDs.
+     * @param ids the identifiers of the entities to delete
+     */
+    void removeAll(Collection<String> ids);
+
+    /**
+     * Deletes every CacheEntity.
+     */
+    void removeAll();
+
+    /**
+     * Returns the current number of CacheEntity objects in the store.
+     * @return the count of stored entities
+     */
+    int size();
+
+    /**
+     * Releases the resources held by the store. Stores that hold none do nothing.
+     */
+    @Override
+    default void close() {
+    }
+}
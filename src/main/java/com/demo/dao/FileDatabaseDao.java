@@ -0,0 +1,635 @@
+package com.demo.dao;
+
+import com.demo.model.CacheEntity;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class is a durable store that keeps CacheEntity objects in an append-only log on local disk.
+ * <p>
+ * The log is a directory of numbered segment files. Every save, removal and clear appends a record to the active
+ * segment; once it reaches the segment size it is sealed, memory-mapped read-only, and a new segment is started.
+ * An in-memory index maps each ID to the location of its latest record, so a read is a single positional read.
+ * <p>
+ * Writes are group-committed: a writer appends under a short lock and then waits for an fsync covering its record,
+ * and one fsync covers every record appended while the previous one was running. Overwritten and removed records
+ * are reclaimed by compacting the sealed segments, which copies their live records to the end of the log and
+ * deletes the files; it runs in the background once they hold more garbage than live data.
+ * <p>
+ * On startup the index is rebuilt by scanning the segments in order. Sealed segments were fsynced when they were
+ * sealed, so only record headers and keys are read; the last segment is checksummed and truncated at the first torn
+ * record left by a crash.
+ * <p>
+ * As with any FileChannel, interrupting a thread while it reads or writes the active segment closes the segment,
+ * after which the store has to be reopened.
+ * <p>
+ * Record layout: {@code [int crc32][byte type][int idLength][int dataLength or -1 for null][id UTF-8][data UTF-8]},
+ * the checksum covering everything after it.
+ */
+public class FileDatabaseDao implements DatabaseDao {
+    private static final Logger logger = LoggerFactory.getLogger(FileDatabaseDao.class);
+
+    /** Default size at which the active segment is sealed. */
+    public static final long DEFAULT_SEGMENT_BYTES = 64L << 20;
+
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+    private static final int CRC_SIZE = Integer.BYTES;
+    private static final int HEADER_SIZE = CRC_SIZE + 1 + 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean syncOnWrite;
+    // Location of the latest record of every stored ID; only modified while holding writeLock
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private final ExecutorService compactor;
+
+    // Guarded by writeLock
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private long appendedRecords;
+    private boolean closed;
+
+    private volatile long durableRecords;
+
+    /**
+     * Opens the store in the given directory, creating it if needed, with the default segment size
+     * and an fsync before every write returns.
+     * @param directory the directory holding the segment files
+     */
+    public FileDatabaseDao(Path directory) {
+        this(directory, DEFAULT_SEGMENT_BYTES, true);
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if needed, and rebuilds the index from its segments.
+     * @param directory the directory holding the segment files
+     * @param segmentBytes the size at which the active segment is sealed and a new one started
+     * @param syncOnWrite whether writes wait for an fsync; without it records reach the disk when a segment
+     *                    is sealed or the store is closed, and the last writes may be lost on a crash
+     */
+    public FileDatabaseDao(Path directory, long segmentBytes, boolean syncOnWrite) {
+        if (segmentBytes <= HEADER_SIZE || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentBytes must fit a record header and a memory mapping");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.syncOnWrite = syncOnWrite;
+        try {
+            Files.createDirectories(directory);
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open store in " + directory, e);
+        }
+        this.compactor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-dao-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void save(CacheEntity entity) {
+        awaitDurable(append(Collections.singletonList(entity)));
+    }
+
+    @Override
+    public void saveAll(Collection<CacheEntity> entities) {
+        if (!entities.isEmpty()) {
+            awaitDurable(append(entities));
+        }
+    }
+
+    @Override
+    public CacheEntity get(String id) {
+        while (true) {
+            Location location = index.get(id);
+            if (location == null) {
+                return null;
+            }
+            try {
+                return decode(location.segment.read(location.offset, location.length));
+            } catch (ClosedChannelException e) {
+                // The segment was sealed and compacted away while we read it; the index already points elsewhere
+                if (index.get(id) == location) {
+                    throw new UncheckedIOException("Store is closed", e);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read entity with ID: " + id, e);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, CacheEntity> getAll(Collection<String> ids) {
+        Map<String, CacheEntity> found = new HashMap<>();
+        for (String id : ids) {
+            CacheEntity entity = get(id);
+            if (entity != null) {
+                found.put(id, entity);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public void remove(String id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Deletes a batch of CacheEntity objects, appending their removal records under one lock and waiting for one fsync.
+     * @param ids the identifiers of the entities to delete
+     */
+    @Override
+    public void removeAll(Collection<String> ids) {
+        long record = 0;
+        writeLock.lock();
+        try {
+            for (String id : ids) {
+                if (index.containsKey(id)) {
+                    appendRecord(encode(DELETE, id, null));
+                    unindex(index.remove(id));
+                    record = appendedRecords;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(record);
+    }
+
+    /**
+     * Deletes every CacheEntity. A clear record is made durable first, so a crash while the old segments are
+     * deleted still leaves an empty store after recovery.
+     */
+    @Override
+    public void removeAll() {
+        compactionLock.lock();
+        try {
+            List<Segment> obsolete;
+            writeLock.lock();
+            try {
+                appendRecord(encode(CLEAR, "", null));
+                index.clear();
+                forceActive();
+                durableRecords = appendedRecords;
+                roll();
+                obsolete = new ArrayList<>(segments.subList(0, segments.size() - 1));
+                segments.removeAll(obsolete);
+            } finally {
+                writeLock.unlock();
+            }
+            delete(obsolete);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to clear store in " + directory, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Reclaims the space of overwritten and removed records by copying the live records of every sealed segment
+     * to the end of the log and deleting the sealed segments. Runs automatically in the background when the
+     * sealed segments hold more garbage than live data.
+     */
+    public void compact() {
+        compactionLock.lock();
+        try {
+            List<Segment> sealed;
+            writeLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                sealed = new ArrayList<>(segments.subList(0, segments.size() - 1));
+            } finally {
+                writeLock.unlock();
+            }
+            if (sealed.isEmpty()) {
+                return;
+            }
+            // Always a prefix of the log, so a removal record dropped here can only hide records dropped with it
+            long copied = 0;
+            for (Segment segment : sealed) {
+                copied += relocateLiveRecords(segment);
+            }
+            writeLock.lock();
+            try {
+                forceActive();
+                durableRecords = appendedRecords;
+                segments.removeAll(sealed);
+            } finally {
+                writeLock.unlock();
+            }
+            delete(sealed);
+            logger.info("Compacted {} segments, keeping {} live records.", sealed.size(), copied);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact store in " + directory, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Makes every write durable and closes the segment files. The store cannot be used afterwards.
+     */
+    @Override
+    public void close() {
+        // Not shutdownNow: interrupting a thread in a FileChannel operation closes the channel
+        compactor.shutdown();
+        compactionLock.lock();
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                forceActive();
+            } catch (ClosedChannelException e) {
+                // An interrupted read or write closed it; everything written is still in the file
+                logger.warn("Active segment {} was already closed; the last writes may not be synced.", active.path);
+            }
+            for (Segment segment : segments) {
+                segment.channel.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close store in " + directory, e);
+        } finally {
+            writeLock.unlock();
+            compactionLock.unlock();
+        }
+    }
+
+    // Appends a save record for every entity and returns the sequence number that must become durable
+    private long append(Collection<CacheEntity> entities) {
+        List<byte[]> records = new ArrayList<>(entities.size());
+        for (CacheEntity entity : entities) {
+            records.add(encode(PUT, entity.getId(), entity.getData()));
+        }
+        writeLock.lock();
+        try {
+            int i = 0;
+            for (CacheEntity entity : entities) {
+                byte[] record = records.get(i++);
+                Location location = appendRecord(record);
+                location.segment.liveBytes += record.length;
+                unindex(index.put(entity.getId(), location));
+            }
+            return appendedRecords;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Requires writeLock
+    private Location appendRecord(byte[] record) {
+        if (closed) {
+            throw new IllegalStateException("Store is closed");
+        }
+        try {
+            if (active.size > 0 && active.size + record.length > segmentBytes) {
+                roll();
+            }
+            long offset = active.size;
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) {
+                active.channel.write(buffer, offset + buffer.position());
+            }
+            active.size += record.length;
+            appendedRecords++;
+            return new Location(active, offset, record.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to " + active.path, e);
+        }
+    }
+
+    // Requires writeLock; the replaced record's bytes become garbage
+    private static void unindex(Location replaced) {
+        if (replaced != null) {
+            replaced.segment.liveBytes -= replaced.length;
+        }
+    }
+
+    // Group commit: whoever gets the sync lock first fsyncs every record appended so far, covering the writers queued behind it
+    private void awaitDurable(long record) {
+        if (!syncOnWrite || durableRecords >= record) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durableRecords >= record) {
+                return;
+            }
+            long target;
+            FileChannel channel;
+            writeLock.lock();
+            try {
+                target = appendedRecords;
+                channel = active.channel;
+            } finally {
+                writeLock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // Sealed, and therefore forced, since we looked at it
+            }
+            durableRecords = Math.max(durableRecords, target);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to sync store in " + directory, e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Requires writeLock
+    private void forceActive() throws IOException {
+        active.channel.force(false);
+    }
+
+    // Requires writeLock; seals the active segment and starts a new one
+    private void roll() throws IOException {
+        forceActive();
+        active.seal();
+        active = openSegment(active.id + 1);
+        segments.add(active);
+        scheduleCompactionIfWorthwhile();
+    }
+
+    // Requires writeLock
+    private void scheduleCompactionIfWorthwhile() {
+        long live = 0;
+        long garbage = 0;
+        for (Segment segment : segments) {
+            if (segment != active) {
+                live += segment.liveBytes;
+                garbage += segment.size - segment.liveBytes;
+            }
+        }
+        if (garbage > live) {
+            try {
+                compactor.execute(this::compactQuietly);
+            } catch (RejectedExecutionException e) {
+                // Closing
+            }
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (RuntimeException e) {
+            logger.error("Background compaction of {} failed.", directory, e);
+        }
+    }
+
+    // Copies the segment's records that the index still points to to the end of the log
+    private long relocateLiveRecords(Segment segment) {
+        ByteBuffer buffer = segment.mapped.duplicate();
+        long copied = 0;
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.limit()) {
+            byte type = buffer.get(offset + CRC_SIZE);
+            int length = recordLength(buffer, offset);
+            if (type == PUT) {
+                String id = readId(buffer, offset);
+                writeLock.lock();
+                try {
+                    Location location = index.get(id);
+                    if (location != null && location.segment == segment && location.offset == offset) {
+                        byte[] record = new byte[length];
+                        buffer.position(offset);
+                        buffer.get(record);
+                        Location relocated = appendRecord(record);
+                        relocated.segment.liveBytes += length;
+                        unindex(index.put(id, relocated));
+                        copied++;
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            offset += length;
+        }
+        return copied;
+    }
+
+    private void delete(List<Segment> obsolete) throws IOException {
+        // Oldest first, so a crash part way through never leaves a newer record without the ones it supersedes
+        for (Segment segment : obsolete) {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        }
+    }
+
+    // Rebuilds the index from the segment files, truncating a torn record at the end of the last one
+    private void recover() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        for (int i = 0; i < files.size(); i++) {
+            String name = files.get(i).getFileName().toString();
+            Segment segment = openSegment(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            segments.add(segment);
+            scan(segment, i == files.size() - 1);
+        }
+        if (segments.isEmpty()) {
+            segments.add(openSegment(1));
+        }
+        active = segments.get(segments.size() - 1);
+        for (Segment segment : segments) {
+            if (segment != active) {
+                segment.seal();
+            }
+        }
+        if (!index.isEmpty()) {
+            logger.info("Recovered {} entities from {} segments in {}.", index.size(), segments.size(), directory);
+        }
+    }
+
+    private void scan(Segment segment, boolean last) throws IOException {
+        long fileSize = segment.channel.size();
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IOException("Segment is too large: " + segment.path);
+        }
+        MappedByteBuffer buffer = segment.channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+        int offset = 0;
+        while (offset < fileSize) {
+            if (offset + HEADER_SIZE > fileSize || recordLength(buffer, offset) > fileSize - offset
+                    || (last && !checksumMatches(buffer, offset))) {
+                if (!last) {
+                    throw new IOException("Corrupt record at offset " + offset + " in sealed segment " + segment.path);
+                }
+                logger.warn("Truncating torn record at offset {} in {}.", offset, segment.path);
+                segment.channel.truncate(offset);
+                break;
+            }
+            int length = recordLength(buffer, offset);
+            byte type = buffer.get(offset + CRC_SIZE);
+            if (type == PUT) {
+                Location location = new Location(segment, offset, length);
+                segment.liveBytes += length;
+                unindex(index.put(readId(buffer, offset), location));
+            } else if (type == DELETE) {
+                unindex(index.remove(readId(buffer, offset)));
+            } else {
+                for (Location location : index.values()) {
+                    unindex(location);
+                }
+                index.clear();
+            }
+            offset += length;
+        }
+        segment.size = offset;
+    }
+
+    private Segment openSegment(long id) throws IOException {
+        Path path = directory.resolve(String.format("%08d%s", id, SEGMENT_SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new Segment(id, path, channel);
+    }
+
+    private static byte[] encode(byte type, String id, String data) {
+        byte[] idBytes = id.getBytes(StandardCharsets.UTF_8);
+        byte[] dataBytes = (data == null) ? null : data.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + idBytes.length + ((dataBytes == null) ? 0 : dataBytes.length));
+        record.position(CRC_SIZE);
+        record.put(type).putInt(idBytes.length).putInt((dataBytes == null) ? -1 : dataBytes.length).put(idBytes);
+        if (dataBytes != null) {
+            record.put(dataBytes);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), CRC_SIZE, record.capacity() - CRC_SIZE);
+        record.putInt(0, (int) crc.getValue());
+        return record.array();
+    }
+
+    private static CacheEntity decode(ByteBuffer record) {
+        String id = readId(record, 0);
+        int idLength = record.getInt(CRC_SIZE + 1);
+        int dataLength = record.getInt(CRC_SIZE + 1 + Integer.BYTES);
+        String data = (dataLength < 0) ? null : readString(record, HEADER_SIZE + idLength, dataLength);
+        return new CacheEntity(id, data);
+    }
+
+    private static int recordLength(ByteBuffer buffer, int offset) {
+        int idLength = buffer.getInt(offset + CRC_SIZE + 1);
+        int dataLength = buffer.getInt(offset + CRC_SIZE + 1 + Integer.BYTES);
+        if (idLength < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return HEADER_SIZE + idLength + Math.max(dataLength, 0);
+    }
+
+    private static boolean checksumMatches(ByteBuffer buffer, int offset) {
+        int length = recordLength(buffer, offset);
+        ByteBuffer body = buffer.duplicate();
+        body.limit(offset + length).position(offset + CRC_SIZE);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue() == buffer.getInt(offset);
+    }
+
+    private static String readId(ByteBuffer buffer, int offset) {
+        return readString(buffer, offset + HEADER_SIZE, buffer.getInt(offset + CRC_SIZE + 1));
+    }
+
+    private static String readString(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Where the latest record of an ID is stored.
+     */
+    private static final class Location {
+        final Segment segment;
+        final long offset;
+        final int length;
+
+        Location(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * One file of the log. Only the active segment is written; sealed segments are read through a memory mapping.
+     */
+    private static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        volatile MappedByteBuffer mapped;
+        // Guarded by writeLock
+        long size;
+        long liveBytes;
+
+        Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        void seal() throws IOException {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        ByteBuffer read(long offset, int length) throws IOException {
+            MappedByteBuffer sealed = mapped;
+            if (sealed != null) {
+                ByteBuffer record = sealed.duplicate();
+                record.limit((int) offset + length).position((int) offset);
+                return record.slice();
+            }
+            ByteBuffer record = ByteBuffer.allocate(length);
+            while (record.hasRemaining()) {
+                if (channel.read(record, offset + record.position()) < 0) {
+                    throw new IOException("Unexpected end of segment " + path);
+                }
+            }
+            return record.flip();
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.demo.dao;
 
 import com.demo.model.CacheEntity;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class acts as a mock database, storing CacheEntity objects in memory.
- * It provides thread-safe methods for basic data operations.
+ * It provides thread-safe methods for basic data operations, and loses everything when the JVM exits.
+ * See {@link FileDatabaseDao} for a store that survives restarts.
  */
-public class MockDatabaseDao {
+public class MockDatabaseDao implements DatabaseDao {
     // Stores CacheEntity objects in a thread-safe map, using their ID as the key
     private final ConcurrentHashMap<String, CacheEntity> inMemoryDataStore = new ConcurrentHashMap<>();
 
@@ -15,30 +19,73 @@ public class MockDatabaseDao {
      * Inserts or updates a CacheEntity in the in-memory store.
      * @param entity the CacheEntity to be added or updated
      */
+    @Override
     public void save(CacheEntity entity) {
         inMemoryDataStore.put(entity.getId(), entity);
     }
 
+    /**
+     * Inserts or updates a batch of CacheEntity objects in the in-memory store.
+     * @param entities the CacheEntity objects to be added or updated
+     */
+    @Override
+    public void saveAll(Collection<CacheEntity> entities) {
+        for (CacheEntity entity : entities) {
+            inMemoryDataStore.put(entity.getId(), entity);
+        }
+    }
+
     /**
      * Fetches a CacheEntity by its unique identifier.
      * @param id the identifier of the entity to retrieve
      * @return the corresponding CacheEntity, or null if not found
      */
+    @Override
     public CacheEntity get(String id) {
         return inMemoryDataStore.get(id);
     }
 
+    /**
+     * Fetches a batch of CacheEntity objects by their unique identifiers.
+     * @param ids the identifiers of the entities to retrieve
+     * @return the entities found, keyed by ID
+     */
+    @Override
+    public Map<String, CacheEntity> getAll(Collection<String> ids) {
+        Map<String, CacheEntity> found = new HashMap<>();
+        for (String id : ids) {
+            CacheEntity entity = inMemoryDataStore.get(id);
+            if (entity != null) {
+                found.put(id, entity);
+            }
+        }
+        return found;
+    }
+
     /**
      * Deletes a CacheEntity from the store using its ID.
      * @param id the identifier of the entity to delete
      */
+    @Override
     public void remove(String id) {
         inMemoryDataStore.remove(id);
     }
 
+    /**
+     * Deletes a batch of CacheEntity objects from the store using their IDs.
+     * @param ids the identifiers of the entities to delete
+     */
+    @Override
+    public void removeAll(Collection<String> ids) {
+        for (String id : ids) {
+            inMemoryDataStore.remove(id);
+        }
+    }
+
     /**
      * Clears all entries from the in-memory data store.
      */
+    @Override
     public void removeAll() {
         inMemoryDataStore.clear();
     }
@@ -47,6 +94,7 @@ public class MockDatabaseDao {
      * Returns the current number of CacheEntity objects in the store.
      * @return the count of stored entities
      */
+    @Override
     public int size() {
         return inMemoryDataStore.size();
     }
@@ -1,11 +1,23 @@
 package com.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
 /**
  * Represents a basic data entity that has a unique ID and associated data.
+ * The data of a large entity may be held compressed by a {@link CacheEntityCompressor}; it is then decompressed
+ * each time it is read, and the entity otherwise behaves exactly like an uncompressed one.
+ * When caches invalidate each other, every write is stamped with a version that orders it against the writes of the
+ * other nodes; an unversioned entity has version 0.
  */
 public class CacheEntity {
     private final String id;
-    private final String data;
+    private final String data; // null when compressed
+    private final byte[] compressedData; // null unless compressed
+    private final CacheEntityCompressor compressor;
+    private final long version;
 
     /**
      * Constructs an CacheEntity object.
@@ -13,8 +25,31 @@ public class CacheEntity {
      * @param data payload or value associated with the entity
      */
     public CacheEntity(String id, String data) {
+        this(id, data, 0);
+    }
+
+    /**
+     * Constructs a versioned CacheEntity object.
+     * @param id unique identifier for the entity
+     * @param data payload or value associated with the entity
+     * @param version the version of the write that produced it, or 0 if unversioned
+     */
+    @JsonCreator
+    public CacheEntity(@JsonProperty("id") String id, @JsonProperty("data") String data, @JsonProperty("version") long version) {
         this.id = id;
         this.data = data;
+        this.compressedData = null;
+        this.compressor = null;
+        this.version = version;
+    }
+
+    // A compressed entity, created by the compressor that decompresses it
+    CacheEntity(String id, byte[] compressedData, CacheEntityCompressor compressor, long version) {
+        this.id = id;
+        this.data = null;
+        this.compressedData = compressedData;
+        this.compressor = compressor;
+        this.version = version;
     }
 
     /**
@@ -25,9 +60,33 @@ public class CacheEntity {
     }
 
     /**
-     * @return the data of the entity
+     * @return the data of the entity, decompressed if it is held compressed
      */
     public String getData() {
-        return data;
+        return (compressedData == null) ? data : compressor.decompress(compressedData);
+    }
+
+    /**
+     * @return the version of the write that produced the entity, or 0 if it is unversioned
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return whether the data is held compressed
+     */
+    @JsonIgnore
+    public boolean isCompressed() {
+        return compressedData != null;
+    }
+
+    /**
+     * @return the number of bytes of compressed data held, or 0 if the data is not compressed
+     */
+    @JsonIgnore
+    public int getCompressedSize() {
+        return (compressedData == null) ? 0 : compressedData.length;
     }
 }
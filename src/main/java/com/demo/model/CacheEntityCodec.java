@@ -0,0 +1,160 @@
+package com.demo.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * CacheEntityCodec is the compact binary form of CacheEntity, the alternative to JSON for internal clients.
+ * <p>
+ * Layout, big-endian: {@code [int idLength][id UTF-8][long version][int dataLength, -1 for null][data UTF-8]}. A
+ * batch is {@code [int count]} followed by that many entities.
+ * <p>
+ * An entity is encoded afresh each time it is written. Keeping the encoded form on a cached entity would double its
+ * footprint without the cache's weigher counting it. {@link #encodedSize} counts the bytes without encoding.
+ */
+public final class CacheEntityCodec {
+
+    // An entity with an empty ID and null data: the two lengths and the version
+    private static final int MIN_ENCODED_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+    private CacheEntityCodec() {
+    }
+
+    /**
+     * @param entity the entity to encode
+     * @return a buffer over the entity's encoded form, positioned at its start
+     */
+    public static ByteBuffer encode(CacheEntity entity) {
+        return ByteBuffer.wrap(bytes(entity));
+    }
+
+    /**
+     * @param entity the entity
+     * @return the number of bytes of its encoded form
+     */
+    public static int encodedSize(CacheEntity entity) {
+        String data = entity.getData();
+        return MIN_ENCODED_SIZE + utf8Length(entity.getId()) + ((data == null) ? 0 : utf8Length(data));
+    }
+
+    /**
+     * Writes an entity's encoded form to a stream.
+     * @param entity the entity
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(CacheEntity entity, OutputStream out) throws IOException {
+        out.write(bytes(entity));
+    }
+
+    /**
+     * Writes a batch of entities to a stream.
+     * @param entities the entities
+     * @param out the stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void writeBatch(Collection<CacheEntity> entities, OutputStream out) throws IOException {
+        out.write(ByteBuffer.allocate(Integer.BYTES).putInt(entities.size()).array());
+        for (CacheEntity entity : entities) {
+            out.write(bytes(entity));
+        }
+    }
+
+    /**
+     * Reads one entity, advancing the buffer past it.
+     * @param buffer the buffer, positioned at an encoded entity
+     * @return the entity
+     * @throws IllegalArgumentException if the buffer does not hold a well-formed entity
+     */
+    public static CacheEntity decode(ByteBuffer buffer) {
+        String id = readString(buffer, readLength(buffer));
+        if (buffer.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("Malformed entity: truncated version");
+        }
+        long version = buffer.getLong();
+        int dataLength = readLength(buffer);
+        return new CacheEntity(id, (dataLength < 0) ? null : readString(buffer, dataLength), version);
+    }
+
+    /**
+     * Reads a batch of entities, advancing the buffer past it.
+     * @param buffer the buffer, positioned at an encoded batch
+     * @return the entities, in order
+     * @throws IllegalArgumentException if the buffer does not hold a well-formed batch
+     */
+    public static List<CacheEntity> decodeBatch(ByteBuffer buffer) {
+        int count = readLength(buffer);
+        // Each entity takes at least 16 bytes, which bounds the count a malformed header can claim
+        if (count < 0 || count > buffer.remaining() / MIN_ENCODED_SIZE) {
+            throw new IllegalArgumentException("Malformed entity batch: count " + count);
+        }
+        List<CacheEntity> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(decode(buffer));
+        }
+        return entities;
+    }
+
+    /**
+     * Reads a length-prefixed UTF-8 string, advancing the buffer past it.
+     * @param buffer the buffer, positioned at {@code [int length][UTF-8]}
+     * @return the string
+     * @throws IllegalArgumentException if the buffer does not hold a well-formed string
+     */
+    public static String readString(ByteBuffer buffer) {
+        return readString(buffer, readLength(buffer));
+    }
+
+    private static byte[] bytes(CacheEntity entity) {
+        byte[] id = entity.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] data = (entity.getData() == null) ? null : entity.getData().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(MIN_ENCODED_SIZE + id.length + ((data == null) ? 0 : data.length));
+        buffer.putInt(id.length).put(id).putLong(entity.getVersion()).putInt((data == null) ? -1 : data.length);
+        if (data != null) {
+            buffer.put(data);
+        }
+        return buffer.array();
+    }
+
+    // The length of a string in UTF-8, as String.getBytes encodes it: an unpaired surrogate becomes a single '?'
+    private static int utf8Length(String s) {
+        int length = s.length();
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                length++;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                // Four bytes for the two chars
+                length += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                length += 2;
+            }
+        }
+        return length;
+    }
+
+    private static int readLength(ByteBuffer buffer) {
+        if (buffer.remaining() < Integer.BYTES) {
+            throw new IllegalArgumentException("Malformed entity: truncated length");
+        }
+        return buffer.getInt();
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed entity: length " + length + " with " + buffer.remaining() + " bytes left");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
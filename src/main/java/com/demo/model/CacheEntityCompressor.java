@@ -0,0 +1,114 @@
+package com.demo.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * CacheEntityCompressor holds the data of large CacheEntity objects deflated, to cut the memory taken by text-heavy
+ * payloads. Data shorter than the threshold is left alone, since its compressed form would save little and cost a
+ * decompression on every read, and so is data that deflates by less than an eighth.
+ * <p>
+ * A compressed entity keeps {@code [int UTF-8 length][raw deflate stream]} and is decompressed lazily, each time its
+ * data is read. Deflaters and inflaters are reused per thread, as creating them allocates native memory.
+ * Compressions and decompressions are counted and timed for {@link CompressionStats}.
+ */
+public final class CacheEntityCompressor {
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final int threshold;
+    private final LongAdder compressions = new LongAdder();
+    private final LongAdder incompressible = new LongAdder();
+    private final LongAdder uncompressedBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder compressNanos = new LongAdder();
+    private final LongAdder decompressions = new LongAdder();
+    private final LongAdder decompressNanos = new LongAdder();
+
+    /**
+     * @param threshold the length, in characters, from which data is compressed
+     */
+    public CacheEntityCompressor(int threshold) {
+        if (threshold <= 0) {
+            throw new IllegalArgumentException("Compression threshold must be positive");
+        }
+        this.threshold = threshold;
+    }
+
+    /**
+     * Returns the entity with its data compressed, if it is long enough and compresses well enough.
+     * @param entity the entity, which is returned as it is if already compressed
+     * @return a compressed copy of the entity, or the entity itself
+     */
+    public CacheEntity compress(CacheEntity entity) {
+        if (entity.isCompressed()) {
+            return entity;
+        }
+        String data = entity.getData();
+        if (data == null || data.length() < threshold) {
+            return entity;
+        }
+        long startTime = System.nanoTime();
+        byte[] raw = data.getBytes(StandardCharsets.UTF_8);
+        // Anything that does not fit in 7/8 of the raw size is not worth keeping
+        byte[] out = new byte[Integer.BYTES + raw.length - raw.length / 8];
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        int length = Integer.BYTES;
+        while (!deflater.finished() && length < out.length) {
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        boolean fits = deflater.finished();
+        deflater.reset();
+        compressNanos.add(System.nanoTime() - startTime);
+        if (!fits) {
+            incompressible.increment();
+            return entity;
+        }
+        ByteBuffer.wrap(out).putInt(raw.length);
+        compressions.increment();
+        uncompressedBytes.add(raw.length);
+        compressedBytes.add(length);
+        return new CacheEntity(entity.getId(), Arrays.copyOf(out, length), this, entity.getVersion());
+    }
+
+    /**
+     * @return how much was compressed, how well, and at what cost
+     */
+    public CompressionStats stats() {
+        return new CompressionStats(true, threshold, compressions.sum(), incompressible.sum(), uncompressedBytes.sum(),
+                compressedBytes.sum(), compressNanos.sum(), decompressions.sum(), decompressNanos.sum());
+    }
+
+    String decompress(byte[] compressed) {
+        long startTime = System.nanoTime();
+        byte[] raw = new byte[ByteBuffer.wrap(compressed).getInt()];
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressed, Integer.BYTES, compressed.length - Integer.BYTES);
+        try {
+            int length = 0;
+            while (length < raw.length) {
+                int inflated = inflater.inflate(raw, length, raw.length - length);
+                if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Compressed data is truncated");
+                }
+                length += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Compressed data is corrupt", e);
+        } finally {
+            inflater.reset();
+        }
+        decompressions.increment();
+        decompressNanos.add(System.nanoTime() - startTime);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+}
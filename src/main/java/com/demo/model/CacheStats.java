@@ -0,0 +1,156 @@
+package com.demo.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A point-in-time view of how well the cache is doing: hits and misses, loads from the database,
+ * why entries left the cache, and how long reads, writes and loads take.
+ */
+public class CacheStats {
+    /** Reported when statistics recording is turned off. */
+    public static final CacheStats DISABLED = new CacheStats(false, 0, 0, 0, 0, 0, 0, Collections.emptyMap(),
+            LatencyStats.EMPTY, LatencyStats.EMPTY, LatencyStats.EMPTY);
+
+    private final boolean enabled;
+    private final long hits;
+    private final long l1Hits;
+    private final long misses;
+    private final long negativeHits;
+    private final long loads;
+    private final long loadFailures;
+    private final Map<String, Long> removals;
+    private final LatencyStats getLatency;
+    private final LatencyStats addLatency;
+    private final LatencyStats loadLatency;
+
+    /**
+     * Constructs a CacheStats object.
+     * @param enabled whether statistics are being recorded
+     * @param hits total reads served from the cache
+     * @param l1Hits the part of the hits served by the near cache (L1) of a tiered cache
+     * @param misses total reads that did not find the entity in the cache
+     * @param negativeHits the part of the misses answered by a cached database miss, without a load
+     * @param loads total calls to a loader, successful or not
+     * @param loadFailures total calls to a loader that threw
+     * @param removals total entries that left the cache, by removal cause
+     * @param getLatency latency of single-entity reads
+     * @param addLatency latency of single-entity writes
+     * @param loadLatency latency of loader calls
+     */
+    public CacheStats(boolean enabled, long hits, long l1Hits, long misses, long negativeHits, long loads, long loadFailures,
+                      Map<String, Long> removals,
+                      LatencyStats getLatency, LatencyStats addLatency, LatencyStats loadLatency) {
+        this.enabled = enabled;
+        this.hits = hits;
+        this.l1Hits = l1Hits;
+        this.misses = misses;
+        this.negativeHits = negativeHits;
+        this.loads = loads;
+        this.loadFailures = loadFailures;
+        this.removals = removals;
+        this.getLatency = getLatency;
+        this.addLatency = addLatency;
+        this.loadLatency = loadLatency;
+    }
+
+    /**
+     * @return whether statistics are being recorded
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the total number of reads served from the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of hits served by the near cache (L1), always 0 if the cache is not tiered
+     */
+    public long getL1Hits() {
+        return l1Hits;
+    }
+
+    /**
+     * @return the number of hits served by the main cache (L2)
+     */
+    public long getL2Hits() {
+        return hits - l1Hits;
+    }
+
+    /**
+     * @return the total number of reads that did not find the entity in the cache
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of misses answered by a cached database miss, so the database was not asked again;
+     *         always 0 without negative caching
+     */
+    public long getNegativeHits() {
+        return negativeHits;
+    }
+
+    /**
+     * @return the fraction of reads served from the cache, or 1 if there were no reads
+     */
+    public double getHitRate() {
+        long requests = hits + misses;
+        return (requests == 0) ? 1.0 : (double) hits / requests;
+    }
+
+    /**
+     * @return the total number of calls to a loader, successful or not
+     */
+    public long getLoads() {
+        return loads;
+    }
+
+    /**
+     * @return the total number of calls to a loader that threw
+     */
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    /**
+     * @return the total number of entries that left the cache, keyed by removal cause (EXPLICIT, SIZE, EXPIRED)
+     */
+    public Map<String, Long> getRemovals() {
+        return removals;
+    }
+
+    /**
+     * @return the total number of entries evicted to keep the cache within its capacity
+     */
+    public long getEvictions() {
+        return removals.getOrDefault("SIZE", 0L);
+    }
+
+    /**
+     * @return the latency of single-entity reads
+     */
+    public LatencyStats getGetLatency() {
+        return getLatency;
+    }
+
+    /**
+     * @return the latency of single-entity writes
+     */
+    public LatencyStats getAddLatency() {
+        return addLatency;
+    }
+
+    /**
+     * @return the latency of loader calls, single or batched
+     */
+    public LatencyStats getLoadLatency() {
+        return loadLatency;
+    }
+}
@@ -0,0 +1,75 @@
+package com.demo.model;
+
+import java.util.List;
+
+/**
+ * A point-in-time view of a node of a sharded cache cluster: the members of the ring and how much this node forwards.
+ */
+public class ClusterStats {
+    private final String self;
+    private final List<String> members;
+    private final int virtualNodes;
+    private final int localSize;
+    private final long forwarded;
+    private final long handedOff;
+
+    /**
+     * Constructs a ClusterStats object.
+     * @param self the name of this node
+     * @param members the names of all the nodes, this one first
+     * @param virtualNodes the number of ring points per node
+     * @param localSize number of entities cached by this node
+     * @param forwarded total requests for keys forwarded to the node that owns them
+     * @param handedOff total entities moved to a new owner after a membership change
+     */
+    public ClusterStats(String self, List<String> members, int virtualNodes, int localSize, long forwarded, long handedOff) {
+        this.self = self;
+        this.members = members;
+        this.virtualNodes = virtualNodes;
+        this.localSize = localSize;
+        this.forwarded = forwarded;
+        this.handedOff = handedOff;
+    }
+
+    /**
+     * @return the name of this node
+     */
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * @return the names of all the nodes, this one first
+     */
+    public List<String> getMembers() {
+        return members;
+    }
+
+    /**
+     * @return the number of ring points per node
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * @return the number of entities cached by this node
+     */
+    public int getLocalSize() {
+        return localSize;
+    }
+
+    /**
+     * @return the total number of keys forwarded to the node that owns them; a batch counts each of its keys
+     */
+    public long getForwarded() {
+        return forwarded;
+    }
+
+    /**
+     * @return the total number of entities moved to a new owner after a membership change
+     */
+    public long getHandedOff() {
+        return handedOff;
+    }
+}
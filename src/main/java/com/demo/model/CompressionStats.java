@@ -0,0 +1,122 @@
+package com.demo.model;
+
+/**
+ * A point-in-time view of value compression: how much data was compressed, how well, and how much CPU time
+ * compressing and decompressing took. Byte counts are totals over every compression, not the resident data.
+ */
+public class CompressionStats {
+    /** Reported when compression is turned off. */
+    public static final CompressionStats DISABLED = new CompressionStats(false, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final boolean enabled;
+    private final int threshold;
+    private final long compressions;
+    private final long incompressible;
+    private final long uncompressedBytes;
+    private final long compressedBytes;
+    private final long compressNanos;
+    private final long decompressions;
+    private final long decompressNanos;
+
+    /**
+     * Constructs a CompressionStats object.
+     * @param enabled whether values are compressed
+     * @param threshold the data length, in characters, from which values are compressed
+     * @param compressions total values compressed
+     * @param incompressible total values over the threshold left uncompressed because they did not shrink enough
+     * @param uncompressedBytes total UTF-8 bytes of the values compressed
+     * @param compressedBytes total bytes those values were compressed to
+     * @param compressNanos total time spent compressing, including attempts on incompressible values
+     * @param decompressions total reads of compressed data
+     * @param decompressNanos total time spent decompressing
+     */
+    public CompressionStats(boolean enabled, int threshold, long compressions, long incompressible, long uncompressedBytes,
+                            long compressedBytes, long compressNanos, long decompressions, long decompressNanos) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.compressions = compressions;
+        this.incompressible = incompressible;
+        this.uncompressedBytes = uncompressedBytes;
+        this.compressedBytes = compressedBytes;
+        this.compressNanos = compressNanos;
+        this.decompressions = decompressions;
+        this.decompressNanos = decompressNanos;
+    }
+
+    /**
+     * @return whether values are compressed
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the data length, in characters, from which values are compressed
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * @return the total number of values compressed
+     */
+    public long getCompressions() {
+        return compressions;
+    }
+
+    /**
+     * @return the total number of values over the threshold left uncompressed because they did not shrink enough
+     */
+    public long getIncompressible() {
+        return incompressible;
+    }
+
+    /**
+     * @return the total number of UTF-8 bytes of the values compressed
+     */
+    public long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * @return the total number of bytes those values were compressed to
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * @return how many times smaller the compressed values are, or 1 if nothing was compressed
+     */
+    public double getCompressionRatio() {
+        return (compressedBytes == 0) ? 1.0 : (double) uncompressedBytes / compressedBytes;
+    }
+
+    /**
+     * @return the total time spent compressing, in nanoseconds
+     */
+    public long getCompressNanos() {
+        return compressNanos;
+    }
+
+    /**
+     * @return the total number of reads of compressed data
+     */
+    public long getDecompressions() {
+        return decompressions;
+    }
+
+    /**
+     * @return the total time spent decompressing, in nanoseconds
+     */
+    public long getDecompressNanos() {
+        return decompressNanos;
+    }
+
+    /**
+     * @return the mean time of a decompression, in nanoseconds, or 0 if there was none
+     */
+    public long getMeanDecompressNanos() {
+        return (decompressions == 0) ? 0 : decompressNanos / decompressions;
+    }
+}
@@ -0,0 +1,110 @@
+package com.demo.model;
+
+import java.util.List;
+
+/**
+ * The memory each tier of the cache uses per entry, against the bytes of the IDs and data it holds.
+ */
+public class FootprintStats {
+    private final List<Tier> tiers;
+
+    /**
+     * Constructs a FootprintStats object.
+     * @param tiers the tiers of the cache, the heap cache first
+     */
+    public FootprintStats(List<Tier> tiers) {
+        this.tiers = tiers;
+    }
+
+    /**
+     * @return the tiers of the cache, the heap cache first
+     */
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * The footprint of one tier.
+     */
+    public static class Tier {
+        private final String name;
+        private final int entries;
+        private final long bytes;
+        private final long payloadBytes;
+        private final long objects;
+        private final boolean estimated;
+
+        /**
+         * @param name the name of the tier
+         * @param entries number of entities held
+         * @param bytes heap bytes used by the tier, including what it has allocated but not filled yet
+         * @param payloadBytes bytes of the IDs and data held, one per character of Latin-1 text
+         * @param objects number of heap objects the tier is made of
+         * @param estimated whether the bytes are estimated per entry rather than measured from the tier's arrays
+         */
+        public Tier(String name, int entries, long bytes, long payloadBytes, long objects, boolean estimated) {
+            this.name = name;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.payloadBytes = payloadBytes;
+            this.objects = objects;
+            this.estimated = estimated;
+        }
+
+        /**
+         * @return the name of the tier
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the number of entities held
+         */
+        public int getEntries() {
+            return entries;
+        }
+
+        /**
+         * @return the heap bytes used by the tier, including what it has allocated but not filled yet
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the bytes of the IDs and data held
+         */
+        public long getPayloadBytes() {
+            return payloadBytes;
+        }
+
+        /**
+         * @return the number of heap objects the tier is made of
+         */
+        public long getObjects() {
+            return objects;
+        }
+
+        /**
+         * @return whether the bytes are estimated per entry rather than measured from the tier's arrays
+         */
+        public boolean isEstimated() {
+            return estimated;
+        }
+
+        /**
+         * @return the heap bytes per entity, or 0 if the tier is empty
+         */
+        public double getBytesPerEntry() {
+            return (entries == 0) ? 0 : (double) bytes / entries;
+        }
+
+        /**
+         * @return the heap bytes per entity beyond its ID and data, or 0 if the tier is empty
+         */
+        public double getOverheadPerEntry() {
+            return (entries == 0) ? 0 : (double) (bytes - payloadBytes) / entries;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.demo.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The most accessed IDs of the cache over a recent window, with their estimated hits, misses and writes.
+ */
+public class HotKeyStats {
+    /** Reported when the cache does not track its hot keys. */
+    public static final HotKeyStats DISABLED = new HotKeyStats(false, 0, 0, 0, 0, Collections.emptyList());
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final int capacity;
+    private final int sampleOneIn;
+    private final long dropped;
+    private final List<HotKey> keys;
+
+    /**
+     * Constructs a HotKeyStats object.
+     * @param enabled whether the cache tracks its hot keys
+     * @param windowMillis the length of the window the counts cover
+     * @param capacity the number of IDs counted per part of the window
+     * @param sampleOneIn one access in this many is counted, and each counted one stands for this many
+     * @param dropped total sampled accesses not counted because the tracker was busy
+     * @param keys the hottest IDs, most accessed first
+     */
+    public HotKeyStats(boolean enabled, long windowMillis, int capacity, int sampleOneIn, long dropped, List<HotKey> keys) {
+        this.enabled = enabled;
+        this.windowMillis = windowMillis;
+        this.capacity = capacity;
+        this.sampleOneIn = sampleOneIn;
+        this.dropped = dropped;
+        this.keys = keys;
+    }
+
+    /**
+     * @return whether the cache tracks its hot keys
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the length of the window the counts cover, in milliseconds
+     */
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * @return the number of IDs counted per part of the window
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return how many accesses one counted access stands for; 1 if every access is counted
+     */
+    public int getSampleOneIn() {
+        return sampleOneIn;
+    }
+
+    /**
+     * @return the total number of sampled accesses not counted because the tracker was busy
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return the hottest IDs, most accessed first
+     */
+    public List<HotKey> getKeys() {
+        return keys;
+    }
+
+    /**
+     * One hot ID. Its counts may overestimate it by up to its error, which is 0 when it was counted exactly.
+     */
+    public static class HotKey {
+        private final String id;
+        private final long count;
+        private final long error;
+        private final long hits;
+        private final long misses;
+        private final long writes;
+        private final boolean pinned;
+
+        /**
+         * @param id the ID
+         * @param count estimated accesses in the window
+         * @param error the most the count may overestimate them by
+         * @param hits reads that found the ID in the cache
+         * @param misses reads that did not
+         * @param writes writes of the ID
+         * @param pinned whether the ID is pinned in the near cache
+         */
+        public HotKey(String id, long count, long error, long hits, long misses, long writes, boolean pinned) {
+            this.id = id;
+            this.count = count;
+            this.error = error;
+            this.hits = hits;
+            this.misses = misses;
+            this.writes = writes;
+            this.pinned = pinned;
+        }
+
+        /**
+         * @return the ID
+         */
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the estimated number of accesses in the window
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the most the count may overestimate the accesses by
+         */
+        public long getError() {
+            return error;
+        }
+
+        /**
+         * @return the number of reads that found the ID in the cache, counted since it was last tracked
+         */
+        public long getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the number of reads that did not find the ID in the cache, counted since it was last tracked
+         */
+        public long getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the number of writes of the ID, counted since it was last tracked
+         */
+        public long getWrites() {
+            return writes;
+        }
+
+        /**
+         * @return whether the ID is pinned in the near cache
+         */
+        public boolean isPinned() {
+            return pinned;
+        }
+    }
+}
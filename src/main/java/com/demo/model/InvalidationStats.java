@@ -0,0 +1,97 @@
+package com.demo.model;
+
+/**
+ * A point-in-time view of the invalidations a node exchanges with the other nodes caching the same database.
+ */
+public class InvalidationStats {
+    /** Reported when the cache has no invalidation bus. */
+    public static final InvalidationStats DISABLED = new InvalidationStats(false, 0, 0, 0, 0, 0, 0, 0);
+
+    private final boolean enabled;
+    private final int pending;
+    private final long published;
+    private final long sent;
+    private final long batchesSent;
+    private final long received;
+    private final long applied;
+    private final long stale;
+
+    /**
+     * Constructs an InvalidationStats object.
+     * @param enabled whether an invalidation bus is configured
+     * @param pending number of IDs waiting to be sent
+     * @param published total writes published
+     * @param sent total invalidations sent, after coalescing writes to the same ID
+     * @param batchesSent total batches sent
+     * @param received total invalidations received from the other nodes
+     * @param applied total invalidations received that dropped or superseded a cached copy
+     * @param stale total invalidations received that were older than the cached copy, and ignored
+     */
+    public InvalidationStats(boolean enabled, int pending, long published, long sent, long batchesSent,
+                             long received, long applied, long stale) {
+        this.enabled = enabled;
+        this.pending = pending;
+        this.published = published;
+        this.sent = sent;
+        this.batchesSent = batchesSent;
+        this.received = received;
+        this.applied = applied;
+        this.stale = stale;
+    }
+
+    /**
+     * @return whether an invalidation bus is configured
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of IDs waiting to be sent
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the total number of writes published
+     */
+    public long getPublished() {
+        return published;
+    }
+
+    /**
+     * @return the total number of invalidations sent, after coalescing writes to the same ID
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return the total number of batches sent
+     */
+    public long getBatchesSent() {
+        return batchesSent;
+    }
+
+    /**
+     * @return the total number of invalidations received from the other nodes
+     */
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * @return the total number of invalidations received that dropped or superseded a cached copy
+     */
+    public long getApplied() {
+        return applied;
+    }
+
+    /**
+     * @return the total number of invalidations received that were older than the cached copy, and ignored
+     */
+    public long getStale() {
+        return stale;
+    }
+}
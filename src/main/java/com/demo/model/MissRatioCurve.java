@@ -0,0 +1,137 @@
+package com.demo.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An estimate of the miss ratio the cache would have at other sizes, from a sample of its reads, and the bound the
+ * cache is sized to.
+ */
+public class MissRatioCurve {
+    /** Reported when the cache does not track its miss ratio curve. */
+    public static final MissRatioCurve DISABLED = new MissRatioCurve(false, 0, 0, 0, Collections.emptyList(), 0, -1);
+
+    private final boolean enabled;
+    private final double samplingRate;
+    private final long sampledReads;
+    private final int trackedKeys;
+    private final List<Point> points;
+    private final long maximum;
+    private final long autoSizeTarget;
+
+    /**
+     * Constructs a MissRatioCurve object.
+     * @param enabled whether the cache tracks its miss ratio curve
+     * @param samplingRate the fraction of the keys whose reads are sampled
+     * @param sampledReads number of reads sampled so far
+     * @param trackedKeys number of sampled keys currently tracked
+     * @param points the estimated miss ratio at increasing cache sizes, in entries
+     * @param maximum the current bound of the cache: entries, or bytes if it is bounded by weight
+     * @param autoSizeTarget the bound last chosen by auto-sizing, or -1 if the cache is not auto-sized
+     */
+    public MissRatioCurve(boolean enabled, double samplingRate, long sampledReads, int trackedKeys, List<Point> points,
+                          long maximum, long autoSizeTarget) {
+        this.enabled = enabled;
+        this.samplingRate = samplingRate;
+        this.sampledReads = sampledReads;
+        this.trackedKeys = trackedKeys;
+        this.points = points;
+        this.maximum = maximum;
+        this.autoSizeTarget = autoSizeTarget;
+    }
+
+    /**
+     * @return whether the cache tracks its miss ratio curve
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the fraction of the keys whose reads are sampled; it drops as more distinct keys are seen
+     */
+    public double getSamplingRate() {
+        return samplingRate;
+    }
+
+    /**
+     * @return the number of reads sampled so far
+     */
+    public long getSampledReads() {
+        return sampledReads;
+    }
+
+    /**
+     * @return the number of sampled keys currently tracked
+     */
+    public int getTrackedKeys() {
+        return trackedKeys;
+    }
+
+    /**
+     * @return the estimated miss ratio at increasing cache sizes, in entries
+     */
+    public List<Point> getPoints() {
+        return points;
+    }
+
+    /**
+     * @return the current bound of the cache: entries, or bytes if it is bounded by weight
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * @return the bound last chosen by auto-sizing, or -1 if the cache is not auto-sized
+     */
+    public long getAutoSizeTarget() {
+        return autoSizeTarget;
+    }
+
+    /**
+     * Returns the estimated miss ratio of a cache of the given size, from the first point at least that large. Past
+     * the last point the curve is flat: every read left to miss there is the first read of its key.
+     * @param size a number of entries
+     * @return the estimated miss ratio, or 1 if nothing was sampled
+     */
+    public double missRatioAt(long size) {
+        for (Point point : points) {
+            if (point.getSize() >= size) {
+                return point.getMissRatio();
+            }
+        }
+        return points.isEmpty() ? 1 : points.get(points.size() - 1).getMissRatio();
+    }
+
+    /**
+     * One point of the curve.
+     */
+    public static class Point {
+        private final long size;
+        private final double missRatio;
+
+        /**
+         * @param size a number of entries
+         * @param missRatio the estimated miss ratio of a cache of that many entries
+         */
+        public Point(long size, double missRatio) {
+            this.size = size;
+            this.missRatio = missRatio;
+        }
+
+        /**
+         * @return the number of entries
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * @return the estimated miss ratio of a cache of that many entries
+         */
+        public double getMissRatio() {
+            return missRatio;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.demo.model;
+
+/**
+ * A point-in-time view of the off-heap tier: how full it is and how entries move between it and the heap.
+ */
+public class OffHeapStats {
+    /** Reported when the cache has no off-heap tier. */
+    public static final OffHeapStats DISABLED = new OffHeapStats(false, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private final boolean enabled;
+    private final int entries;
+    private final long usedBytes;
+    private final long allocatedBytes;
+    private final long capacityBytes;
+    private final long demotions;
+    private final long promotions;
+    private final long evictions;
+    private final long rejections;
+
+    /**
+     * Constructs an OffHeapStats object.
+     * @param enabled whether the off-heap tier is configured
+     * @param entries number of entities stored off-heap
+     * @param usedBytes bytes of off-heap blocks holding entities
+     * @param allocatedBytes bytes of direct buffers allocated so far
+     * @param capacityBytes maximum bytes of direct buffers the tier may allocate
+     * @param demotions total entities moved off-heap after being evicted from the heap
+     * @param promotions total entities moved back onto the heap by a read
+     * @param evictions total entities dropped from the off-heap tier to make room
+     * @param rejections total entities too large to be stored off-heap
+     */
+    public OffHeapStats(boolean enabled, int entries, long usedBytes, long allocatedBytes, long capacityBytes,
+                        long demotions, long promotions, long evictions, long rejections) {
+        this.enabled = enabled;
+        this.entries = entries;
+        this.usedBytes = usedBytes;
+        this.allocatedBytes = allocatedBytes;
+        this.capacityBytes = capacityBytes;
+        this.demotions = demotions;
+        this.promotions = promotions;
+        this.evictions = evictions;
+        this.rejections = rejections;
+    }
+
+    /**
+     * @return whether the off-heap tier is configured
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of entities stored off-heap
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * @return the number of off-heap bytes holding entities, in whole blocks
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the number of bytes of direct buffers allocated so far
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the maximum number of bytes of direct buffers the tier may allocate
+     */
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+
+    /**
+     * @return the total number of entities moved off-heap after being evicted from the heap
+     */
+    public long getDemotions() {
+        return demotions;
+    }
+
+    /**
+     * @return the total number of entities moved back onto the heap by a read
+     */
+    public long getPromotions() {
+        return promotions;
+    }
+
+    /**
+     * @return the total number of entities dropped from the off-heap tier to make room
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the total number of entities too large to be stored off-heap
+     */
+    public long getRejections() {
+        return rejections;
+    }
+}
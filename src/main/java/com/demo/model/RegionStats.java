@@ -0,0 +1,73 @@
+package com.demo.model;
+
+/**
+ * A point-in-time view of one region of a CacheManager: how full it is against its own bound.
+ */
+public class RegionStats {
+    private final String name;
+    private final int size;
+    private final long weight;
+    private final int maxSize;
+    private final long maxWeight;
+    private final double hitRate;
+
+    /**
+     * Constructs a RegionStats object.
+     * @param name the name of the region
+     * @param size number of entities cached in the region
+     * @param weight weight of the entities cached in the region
+     * @param maxSize maximum number of entities, or -1 if the region is bounded by weight
+     * @param maxWeight maximum weight in bytes, or -1 if the region is bounded by size
+     * @param hitRate fraction of the region's reads that were hits
+     */
+    public RegionStats(String name, int size, long weight, int maxSize, long maxWeight, double hitRate) {
+        this.name = name;
+        this.size = size;
+        this.weight = weight;
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+        this.hitRate = hitRate;
+    }
+
+    /**
+     * @return the name of the region
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of entities cached in the region
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the weight of the entities cached in the region; their number if it is bounded by size
+     */
+    public long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return the maximum number of entities, or -1 if the region is bounded by weight
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return the maximum weight in bytes, or -1 if the region is bounded by size
+     */
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * @return the fraction of the region's reads that were hits
+     */
+    public double getHitRate() {
+        return hitRate;
+    }
+}
@@ -0,0 +1,77 @@
+package com.demo.model;
+
+/**
+ * A point-in-time view of how far database persistence is behind the cache in write-behind mode.
+ */
+public class WriteBehindStats {
+    /** Reported when the cache writes through, so nothing is ever pending. */
+    public static final WriteBehindStats DISABLED = new WriteBehindStats(false, 0, 0, 0, 0, 0);
+
+    private final boolean enabled;
+    private final int pendingWrites;
+    private final long lagMillis;
+    private final long flushedWrites;
+    private final long flushes;
+    private final long failedFlushes;
+
+    /**
+     * Constructs a WriteBehindStats object.
+     * @param enabled whether write-behind mode is active
+     * @param pendingWrites number of IDs waiting to be persisted
+     * @param lagMillis age of the oldest unpersisted write
+     * @param flushedWrites total writes persisted so far
+     * @param flushes total successful batch flushes
+     * @param failedFlushes total batch flushes that failed and were retried
+     */
+    public WriteBehindStats(boolean enabled, int pendingWrites, long lagMillis,
+                            long flushedWrites, long flushes, long failedFlushes) {
+        this.enabled = enabled;
+        this.pendingWrites = pendingWrites;
+        this.lagMillis = lagMillis;
+        this.flushedWrites = flushedWrites;
+        this.flushes = flushes;
+        this.failedFlushes = failedFlushes;
+    }
+
+    /**
+     * @return whether write-behind mode is active
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the number of IDs waiting to be persisted
+     */
+    public int getPendingWrites() {
+        return pendingWrites;
+    }
+
+    /**
+     * @return the age in milliseconds of the oldest unpersisted write, or 0 if nothing is pending
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    /**
+     * @return the total number of writes persisted by flushes
+     */
+    public long getFlushedWrites() {
+        return flushedWrites;
+    }
+
+    /**
+     * @return the total number of successful batch flushes
+     */
+    public long getFlushes() {
+        return flushes;
+    }
+
+    /**
+     * @return the total number of batch flushes that failed
+     */
+    public long getFailedFlushes() {
+        return failedFlushes;
+    }
+}
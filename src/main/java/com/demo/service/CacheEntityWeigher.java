@@ -0,0 +1,57 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.service.engine.Weigher;
+
+/**
+ * Estimates the heap footprint in bytes of a cached CacheEntity, for caches bounded by memory rather than entry count.
+ * The estimate assumes a 64-bit JVM with compressed references and compact (Latin-1) strings; it is meant to keep
+ * the cache near a memory budget, not to be exact.
+ */
+public final class CacheEntityWeigher implements Weigher<String, CacheEntity> {
+    /** Cache node, map table slot and the CacheEntity object itself. */
+    static final int ENTRY_OVERHEAD = 96;
+    /** String header plus its backing byte array header. */
+    static final int STRING_OVERHEAD = 40;
+    /** Header of the byte array holding compressed data. */
+    static final int ARRAY_OVERHEAD = 16;
+
+    @Override
+    public int weigh(String id, CacheEntity entity) {
+        // The key is normally the entity's own ID, so it is only counted once
+        long bytes = ENTRY_OVERHEAD + sizeOf(entity.getId())
+                + (entity.isCompressed() ? ARRAY_OVERHEAD + entity.getCompressedSize() : sizeOf(entity.getData()));
+        if (id != null && !id.equals(entity.getId())) {
+            bytes += sizeOf(id);
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param entity a cached entity
+     * @return the bytes of its ID and data, one per character or per compressed byte
+     */
+    static long payloadOf(CacheEntity entity) {
+        long id = (entity.getId() == null) ? 0 : entity.getId().length();
+        if (entity.isCompressed()) {
+            return id + entity.getCompressedSize();
+        }
+        return id + ((entity.getData() == null) ? 0 : entity.getData().length());
+    }
+
+    /**
+     * @param entity a cached entity
+     * @return the heap objects its entry is made of: the cache node, the map node, the entity, and a string and its
+     *         array per ID and data, or just the array of compressed data
+     */
+    static int objectsOf(CacheEntity entity) {
+        if (entity.isCompressed()) {
+            return 6;
+        }
+        return (entity.getData() == null) ? 5 : 7;
+    }
+
+    private static long sizeOf(String value) {
+        return (value == null) ? 0 : STRING_OVERHEAD + value.length();
+    }
+}
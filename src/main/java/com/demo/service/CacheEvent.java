@@ -0,0 +1,57 @@
+package com.demo.service;
+
+/**
+ * A single operational event of a CachingService, delivered to a {@link CacheEventListener} as part of a sample.
+ */
+public final class CacheEvent {
+
+    /** The kinds of event a cache reports. */
+    public enum Type {
+        /** An entity was loaded from the database (or another loader), whether or not it was found. */
+        LOAD,
+        /** A loader threw. */
+        LOAD_FAILURE,
+        /** An entity was evicted to keep the cache within its capacity. */
+        EVICTION,
+        /** An entity outlived its time to live or idle time. */
+        EXPIRATION,
+        /** An entity was removed by a caller, individually or through a clear. */
+        REMOVAL
+    }
+
+    private final Type type;
+    private final String id;
+    private final long timestampMillis;
+
+    CacheEvent(Type type, String id, long timestampMillis) {
+        this.type = type;
+        this.id = id;
+        this.timestampMillis = timestampMillis;
+    }
+
+    /**
+     * @return what happened
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the ID of the entity concerned
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return when it happened, in milliseconds since the epoch
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    @Override
+    public String toString() {
+        return type + "(" + id + ")";
+    }
+}
@@ -0,0 +1,120 @@
+package com.demo.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CacheEventDispatcher aggregates the events of a CachingService and publishes them to its listeners.
+ * Recording an event increments a striped counter and, for one event in {@code sampleOneIn}, offers it to a bounded
+ * queue; nothing else happens on the caller's thread, and an event that does not fit in the queue is only counted.
+ * A daemon thread drains the counters and the queue once per interval and calls the listeners with the result.
+ */
+class CacheEventDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(CacheEventDispatcher.class);
+    private static final CacheEvent.Type[] TYPES = CacheEvent.Type.values();
+
+    private final LongAdder[] counts = new LongAdder[TYPES.length];
+    private final LongAdder droppedSamples = new LongAdder();
+    private final ArrayBlockingQueue<CacheEvent> samples;
+    private final int sampleOneIn;
+    private final List<CacheEventListener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService publisher;
+    private long intervalStart = System.currentTimeMillis(); // Only touched by the publisher
+
+    /**
+     * Creates a dispatcher and starts its publishing thread.
+     * @param sampleOneIn one event in this many is kept as a sample; 1 keeps every event
+     * @param maxSamples the maximum number of samples per interval
+     * @param intervalMillis how often summaries are published
+     */
+    CacheEventDispatcher(int sampleOneIn, int maxSamples, long intervalMillis) {
+        if (sampleOneIn <= 0 || maxSamples <= 0 || intervalMillis <= 0) {
+            throw new IllegalArgumentException("sampleOneIn, maxSamples and interval must be positive");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        this.sampleOneIn = sampleOneIn;
+        this.samples = new ArrayBlockingQueue<>(maxSamples);
+        this.publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        publisher.scheduleWithFixedDelay(this::publish, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    void addListener(CacheEventListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(CacheEventListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Counts an event and possibly samples it.
+     * @param type what happened
+     * @param id the ID of the entity concerned
+     */
+    void record(CacheEvent.Type type, String id) {
+        counts[type.ordinal()].increment();
+        if (sampleOneIn == 1 || ThreadLocalRandom.current().nextInt(sampleOneIn) == 0) {
+            if (!samples.offer(new CacheEvent(type, id, System.currentTimeMillis()))) {
+                droppedSamples.increment();
+            }
+        }
+    }
+
+    /**
+     * Publishes what is left and stops the publishing thread.
+     */
+    void close() {
+        publisher.shutdown();
+        try {
+            publisher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        publish();
+    }
+
+    // Runs on the publisher, or on the closing thread once the publisher has stopped
+    synchronized void publish() {
+        long end = System.currentTimeMillis();
+        Map<CacheEvent.Type, Long> totals = new EnumMap<>(CacheEvent.Type.class);
+        long total = 0;
+        for (CacheEvent.Type type : TYPES) {
+            long count = counts[type.ordinal()].sumThenReset();
+            totals.put(type, count);
+            total += count;
+        }
+        if (total == 0) {
+            return;
+        }
+        List<CacheEvent> sampled = new ArrayList<>(samples.size());
+        samples.drainTo(sampled);
+        CacheEventSummary summary = new CacheEventSummary(intervalStart, end, Collections.unmodifiableMap(totals),
+                Collections.unmodifiableList(sampled), droppedSamples.sumThenReset());
+        intervalStart = end;
+        for (CacheEventListener listener : listeners) {
+            try {
+                listener.onEvents(summary);
+            } catch (RuntimeException e) {
+                logger.warn("Cache event listener {} failed.", listener, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.demo.service;
+
+/**
+ * CacheEventListener receives the operational events of a CachingService (loads, evictions, expirations and
+ * removals) in aggregated form. The cache never calls a listener from the thread doing the operation: events are
+ * counted, one in every so many is sampled, and once per interval a {@link CacheEventSummary} is handed to every
+ * listener on a background thread. A slow listener therefore delays later summaries but never a cache operation.
+ */
+@FunctionalInterface
+public interface CacheEventListener {
+
+    /**
+     * Called on the cache's event thread at the end of every interval in which at least one event happened,
+     * and once more when the cache is closed. An exception thrown here is logged and otherwise ignored.
+     *
+     * @param summary the events of the interval
+     */
+    void onEvents(CacheEventSummary summary);
+}
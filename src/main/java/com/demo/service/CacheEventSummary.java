@@ -0,0 +1,73 @@
+package com.demo.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What happened in a CachingService during one publishing interval: the exact number of events of each type,
+ * and a random sample of the individual events.
+ */
+public final class CacheEventSummary {
+    private final long startMillis;
+    private final long endMillis;
+    private final Map<CacheEvent.Type, Long> counts;
+    private final List<CacheEvent> samples;
+    private final long droppedSamples;
+
+    CacheEventSummary(long startMillis, long endMillis, Map<CacheEvent.Type, Long> counts,
+                      List<CacheEvent> samples, long droppedSamples) {
+        this.startMillis = startMillis;
+        this.endMillis = endMillis;
+        this.counts = counts;
+        this.samples = samples;
+        this.droppedSamples = droppedSamples;
+    }
+
+    /**
+     * @return the start of the interval, in milliseconds since the epoch
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return the end of the interval, in milliseconds since the epoch
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * @return the number of events of every type during the interval, including types that did not occur
+     */
+    public Map<CacheEvent.Type, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * @param type the kind of event
+     * @return the number of events of that type during the interval
+     */
+    public long getCount(CacheEvent.Type type) {
+        return counts.get(type);
+    }
+
+    /**
+     * @return the sampled events, in the order they were recorded
+     */
+    public List<CacheEvent> getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return the number of sampled events left out because the interval's sample was full
+     */
+    public long getDroppedSamples() {
+        return droppedSamples;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheEventSummary" + counts + " samples=" + samples.size() + " dropped=" + droppedSamples;
+    }
+}
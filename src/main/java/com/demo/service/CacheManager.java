@@ -0,0 +1,184 @@
+package com.demo.service;
+
+import com.demo.model.RegionStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CacheManager holds named cache regions, each a CachingService with its own bound, eviction policy, expiry and
+ * database. Regions never evict one another's entities: each is bounded on its own.
+ * <p>
+ * With a memory budget every region is bounded by weight, and the budget is split between them when the manager is
+ * built: a region given a maximum weight reserves it, and the regions given no bound share what is left equally. A
+ * budget the reservations exceed, or a region bounded by size, is rejected, so the sum of the regions' bounds never
+ * exceeds the budget.
+ */
+public final class CacheManager implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(CacheManager.class);
+
+    /** The region served by the endpoints that name no region. */
+    public static final String DEFAULT_REGION = "default";
+
+    private final Map<String, CachingService> regions;
+    private final Map<String, Integer> maxSizes = new LinkedHashMap<>();
+    private final Map<String, Long> maxWeights = new LinkedHashMap<>();
+    private final long memoryBudget;
+
+    private CacheManager(Builder builder) {
+        this.memoryBudget = builder.memoryBudget;
+        if (memoryBudget > 0) {
+            splitBudget(builder.regions);
+        }
+        Map<String, CachingService> built = new LinkedHashMap<>();
+        try {
+            builder.regions.forEach((name, region) -> {
+                maxSizes.put(name, region.getMaxSize());
+                maxWeights.put(name, region.getMaxWeight());
+                built.put(name, region.build());
+            });
+        } catch (RuntimeException e) {
+            built.values().forEach(CachingService::close);
+            throw e;
+        }
+        this.regions = Collections.unmodifiableMap(built);
+        logger.info("Cache regions {} created{}.", regions.keySet(),
+                (memoryBudget > 0) ? " within a budget of " + memoryBudget + " bytes" : "");
+    }
+
+    /**
+     * Creates a builder for a CacheManager.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns a region by name.
+     *
+     * @param name the name of the region
+     * @return the region's service, or null if there is no such region
+     */
+    public CachingService getRegion(String name) {
+        return regions.get(name);
+    }
+
+    /**
+     * @return the names of the regions, in the order they were added
+     */
+    public Set<String> getRegionNames() {
+        return regions.keySet();
+    }
+
+    /**
+     * @return the memory budget shared by the regions in bytes, or 0 if there is none
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Returns how full each region is against its bound.
+     *
+     * @return the statistics of every region, in the order they were added
+     */
+    public List<RegionStats> getRegionStats() {
+        List<RegionStats> stats = new ArrayList<>(regions.size());
+        regions.forEach((name, region) -> stats.add(new RegionStats(name, region.cacheSize(), region.cacheWeight(),
+                maxSizes.get(name), maxWeights.get(name), region.getStats().getHitRate())));
+        return stats;
+    }
+
+    /**
+     * Closes every region, persisting their queued writes and snapshots.
+     */
+    @Override
+    public void close() {
+        for (CachingService region : regions.values()) {
+            try {
+                region.close();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to close a cache region.", e);
+            }
+        }
+    }
+
+    private void splitBudget(Map<String, CachingService.Builder> regions) {
+        long reserved = 0;
+        List<CachingService.Builder> sharing = new ArrayList<>();
+        for (Map.Entry<String, CachingService.Builder> entry : regions.entrySet()) {
+            CachingService.Builder region = entry.getValue();
+            if (region.getMaxSize() >= 0) {
+                throw new IllegalStateException("Region " + entry.getKey()
+                        + " is bounded by size; with a memory budget every region must be bounded by weight");
+            }
+            if (region.getMaxWeight() >= 0) {
+                reserved += region.getMaxWeight();
+            } else {
+                sharing.add(region);
+            }
+        }
+        long left = memoryBudget - reserved;
+        if (left < 0 || (!sharing.isEmpty() && left / sharing.size() == 0)) {
+            throw new IllegalStateException("The regions reserve " + reserved + " bytes of a memory budget of "
+                    + memoryBudget + (sharing.isEmpty() ? "" : ", leaving nothing for " + sharing.size() + " more"));
+        }
+        for (CachingService.Builder region : sharing) {
+            region.maxWeight(left / sharing.size());
+        }
+    }
+
+    /**
+     * Builder for a CacheManager.
+     */
+    public static final class Builder {
+        private final Map<String, CachingService.Builder> regions = new LinkedHashMap<>();
+        private long memoryBudget;
+
+        private Builder() {
+        }
+
+        /**
+         * Bounds the total weight of the regions; see {@link CacheManager} for how it is split.
+         *
+         * @param bytes the memory budget in bytes, as estimated by {@link CacheEntityWeigher}
+         * @return this builder
+         */
+        public Builder memoryBudget(long bytes) {
+            this.memoryBudget = bytes;
+            return this;
+        }
+
+        /**
+         * Adds a region. Without a memory budget the region's builder must set its own bound.
+         *
+         * @param name   the name of the region
+         * @param region the settings of the region's service
+         * @return this builder
+         */
+        public Builder region(String name, CachingService.Builder region) {
+            if (regions.putIfAbsent(name, region) != null) {
+                throw new IllegalArgumentException("Duplicate cache region " + name);
+            }
+            return this;
+        }
+
+        /**
+         * @return a new CacheManager with a service built for each region
+         */
+        public CacheManager build() {
+            if (regions.isEmpty()) {
+                throw new IllegalStateException("A cache manager needs at least one region");
+            }
+            return new CacheManager(this);
+        }
+    }
+}
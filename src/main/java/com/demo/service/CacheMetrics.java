@@ -0,0 +1,99 @@
+package com.demo.service;
+
+import com.demo.model.CacheStats;
+import com.demo.model.LatencyStats;
+import com.demo.service.engine.RemovalCause;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * CacheMetrics publishes the statistics of a CachingService as Micrometer meters, all tagged with the cache name:
+ * {@code cache.gets} by result (hit, miss), {@code cache.tier.hits} by tier (l1, l2), {@code cache.negative.hits},
+ * a subset of the misses, {@code cache.loads} by result, {@code cache.removals} by cause, the {@code cache.size}, {@code cache.weight} and {@code cache.maximum} gauges,
+ * and {@code cache.latency} gauges by operation and percentile, in seconds.
+ * <p>
+ * The meters read the service's statistics when the registry polls them. A registry polls every meter in quick
+ * succession, so one snapshot is shared by all reads within {@value #SNAPSHOT_TTL_MILLIS} milliseconds.
+ */
+public class CacheMetrics implements MeterBinder {
+    private static final long SNAPSHOT_TTL_MILLIS = 1_000;
+
+    private final CachingService service;
+    private final Tags tags;
+    private volatile CacheStats snapshot;
+    private volatile long snapshotTime;
+
+    /**
+     * @param service the service to publish
+     * @param cacheName the value of the {@code cache} tag on every meter
+     */
+    public CacheMetrics(CachingService service, String cacheName) {
+        this.service = service;
+        this.tags = Tags.of("cache", cacheName);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        counter(registry, "cache.gets", "result", "hit", CacheStats::getHits);
+        counter(registry, "cache.gets", "result", "miss", CacheStats::getMisses);
+        counter(registry, "cache.tier.hits", "tier", "l1", CacheStats::getL1Hits);
+        counter(registry, "cache.tier.hits", "tier", "l2", CacheStats::getL2Hits);
+        // Not a result of cache.gets: a negative hit is already counted there as a miss
+        FunctionCounter.builder("cache.negative.hits", this, metrics -> metrics.stats().getNegativeHits()).tags(tags)
+                .description("Misses answered from the IDs remembered as missing from the database").register(registry);
+        counter(registry, "cache.loads", "result", "success", stats -> stats.getLoads() - stats.getLoadFailures());
+        counter(registry, "cache.loads", "result", "failure", CacheStats::getLoadFailures);
+        for (RemovalCause cause : RemovalCause.values()) {
+            counter(registry, "cache.removals", "cause", cause.name().toLowerCase(),
+                    stats -> stats.getRemovals().getOrDefault(cause.name(), 0L));
+        }
+        Gauge.builder("cache.size", service, CachingService::cacheSize).tags(tags)
+                .description("The number of entities in the cache").register(registry);
+        Gauge.builder("cache.weight", service, CachingService::cacheWeight).tags(tags)
+                .description("The weight of the entities in the cache").register(registry);
+        Gauge.builder("cache.maximum", service, CachingService::cacheMaximum).tags(tags)
+                .description("The current bound of the cache, in entities or in bytes").register(registry);
+        Gauge.builder("cache.negative.size", service, CachingService::negativeCacheSize).tags(tags)
+                .description("The number of IDs remembered as missing from the database").register(registry);
+        latency(registry, "get", CacheStats::getGetLatency);
+        latency(registry, "add", CacheStats::getAddLatency);
+        latency(registry, "load", CacheStats::getLoadLatency);
+    }
+
+    private void counter(MeterRegistry registry, String name, String tag, String value, ToLongFunction<CacheStats> count) {
+        FunctionCounter.builder(name, this, metrics -> count.applyAsLong(metrics.stats()))
+                .tags(tags).tag(tag, value).register(registry);
+    }
+
+    private void latency(MeterRegistry registry, String operation, Function<CacheStats, LatencyStats> latency) {
+        percentile(registry, operation, "0.5", latency.andThen(LatencyStats::getP50Nanos));
+        percentile(registry, operation, "0.9", latency.andThen(LatencyStats::getP90Nanos));
+        percentile(registry, operation, "0.99", latency.andThen(LatencyStats::getP99Nanos));
+        percentile(registry, operation, "0.999", latency.andThen(LatencyStats::getP999Nanos));
+        percentile(registry, operation, "1.0", latency.andThen(LatencyStats::getMaxNanos));
+    }
+
+    private void percentile(MeterRegistry registry, String operation, String percentile, Function<CacheStats, Long> nanos) {
+        Gauge.builder("cache.latency", this, metrics -> (double) nanos.apply(metrics.stats()) / TimeUnit.SECONDS.toNanos(1))
+                .tags(tags).tag("operation", operation).tag("percentile", percentile)
+                .baseUnit("seconds").register(registry);
+    }
+
+    private CacheStats stats() {
+        long now = System.currentTimeMillis();
+        CacheStats current = snapshot;
+        if (current == null || now - snapshotTime > SNAPSHOT_TTL_MILLIS) {
+            current = service.getStats();
+            snapshot = current;
+            snapshotTime = now;
+        }
+        return current;
+    }
+}
@@ -0,0 +1,68 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A cluster member that a {@link ShardedCache} forwards the keys it does not own to. The member serves them from its
+ * own CachingService and never forwards them again, so members that briefly disagree on the ring cannot loop.
+ * Operations are asynchronous so that an implementation can pipeline them over one connection.
+ */
+public interface CacheNode {
+
+    /**
+     * @param id the ID of the entity
+     * @param loadFromDB whether the member loads a miss from its database
+     * @return a future completed with the entity, or with null if it was not found
+     */
+    CompletableFuture<CacheEntity> get(String id, boolean loadFromDB);
+
+    /**
+     * @param ids the IDs of the entities
+     * @param loadFromDB whether the member loads the misses from its database
+     * @return a future completed with the entities found, in request order
+     */
+    CompletableFuture<List<CacheEntity>> getAll(Collection<String> ids, boolean loadFromDB);
+
+    /**
+     * @param entity the entity to add
+     * @param ttl how long the entity may stay cached, or null to use the member's default
+     * @return a future completed once the member has added the entity
+     */
+    CompletableFuture<Void> add(CacheEntity entity, Duration ttl);
+
+    /**
+     * @param entities the entities to add
+     * @return a future completed once the member has added the entities
+     */
+    CompletableFuture<Void> putAll(Collection<CacheEntity> entities);
+
+    /**
+     * Caches entities handed off by another member, without writing them to the database; IDs the member already
+     * caches are left as they are.
+     * @param entities the entities to cache
+     * @return a future completed once the member has cached the entities
+     */
+    CompletableFuture<Void> fill(Collection<CacheEntity> entities);
+
+    /**
+     * @param ids the IDs of the entities to remove
+     * @return a future completed once the member has removed the entities
+     */
+    CompletableFuture<Void> removeAll(Collection<String> ids);
+
+    /**
+     * Removes every entity from the member's cache and database.
+     * @return a future completed once the member has removed them
+     */
+    CompletableFuture<Void> removeAll();
+
+    /**
+     * Releases the connection to the member, if any; requests not answered yet fail.
+     */
+    void close();
+}
@@ -0,0 +1,175 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Reads and writes the binary snapshot of the cache's resident entries used for warm restarts.
+ * <p>
+ * Layout: {@code [int magic][byte version][byte flags][int count]} followed by {@code count} entries of
+ * {@code [varint idLength][id UTF-8]}, each followed by {@code [varint dataLength + 1, 0 for null][data UTF-8]}
+ * when the snapshot includes values. Entries are in retention order, the coldest first, so that replaying
+ * them in order rebuilds a similar eviction order.
+ */
+final class CacheSnapshot {
+    private static final int MAGIC = 0x43534E50; // "CSNP"
+    private static final byte VERSION = 1;
+    private static final byte WITH_VALUES = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private CacheSnapshot() {
+    }
+
+    /**
+     * Writes a snapshot, replacing the file atomically so a crash never leaves a partial snapshot behind.
+     * @param file the snapshot file
+     * @param entities the entities, coldest first
+     * @param includeValues whether to store the data of each entity, or only its ID
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, List<CacheEntity> entities, boolean includeValues) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                out.writeInt(MAGIC);
+                out.writeByte(VERSION);
+                out.writeByte(includeValues ? WITH_VALUES : 0);
+                out.writeInt(entities.size());
+                for (CacheEntity entity : entities) {
+                    writeBytes(out, entity.getId().getBytes(StandardCharsets.UTF_8), 0);
+                    if (includeValues) {
+                        String data = entity.getData();
+                        if (data == null) {
+                            writeVarInt(out, 0);
+                        } else {
+                            writeBytes(out, data.getBytes(StandardCharsets.UTF_8), 1);
+                        }
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Opens a snapshot for streaming its entries.
+     * @param file the snapshot file
+     * @return a reader positioned at the first entry
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    static Reader open(Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        try {
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not a cache snapshot: " + file);
+            }
+            boolean includesValues = in.readByte() == WITH_VALUES;
+            return new Reader(in, includesValues, in.readInt());
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes, int lengthOffset) throws IOException {
+        writeVarInt(out, bytes.length + lengthOffset);
+        out.write(bytes);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Streams the entries of a snapshot, coldest first.
+     */
+    static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final boolean includesValues;
+        private final int count;
+        private int read;
+
+        private Reader(DataInputStream in, boolean includesValues, int count) {
+            this.in = in;
+            this.includesValues = includesValues;
+            this.count = count;
+        }
+
+        /**
+         * @return whether the entries carry their data; without it only their IDs are known
+         */
+        boolean includesValues() {
+            return includesValues;
+        }
+
+        /**
+         * @return the number of entries in the snapshot
+         */
+        int count() {
+            return count;
+        }
+
+        /**
+         * @return the next entry, with null data if the snapshot has no values, or null after the last entry
+         * @throws IOException if the snapshot is truncated or corrupt
+         */
+        CacheEntity next() throws IOException {
+            if (read == count) {
+                return null;
+            }
+            String id = readString(readVarInt());
+            String data = null;
+            if (includesValues) {
+                int length = readVarInt();
+                data = (length == 0) ? null : readString(length - 1);
+            }
+            read++;
+            return new CacheEntity(id, data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private String readString(int length) throws IOException {
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt length in cache snapshot");
+        }
+    }
+}
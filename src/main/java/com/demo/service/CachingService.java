@@ -1,63 +1,343 @@
 package com.demo.service;
 
+import com.demo.dao.DatabaseDao;
 import com.demo.dao.MockDatabaseDao;
 import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCompressor;
+import com.demo.model.CacheStats;
+import com.demo.model.CompressionStats;
+import com.demo.model.FootprintStats;
+import com.demo.model.HotKeyStats;
+import com.demo.model.InvalidationStats;
+import com.demo.model.MissRatioCurve;
+import com.demo.model.OffHeapStats;
+import com.demo.model.WriteBehindStats;
+import com.demo.service.engine.CacheEngine;
+import com.demo.service.engine.EvictionPolicyType;
+import com.demo.service.engine.Node;
+import com.demo.service.engine.RemovalCause;
+import com.demo.service.engine.Ticker;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * CachingService provides a thread-safe caching mechanism with LRU eviction policy.
- * It uses a write-through cache strategy, ensuring that all writes are immediately persisted to the database.
- * The cache is implemented using a synchronized LinkedHashMap to maintain order and thread safety.
+ * CachingService provides a thread-safe caching mechanism with a configurable eviction policy (LRU by default).
+ * By default it uses a write-through cache strategy, ensuring that all writes are immediately persisted to the database.
+ * In write-behind mode, writes update the cache immediately and are persisted asynchronously in coalesced batches.
+ * The cache is backed by a CacheEngine, which serves reads without locking and keeps the eviction order
+ * by replaying buffered accesses in batches, so read throughput scales with the number of cores.
+ * Concurrent misses for the same ID are coalesced into a single load whose result is shared by all callers.
+ * Entries can expire after a write (per entry or by default) and after a period without access; an expired
+ * entry is never returned and is treated as a miss. With refresh-after-write, reading an entry older than the
+ * refresh threshold returns it immediately and reloads it in the background, so hot keys never go cold.
+ * With an off-heap tier, entities evicted from the heap are demoted to direct memory instead of being dropped,
+ * and a read that misses the heap promotes them back before falling back to the database. A compact tier does the
+ * same on the heap, packing the entities into primitive arrays, so that a small heap cache of the hottest entities
+ * can be backed by millions of small ones at a fraction of the memory and object count.
+ * The resident entries can be saved to a snapshot file and streamed back in at startup, so a restarted service
+ * does not have to refill its cache from the database one miss at a time.
+ * In tiered mode a small near cache (L1) in front of the engine (L2) serves the hottest keys with a single array read,
+ * without touching the shared structures of the engine; see {@link TieringMode} for how the two tiers share entities.
+ * With value compression, the data of large entities is deflated before it is stored in the cache and the database,
+ * and decompressed only when it is read.
+ * With negative caching, IDs the database does not have are remembered for a short time in a separate, bounded set,
+ * so repeated reads of missing IDs are answered without asking the database again; writing an ID forgets it.
+ * When several instances cache the same database, an invalidation bus tells the others about every write, so they
+ * drop their stale copies. Writes are then versioned, so an invalidation only drops copies older than its write,
+ * and a load that read the database before the write cannot cache the old value afterwards.
+ * The miss ratio curve, the miss ratio the cache would have at every other size, can be estimated from a sample of
+ * the reads; with auto-sizing, the bound is then periodically set to the smallest one whose estimated hit rate
+ * reaches a target, between a minimum and the configured bound. A lowered bound is reached by evicting a batch at a
+ * time.
+ * Hot keys, the IDs read or written most often over a sliding window, can be tracked in constant memory with their
+ * hits, misses and writes; the hottest of them can be pinned in the near cache, so they are served from L1.
+ * Hits, misses, loads, removals and the latency of reads, writes and loads are recorded in striped counters and
+ * histograms unless statistics are turned off, in which case recording costs nothing.
+ * Nothing is logged per operation: loads, evictions, expirations and removals are counted and sampled, and published
+ * in periodic summaries to {@link CacheEventListener}s on a background thread.
  */
-public class CachingService {
+public class CachingService implements AutoCloseable {
     private static final Logger logger = LoggerFactory.getLogger(CachingService.class);
+    private static final int WARM_UP_CHUNK_SIZE = 256;
+    private static final int MAX_INVALIDATED_VERSIONS = 10_000;
+    // How long an invalidation keeps older loaded values out: long enough for the writer's database write to land, e.g.
+    // from a write-behind queue, and short enough that a store which does not keep versions can be cached from again
+    private static final long INVALIDATED_VERSION_MILLIS = 5_000;
+    // Sampled reads needed before the miss ratio curve is trusted to size the cache
+    private static final long MIN_AUTO_SIZE_SAMPLES = 1_000;
+    private static final int DEFAULT_HOT_KEY_SAMPLE_ONE_IN = 16;
 
-    private final Map<String, CacheEntity> cache; // Thread-safe map
-    private final MockDatabaseDao database;
+    private final CacheEngine<String, CacheEntity> cache; // Thread-safe cache engine
+    private final DatabaseDao database;
+    private final WriteBehindQueue writeBehind; // null in write-through mode
+    private final VictimTier victimTier; // the off-heap or compact tier; null unless one is enabled
+    private final NearCache nearCache; // null unless tiering is enabled
+    private final CacheEntityCompressor compressor; // null unless large values are compressed
+    private final CacheEngine<String, Boolean> absent; // IDs missing from the database; null unless misses are cached
+    private final boolean exclusiveTiering;
+    private final InvalidationBus invalidations; // null unless the service shares its database with other instances
+    private final MissRatioCurveEstimator missRatioCurve; // null unless the miss ratio curve is estimated
+    private final ScheduledExecutorService autoSizer; // null unless the bound is auto-sized
+    private final double autoSizeHitRate;
+    private final long autoSizeMinimum;
+    private final long autoSizeMaximum;
+    private final boolean weighted;
+    private volatile long autoSizeTarget = -1;
+    private final HotKeyTracker hotKeys; // null unless hot keys are tracked
+    private final VersionClock versions = new VersionClock();
+    // The version of the last invalidation received per ID, and of the last removal of everything; for a few seconds
+    // a load older than them is not cached. Pruned by age once there are many of them.
+    private final ConcurrentHashMap<String, Long> invalidatedVersions = new ConcurrentHashMap<>();
+    private final AtomicLong clearedVersion = new AtomicLong();
+    // Loads currently in progress, one per ID; a write to an ID detaches its load so a stale result is never cached
+    private final ConcurrentHashMap<String, CompletableFuture<CacheEntity>> inFlightLoads = new ConcurrentHashMap<>();
+    private final Executor loadExecutor; // runs asynchronous loads and warm-up chunks
+    private final ExecutorService refreshExecutor; // null unless refresh-after-write is enabled
+    private final Function<String, CacheEntity> databaseLoader = this::loadFromDatabase;
+    private final Function<String, CacheEntity> noLoader = id -> null;
+    private final Path snapshotFile; // null unless snapshots are configured
+    private final boolean snapshotValues;
+    private final CompletableFuture<Integer> warmUp;
+    private final StatsRecorder stats;
+    private final int eventSampleOneIn;
+    private final int eventMaxSamples;
+    private final long eventIntervalMillis;
+    private volatile CacheEventDispatcher events; // null until the first event listener is added
 
-    // Constructor initializes the cache with a specified maximum size
+    // Constructor initializes an LRU cache with a specified maximum size
     public CachingService(int maxSize) {
-        this.database = new MockDatabaseDao();
-
-        // Access-order LinkedHashMap for LRU eviction policy, wrapped with Collections.synchronizedMap for thread safety
-        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(maxSize, 0.75f, true) {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, CacheEntity> eldest) {
-                boolean shouldEvict = size() > maxSize;
-                if (shouldEvict) {
-                    logger.info("Evicting entity with ID: {}", eldest.getKey());
-                }
-                return shouldEvict;
-            }
-        });
+        this(builder().maxSize(maxSize));
+    }
+
+    // Constructor initializes the cache with a specified maximum size and eviction policy
+    public CachingService(int maxSize, EvictionPolicyType policyType) {
+        this(builder().maxSize(maxSize).evictionPolicy(policyType));
+    }
+
+    private CachingService(Builder builder) {
+        this.database = (builder.database != null) ? builder.database : new MockDatabaseDao();
+        if (builder.offHeapCapacity > 0) {
+            this.victimTier = new OffHeapStore(builder.offHeapCapacity);
+        } else if (builder.compactCapacity > 0) {
+            this.victimTier = new CompactStore(builder.compactCapacity);
+        } else {
+            this.victimTier = null;
+        }
+        this.stats = builder.recordStats ? new ConcurrentStatsRecorder() : StatsRecorder.Disabled.INSTANCE;
+        this.loadExecutor = builder.loadExecutor;
+        this.compressor = (builder.compressionThreshold > 0) ? new CacheEntityCompressor(builder.compressionThreshold) : null;
+        this.eventSampleOneIn = builder.eventSampleOneIn;
+        this.eventMaxSamples = builder.eventMaxSamples;
+        this.eventIntervalMillis = builder.eventInterval.toMillis();
+        for (CacheEventListener listener : builder.eventListeners) {
+            addEventListener(listener);
+        }
+
+        // Concurrent cache engine; evictions are reported back through the removal listener
+        CacheEngine.Builder<String, CacheEntity> engine = CacheEngine.builder();
+        if (builder.maxWeight >= 0) {
+            engine.maximumWeight(builder.maxWeight).weigher(new CacheEntityWeigher());
+        } else {
+            engine.maximumSize(builder.maxSize);
+        }
+        this.cache = engine
+                .evictionPolicy(builder.policyType)
+                .expireAfterWrite(builder.expireAfterWrite)
+                .expireAfterAccess(builder.expireAfterAccess)
+                .refreshAfterWrite(builder.refreshAfterWrite)
+                // Demoted under the eviction lock, so a later write to the same ID always invalidates the copy
+                .evictionListener((victimTier == null) ? null : this::demote)
+                .removalListener((id, entity, cause) -> onRemoval(id, cause))
+                .build();
+        this.absent = (builder.negativeCapacity > 0)
+                ? CacheEngine.<String, Boolean>builder()
+                        .maximumSize(builder.negativeCapacity)
+                        .expireAfterWrite(builder.negativeTtl)
+                        .build()
+                : null;
+        this.exclusiveTiering = builder.tieringMode == TieringMode.EXCLUSIVE;
+        this.weighted = builder.maxWeight >= 0;
+        this.missRatioCurve = (builder.mrcSamplingRate > 0)
+                ? new MissRatioCurveEstimator(builder.mrcSamplingRate, builder.mrcTrackedKeys)
+                : null;
+        this.autoSizeHitRate = builder.autoSizeHitRate;
+        this.autoSizeMinimum = builder.autoSizeMinimum;
+        this.autoSizeMaximum = weighted ? builder.maxWeight : builder.maxSize;
+        this.autoSizer = (builder.autoSizeInterval != null) ? newAutoSizer(builder.autoSizeInterval.toMillis()) : null;
+        if (builder.nearCacheCapacity > 0) {
+            this.nearCache = new NearCache(cache, builder.nearCacheCapacity, builder.tieringMode, builder.promotionThreshold);
+        } else if (builder.hotKeyPinCount > 0) {
+            // A near cache of the pinned keys alone, with room to spare for collisions
+            this.nearCache = new NearCache(cache, 4 * builder.hotKeyPinCount, TieringMode.INCLUSIVE, NearCache.PINNED_ONLY);
+        } else {
+            this.nearCache = null;
+        }
+        this.hotKeys = (builder.hotKeyCapacity > 0)
+                ? new HotKeyTracker(builder.hotKeyCapacity, builder.hotKeyWindow.toNanos(), Ticker.system(),
+                        builder.hotKeySampleOneIn, builder.hotKeyPinCount, (builder.hotKeyPinCount > 0) ? nearCache::setPinned : null)
+                : null;
+        this.writeBehind = builder.writeBehind
+                ? new WriteBehindQueue(database, builder.writeBatchSize, builder.flushInterval.toMillis(), builder.writeQueueCapacity)
+                : null;
+        this.refreshExecutor = (builder.refreshAfterWrite != null && !builder.refreshAfterWrite.isZero())
+                ? newRefreshExecutor(builder.refreshThreads, builder.refreshQueueCapacity)
+                : null;
+        this.snapshotFile = builder.snapshotFile;
+        this.snapshotValues = builder.snapshotValues;
+        this.warmUp = (snapshotFile != null) ? startWarmUp(snapshotFile) : CompletableFuture.completedFuture(0);
+        // Last, since invalidations may arrive as soon as the transport starts
+        this.invalidations = (builder.invalidationTransport != null)
+                ? new InvalidationBus(builder.invalidationTransport, builder.invalidationBatchSize,
+                        builder.invalidationInterval.toMillis(), this::applyInvalidations)
+                : null;
+    }
+
+    /**
+     * Creates a builder for a CachingService with more options than the constructors expose.
+     *
+     * @return a new builder
+     */
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
      * Adds a CacheEntity to the cache and database.
      * If the entity is null or has a null ID, it logs a warning and does not add it.
-     * The cache uses a write-through strategy, meaning it writes to the database immediately.
+     * In write-through mode it writes to the database immediately; in write-behind mode the write is queued.
+     * If the queue is full, this method waits up to 10 seconds for room and then fails, leaving the cache unchanged.
      *
      * @param cacheEntity the CacheEntity to add
+     * @throws IllegalStateException in write-behind mode, if the queue stays full for 10 seconds or is closed
      */
     public void add(CacheEntity cacheEntity) {
-        try {
+        add(cacheEntity, null);
+    }
+
+    /**
+     * Adds a CacheEntity to the cache and database, keeping it in the cache for at most the given time to live.
+     * The time to live overrides the default expire-after-write duration; the database copy does not expire.
+     *
+     * @param cacheEntity the CacheEntity to add
+     * @param ttl         how long the entity may stay cached, or null to use the default
+     * @throws RuntimeException if the database write fails; the cache is left unchanged in that case
+     * @throws IllegalStateException in write-behind mode, if the queue stays full for 10 seconds or is closed
+     */
+    public void add(CacheEntity cacheEntity, Duration ttl) {
+        if (cacheEntity == null || cacheEntity.getId() == null) {
+            logger.warn("Attempted to add a null entity or entity with null ID.");
+            return;
+        }
+        long startTime = stats.startTime();
+        CacheEntity stored = compress(stamp(cacheEntity));
+        if (writeBehind != null) {
+            writeBehind.save(stored.getId(), stored);
+        } else {
+            database.save(stored);
+        }
+        write(stored.getId(), stored, (ttl == null) ? 0 : ttl.toNanos());
+        forgetAbsence(stored.getId());
+        if (hotKeys != null) {
+            hotKeys.record(stored.getId(), HotKeyTracker.Access.WRITE);
+        }
+        if (invalidations != null) {
+            invalidations.publish(stored.getId(), stored.getVersion());
+        }
+        stats.recordLatency(StatsRecorder.Operation.ADD, startTime);
+    }
+
+    /**
+     * Adds a batch of CacheEntity objects to the cache and database.
+     * In write-through mode the whole batch is written to the database with a single call; in write-behind mode
+     * each entity is queued, waiting up to 10 seconds for room in a full queue. Null entities and entities with a
+     * null ID are skipped with a warning.
+     *
+     * @param cacheEntities the CacheEntity objects to add
+     * @throws IllegalStateException in write-behind mode, if the queue stays full for 10 seconds or is closed; the
+     *                               entities queued before that are still written
+     */
+    public void putAll(Collection<CacheEntity> cacheEntities) {
+        List<CacheEntity> valid = new ArrayList<>(cacheEntities.size());
+        for (CacheEntity cacheEntity : cacheEntities) {
             if (cacheEntity == null || cacheEntity.getId() == null) {
                 logger.warn("Attempted to add a null entity or entity with null ID.");
-                return;
+            } else {
+                valid.add(compress(stamp(cacheEntity)));
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+        if (writeBehind != null) {
+            for (CacheEntity cacheEntity : valid) {
+                writeBehind.save(cacheEntity.getId(), cacheEntity);
+            }
+        } else {
+            database.saveAll(valid);
+        }
+        for (CacheEntity cacheEntity : valid) {
+            write(cacheEntity.getId(), cacheEntity, 0);
+            forgetAbsence(cacheEntity.getId());
+            if (hotKeys != null) {
+                hotKeys.record(cacheEntity.getId(), HotKeyTracker.Access.WRITE);
+            }
+            if (invalidations != null) {
+                invalidations.publish(cacheEntity.getId(), cacheEntity.getVersion());
             }
-            cache.put(cacheEntity.getId(), cacheEntity);
-            database.save(cacheEntity); // Always write-through
-            logger.info("Added entity with ID: {}", cacheEntity.getId());
-        } catch (Exception e) {
-            logger.error("Failed to add entity with ID: {}", cacheEntity != null ? cacheEntity.getId() : "null", e);
         }
     }
 
+    /**
+     * Caches entities another cluster member handed off, without writing them to the database or publishing
+     * invalidations: they are copies of what the database already holds. An ID already cached is left as it is, since
+     * it was written or loaded here after the copy was taken. Null entities and entities with a null ID are skipped.
+     *
+     * @param cacheEntities the CacheEntity objects to cache
+     * @return the number of entities added to the cache
+     */
+    public int fill(Collection<CacheEntity> cacheEntities) {
+        List<CacheEntity> valid = new ArrayList<>(cacheEntities.size());
+        for (CacheEntity cacheEntity : cacheEntities) {
+            if (cacheEntity != null && cacheEntity.getId() != null) {
+                valid.add(cacheEntity);
+            }
+        }
+        return insertChunk(valid);
+    }
+
     /**
      * Retrieves a CacheEntity from the cache or database based on the loadFromDB flag.
      * If the entity is not found in the cache and loadFromDB is true, it retrieves it from the database.
@@ -66,26 +346,161 @@ public class CachingService {
      * @param cacheEntity the CacheEntity to retrieve
      * @param loadFromDB  whether to load from the database if not found in cache
      * @return the retrieved CacheEntity, or null if not found
+     * @throws RuntimeException if loading from the database fails; nothing is cached in that case
      */
     public CacheEntity get(CacheEntity cacheEntity, boolean loadFromDB) {
-        try {
-            if (cacheEntity == null || cacheEntity.getId() == null) {
-                logger.warn("Attempted to get a null entity or entity with null ID.");
-                return null;
-            }
-            CacheEntity result = cache.get(cacheEntity.getId());
-            if (result == null && loadFromDB) {
-                result = database.get(cacheEntity.getId());
-                if (result != null) {
-                    cache.put(cacheEntity.getId(), result); // Load from DB into cache
-                    logger.info("Loaded entity with ID: {} from database into cache.", cacheEntity.getId());
-                }
+        if (cacheEntity == null || cacheEntity.getId() == null) {
+            logger.warn("Attempted to get a null entity or entity with null ID.");
+            return null;
+        }
+        long startTime = stats.startTime();
+        CacheEntity cached = getPresent(cacheEntity.getId(), databaseLoader);
+        if (cached == null) {
+            if (loadFromDB) {
+                cached = isKnownAbsent(cacheEntity.getId()) ? null : load(cacheEntity.getId(), databaseLoader);
+            } else if (victimTier != null) {
+                // Promoting from the off-heap or compact tier goes through a load, so it cannot race with a write
+                cached = load(cacheEntity.getId(), noLoader);
+            }
+        }
+        stats.recordLatency(StatsRecorder.Operation.GET, startTime);
+        return cached;
+    }
+
+    /**
+     * Retrieves a CacheEntity by ID, loading it with the given loader on a miss.
+     * Concurrent misses for the same ID share a single call to the loader; no lock is held while it runs.
+     * A non-null result is stored in the cache. Exceptions thrown by the loader are propagated to every waiting caller.
+     *
+     * @param id     the identifier of the entity to retrieve
+     * @param loader computes the entity on a miss, returning null if it does not exist
+     * @return the cached or loaded CacheEntity, or null if the loader found nothing
+     */
+    public CacheEntity get(String id, Function<String, CacheEntity> loader) {
+        long startTime = stats.startTime();
+        CacheEntity cached = getPresent(id, loader);
+        if (cached == null) {
+            cached = load(id, loader);
+        }
+        stats.recordLatency(StatsRecorder.Operation.GET, startTime);
+        return cached;
+    }
+
+    // Loads a missing entity, sharing a load already in progress for the same ID
+    private CacheEntity load(String id, Function<String, CacheEntity> loader) {
+        CompletableFuture<CacheEntity> load = new CompletableFuture<>();
+        CompletableFuture<CacheEntity> inProgress = inFlightLoads.putIfAbsent(id, load);
+        if (inProgress != null) {
+            return await(inProgress);
+        }
+        runLoad(id, loader, load);
+        return await(load);
+    }
+
+    /**
+     * Retrieves a batch of CacheEntity objects by ID. Hits are served from the cache in one pass; if loadFromDB is true,
+     * all misses are then loaded with a single batched database call. Misses that another caller is already loading
+     * share that load instead, as with {@link #get(String, Function)}.
+     *
+     * @param ids        the identifiers of the entities to retrieve; null and duplicate IDs are ignored
+     * @param loadFromDB whether to load the entities not found in the cache from the database
+     * @return the entities found, keyed by ID in request order; IDs not found are absent
+     */
+    public Map<String, CacheEntity> getAll(Collection<String> ids, boolean loadFromDB) {
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        Map<String, CacheEntity> found = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (String id : distinct) {
+            CacheEntity cached = getPresent(id, databaseLoader);
+            if (cached != null) {
+                found.put(id, cached);
+            } else {
+                misses.add(id);
             }
+        }
+        if (loadFromDB && absent != null) {
+            misses.removeIf(this::isKnownAbsent);
+        }
+        // Without the database, misses can still be promoted from the off-heap or compact tier
+        if (!misses.isEmpty() && (loadFromDB || victimTier != null)) {
+            found.putAll(loadAll(misses, loadFromDB ? this::loadAllFromDatabase : missing -> Collections.emptyMap(), loadFromDB));
+        }
+        Map<String, CacheEntity> result = new LinkedHashMap<>();
+        for (String id : distinct) {
+            CacheEntity entity = found.get(id);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(String, Function)}. A hit completes immediately; a miss runs the loader
+     * on the load executor unless a load for the same ID is already in progress, in which case its result is shared.
+     *
+     * @param id     the identifier of the entity to retrieve
+     * @param loader computes the entity on a miss, returning null if it does not exist
+     * @return a future completed with the entity or null, or exceptionally if the loader failed
+     */
+    public CompletableFuture<CacheEntity> getAsync(String id, Function<String, CacheEntity> loader) {
+        long startTime = stats.startTime();
+        CacheEntity cached = getPresent(id, loader);
+        return timed((cached != null) ? CompletableFuture.completedFuture(cached) : loadAsync(id, loader), startTime);
+    }
+
+    /**
+     * Asynchronous variant of {@link #get(CacheEntity, boolean)}. A hit completes immediately; a miss is loaded from
+     * the database (or promoted from the off-heap or compact tier) on the load executor, so the caller never blocks on the
+     * database, and concurrent misses for the same ID share one load.
+     *
+     * @param cacheEntity the CacheEntity to retrieve
+     * @param loadFromDB  whether to load from the database if not found in cache
+     * @return a future completed with the entity or null, or exceptionally if loading from the database failed
+     */
+    public CompletableFuture<CacheEntity> getAsync(CacheEntity cacheEntity, boolean loadFromDB) {
+        if (cacheEntity == null || cacheEntity.getId() == null) {
+            logger.warn("Attempted to get a null entity or entity with null ID.");
+            return CompletableFuture.completedFuture(null);
+        }
+        String id = cacheEntity.getId();
+        long startTime = stats.startTime();
+        CacheEntity cached = getPresent(id, databaseLoader);
+        CompletableFuture<CacheEntity> result;
+        if (cached != null) {
+            result = CompletableFuture.completedFuture(cached);
+        } else if (loadFromDB) {
+            result = isKnownAbsent(id) ? CompletableFuture.completedFuture(null) : loadAsync(id, databaseLoader);
+        } else {
+            result = (victimTier != null) ? loadAsync(id, noLoader) : CompletableFuture.completedFuture(null);
+        }
+        return timed(result, startTime);
+    }
+
+    // Records the latency of an asynchronous read when it completes, before its caller sees the result
+    private CompletableFuture<CacheEntity> timed(CompletableFuture<CacheEntity> result, long startTime) {
+        if (result.isDone()) {
+            stats.recordLatency(StatsRecorder.Operation.GET, startTime);
             return result;
-        } catch (Exception e) {
-            logger.error("Failed to retrieve entity with ID: {}", cacheEntity != null ? cacheEntity.getId() : "null", e);
-            return null;
         }
+        return result.whenComplete((entity, failure) -> stats.recordLatency(StatsRecorder.Operation.GET, startTime));
+    }
+
+    // Loads a missing entity on the load executor, sharing a load already in progress for the same ID
+    private CompletableFuture<CacheEntity> loadAsync(String id, Function<String, CacheEntity> loader) {
+        CompletableFuture<CacheEntity> load = new CompletableFuture<>();
+        CompletableFuture<CacheEntity> inProgress = inFlightLoads.putIfAbsent(id, load);
+        if (inProgress != null) {
+            return inProgress.copy();
+        }
+        try {
+            loadExecutor.execute(() -> runLoad(id, loader, load));
+        } catch (RuntimeException e) {
+            inFlightLoads.remove(id, load);
+            load.completeExceptionally(e);
+        }
+        return load.copy();
     }
 
     /**
@@ -93,18 +508,50 @@ public class CachingService {
      * If the entity is null or has a null ID, it logs a warning and does not attempt to remove it.
      *
      * @param cacheEntity the CacheEntity to remove
+     * @throws IllegalStateException in write-behind mode, if the queue stays full for 10 seconds or is closed
      */
     public void remove(CacheEntity cacheEntity) {
-        try {
-            if (cacheEntity == null || cacheEntity.getId() == null) {
-                logger.warn("Attempted to remove a null entity or entity with null ID.");
-                return;
-            }
-            cache.remove(cacheEntity.getId());
+        if (cacheEntity == null || cacheEntity.getId() == null) {
+            logger.warn("Attempted to remove a null entity or entity with null ID.");
+            return;
+        }
+        if (writeBehind != null) {
+            writeBehind.remove(cacheEntity.getId());
+        } else {
             database.remove(cacheEntity.getId());
-            logger.info("Removed entity with ID: {}", cacheEntity.getId());
-        } catch (Exception e) {
-            logger.error("Failed to remove entity with ID: {}", cacheEntity != null ? cacheEntity.getId() : "null", e);
+        }
+        write(cacheEntity.getId(), null, 0);
+        if (invalidations != null) {
+            invalidations.publish(cacheEntity.getId(), versions.next());
+        }
+    }
+
+    /**
+     * Removes a batch of CacheEntity objects from both the cache and the database.
+     * In write-through mode the whole batch is removed from the database with a single call.
+     *
+     * @param ids the identifiers of the entities to remove; null IDs are ignored
+     * @throws IllegalStateException in write-behind mode, if the queue stays full for 10 seconds or is closed; the
+     *                               removals queued before that are still applied to the database
+     */
+    public void removeAll(Collection<String> ids) {
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        if (distinct.isEmpty()) {
+            return;
+        }
+        if (writeBehind != null) {
+            for (String id : distinct) {
+                writeBehind.remove(id);
+            }
+        } else {
+            database.removeAll(distinct);
+        }
+        for (String id : distinct) {
+            write(id, null, 0);
+            if (invalidations != null) {
+                invalidations.publish(id, versions.next());
+            }
         }
     }
 
@@ -113,25 +560,583 @@ public class CachingService {
      * This method clears the cache and removes all entries from the database.
      */
     public void removeAll() {
-        try {
-            cache.clear();
+        if (writeBehind != null) {
+            writeBehind.removeAll();
+        } else {
             database.removeAll();
-            logger.info("Removed all entities from cache and database.");
-        } catch (Exception e) {
-            logger.error("Failed to remove all entities.", e);
         }
+        inFlightLoads.clear();
+        if (nearCache != null) {
+            nearCache.clear();
+        }
+        cache.clear();
+        if (victimTier != null) {
+            victimTier.clear();
+        }
+        if (invalidations != null) {
+            invalidations.publishAll(versions.next());
+        }
+        logger.info("Removed all entities from cache and database.");
     }
 
     /**
      * Clears all entries from the cache.
-     * This method does not affect the database; it only clears the in-memory cache.
+     * This method does not affect the database; it only clears the in-memory cache, including the off-heap or compact tier.
      */
     public void clear() {
+        if (nearCache != null) {
+            nearCache.clear();
+        }
+        cache.clear();
+        if (victimTier != null) {
+            victimTier.clear();
+        }
+        if (absent != null) {
+            absent.clear();
+        }
+        logger.info("Cleared all entities from cache.");
+    }
+
+    // Drops an ID from the cache only; the database keeps it
+    void invalidate(String id) {
+        write(id, null, 0);
+    }
+
+    // Drops the entities demoted to the off-heap or compact tier whose ID matches; returns how many were dropped
+    int invalidateDemoted(Predicate<String> filter) {
+        return (victimTier == null) ? 0 : victimTier.removeIf(filter);
+    }
+
+    // The entities held on the heap, from the first to be evicted to the most valuable
+    List<CacheEntity> entities() {
+        List<Node<String, CacheEntity>> nodes = cache.entriesInRetentionOrder();
+        List<CacheEntity> entities = new ArrayList<>(nodes.size());
+        for (Node<String, CacheEntity> node : nodes) {
+            entities.add(node.getValue());
+        }
+        if (exclusiveTiering) {
+            // The hottest entities, so they go last
+            entities.addAll(nearCache.values());
+        }
+        return entities;
+    }
+
+    // Returns the cached entity, scheduling a background reload with the loader if it is due for a refresh.
+    // Every read goes through here exactly once, so this is where hits and misses are counted.
+    private CacheEntity getPresent(String id, Function<String, CacheEntity> loader) {
+        if (missRatioCurve != null) {
+            missRatioCurve.record(id);
+        }
+        if (nearCache != null) {
+            NearCache.Entry entry = nearCache.get(id);
+            if (entry != null) {
+                stats.recordL1Hit();
+                if (hotKeys != null) {
+                    hotKeys.record(id, HotKeyTracker.Access.HIT);
+                }
+                // Only inclusive entries have a node; exclusive tiering does not allow refresh-after-write
+                if (refreshExecutor != null && cache.isRefreshDue(entry.node)) {
+                    refresh(id, loader);
+                }
+                return entry.value();
+            }
+        }
+        Node<String, CacheEntity> node = cache.getEntry(id);
+        if (hotKeys != null) {
+            hotKeys.record(id, (node == null) ? HotKeyTracker.Access.MISS : HotKeyTracker.Access.HIT);
+        }
+        if (node == null) {
+            stats.recordMiss();
+            return null;
+        }
+        stats.recordHit();
+        if (nearCache != null) {
+            nearCache.onL2Hit(id, node);
+        }
+        if (refreshExecutor != null && cache.isRefreshDue(node)) {
+            refresh(id, loader);
+        }
+        return node.getValue();
+    }
+
+    // Reloads an entry on the refresh executor; a load or refresh already in progress for the ID makes this a no-op
+    private void refresh(String id, Function<String, CacheEntity> loader) {
+        CompletableFuture<CacheEntity> refresh = new CompletableFuture<>();
+        if (inFlightLoads.putIfAbsent(id, refresh) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> runRefresh(id, loader, refresh));
+        } catch (RejectedExecutionException e) {
+            // The executor is saturated; the entry stays as it is and a later read will try again
+            inFlightLoads.remove(id, refresh);
+            refresh.complete(null);
+        }
+    }
+
+    // Unlike a load, a refresh always calls the loader; a null result means the entity is gone and is removed
+    private void runRefresh(String id, Function<String, CacheEntity> loader, CompletableFuture<CacheEntity> refresh) {
         try {
-            cache.clear();
-            logger.info("Cleared all entities from cache.");
-        } catch (Exception e) {
-            logger.error("Failed to clear cache.", e);
+            CacheEntity value = callLoader(id, loader);
+            publish(id, value, refresh);
+            refresh.complete(value);
+        } catch (Throwable t) {
+            inFlightLoads.remove(id, refresh);
+            refresh.completeExceptionally(t);
+        }
+    }
+
+    // Loads the entity for a registered in-flight load and completes it for every waiter
+    private void runLoad(String id, Function<String, CacheEntity> loader, CompletableFuture<CacheEntity> load) {
+        try {
+            // Another load may have finished between our miss and registering this one
+            CacheEntity value = cache.get(id);
+            long ttlNanos = 0;
+            if (value == null && victimTier != null) {
+                VictimTier.Taken taken = victimTier.take(id);
+                if (taken != null) {
+                    value = taken.entity;
+                    ttlNanos = taken.timeToLiveNanos;
+                }
+            }
+            if (value == null) {
+                // Only a real loader counts as a load; a cache-only miss or a fill is not one
+                value = (loader == noLoader || loader instanceof Fill) ? loader.apply(id) : callLoader(id, loader);
+            }
+            if (value != null) {
+                publish(id, value, ttlNanos, load);
+            } else if (loader == databaseLoader) {
+                publishAbsence(id, load);
+            } else {
+                inFlightLoads.remove(id, load);
+            }
+            load.complete(value);
+        } catch (Throwable t) {
+            inFlightLoads.remove(id, load);
+            load.completeExceptionally(t);
+        }
+    }
+
+    // Batched counterpart of get/runLoad: registers a load for every miss not already being loaded, resolves them
+    // with one call to the batch loader, then waits for the misses that other callers were loading
+    private Map<String, CacheEntity> loadAll(List<String> ids, Function<List<String>, Map<String, CacheEntity>> batchLoader,
+                                             boolean fromDatabase) {
+        Map<String, CompletableFuture<CacheEntity>> owned = new LinkedHashMap<>();
+        Map<String, CompletableFuture<CacheEntity>> shared = new HashMap<>();
+        for (String id : ids) {
+            CompletableFuture<CacheEntity> load = new CompletableFuture<>();
+            CompletableFuture<CacheEntity> inProgress = inFlightLoads.putIfAbsent(id, load);
+            if (inProgress == null) {
+                owned.put(id, load);
+            } else {
+                shared.put(id, inProgress);
+            }
+        }
+        Map<String, CacheEntity> loaded = new HashMap<>();
+        Map<String, Long> promotedTtls = new HashMap<>(); // time to live left of the entities promoted from a tier
+        if (!owned.isEmpty()) {
+            try {
+                List<String> toLoad = new ArrayList<>();
+                for (String id : owned.keySet()) {
+                    // Another load may have finished between our miss and registering this one
+                    CacheEntity value = cache.get(id);
+                    if (value == null && victimTier != null) {
+                        VictimTier.Taken taken = victimTier.take(id);
+                        if (taken != null) {
+                            value = taken.entity;
+                            promotedTtls.put(id, taken.timeToLiveNanos);
+                        }
+                    }
+                    if (value != null) {
+                        loaded.put(id, value);
+                    } else {
+                        toLoad.add(id);
+                    }
+                }
+                if (fromDatabase && !toLoad.isEmpty()) {
+                    long startTime = stats.startTime();
+                    try {
+                        loaded.putAll(batchLoader.apply(toLoad));
+                    } catch (RuntimeException | Error e) {
+                        stats.recordLoadFailure(startTime);
+                        for (String id : toLoad) {
+                            recordEvent(CacheEvent.Type.LOAD_FAILURE, id);
+                        }
+                        throw e;
+                    }
+                    stats.recordLoadSuccess(startTime);
+                    for (String id : toLoad) {
+                        recordEvent(CacheEvent.Type.LOAD, id);
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                for (Map.Entry<String, CompletableFuture<CacheEntity>> entry : owned.entrySet()) {
+                    inFlightLoads.remove(entry.getKey(), entry.getValue());
+                    entry.getValue().completeExceptionally(e);
+                }
+                throw e;
+            }
+            for (Map.Entry<String, CompletableFuture<CacheEntity>> entry : owned.entrySet()) {
+                CacheEntity value = loaded.get(entry.getKey());
+                if (value != null) {
+                    publish(entry.getKey(), value, promotedTtls.getOrDefault(entry.getKey(), 0L), entry.getValue());
+                } else if (fromDatabase) {
+                    publishAbsence(entry.getKey(), entry.getValue());
+                } else {
+                    inFlightLoads.remove(entry.getKey(), entry.getValue());
+                }
+                entry.getValue().complete(value);
+            }
+        }
+        // Only after completing our own loads, so two overlapping batches can never wait on each other
+        for (Map.Entry<String, CompletableFuture<CacheEntity>> entry : shared.entrySet()) {
+            CacheEntity value = await(entry.getValue());
+            if (value != null) {
+                loaded.put(entry.getKey(), value);
+            }
+        }
+        return loaded;
+    }
+
+    private CacheEntity callLoader(String id, Function<String, CacheEntity> loader) {
+        long startTime = stats.startTime();
+        try {
+            CacheEntity value = loader.apply(id);
+            stats.recordLoadSuccess(startTime);
+            recordEvent(CacheEvent.Type.LOAD, id);
+            return value;
+        } catch (RuntimeException | Error e) {
+            stats.recordLoadFailure(startTime);
+            recordEvent(CacheEvent.Type.LOAD_FAILURE, id);
+            throw e;
+        }
+    }
+
+    private void onRemoval(String id, RemovalCause cause) {
+        stats.recordRemoval(cause);
+        recordEvent(eventType(cause), id);
+        // An inclusive L1 slot must not outlive its L2 entry
+        if (nearCache != null && !exclusiveTiering) {
+            nearCache.onL2Removal(id);
+        }
+    }
+
+    private void recordEvent(CacheEvent.Type type, String id) {
+        CacheEventDispatcher dispatcher = events;
+        if (dispatcher != null) {
+            dispatcher.record(type, id);
+        }
+    }
+
+    private static CacheEvent.Type eventType(RemovalCause cause) {
+        switch (cause) {
+            case SIZE:
+                return CacheEvent.Type.EVICTION;
+            case EXPIRED:
+                return CacheEvent.Type.EXPIRATION;
+            default:
+                return CacheEvent.Type.REMOVAL;
+        }
+    }
+
+    // Caches a loaded value (or drops the entry for null) unless a write to the same ID has detached the load meanwhile
+    private void publish(String id, CacheEntity value, CompletableFuture<CacheEntity> load) {
+        publish(id, value, 0, load);
+    }
+
+    // As above, with the time to live left of an entity promoted from the off-heap or compact tier, or 0 for the default
+    private void publish(String id, CacheEntity value, long ttlNanos, CompletableFuture<CacheEntity> load) {
+        // Compressed outside the map's lock; a value older than an invalidation received meanwhile is not cached
+        CacheEntity stored = (value != null && !isInvalidated(value)) ? compress(value) : null;
+        inFlightLoads.computeIfPresent(id, (key, current) -> {
+            if (current != load) {
+                return current;
+            }
+            update(key, stored, ttlNanos);
+            return null;
+        });
+    }
+
+    // Called under the engine's eviction lock for every size eviction; an entity that has expired is not kept
+    private void demote(String id, CacheEntity entity, long timeToLiveNanos) {
+        if (timeToLiveNanos > 0) {
+            victimTier.put(entity, timeToLiveNanos);
+        }
+    }
+
+    // Stores or removes (null entity) an ID in the cache, detaching any load in progress for it.
+    // The database (or write-behind queue) has already been written, so a load registered after this point sees the new state.
+    private void write(String id, CacheEntity entity, long ttlNanos) {
+        if (inFlightLoads.isEmpty()) {
+            update(id, entity, ttlNanos);
+            return;
+        }
+        inFlightLoads.compute(id, (key, current) -> {
+            update(key, entity, ttlNanos);
+            return null;
+        });
+    }
+
+    private void update(String id, CacheEntity entity, long ttlNanos) {
+        // In exclusive tiering the ID may live in L1, and must not be promoted with its old value during the write
+        ReentrantLock tierLock = exclusiveTiering ? nearCache.writeLock(id) : null;
+        if (tierLock != null) {
+            tierLock.lock();
+        }
+        try {
+            if (tierLock != null) {
+                nearCache.remove(id);
+            }
+            if (entity == null) {
+                cache.remove(id);
+            } else {
+                cache.put(id, entity, ttlNanos);
+            }
+        } finally {
+            if (tierLock != null) {
+                tierLock.unlock();
+            }
+        }
+        // After the heap write, so a copy demoted by an eviction that ran before it is dropped as well
+        if (victimTier != null) {
+            victimTier.remove(id);
+        }
+    }
+
+    // Applies invalidations received from another instance; returns how many were not older than the cached copy
+    private int applyInvalidations(List<Invalidation> batch) {
+        int applied = 0;
+        for (Invalidation invalidation : batch) {
+            long version = invalidation.getVersion();
+            versions.observe(version);
+            String id = invalidation.getId();
+            if (id == null) {
+                clearedVersion.accumulateAndGet(version, Math::max);
+                inFlightLoads.clear();
+                clear();
+                applied++;
+                continue;
+            }
+            invalidatedVersions.merge(id, version, Math::max);
+            Node<String, CacheEntity> node = cache.peekEntry(id);
+            if (node != null && node.getValue().getVersion() >= version) {
+                continue;
+            }
+            write(id, null, 0);
+            forgetAbsence(id);
+            applied++;
+        }
+        if (invalidatedVersions.size() > MAX_INVALIDATED_VERSIONS) {
+            long cutoff = System.currentTimeMillis() - INVALIDATED_VERSION_MILLIS;
+            invalidatedVersions.values().removeIf(version -> VersionClock.millis(version) < cutoff);
+        }
+        return applied;
+    }
+
+    private boolean isInvalidated(CacheEntity value) {
+        if (invalidations == null) {
+            return false;
+        }
+        long cutoff = System.currentTimeMillis() - INVALIDATED_VERSION_MILLIS;
+        long cleared = clearedVersion.get();
+        Long invalidated = invalidatedVersions.get(value.getId());
+        return (value.getVersion() < cleared && VersionClock.millis(cleared) >= cutoff)
+                || (invalidated != null && value.getVersion() < invalidated && VersionClock.millis(invalidated) >= cutoff);
+    }
+
+    // Remembers that the database does not have an ID, unless a write to it detached the load meanwhile
+    private void publishAbsence(String id, CompletableFuture<CacheEntity> load) {
+        if (absent == null) {
+            inFlightLoads.remove(id, load);
+            return;
+        }
+        inFlightLoads.computeIfPresent(id, (key, current) -> {
+            if (current != load) {
+                return current;
+            }
+            absent.put(key, Boolean.TRUE);
+            return null;
+        });
+    }
+
+    // Called after the write to the cache, so a load that missed before the write either was detached by it, or
+    // recorded its absence before it and has it forgotten here
+    private void forgetAbsence(String id) {
+        if (absent != null) {
+            absent.remove(id);
+        }
+    }
+
+    private boolean isKnownAbsent(String id) {
+        if (absent == null || absent.get(id) == null) {
+            return false;
+        }
+        stats.recordNegativeHit();
+        return true;
+    }
+
+    // Versions an entity written by this instance, when other instances are told about its writes
+    private CacheEntity stamp(CacheEntity entity) {
+        return (invalidations != null) ? new CacheEntity(entity.getId(), entity.getData(), versions.next()) : entity;
+    }
+
+    private CacheEntity compress(CacheEntity entity) {
+        return (compressor != null) ? compressor.compress(entity) : entity;
+    }
+
+    private CacheEntity loadFromDatabase(String id) {
+        if (writeBehind != null) {
+            // Writes not yet flushed are newer than anything in the database
+            WriteBehindQueue.PendingWrite pendingWrite = writeBehind.pending(id);
+            if (pendingWrite != null) {
+                return pendingWrite.entity;
+            }
+        }
+        return database.get(id);
+    }
+
+    private CompletableFuture<Integer> startWarmUp(Path file) {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                future.complete(warmUp(file));
+            } catch (Throwable t) {
+                logger.error("Failed to warm up cache from {}.", file, t);
+                future.completeExceptionally(t);
+            }
+        }, "cache-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private List<CacheEntity> loadChunk(List<CacheEntity> chunk) {
+        List<CacheEntity> loaded = new ArrayList<>(chunk.size());
+        for (CacheEntity entity : chunk) {
+            CacheEntity value = loadFromDatabase(entity.getId());
+            if (value != null) {
+                loaded.add(value);
+            }
+        }
+        return loaded;
+    }
+
+    // Inserts through the load path, so a concurrent write to the same ID always wins over the snapshot
+    private int insertChunk(List<CacheEntity> chunk) {
+        int added = 0;
+        for (CacheEntity entity : chunk) {
+            if (load(entity.getId(), new Fill(entity)) == entity) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private Map<String, CacheEntity> loadAllFromDatabase(List<String> ids) {
+        Map<String, CacheEntity> loaded = new HashMap<>();
+        List<String> notPending = ids;
+        if (writeBehind != null) {
+            // Writes not yet flushed are newer than anything in the database
+            notPending = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                WriteBehindQueue.PendingWrite pendingWrite = writeBehind.pending(id);
+                if (pendingWrite == null) {
+                    notPending.add(id);
+                } else if (pendingWrite.entity != null) {
+                    loaded.put(id, pendingWrite.entity);
+                }
+            }
+        }
+        if (!notPending.isEmpty()) {
+            loaded.putAll(database.getAll(notPending));
+        }
+        return loaded;
+    }
+
+    private ScheduledExecutorService newAutoSizer(long intervalMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-auto-size");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::autoSize, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return executor;
+    }
+
+    /**
+     * Sets the bound to the smallest one whose estimated hit rate reaches the target, within the auto-sizing range,
+     * then evicts down to it a batch at a time, so that reads and writes go on in between, stopping early if a batch
+     * makes no headway. The curve is that of an LRU cache, which the other eviction policies usually beat, so the
+     * target tends to be exceeded rather than missed.
+     * Called periodically when auto-sizing is enabled.
+     */
+    void autoSize() {
+        try {
+            if (missRatioCurve.sampledReads() < MIN_AUTO_SIZE_SAMPLES) {
+                return;
+            }
+            long entries = -1;
+            for (MissRatioCurve.Point point : missRatioCurve.snapshot(0, -1).getPoints()) {
+                if (1 - point.getMissRatio() >= autoSizeHitRate) {
+                    entries = point.getSize();
+                    break;
+                }
+            }
+            long target = autoSizeMaximum;
+            if (entries >= 0 && weighted) {
+                int size = cache.size();
+                if (size == 0) {
+                    return;
+                }
+                long averageWeight = Math.max(1, cache.weightedSize() / size);
+                target = (entries > autoSizeMaximum / averageWeight) ? autoSizeMaximum : entries * averageWeight;
+            } else if (entries >= 0) {
+                target = entries;
+            }
+            target = Math.max(autoSizeMinimum, Math.min(autoSizeMaximum, target));
+            autoSizeTarget = target;
+            if (target != cache.getMaximum()) {
+                logger.info("Auto-sizing the cache from {} to {} for a hit rate of {}.", cache.getMaximum(), target, autoSizeHitRate);
+                cache.setMaximum(target);
+            }
+            // A pass that frees nothing, say because writes refill the cache as fast, leaves the rest to later writes
+            long weightedSize = cache.weightedSize();
+            while (weightedSize > cache.getMaximum() && !autoSizer.isShutdown()) {
+                cache.cleanUp();
+                long remaining = cache.weightedSize();
+                if (remaining >= weightedSize) {
+                    break;
+                }
+                weightedSize = remaining;
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to auto-size the cache.", e);
+        }
+    }
+
+    private static ExecutorService newRefreshExecutor(int threads, int queueCapacity) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static CacheEntity await(CompletableFuture<CacheEntity> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
         }
     }
 
@@ -142,7 +1147,55 @@ public class CachingService {
      * @return the size of the cache
      */
     public int cacheSize() {
-        return cache.size();
+        return exclusiveTiering ? cache.size() + nearCache.size() : cache.size();
+    }
+
+    /**
+     * Returns the IDs read or written most often over the recent window, with their hits, misses and writes.
+     *
+     * @param limit the maximum number of IDs returned
+     * @return the hot keys, or {@link HotKeyStats#DISABLED} if they are not tracked
+     */
+    public HotKeyStats getHotKeys(int limit) {
+        return (hotKeys != null) ? hotKeys.snapshot(limit) : HotKeyStats.DISABLED;
+    }
+
+    /**
+     * Returns the number of IDs remembered as missing from the database; they are not counted in the cache size.
+     *
+     * @return the number of cached database misses, 0 without negative caching
+     */
+    public int negativeCacheSize() {
+        return (absent != null) ? absent.size() : 0;
+    }
+
+    /**
+     * Returns the current weight of the cache.
+     * When the cache is bounded by weight this is the estimated number of bytes held, otherwise it equals the size.
+     *
+     * @return the weight of the cache
+     */
+    public long cacheWeight() {
+        return cache.weightedSize();
+    }
+
+    /**
+     * Returns the current bound of the cache, which auto-sizing may have moved below the configured one.
+     *
+     * @return the maximum number of entities, or the maximum weight if the cache is bounded by weight
+     */
+    public long cacheMaximum() {
+        return cache.getMaximum();
+    }
+
+    /**
+     * Returns the estimated miss ratio of the cache at other sizes, with its current bound and the one auto-sizing
+     * last chose.
+     *
+     * @return the miss ratio curve, or {@link MissRatioCurve#DISABLED} if it is not estimated
+     */
+    public MissRatioCurve getMissRatioCurve() {
+        return (missRatioCurve != null) ? missRatioCurve.snapshot(cache.getMaximum(), autoSizeTarget) : MissRatioCurve.DISABLED;
     }
 
     /**
@@ -154,4 +1207,662 @@ public class CachingService {
     public int dbSize() {
         return database.size();
     }
+
+    /**
+     * Persists all pending writes immediately. In write-through mode there is never anything pending.
+     */
+    public void flush() {
+        if (writeBehind != null) {
+            writeBehind.flush();
+        }
+    }
+
+    /**
+     * Returns how far database persistence is behind the cache.
+     *
+     * @return the write-behind queue depth, lag and flush counters
+     */
+    public WriteBehindStats getWriteBehindStats() {
+        return (writeBehind != null) ? writeBehind.stats() : WriteBehindStats.DISABLED;
+    }
+
+    /**
+     * Writes the entities currently in the cache to a snapshot file, from the first to be evicted to the most valuable.
+     * The file is replaced atomically.
+     *
+     * @param file          the snapshot file
+     * @param includeValues whether to store each entity's data; without it a warm-up reads the data from the database
+     * @return the number of entities written
+     */
+    public int saveSnapshot(Path file, boolean includeValues) {
+        List<CacheEntity> entities = entities();
+        try {
+            CacheSnapshot.write(file, entities, includeValues);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write cache snapshot " + file, e);
+        }
+        logger.info("Saved snapshot of {} entities to {}.", entities.size(), file);
+        return entities.size();
+    }
+
+    /**
+     * Fills the cache from a snapshot file. The file is streamed in chunks: while one chunk is inserted, the following
+     * ones are resolved in parallel, from the snapshot's values or else from the database. Chunks are inserted in
+     * file order, so the eviction order of the snapshot is roughly preserved. An ID already cached is left as it is.
+     *
+     * @param file the snapshot file
+     * @return the number of entities added to the cache, or 0 if the file does not exist
+     */
+    public int warmUp(Path file) {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Deque<CompletableFuture<List<CacheEntity>>> inProgress = new ArrayDeque<>();
+        int added = 0;
+        try (CacheSnapshot.Reader reader = CacheSnapshot.open(file)) {
+            Function<List<CacheEntity>, List<CacheEntity>> resolver = reader.includesValues()
+                    ? chunk -> chunk
+                    : this::loadChunk;
+            List<CacheEntity> chunk = new ArrayList<>(WARM_UP_CHUNK_SIZE);
+            for (CacheEntity entity = reader.next(); entity != null; entity = reader.next()) {
+                chunk.add(entity);
+                if (chunk.size() == WARM_UP_CHUNK_SIZE) {
+                    List<CacheEntity> full = chunk;
+                    inProgress.add(CompletableFuture.supplyAsync(() -> resolver.apply(full), loadExecutor));
+                    chunk = new ArrayList<>(WARM_UP_CHUNK_SIZE);
+                    if (inProgress.size() > parallelism) {
+                        added += insertChunk(inProgress.poll().join());
+                    }
+                }
+            }
+            inProgress.add(CompletableFuture.completedFuture(resolver.apply(chunk)));
+            while (!inProgress.isEmpty()) {
+                added += insertChunk(inProgress.poll().join());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read cache snapshot " + file, e);
+        }
+        logger.info("Warmed up cache with {} entities from {}.", added, file);
+        return added;
+    }
+
+    /**
+     * Returns the warm-up started when the service was built with a snapshot file.
+     *
+     * @return a future completed with the number of entities added, immediately completed with 0 without a snapshot file
+     */
+    public CompletableFuture<Integer> getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * Returns how many invalidations this instance exchanged with the others sharing its database.
+     *
+     * @return the invalidation statistics
+     */
+    public InvalidationStats getInvalidationStats() {
+        return (invalidations != null) ? invalidations.stats() : InvalidationStats.DISABLED;
+    }
+
+    /**
+     * Returns the occupancy of the off-heap tier and how many entities moved between it and the heap.
+     *
+     * @return the off-heap tier statistics
+     */
+    public OffHeapStats getOffHeapStats() {
+        return (victimTier instanceof OffHeapStore) ? ((OffHeapStore) victimTier).stats() : OffHeapStats.DISABLED;
+    }
+
+    /**
+     * Returns the memory used per entry by the heap cache and by the compact tier, if there is one. The heap cache's
+     * footprint is estimated entry by entry as {@link CacheEntityWeigher} does, so this walks every heap entry and is
+     * meant for diagnostics; the compact tier's is measured from its arrays.
+     *
+     * @return the footprint of each tier
+     */
+    public FootprintStats getFootprint() {
+        CacheEntityWeigher weigher = new CacheEntityWeigher();
+        int entries = 0;
+        long bytes = 0;
+        long payloadBytes = 0;
+        long objects = 0;
+        for (Node<String, CacheEntity> node : cache.entriesInRetentionOrder()) {
+            CacheEntity entity = node.getValue();
+            entries++;
+            bytes += weigher.weigh(node.getKey(), entity);
+            payloadBytes += CacheEntityWeigher.payloadOf(entity);
+            objects += CacheEntityWeigher.objectsOf(entity);
+        }
+        List<FootprintStats.Tier> tiers = new ArrayList<>();
+        tiers.add(new FootprintStats.Tier("heap", entries, bytes, payloadBytes, objects, true));
+        if (victimTier instanceof CompactStore) {
+            tiers.add(((CompactStore) victimTier).footprint());
+        }
+        return new FootprintStats(tiers);
+    }
+
+    /**
+     * Returns how much value compression saves and what it costs.
+     *
+     * @return the compression ratio, counts and CPU time of compressions and decompressions
+     */
+    public CompressionStats getCompressionStats() {
+        return (compressor != null) ? compressor.stats() : CompressionStats.DISABLED;
+    }
+
+    /**
+     * Returns the hit and miss counts, loads, removals by cause and latency percentiles recorded so far.
+     *
+     * @return the cache statistics, or {@link CacheStats#DISABLED} if recording is turned off
+     */
+    public CacheStats getStats() {
+        return stats.snapshot();
+    }
+
+    /**
+     * Subscribes a listener to the service's loads, evictions, expirations and removals. Events are aggregated and
+     * sampled as configured with {@link Builder#eventSampling}, and delivered in periodic summaries on a background
+     * thread. Until the first listener is added, events are not even counted.
+     *
+     * @param listener the listener to add
+     */
+    public synchronized void addEventListener(CacheEventListener listener) {
+        if (events == null) {
+            events = new CacheEventDispatcher(eventSampleOneIn, eventMaxSamples, eventIntervalMillis);
+        }
+        events.addListener(listener);
+    }
+
+    /**
+     * Unsubscribes a listener added with {@link #addEventListener}.
+     *
+     * @param listener the listener to remove
+     */
+    public synchronized void removeEventListener(CacheEventListener listener) {
+        if (events != null) {
+            events.removeListener(listener);
+        }
+    }
+
+    /**
+     * Shuts the service down, saving the snapshot if one is configured, persisting any writes still queued
+     * in write-behind mode and closing the database.
+     */
+    @Override
+    public void close() {
+        if (snapshotFile != null) {
+            try {
+                saveSnapshot(snapshotFile, snapshotValues);
+            } catch (UncheckedIOException e) {
+                logger.error("Failed to save cache snapshot on shutdown.", e);
+            }
+        }
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+        if (autoSizer != null) {
+            autoSizer.shutdownNow();
+        }
+        if (invalidations != null) {
+            invalidations.close();
+        }
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        database.close();
+        if (events != null) {
+            events.close();
+        }
+    }
+
+    // The loader of a fill, which supplies an entity already at hand and so is not recorded as a load
+    private static final class Fill implements Function<String, CacheEntity> {
+        private final CacheEntity entity;
+
+        Fill(CacheEntity entity) {
+            this.entity = entity;
+        }
+
+        @Override
+        public CacheEntity apply(String id) {
+            return entity;
+        }
+    }
+
+    /**
+     * Builder for CachingService. Only a maximum size or a maximum weight is required; everything else defaults to the
+     * behaviour of {@link CachingService#CachingService(int)}.
+     */
+    public static final class Builder {
+        private int maxSize = -1;
+        private long maxWeight = -1;
+        private EvictionPolicyType policyType = EvictionPolicyType.LRU;
+        private Duration expireAfterWrite;
+        private Duration expireAfterAccess;
+        private Duration refreshAfterWrite;
+        private int refreshThreads = 2;
+        private int refreshQueueCapacity = 1_000;
+        private boolean writeBehind;
+        private int writeBatchSize;
+        private Duration flushInterval;
+        private int writeQueueCapacity;
+        private long offHeapCapacity;
+        private long compactCapacity;
+        private Executor loadExecutor = ForkJoinPool.commonPool();
+        private int compressionThreshold;
+        private int negativeCapacity;
+        private Duration negativeTtl;
+        private double mrcSamplingRate;
+        private int mrcTrackedKeys;
+        private double autoSizeHitRate;
+        private long autoSizeMinimum;
+        private Duration autoSizeInterval;
+        private int hotKeyCapacity;
+        private Duration hotKeyWindow;
+        private int hotKeySampleOneIn;
+        private int hotKeyPinCount;
+        private InvalidationTransport invalidationTransport;
+        private int invalidationBatchSize;
+        private Duration invalidationInterval;
+        private int nearCacheCapacity;
+        private TieringMode tieringMode;
+        private int promotionThreshold;
+        private DatabaseDao database;
+        private Path snapshotFile;
+        private boolean snapshotValues;
+        private boolean recordStats = true;
+        private final List<CacheEventListener> eventListeners = new ArrayList<>();
+        private int eventSampleOneIn = 100;
+        private int eventMaxSamples = 1_000;
+        private Duration eventInterval = Duration.ofSeconds(1);
+
+        private Builder() {
+        }
+
+        /**
+         * @param maxSize the maximum number of entries held in the cache
+         * @return this builder
+         */
+        public Builder maxSize(int maxSize) {
+            this.maxSize = maxSize;
+            return this;
+        }
+
+        /**
+         * Bounds the cache by the estimated heap footprint of its entries instead of their number.
+         * @param maxWeight the maximum number of bytes held in the cache, as estimated by {@link CacheEntityWeigher}
+         * @return this builder
+         */
+        public Builder maxWeight(long maxWeight) {
+            this.maxWeight = maxWeight;
+            return this;
+        }
+
+        /**
+         * @param policyType the policy choosing which entries to evict
+         * @return this builder
+         */
+        public Builder evictionPolicy(EvictionPolicyType policyType) {
+            this.policyType = policyType;
+            return this;
+        }
+
+        /**
+         * @param duration how long an entity stays cached after it was written or loaded, unless added with its own TTL
+         * @return this builder
+         */
+        public Builder expireAfterWrite(Duration duration) {
+            this.expireAfterWrite = duration;
+            return this;
+        }
+
+        /**
+         * @param duration how long an entity stays cached after it was last read or written
+         * @return this builder
+         */
+        public Builder expireAfterAccess(Duration duration) {
+            this.expireAfterAccess = duration;
+            return this;
+        }
+
+        /**
+         * Enables refresh-ahead: a read of an entity cached longer than the given duration returns it immediately
+         * and reloads it in the background. The duration should be shorter than any expire-after-write duration.
+         *
+         * @param duration how old a cached entity may get before a read triggers a background reload
+         * @return this builder
+         */
+        public Builder refreshAfterWrite(Duration duration) {
+            this.refreshAfterWrite = duration;
+            return this;
+        }
+
+        /**
+         * Bounds the executor running background refreshes. Refreshes that do not fit are skipped and retried by a later read.
+         *
+         * @param threads       the number of refresh threads
+         * @param queueCapacity the number of refreshes that may wait for a thread
+         * @return this builder
+         */
+        public Builder refreshExecutor(int threads, int queueCapacity) {
+            this.refreshThreads = threads;
+            this.refreshQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Switches the service to write-behind mode.
+         *
+         * @param batchSize     the maximum number of writes per database batch; a full batch is flushed right away
+         * @param flushInterval how often pending writes are flushed regardless of the batch size
+         * @param queueCapacity the maximum number of distinct pending IDs before writers are blocked; a blocked write
+         *                      fails if no room is made within ten seconds, e.g. while the database is down
+         * @return this builder
+         */
+        public Builder writeBehind(int batchSize, Duration flushInterval, int queueCapacity) {
+            this.writeBehind = true;
+            this.writeBatchSize = batchSize;
+            this.flushInterval = flushInterval;
+            this.writeQueueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Adds an off-heap tier that keeps entities evicted from the heap in direct memory until it is full.
+         * The JVM's direct memory limit (-XX:MaxDirectMemorySize) must allow for the capacity.
+         * An entity keeps its expiry deadline in the tier: it is dropped there once the deadline passes, and a
+         * promoted entity only lives for the time it had left.
+         *
+         * @param capacityBytes the maximum number of bytes of direct memory the tier may use
+         * @return this builder
+         */
+        public Builder offHeap(long capacityBytes) {
+            this.offHeapCapacity = capacityBytes;
+            return this;
+        }
+
+        /**
+         * Adds a compact tier that keeps entities evicted from the heap in primitive arrays on the heap until it is
+         * full; see {@link CompactStore}. Each entity then costs about {@value CompactStore#ENTRY_BYTES} bytes besides
+         * its ID and data, and no objects of its own, so a heap cache bounded to the hottest entities can be backed by
+         * millions of small ones. Cannot be combined with an off-heap tier.
+         * An entity keeps its expiry deadline in the tier: it is dropped there once the deadline passes, and a
+         * promoted entity only lives for the time it had left.
+         *
+         * @param capacityBytes the maximum number of bytes of IDs and data the tier holds, encoded as UTF-8
+         * @return this builder
+         */
+        public Builder compactTier(long capacityBytes) {
+            this.compactCapacity = capacityBytes;
+            return this;
+        }
+
+        /**
+         * Puts a near cache (L1) in front of the cache (L2), for the hottest keys. A key is promoted once it has been
+         * read from L2 the given number of times; it is demoted when another key needs its L1 slot and it has not
+         * been read since the previous attempt. Exclusive tiering cannot be combined with refresh-after-write, and
+         * never promotes entities that can expire.
+         *
+         * @param capacity           the number of L1 slots, rounded up to a power of two; a few hundred is typical
+         * @param mode               whether promoted entities stay in L2
+         * @param promotionThreshold the number of L2 hits after which a key is promoted, 1 to promote on the first hit
+         * @return this builder
+         */
+        public Builder nearCache(int capacity, TieringMode mode, int promotionThreshold) {
+            this.nearCacheCapacity = capacity;
+            this.tieringMode = mode;
+            this.promotionThreshold = promotionThreshold;
+            return this;
+        }
+
+        /**
+         * Sets the executor that runs the loads of the asynchronous getters and the chunks of a warm-up. Loads block
+         * on the database, so an executor with a thread per task (virtual threads on Java 21) lets any number of slow
+         * misses wait at once without tying up a pool.
+         *
+         * @param loadExecutor the executor; the common fork/join pool by default
+         * @return this builder
+         */
+        public Builder loadExecutor(Executor loadExecutor) {
+            this.loadExecutor = loadExecutor;
+            return this;
+        }
+
+        /**
+         * Compresses the data of large entities before storing them, in the cache as well as in the database when
+         * it keeps the objects it is given. Compressed data is decompressed each time it is read, so this trades CPU
+         * on reads for memory; see {@link CachingService#getCompressionStats()} for both sides.
+         *
+         * @param threshold the data length, in characters, from which values are compressed; a few hundred is typical
+         * @return this builder
+         */
+        public Builder compressValues(int threshold) {
+            this.compressionThreshold = threshold;
+            return this;
+        }
+
+        /**
+         * Remembers the IDs a database load did not find, so that reading them again is answered without a load until
+         * the time to live has passed or the ID is written. The remembered IDs are held apart from the entities, so a
+         * flood of missing IDs cannot evict them, and bounded on their own.
+         *
+         * @param capacity the maximum number of missing IDs remembered
+         * @param ttl      how long a missing ID is remembered; keep it short if other writers can add it to the database
+         * @return this builder
+         */
+        public Builder negativeCaching(int capacity, Duration ttl) {
+            if (capacity <= 0 || ttl == null || ttl.isZero() || ttl.isNegative()) {
+                throw new IllegalArgumentException("capacity and ttl must be positive");
+            }
+            this.negativeCapacity = capacity;
+            this.negativeTtl = ttl;
+            return this;
+        }
+
+        /**
+         * Estimates the miss ratio curve from the reads of a sample of the keys; see {@link MissRatioCurveEstimator}.
+         *
+         * @param samplingRate   the fraction of the keys sampled at first, e.g. 0.01; it drops once more keys are seen
+         *                       than are tracked
+         * @param maxTrackedKeys the maximum number of sampled keys tracked, which bounds the memory used
+         * @return this builder
+         */
+        public Builder missRatioCurve(double samplingRate, int maxTrackedKeys) {
+            if (!(samplingRate > 0 && samplingRate <= 1) || maxTrackedKeys <= 0) {
+                throw new IllegalArgumentException("samplingRate must be in (0, 1] and maxTrackedKeys positive");
+            }
+            this.mrcSamplingRate = samplingRate;
+            this.mrcTrackedKeys = maxTrackedKeys;
+            return this;
+        }
+
+        /**
+         * Resizes the cache at runtime from its miss ratio curve, which must be estimated too: every interval the bound
+         * is set to the smallest one expected to reach the target hit rate, between the minimum and the configured
+         * maximum size or weight. The configured bound is never exceeded, so a memory budget still holds.
+         *
+         * @param targetHitRate the hit rate to reach, in (0, 1)
+         * @param minimum       the smallest bound, in entries or in bytes as the configured one
+         * @param interval      how often the bound is reconsidered
+         * @return this builder
+         */
+        public Builder autoSize(double targetHitRate, long minimum, Duration interval) {
+            if (!(targetHitRate > 0 && targetHitRate < 1) || minimum < 0 || interval == null || interval.isZero() || interval.isNegative()) {
+                throw new IllegalArgumentException("targetHitRate must be in (0, 1), minimum not negative and interval positive");
+            }
+            this.autoSizeHitRate = targetHitRate;
+            this.autoSizeMinimum = minimum;
+            this.autoSizeInterval = interval;
+            return this;
+        }
+
+        /**
+         * Tracks the IDs read or written most often over a sliding window, with a fixed number of counters; see
+         * {@link HotKeyTracker}. The window slides in steps of a sixth of its length. One access in 16
+         * is counted.
+         *
+         * @param capacity the number of counters per step, which bounds the memory used; the hot keys reported are
+         *                 accurate when it is several times the number asked for
+         * @param window   the length of the window, e.g. one minute
+         * @return this builder
+         */
+        public Builder hotKeys(int capacity, Duration window) {
+            return hotKeys(capacity, window, DEFAULT_HOT_KEY_SAMPLE_ONE_IN);
+        }
+
+        /**
+         * As {@link #hotKeys(int, Duration)}, counting one access in sampleOneIn, drawn at random. Sampling keeps
+         * every read from contending on the tracker's lock; the counts reported are scaled back up.
+         *
+         * @param capacity    the number of counters per step
+         * @param window      the length of the window
+         * @param sampleOneIn one access in this many is counted, 1 to count them all
+         * @return this builder
+         */
+        public Builder hotKeys(int capacity, Duration window, int sampleOneIn) {
+            if (capacity <= 0 || window == null || window.toNanos() < HotKeyTracker.PARTS || sampleOneIn <= 0) {
+                throw new IllegalArgumentException("capacity, window and sampleOneIn must be positive");
+            }
+            this.hotKeyCapacity = capacity;
+            this.hotKeyWindow = window;
+            this.hotKeySampleOneIn = sampleOneIn;
+            return this;
+        }
+
+        /**
+         * Pins the hottest tracked IDs in the near cache, re-chosen at every step of the window, so they are served
+         * from L1 whatever its promotion threshold. Without a near cache, one is created just for them. Requires
+         * {@link #hotKeys}.
+         *
+         * @param count the number of hottest IDs pinned, at most the hot key capacity
+         * @return this builder
+         */
+        public Builder pinHotKeys(int count) {
+            if (count < 0) {
+                throw new IllegalArgumentException("count must not be negative");
+            }
+            this.hotKeyPinCount = count;
+            return this;
+        }
+
+        /**
+         * Keeps this instance consistent with other instances caching the same database: every write is versioned and
+         * announced to them over the transport, and the writes they announce drop this instance's older copies.
+         * Announcements to the same ID are coalesced and sent in batches. The service closes the transport when it is
+         * closed.
+         *
+         * @param transport     carries invalidations between the instances
+         * @param batchSize     the maximum number of invalidations per batch; reaching it sends the batch at once
+         * @param flushInterval how often invalidations are sent regardless of the batch size, e.g. 10 milliseconds
+         * @return this builder
+         */
+        public Builder invalidationBus(InvalidationTransport transport, int batchSize, Duration flushInterval) {
+            this.invalidationTransport = transport;
+            this.invalidationBatchSize = batchSize;
+            this.invalidationInterval = flushInterval;
+            return this;
+        }
+
+        /**
+         * Sets the store the cache reads through and writes to, for example a {@link com.demo.dao.FileDatabaseDao}
+         * to keep the data across restarts. The service closes it when it is closed.
+         *
+         * @param database the backing store; an in-memory MockDatabaseDao by default
+         * @return this builder
+         */
+        public Builder database(DatabaseDao database) {
+            this.database = database;
+            return this;
+        }
+
+        /**
+         * Warms the cache from the snapshot file in the background when the service starts, if the file exists,
+         * and saves a new snapshot to it when the service is closed.
+         * A warmed-up entity starts a fresh default time to live.
+         *
+         * @param file          the snapshot file
+         * @param includeValues whether to store each entity's data, which makes the warm-up independent of the database
+         *                      at the cost of a larger file and possibly stale values
+         * @return this builder
+         */
+        public Builder snapshot(Path file, boolean includeValues) {
+            this.snapshotFile = file;
+            this.snapshotValues = includeValues;
+            return this;
+        }
+
+        /**
+         * Turns statistics recording on or off. It is on by default; when off, no counter is touched and the clock
+         * is never read for them.
+         *
+         * @param recordStats whether to record hits, misses, loads, removals and latencies
+         * @return this builder
+         */
+        public Builder recordStats(boolean recordStats) {
+            this.recordStats = recordStats;
+            return this;
+        }
+
+        /**
+         * Subscribes a listener to the service's events from the start; see {@link CachingService#addEventListener}.
+         *
+         * @param listener the listener to add
+         * @return this builder
+         */
+        public Builder eventListener(CacheEventListener listener) {
+            this.eventListeners.add(listener);
+            return this;
+        }
+
+        /**
+         * Configures how events are aggregated for listeners. Every event is counted; only sampled ones are kept
+         * individually, and a summary is published once per interval.
+         *
+         * @param sampleOneIn one event in this many is sampled, 1 to keep them all; 100 by default
+         * @param maxSamples  the maximum number of samples kept per interval; 1,000 by default
+         * @param interval    how often summaries are published; one second by default
+         * @return this builder
+         */
+        public Builder eventSampling(int sampleOneIn, int maxSamples, Duration interval) {
+            this.eventSampleOneIn = sampleOneIn;
+            this.eventMaxSamples = maxSamples;
+            this.eventInterval = interval;
+            return this;
+        }
+
+        // Read by CacheManager, which shares a memory budget between regions
+        int getMaxSize() {
+            return maxSize;
+        }
+
+        long getMaxWeight() {
+            return maxWeight;
+        }
+
+        /**
+         * @return a new CachingService with this builder's settings
+         */
+        public CachingService build() {
+            if ((maxSize < 0) == (maxWeight < 0)) {
+                throw new IllegalStateException("Exactly one of maxSize and maxWeight must be set");
+            }
+            if (tieringMode == TieringMode.EXCLUSIVE && refreshAfterWrite != null && !refreshAfterWrite.isZero()) {
+                throw new IllegalStateException("Exclusive tiering cannot be combined with refreshAfterWrite");
+            }
+            if (autoSizeInterval != null && mrcSamplingRate == 0) {
+                throw new IllegalStateException("autoSize requires missRatioCurve");
+            }
+            if (offHeapCapacity > 0 && compactCapacity > 0) {
+                throw new IllegalStateException("Only one of offHeap and compactTier can be set");
+            }
+            if (hotKeyPinCount > hotKeyCapacity) {
+                throw new IllegalStateException("pinHotKeys requires hotKeys with at least as many counters");
+            }
+            if (autoSizeInterval != null && autoSizeMinimum > Math.max(maxSize, maxWeight)) {
+                throw new IllegalStateException("The auto-sizing minimum exceeds the maximum size or weight");
+            }
+            return new CachingService(this);
+        }
+    }
 }
@@ -0,0 +1,436 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.FootprintStats;
+import com.demo.service.engine.Ticker;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * CompactStore keeps entities evicted from the heap cache in a handful of primitive arrays instead of a graph of
+ * objects, so millions of small entities cost a few dozen objects rather than several each, and the garbage
+ * collector marks a few arrays instead of walking every entry.
+ * <p>
+ * The store is split into segments, each guarded by its own lock. A segment is an open-addressing hash table of
+ * {@code int} slots, probed linearly and kept at most half full, pointing into parallel arrays that describe each
+ * entry: its hash, the offset and lengths of its ID and data, its version, its expiry deadline, and its links in a
+ * list from oldest to newest. An entry found past its deadline is dropped instead of being taken. IDs and data are
+ * stored as UTF-8 one after the other in a byte arena. A removed entry leaves a hole in the arena; once holes make up
+ * an eighth of it, the next write that does not fit copies the live entries into a fresh arena, which is also how the
+ * arena grows. A full segment drops its oldest entries.
+ * <p>
+ * An entry costs {@value #ENTRY_BYTES} bytes besides its ID and data, against about {@code 176} bytes and seven
+ * objects in the heap cache; see {@link CacheEntityWeigher}.
+ */
+final class CompactStore implements VictimTier {
+    static final int DEFAULT_SEGMENTS = 16;
+    /** Bytes per entry outside the arena: six ints, two longs, and two table slots of an int each. */
+    static final int ENTRY_BYTES = 6 * Integer.BYTES + 2 * Long.BYTES + 2 * Integer.BYTES;
+
+    private static final int NIL = -1;
+    private static final int INITIAL_ENTRIES = 16;
+    private static final int MIN_ARENA = 4_096;
+    private static final int ARRAY_OVERHEAD = 16;
+    // The segment, its lock, the table, the eight entry arrays and the arena
+    private static final int OBJECTS_PER_SEGMENT = 12;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Segment[] segments;
+    private final int segmentShift;
+    private final Ticker ticker;
+
+    /**
+     * Creates a store with the default number of segments.
+     * @param capacityBytes the maximum number of bytes of IDs and data held
+     */
+    CompactStore(long capacityBytes) {
+        this(capacityBytes, DEFAULT_SEGMENTS, Ticker.system());
+    }
+
+    /**
+     * @param capacityBytes the maximum number of bytes of IDs and data held; the entry arrays come on top
+     * @param segmentCount the number of independently locked segments, a power of two
+     * @param ticker the clock deadlines are kept in, the same as the heap cache's
+     */
+    CompactStore(long capacityBytes, int segmentCount, Ticker ticker) {
+        if (capacityBytes <= 0 || segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Invalid compact store configuration");
+        }
+        long arenaPerSegment = Math.max(1, capacityBytes / segmentCount);
+        if (arenaPerSegment > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("capacityBytes is too large for the number of segments");
+        }
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment((int) arenaPerSegment);
+        }
+        // The top bits pick the segment, the bottom bits the slot within it
+        this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+        this.ticker = ticker;
+    }
+
+    @Override
+    public boolean put(CacheEntity entity, long timeToLiveNanos) {
+        long deadline = VictimTier.deadline(timeToLiveNanos, ticker.read());
+        byte[] id = entity.getId().getBytes(StandardCharsets.UTF_8);
+        String data = entity.getData();
+        byte[] bytes = (data == null) ? null : data.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(entity.getId());
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            return segment.put(hash, id, bytes, entity.getVersion(), deadline);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public Taken take(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            int slot = segment.slotOf(hash, key);
+            if (slot == NIL) {
+                return null;
+            }
+            int entry = segment.table[slot] - 1;
+            long timeToLive = VictimTier.timeToLive(segment.deadlines[entry], ticker.read());
+            if (timeToLive < 0) {
+                segment.delete(slot);
+                return null;
+            }
+            int offset = segment.offsets[entry] + segment.idLengths[entry];
+            int dataLength = segment.dataLengths[entry];
+            String data = (dataLength < 0) ? null : new String(segment.arena, offset, dataLength, StandardCharsets.UTF_8);
+            CacheEntity entity = new CacheEntity(id, data, segment.versions[entry]);
+            segment.delete(slot);
+            return new Taken(entity, timeToLive);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        Segment segment = segmentFor(hash);
+        segment.lock.lock();
+        try {
+            int slot = segment.slotOf(hash, key);
+            if (slot != NIL) {
+                segment.delete(slot);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeIf(Predicate<String> filter) {
+        int removed = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                int entry = segment.oldest;
+                while (entry != NIL) {
+                    // Deleting an entry reuses its link, and moves no other entry
+                    int next = segment.newer[entry];
+                    String id = new String(segment.arena, segment.offsets[entry], segment.idLengths[entry],
+                            StandardCharsets.UTF_8);
+                    if (filter.test(id)) {
+                        segment.delete(segment.slotOfEntry(entry));
+                        removed++;
+                    }
+                    entry = next;
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drops every entry and gives the arrays back to the garbage collector.
+     */
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.reset();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.count;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the store's footprint, measured from the length of its arrays
+     */
+    FootprintStats.Tier footprint() {
+        int entries = 0;
+        long bytes = 0;
+        long payloadBytes = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                entries += segment.count;
+                bytes += segment.allocatedBytes();
+                payloadBytes += segment.liveBytes;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new FootprintStats.Tier("compact", entries, bytes, payloadBytes,
+                (long) OBJECTS_PER_SEGMENT * segments.length, false);
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash >>> segmentShift) & (segments.length - 1)];
+    }
+
+    private static int hash(String id) {
+        int hash = id.hashCode();
+        return (hash ^ (hash >>> 16)) * 0x45d9f3b;
+    }
+
+    /**
+     * A share of the store with its own lock, table, entry arrays and arena. All methods require the lock.
+     */
+    private static final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final int maxArena;
+        int[] table; // entry index + 1, or 0 for a free slot
+        int mask;
+        int[] hashes;
+        int[] offsets;
+        int[] idLengths;
+        int[] dataLengths; // -1 for null data
+        long[] versions;
+        long[] deadlines; // ticker time, or Long.MAX_VALUE if the entry never expires
+        int[] older; // towards the oldest entry; NIL at the end
+        int[] newer; // towards the newest entry; NIL at the end, and the next free entry for free ones
+        int count;
+        int used; // entries handed out at least once
+        int freeHead;
+        int oldest;
+        int newest;
+        byte[] arena;
+        int arenaEnd;
+        long liveBytes;
+
+        Segment(int maxArena) {
+            this.maxArena = maxArena;
+            reset();
+        }
+
+        void reset() {
+            allocate(INITIAL_ENTRIES);
+            count = 0;
+            used = 0;
+            freeHead = NIL;
+            oldest = NIL;
+            newest = NIL;
+            arena = EMPTY;
+            arenaEnd = 0;
+            liveBytes = 0;
+        }
+
+        boolean put(int hash, byte[] id, byte[] data, long version, long deadline) {
+            int length = id.length + ((data == null) ? 0 : data.length);
+            if (length > maxArena) {
+                return false;
+            }
+            int slot = slotOf(hash, id);
+            if (slot != NIL) {
+                delete(slot);
+            }
+            reserve(length);
+            int entry = newEntry();
+            hashes[entry] = hash;
+            offsets[entry] = arenaEnd;
+            idLengths[entry] = id.length;
+            dataLengths[entry] = (data == null) ? -1 : data.length;
+            versions[entry] = version;
+            deadlines[entry] = deadline;
+            System.arraycopy(id, 0, arena, arenaEnd, id.length);
+            if (data != null) {
+                System.arraycopy(data, 0, arena, arenaEnd + id.length, data.length);
+            }
+            arenaEnd += length;
+            liveBytes += length;
+            older[entry] = newest;
+            newer[entry] = NIL;
+            if (newest == NIL) {
+                oldest = entry;
+            } else {
+                newer[newest] = entry;
+            }
+            newest = entry;
+            insert(entry);
+            count++;
+            return true;
+        }
+
+        // Returns the slot holding the ID, or NIL
+        int slotOf(int hash, byte[] id) {
+            for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                int entry = table[slot] - 1;
+                if (hashes[entry] == hash && idLengths[entry] == id.length
+                        && Arrays.equals(arena, offsets[entry], offsets[entry] + id.length, id, 0, id.length)) {
+                    return slot;
+                }
+            }
+            return NIL;
+        }
+
+        // Frees the slot's entry, then shifts back the entries probed past it so that no lookup stops early
+        void delete(int slot) {
+            int entry = table[slot] - 1;
+            liveBytes -= length(entry);
+            if (older[entry] == NIL) {
+                oldest = newer[entry];
+            } else {
+                newer[older[entry]] = newer[entry];
+            }
+            if (newer[entry] == NIL) {
+                newest = older[entry];
+            } else {
+                older[newer[entry]] = older[entry];
+            }
+            newer[entry] = freeHead;
+            freeHead = entry;
+            count--;
+            int hole = slot;
+            for (int i = (slot + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+                int home = hashes[table[i] - 1] & mask;
+                // The entry may move back if the hole lies between its home slot and where it is
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    table[hole] = table[i];
+                    hole = i;
+                }
+            }
+            table[hole] = 0;
+        }
+
+        long allocatedBytes() {
+            return 8L * ARRAY_OVERHEAD + (long) hashes.length * (ENTRY_BYTES - 2 * Integer.BYTES)
+                    + ARRAY_OVERHEAD + (long) table.length * Integer.BYTES
+                    + ARRAY_OVERHEAD + arena.length;
+        }
+
+        // Makes room at the end of the arena for a record of the given length
+        private void reserve(int length) {
+            while (arenaEnd + length > arena.length) {
+                long needed = liveBytes + length;
+                long holes = arenaEnd - liveBytes;
+                if (needed <= arena.length && (holes >= arena.length / 8 || oldest == NIL)) {
+                    compact(arena.length);
+                } else if (arena.length < maxArena) {
+                    compact((int) Math.min(maxArena, Math.max(needed, Math.max(MIN_ARENA, 2L * arena.length))));
+                } else {
+                    delete(slotOfEntry(oldest));
+                }
+            }
+        }
+
+        // Copies the live entries, oldest first, into a fresh arena of the given length
+        private void compact(int length) {
+            byte[] fresh = new byte[length];
+            int end = 0;
+            for (int entry = oldest; entry != NIL; entry = newer[entry]) {
+                int entryLength = length(entry);
+                System.arraycopy(arena, offsets[entry], fresh, end, entryLength);
+                offsets[entry] = end;
+                end += entryLength;
+            }
+            arena = fresh;
+            arenaEnd = end;
+        }
+
+        private int newEntry() {
+            if (freeHead != NIL) {
+                int entry = freeHead;
+                freeHead = newer[entry];
+                return entry;
+            }
+            if (used == hashes.length) {
+                grow();
+            }
+            return used++;
+        }
+
+        // Doubles the entry arrays and rebuilds the table at twice their length
+        private void grow() {
+            int capacity = 2 * hashes.length;
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            idLengths = Arrays.copyOf(idLengths, capacity);
+            dataLengths = Arrays.copyOf(dataLengths, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            older = Arrays.copyOf(older, capacity);
+            newer = Arrays.copyOf(newer, capacity);
+            table = new int[2 * capacity];
+            mask = table.length - 1;
+            for (int entry = oldest; entry != NIL; entry = newer[entry]) {
+                insert(entry);
+            }
+        }
+
+        private void allocate(int capacity) {
+            hashes = new int[capacity];
+            offsets = new int[capacity];
+            idLengths = new int[capacity];
+            dataLengths = new int[capacity];
+            versions = new long[capacity];
+            deadlines = new long[capacity];
+            older = new int[capacity];
+            newer = new int[capacity];
+            table = new int[2 * capacity];
+            mask = table.length - 1;
+        }
+
+        private void insert(int entry) {
+            int slot = hashes[entry] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+
+        int slotOfEntry(int entry) {
+            int slot = hashes[entry] & mask;
+            while (table[slot] != entry + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private int length(int entry) {
+            return idLengths[entry] + Math.max(dataLengths[entry], 0);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.demo.service;
+
+import com.demo.model.CacheStats;
+import com.demo.model.LatencyStats;
+import com.demo.service.engine.RemovalCause;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrentStatsRecorder counts events in LongAdders, which spread concurrent increments over striped cells,
+ * and latencies in {@link LatencyHistogram}s, so recording from many threads at once stays cheap.
+ */
+final class ConcurrentStatsRecorder implements StatsRecorder {
+    private static final RemovalCause[] CAUSES = RemovalCause.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder l1Hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder negativeHits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder[] removals = new LongAdder[CAUSES.length];
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+
+    ConcurrentStatsRecorder() {
+        for (int i = 0; i < removals.length; i++) {
+            removals[i] = new LongAdder();
+        }
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    @Override
+    public long startTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void recordHit() {
+        hits.increment();
+    }
+
+    @Override
+    public void recordL1Hit() {
+        hits.increment();
+        l1Hits.increment();
+    }
+
+    @Override
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void recordNegativeHit() {
+        negativeHits.increment();
+    }
+
+    @Override
+    public void recordLoadSuccess(long startTime) {
+        loads.increment();
+        recordLatency(Operation.LOAD, startTime);
+    }
+
+    @Override
+    public void recordLoadFailure(long startTime) {
+        loads.increment();
+        loadFailures.increment();
+        recordLatency(Operation.LOAD, startTime);
+    }
+
+    @Override
+    public void recordRemoval(RemovalCause cause) {
+        removals[cause.ordinal()].increment();
+    }
+
+    @Override
+    public void recordLatency(Operation operation, long startTime) {
+        latencies[operation.ordinal()].record(System.nanoTime() - startTime);
+    }
+
+    @Override
+    public CacheStats snapshot() {
+        Map<String, Long> removalsByCause = new LinkedHashMap<>();
+        for (RemovalCause cause : CAUSES) {
+            removalsByCause.put(cause.name(), removals[cause.ordinal()].sum());
+        }
+        return new CacheStats(true, hits.sum(), l1Hits.sum(), misses.sum(), negativeHits.sum(), loads.sum(), loadFailures.sum(), removalsByCause,
+                latency(Operation.GET), latency(Operation.ADD), latency(Operation.LOAD));
+    }
+
+    private LatencyStats latency(Operation operation) {
+        return latencies[operation.ordinal()].snapshot();
+    }
+}
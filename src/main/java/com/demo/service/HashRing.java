@@ -0,0 +1,110 @@
+package com.demo.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * HashRing assigns keys to nodes by consistent hashing. Each node is placed on a 64-bit ring at several points, its
+ * virtual nodes, and a key belongs to the node of the first point at or after the key's hash. Adding or removing a
+ * node therefore only moves the keys of the arcs it gains or loses, about 1/n of them, and the virtual nodes spread
+ * both each node's share and the keys that move evenly over the other nodes.
+ * <p>
+ * A ring is immutable; a membership change builds a new one. Lookups are a binary search over two arrays.
+ */
+public final class HashRing {
+    private final Set<String> nodes;
+    private final int virtualNodes;
+    private final long[] points; // sorted
+    private final String[] owners; // owners[i] owns the arc ending at points[i]
+
+    /**
+     * Constructs a HashRing.
+     * @param nodes the names of the nodes; every node must compute the ring from the same names
+     * @param virtualNodes the number of points per node, e.g. 100 to 200 for shares within a few percent
+     */
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A ring needs at least one node");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive");
+        }
+        this.nodes = Collections.unmodifiableSet(new LinkedHashSet<>(nodes));
+        this.virtualNodes = virtualNodes;
+        int size = this.nodes.size() * virtualNodes;
+        // Points sort by hash, and collisions by name so every node builds the same ring whatever the order of names
+        Point[] sorted = new Point[size];
+        int i = 0;
+        for (String node : this.nodes) {
+            for (int v = 0; v < virtualNodes; v++) {
+                sorted[i++] = new Point(hash(node + '#' + v), node);
+            }
+        }
+        Arrays.sort(sorted, (a, b) -> (a.hash != b.hash) ? Long.compare(a.hash, b.hash) : a.node.compareTo(b.node));
+        this.points = new long[size];
+        this.owners = new String[size];
+        for (i = 0; i < size; i++) {
+            points[i] = sorted[i].hash;
+            owners[i] = sorted[i].node;
+        }
+    }
+
+    /**
+     * @param key the key
+     * @return the name of the node that owns the key
+     */
+    public String nodeFor(String key) {
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+            if (i == points.length) {
+                // Past the last point, so on the arc that wraps around to the first
+                i = 0;
+            }
+        }
+        return owners[i];
+    }
+
+    /**
+     * @return the names of the nodes, in the order given
+     */
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of points per node
+     */
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, with MurmurHash3's finalizer to spread similar keys over the whole ring
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static final class Point {
+        final long hash;
+        final String node;
+
+        Point(long hash, String node) {
+            this.hash = hash;
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.demo.service;
+
+import com.demo.model.HotKeyStats;
+import com.demo.service.engine.Ticker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * HotKeyTracker finds the most accessed keys of a stream with the Space-Saving algorithm: a fixed number of counters,
+ * each owned by a key. An access to an owned key increments its counter; an access to any other key takes over the
+ * smallest counter, which it keeps, so a key's count overestimates its accesses by at most the count it inherited,
+ * kept as its error. Every key accessed more often than one access in the number of counters is guaranteed one.
+ * <p>
+ * The window slides by parts: each part has its own counters, the oldest part is cleared when a new one starts, and
+ * a query adds up the live parts. A key missing from a full part may still have had up to that part's smallest count
+ * there, which is added to its count and its error.
+ * <p>
+ * Every read records an access, so only one access in {@code sampleOneIn}, drawn at random, reaches the shared lock;
+ * the others cost a thread-local random number. Counts are scaled back up when reported. Recording never waits
+ * either: a sampled access that finds the tracker busy is dropped and counted. The hottest keys are those most likely
+ * to be counted anyway.
+ */
+final class HotKeyTracker {
+    static final int PARTS = 6;
+
+    /**
+     * The kind of access recorded.
+     */
+    enum Access { HIT, MISS, WRITE }
+
+    private final int capacity;
+    private final long partNanos;
+    private final Ticker ticker;
+    private final int sampleOneIn;
+    private final int pinCount;
+    private final Consumer<Set<String>> pinListener; // null unless the hottest keys are pinned
+    private final LongAdder dropped = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by lock
+    private final Summary[] parts = new Summary[PARTS];
+    private int current;
+    private long partEnd;
+    private volatile Set<String> pinned = Collections.emptySet();
+
+    /**
+     * @param capacity    the number of counters per part of the window
+     * @param windowNanos the length of the window
+     * @param ticker      the clock the window follows
+     * @param sampleOneIn one access in this many is counted, 1 to count them all
+     * @param pinCount    the number of hottest keys reported to the listener at the start of each part, 0 for none
+     * @param pinListener receives the hottest keys, or null
+     */
+    HotKeyTracker(int capacity, long windowNanos, Ticker ticker, int sampleOneIn, int pinCount,
+                  Consumer<Set<String>> pinListener) {
+        if (capacity <= 0 || windowNanos < PARTS || sampleOneIn <= 0 || pinCount < 0 || pinCount > capacity) {
+            throw new IllegalArgumentException("capacity, window and sampleOneIn must be positive and pinCount in [0, capacity]");
+        }
+        this.capacity = capacity;
+        this.partNanos = windowNanos / PARTS;
+        this.ticker = ticker;
+        this.sampleOneIn = sampleOneIn;
+        this.pinCount = pinCount;
+        this.pinListener = pinListener;
+        for (int i = 0; i < PARTS; i++) {
+            parts[i] = new Summary(capacity);
+        }
+        this.partEnd = ticker.read() + partNanos;
+    }
+
+    /**
+     * Counts an access to the key if it is sampled, unless another thread is recording.
+     * @param key the key accessed
+     * @param access the kind of access
+     */
+    void record(String key, Access access) {
+        if (sampleOneIn > 1 && ThreadLocalRandom.current().nextInt(sampleOneIn) != 0) {
+            return;
+        }
+        if (!lock.tryLock()) {
+            dropped.increment();
+            return;
+        }
+        try {
+            advance();
+            parts[current].offer(key, access);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the hottest keys of the window.
+     * @param limit the maximum number of keys returned
+     * @return the keys, most accessed first
+     */
+    HotKeyStats snapshot(int limit) {
+        List<HotKeyStats.HotKey> keys = new ArrayList<>();
+        Set<String> pinnedNow = pinned;
+        lock.lock();
+        try {
+            advance();
+            for (Estimate estimate : top(limit)) {
+                keys.add(new HotKeyStats.HotKey(estimate.key, estimate.count * sampleOneIn, estimate.error * sampleOneIn,
+                        estimate.hits * sampleOneIn, estimate.misses * sampleOneIn, estimate.writes * sampleOneIn,
+                        pinnedNow.contains(estimate.key)));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new HotKeyStats(true, partNanos * PARTS / 1_000_000, capacity, sampleOneIn, dropped.sum(), keys);
+    }
+
+    /**
+     * @return the keys last reported to the pin listener
+     */
+    Set<String> pinned() {
+        return pinned;
+    }
+
+    // Starts the parts whose time has come, clearing the oldest each time. Called with the lock held.
+    private void advance() {
+        long now = ticker.read();
+        if (now - partEnd < 0) {
+            return;
+        }
+        long elapsed = (now - partEnd) / partNanos + 1;
+        for (long i = 0; i < Math.min(elapsed, PARTS); i++) {
+            current = (current + 1) % PARTS;
+            parts[current].clear();
+        }
+        partEnd += elapsed * partNanos;
+        if (pinListener != null) {
+            Set<String> hottest = new LinkedHashSet<>();
+            for (Estimate estimate : top(pinCount)) {
+                // Only keys known to have been counted more than once; the rest may be noise
+                if (estimate.count - estimate.error > 1) {
+                    hottest.add(estimate.key);
+                }
+            }
+            pinned = Collections.unmodifiableSet(hottest);
+            pinListener.accept(pinned);
+        }
+    }
+
+    // Merges the parts. Called with the lock held.
+    private List<Estimate> top(int limit) {
+        Map<String, Estimate> merged = new HashMap<>();
+        for (Summary part : parts) {
+            for (int i = 0; i < part.size; i++) {
+                Counter counter = part.heap[i];
+                merged.computeIfAbsent(counter.key, Estimate::new).add(counter);
+            }
+        }
+        for (Summary part : parts) {
+            long floor = part.floor();
+            if (floor == 0) {
+                continue;
+            }
+            for (Estimate estimate : merged.values()) {
+                if (!part.counters.containsKey(estimate.key)) {
+                    estimate.count += floor;
+                    estimate.error += floor;
+                }
+            }
+        }
+        List<Estimate> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.comparingLong((Estimate e) -> e.count).reversed()
+                .thenComparingLong(e -> e.error).thenComparing(e -> e.key));
+        return (sorted.size() > limit) ? sorted.subList(0, limit) : sorted;
+    }
+
+    /**
+     * The Space-Saving counters of one part of the window, in a min-heap by count so the smallest is taken over in
+     * logarithmic time.
+     */
+    private static final class Summary {
+        final Map<String, Counter> counters;
+        final Counter[] heap;
+        int size;
+
+        Summary(int capacity) {
+            this.counters = new HashMap<>(capacity * 2);
+            this.heap = new Counter[capacity];
+        }
+
+        void offer(String key, Access access) {
+            Counter counter = counters.get(key);
+            if (counter == null) {
+                if (size < heap.length) {
+                    counter = new Counter(key, 0);
+                    counter.index = size;
+                    heap[size++] = counter;
+                } else {
+                    counter = heap[0];
+                    counters.remove(counter.key);
+                    counter.reset(key, counter.count);
+                }
+                counters.put(key, counter);
+            }
+            counter.count++;
+            switch (access) {
+                case HIT:
+                    counter.hits++;
+                    break;
+                case MISS:
+                    counter.misses++;
+                    break;
+                default:
+                    counter.writes++;
+            }
+            siftDown(counter.index);
+        }
+
+        // The count a key without a counter may have had: the smallest one once every counter is owned
+        long floor() {
+            return (size < heap.length) ? 0 : heap[0].count;
+        }
+
+        void clear() {
+            counters.clear();
+            for (int i = 0; i < size; i++) {
+                heap[i] = null;
+            }
+            size = 0;
+        }
+
+        private void siftDown(int index) {
+            Counter counter = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                    child++;
+                }
+                if (heap[child].count >= counter.count) {
+                    break;
+                }
+                heap[index] = heap[child];
+                heap[index].index = index;
+                index = child;
+            }
+            heap[index] = counter;
+            counter.index = index;
+        }
+    }
+
+    /**
+     * A counter and the key that owns it.
+     */
+    private static final class Counter {
+        String key;
+        long count;
+        long error;
+        long hits;
+        long misses;
+        long writes;
+        int index;
+
+        Counter(String key, long error) {
+            reset(key, error);
+        }
+
+        void reset(String key, long inherited) {
+            this.key = key;
+            this.count = inherited;
+            this.error = inherited;
+            this.hits = 0;
+            this.misses = 0;
+            this.writes = 0;
+        }
+    }
+
+    /**
+     * A key's counters added up over the window.
+     */
+    private static final class Estimate {
+        final String key;
+        long count;
+        long error;
+        long hits;
+        long misses;
+        long writes;
+
+        Estimate(String key) {
+            this.key = key;
+        }
+
+        void add(Counter counter) {
+            count += counter.count;
+            error += counter.error;
+            hits += counter.hits;
+            misses += counter.misses;
+            writes += counter.writes;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.service;
+
+/**
+ * A message telling the other nodes that a write made their cached copy of an ID stale.
+ */
+public final class Invalidation {
+    private final String id;
+    private final long version;
+
+    /**
+     * Constructs an Invalidation.
+     * @param id the ID written, or null when every entity was removed
+     * @param version the version of the write
+     */
+    public Invalidation(String id, long version) {
+        this.id = id;
+        this.version = version;
+    }
+
+    /**
+     * @return the ID written, or null when every entity was removed
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the version of the write; copies of an older version are stale
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return ((id == null) ? "*" : id) + "@" + version;
+    }
+}
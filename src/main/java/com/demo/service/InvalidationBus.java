@@ -0,0 +1,151 @@
+package com.demo.service;
+
+import com.demo.model.InvalidationStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * InvalidationBus tells the other nodes caching the same database which IDs this node wrote, so that they drop their
+ * stale copies. Writes are not sent one by one: they are coalesced per ID, keeping the latest version, and sent in
+ * batches by a background flusher, every flush interval or as soon as a batch is full.
+ */
+final class InvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    private final InvalidationTransport transport;
+    private final int batchSize;
+    private final ToIntFunction<List<Invalidation>> receiver;
+    private final ConcurrentHashMap<String, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong pendingClear = new AtomicLong(); // the version of a pending removal of everything, or 0
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private final LongAdder published = new LongAdder();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+
+    /**
+     * Creates a bus and starts its transport and background flusher.
+     * @param transport carries the batches to the other nodes
+     * @param batchSize the maximum number of invalidations per batch; reaching it triggers a flush
+     * @param flushIntervalMillis how often pending invalidations are sent regardless of the batch size
+     * @param receiver applies a batch received from another node, returning how many were not stale
+     */
+    InvalidationBus(InvalidationTransport transport, int batchSize, long flushIntervalMillis,
+                    ToIntFunction<List<Invalidation>> receiver) {
+        if (batchSize <= 0 || flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("batchSize and flushInterval must be positive");
+        }
+        this.transport = transport;
+        this.batchSize = batchSize;
+        this.receiver = receiver;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-invalidation-bus");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        transport.start(this::receive);
+    }
+
+    /**
+     * Queues the invalidation of an ID, replacing any pending one of an older version.
+     * @param id the ID written
+     * @param version the version of the write
+     */
+    void publish(String id, long version) {
+        published.increment();
+        pending.merge(id, version, Math::max);
+        if (pending.size() >= batchSize && !flusher.isShutdown() && flushRequested.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+    }
+
+    /**
+     * Queues the invalidation of every ID.
+     * @param version the version of the removal
+     */
+    void publishAll(long version) {
+        published.increment();
+        pendingClear.accumulateAndGet(version, Math::max);
+    }
+
+    /**
+     * Sends everything pending, in batches.
+     */
+    synchronized void flush() {
+        flushRequested.set(false);
+        try {
+            List<Invalidation> batch = new ArrayList<>(batchSize);
+            long clear = pendingClear.getAndSet(0);
+            if (clear != 0) {
+                batch.add(new Invalidation(null, clear));
+            }
+            for (Map.Entry<String, Long> entry : pending.entrySet()) {
+                // Left pending if a newer version was published meanwhile
+                if (pending.remove(entry.getKey(), entry.getValue())) {
+                    batch.add(new Invalidation(entry.getKey(), entry.getValue()));
+                }
+                if (batch.size() == batchSize) {
+                    send(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                send(batch);
+            }
+        } catch (RuntimeException e) {
+            // Best effort, as the transport is: the copies left stale expire as usual
+            logger.warn("Failed to send invalidations.", e);
+        }
+    }
+
+    /**
+     * Sends everything still pending, then stops the flusher and the transport.
+     */
+    void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        transport.close();
+    }
+
+    /**
+     * @return a snapshot of the bus's counters
+     */
+    InvalidationStats stats() {
+        long receivedCount = received.sum();
+        long appliedCount = applied.sum();
+        return new InvalidationStats(true, pending.size(), published.sum(), sent.get(), batchesSent.get(),
+                receivedCount, appliedCount, receivedCount - appliedCount);
+    }
+
+    private void send(List<Invalidation> batch) {
+        transport.send(batch);
+        sent.addAndGet(batch.size());
+        batchesSent.incrementAndGet();
+    }
+
+    private void receive(List<Invalidation> batch) {
+        received.add(batch.size());
+        applied.add(receiver.applyAsInt(batch));
+    }
+}
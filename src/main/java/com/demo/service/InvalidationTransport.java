@@ -0,0 +1,29 @@
+package com.demo.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Carries batches of invalidations between the nodes of an {@link InvalidationBus}. Delivery may be best effort:
+ * a lost batch leaves stale copies until they expire, and batches may arrive out of order, which versions make safe.
+ * A transport never delivers a node's own batches back to it.
+ */
+public interface InvalidationTransport {
+
+    /**
+     * Starts receiving batches from the other nodes.
+     * @param receiver called with each batch received, on a thread of the transport
+     */
+    void start(Consumer<List<Invalidation>> receiver);
+
+    /**
+     * Sends a batch to every other node.
+     * @param batch the invalidations
+     */
+    void send(List<Invalidation> batch);
+
+    /**
+     * Stops sending and receiving.
+     */
+    void close();
+}
@@ -0,0 +1,97 @@
+package com.demo.service;
+
+import com.demo.model.LatencyStats;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts recorded durations in log-linear buckets, in the manner of HdrHistogram: values below
+ * {@value #SUB_BUCKETS} nanoseconds have a bucket each, and every power of two above that is split into
+ * {@value #SUB_BUCKETS} equal buckets, so any value is known to within about 3% while the whole range up to
+ * half an hour fits in about a thousand buckets. Durations beyond the range are counted in the last bucket.
+ * <p>
+ * Each bucket is a LongAdder, so concurrent recording never contends on a shared counter.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // The highest power of two with buckets of its own: 2^40 ns is about 18 minutes
+    private static final int MAX_MAGNITUDE = 40;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_MAGNITUDE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * @param nanos the duration to record; negative durations, from a clock going backwards, count as zero
+     */
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[indexOf(value)].increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Summarizes the recorded durations. Concurrent recording may or may not be included, but the count and
+     * percentiles are always taken from the same pass over the buckets.
+     * @return the count, mean, percentiles and maximum
+     */
+    LatencyStats snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts[i].sum();
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return LatencyStats.EMPTY;
+        }
+        long maxNanos = max.get();
+        long[] percentiles = new long[PERCENTILES.length];
+        long seen = 0;
+        int next = 0;
+        for (int i = 0; i < BUCKETS && next < PERCENTILES.length; i++) {
+            seen += snapshot[i];
+            while (next < PERCENTILES.length && seen >= Math.ceil(PERCENTILES[next] * count)) {
+                percentiles[next++] = Math.min(highestValueOf(i), maxNanos);
+            }
+        }
+        return new LatencyStats(count, sum.sum() / count,
+                percentiles[0], percentiles[1], percentiles[2], percentiles[3], maxNanos);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        if (magnitude > MAX_MAGNITUDE) {
+            return BUCKETS - 1;
+        }
+        // The bits just below the leading one pick the sub-bucket
+        int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (magnitude - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    // The largest value counted in a bucket, reported for every value in it
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int magnitude = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        int shift = magnitude - SUB_BUCKET_BITS;
+        long lowest = (1L << magnitude) | ((long) subBucket << shift);
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,70 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A CacheNode backed by a CachingService in the same JVM, to run several cluster members in one process, e.g. in tests.
+ * Operations run on the calling thread, except that a miss loaded from the database is loaded asynchronously.
+ */
+public class LocalCacheNode implements CacheNode {
+    private final CachingService service;
+
+    /**
+     * Constructs a LocalCacheNode.
+     * @param service the member's cache
+     */
+    public LocalCacheNode(CachingService service) {
+        this.service = service;
+    }
+
+    @Override
+    public CompletableFuture<CacheEntity> get(String id, boolean loadFromDB) {
+        return service.getAsync(new CacheEntity(id, null), loadFromDB);
+    }
+
+    @Override
+    public CompletableFuture<List<CacheEntity>> getAll(Collection<String> ids, boolean loadFromDB) {
+        return CompletableFuture.completedFuture(new ArrayList<>(service.getAll(ids, loadFromDB).values()));
+    }
+
+    @Override
+    public CompletableFuture<Void> add(CacheEntity entity, Duration ttl) {
+        service.add(entity, ttl);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putAll(Collection<CacheEntity> entities) {
+        service.putAll(entities);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> fill(Collection<CacheEntity> entities) {
+        service.fill(entities);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll(Collection<String> ids) {
+        service.removeAll(ids);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAll() {
+        service.removeAll();
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void close() {
+        // The service belongs to the caller
+    }
+}
@@ -0,0 +1,52 @@
+package com.demo.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * An InvalidationTransport between nodes in the same JVM, e.g. in tests. Transports created by the same {@link Hub}
+ * deliver each batch to one another synchronously, on the sender's thread.
+ */
+public final class LoopbackInvalidationTransport implements InvalidationTransport {
+    private final Hub hub;
+    private volatile Consumer<List<Invalidation>> receiver;
+
+    private LoopbackInvalidationTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void start(Consumer<List<Invalidation>> receiver) {
+        this.receiver = receiver;
+        hub.members.add(this);
+    }
+
+    @Override
+    public void send(List<Invalidation> batch) {
+        for (LoopbackInvalidationTransport member : hub.members) {
+            if (member != this) {
+                member.receiver.accept(batch);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        hub.members.remove(this);
+    }
+
+    /**
+     * Connects the transports it creates.
+     */
+    public static final class Hub {
+        private final List<LoopbackInvalidationTransport> members = new CopyOnWriteArrayList<>();
+
+        /**
+         * @return a new transport connected to the others of this hub
+         */
+        public LoopbackInvalidationTransport transport() {
+            return new LoopbackInvalidationTransport(this);
+        }
+    }
+}
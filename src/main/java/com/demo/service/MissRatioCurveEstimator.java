@@ -0,0 +1,198 @@
+package com.demo.service;
+
+import com.demo.model.MissRatioCurve;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * MissRatioCurveEstimator estimates the miss ratio curve of a stream of reads with SHARDS: only the keys whose hash
+ * falls below a threshold are sampled, which keeps every read of a sampled key and so preserves its reuse distances,
+ * the number of distinct keys read between two reads of the key. A reuse distance measured among the sampled keys,
+ * divided by the sampling rate, estimates the distance among all keys, and a read hits an LRU cache of size c exactly
+ * when its distance is below c; the histogram of distances therefore gives the miss ratio at every size at once.
+ * <p>
+ * At most a fixed number of keys is tracked: when there are more, the threshold is lowered to the largest tracked
+ * hash and the keys above it are dropped, so the sampling rate adapts to the number of distinct keys. Distances are
+ * counted with a Fenwick tree over the time of each tracked key's last read. Unsampled reads cost a comparison and a
+ * few multiplications of the key's cached hash code, and allocate nothing; sampled ones take a lock.
+ */
+final class MissRatioCurveEstimator {
+    private static final int HASH_BITS = 24;
+    private static final long MODULUS = 1L << HASH_BITS;
+    private static final int INITIAL_BUCKETS = 128;
+    // Distances past this many buckets count as misses at every reported size
+    private static final int MAX_BUCKETS = 1 << 16;
+    private static final int MAX_POINTS = 100;
+
+    private final int maxTrackedKeys;
+    private final long bucketWidth;
+    private volatile long threshold; // a key is sampled if its hash is below it
+    // Guarded by this
+    private final Map<String, Tracked> tracked = new HashMap<>();
+    private final PriorityQueue<Tracked> byHash = new PriorityQueue<>(Comparator.comparingLong((Tracked t) -> t.hash).reversed());
+    private long[] tree; // Fenwick tree over times; a time is counted while it is a tracked key's last read
+    private int clock;
+    private double[] histogram = new double[INITIAL_BUCKETS]; // weighted reads by reuse distance bucket
+    private double reads; // weighted; the first read of a key is a miss at every size and goes in no bucket
+    private long sampledReads;
+
+    /**
+     * @param samplingRate   the initial fraction of the keys sampled, in (0, 1]
+     * @param maxTrackedKeys the maximum number of sampled keys tracked at once
+     */
+    MissRatioCurveEstimator(double samplingRate, int maxTrackedKeys) {
+        if (!(samplingRate > 0 && samplingRate <= 1) || maxTrackedKeys <= 0) {
+            throw new IllegalArgumentException("samplingRate must be in (0, 1] and maxTrackedKeys positive");
+        }
+        this.maxTrackedKeys = maxTrackedKeys;
+        this.threshold = Math.max(1, Math.round(samplingRate * MODULUS));
+        // The tracked keys span distances up to about maxTrackedKeys / samplingRate
+        this.bucketWidth = Math.max(1, Math.round(maxTrackedKeys / samplingRate / INITIAL_BUCKETS));
+        this.tree = new long[4 * maxTrackedKeys + 1];
+    }
+
+    /**
+     * Records a read of the key, if it is sampled.
+     * @param key the key read
+     */
+    void record(String key) {
+        long hash = hash(key) >>> (Long.SIZE - HASH_BITS);
+        if (hash < threshold) {
+            recordSampled(key, hash);
+        }
+    }
+
+    /**
+     * Returns the curve estimated from the reads so far.
+     * @param maximum the current bound of the cache
+     * @param autoSizeTarget the bound last chosen by auto-sizing, or -1
+     * @return the curve, with at most {@value #MAX_POINTS} points
+     */
+    synchronized MissRatioCurve snapshot(long maximum, long autoSizeTarget) {
+        int used = histogram.length;
+        while (used > 0 && histogram[used - 1] == 0) {
+            used--;
+        }
+        List<MissRatioCurve.Point> points = new ArrayList<>();
+        if (reads > 0) {
+            int step = Math.max(1, (used + MAX_POINTS - 1) / MAX_POINTS);
+            double hits = 0;
+            for (int bucket = 0; bucket < used; bucket++) {
+                hits += histogram[bucket];
+                if ((bucket + 1) % step == 0 || bucket == used - 1) {
+                    points.add(new MissRatioCurve.Point((bucket + 1) * bucketWidth, 1 - hits / reads));
+                }
+            }
+        }
+        return new MissRatioCurve(true, (double) threshold / MODULUS, sampledReads, tracked.size(), points,
+                maximum, autoSizeTarget);
+    }
+
+    /**
+     * @return the number of reads sampled so far
+     */
+    synchronized long sampledReads() {
+        return sampledReads;
+    }
+
+    // Spreads the String's hash code, cached after its first use, over 64 bits with the MurmurHash3 finalizer
+    private static long hash(String key) {
+        long h = key.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private synchronized void recordSampled(String key, long hash) {
+        if (hash >= threshold) {
+            return; // dropped while waiting for the lock
+        }
+        if (clock == tree.length - 1) {
+            compact();
+        }
+        double weight = (double) MODULUS / threshold;
+        reads += weight;
+        sampledReads++;
+        Tracked entry = tracked.get(key);
+        if (entry == null) {
+            entry = new Tracked(key, hash);
+            tracked.put(key, entry);
+            byHash.add(entry);
+        } else {
+            long distance = count(clock - 1) - count(entry.time);
+            add(entry.time, -1);
+            long bucket = (long) (distance * weight) / bucketWidth;
+            if (bucket < MAX_BUCKETS) {
+                if (bucket >= histogram.length) {
+                    histogram = Arrays.copyOf(histogram, (int) Math.min(MAX_BUCKETS, Math.max(bucket + 1, 2L * histogram.length)));
+                }
+                histogram[(int) bucket] += weight;
+            }
+        }
+        entry.time = clock++;
+        add(entry.time, 1);
+        while (tracked.size() > maxTrackedKeys) {
+            lowerThreshold();
+        }
+    }
+
+    // Stops sampling the keys with the largest tracked hash
+    private void lowerThreshold() {
+        threshold = byHash.peek().hash;
+        while (!byHash.isEmpty() && byHash.peek().hash >= threshold) {
+            Tracked dropped = byHash.poll();
+            tracked.remove(dropped.key);
+            add(dropped.time, -1);
+        }
+    }
+
+    // Renumbers the last reads from 0, in order, once the clock has reached the end of the tree
+    private void compact() {
+        List<Tracked> live = new ArrayList<>(tracked.values());
+        live.sort(Comparator.comparingInt(t -> t.time));
+        Arrays.fill(tree, 0);
+        clock = 0;
+        for (Tracked t : live) {
+            t.time = clock++;
+            add(t.time, 1);
+        }
+    }
+
+    // The number of last reads at times up to and including time
+    private long count(int time) {
+        long sum = 0;
+        for (int i = time + 1; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private void add(int time, long delta) {
+        for (int i = time + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * A sampled key and the time of its last read.
+     */
+    private static final class Tracked {
+        final String key;
+        final long hash;
+        int time;
+
+        Tracked(String key, long hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+}
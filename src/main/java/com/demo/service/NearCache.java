@@ -0,0 +1,283 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.service.engine.CacheEngine;
+import com.demo.service.engine.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * NearCache is a small L1 tier in front of the CacheEngine (L2) for the hottest few hundred keys. It is a
+ * direct-mapped array of slots: a hit is one array read and a key comparison, with no lock, no read buffer and
+ * no shared write, so the hottest keys are served without touching L2 at all.
+ * <p>
+ * Promotion: a key is promoted on an L2 hit once it has been hit {@code promotionThreshold} times in L2, counted
+ * approximately per hash bucket and halved periodically so that old popularity fades. Demotion: an occupied slot is
+ * only given up to a new key if it was not read since the last candidate, giving each L1 entry a second chance in
+ * the manner of the CLOCK algorithm.
+ * <p>
+ * Pinned keys, the hottest ones found by a {@link HotKeyTracker}, are promoted on their first L2 hit whatever the
+ * threshold, skip the second chance of the incumbent and are never displaced by a key that is not pinned.
+ * <p>
+ * In {@link TieringMode#INCLUSIVE} mode a slot points at the L2 node, so values updated in place are seen at once,
+ * L2 removals clear the slot, and one L1 hit in {@value #L2_TOUCH_SAMPLE} is also recorded in L2 so that L2 does not
+ * evict keys only because L1 serves them. In {@link TieringMode#EXCLUSIVE} mode a promoted entity is detached from L2
+ * and moved back into it when displaced; writes and promotions of a slot are then serialized by a striped lock.
+ */
+final class NearCache {
+    private static final int L2_TOUCH_SAMPLE = 32;
+    private static final int LOCK_STRIPES = 64;
+    /** A promotion threshold under which only pinned keys are promoted. */
+    static final int PINNED_ONLY = Integer.MAX_VALUE;
+
+    private final CacheEngine<String, CacheEntity> l2;
+    private final TieringMode mode;
+    private final AtomicReferenceArray<Entry> slots;
+    private final int mask;
+    private final int promotionThreshold;
+    // L2 hits of keys not promoted yet, by hash bucket; racy but only used as an estimate
+    private final AtomicIntegerArray candidateHits;
+    private final AtomicInteger candidateSamples = new AtomicInteger();
+    private final int agingPeriod;
+    private final ReentrantLock[] locks;
+    private volatile Set<String> pinned = Collections.emptySet();
+
+    /**
+     * @param l2 the main cache
+     * @param capacity the number of slots, rounded up to a power of two
+     * @param mode whether promoted entities stay in L2
+     * @param promotionThreshold the number of L2 hits after which a key is promoted; 1 promotes on the first hit,
+     *                           {@link #PINNED_ONLY} never promotes a key that is not pinned
+     */
+    NearCache(CacheEngine<String, CacheEntity> l2, int capacity, TieringMode mode, int promotionThreshold) {
+        if (capacity <= 0 || capacity > (1 << 20) || promotionThreshold <= 0) {
+            throw new IllegalArgumentException("Near cache capacity must be in (0, 2^20] and promotionThreshold positive");
+        }
+        int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.l2 = l2;
+        this.mode = mode;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.promotionThreshold = promotionThreshold;
+        this.candidateHits = new AtomicIntegerArray(4 * size);
+        this.agingPeriod = 16 * size;
+        this.locks = new ReentrantLock[(mode == TieringMode.EXCLUSIVE) ? LOCK_STRIPES : 0];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * @param id the ID to look up
+     * @return the slot holding the ID, or null on an L1 miss
+     */
+    Entry get(String id) {
+        int index = spread(id.hashCode()) & mask;
+        Entry entry = slots.get(index);
+        if (entry == null || !entry.key.equals(id)) {
+            return null;
+        }
+        if (entry.node != null) {
+            if (l2.isExpired(entry.node)) {
+                slots.compareAndSet(index, entry, null);
+                return null;
+            }
+            if (ThreadLocalRandom.current().nextInt(L2_TOUCH_SAMPLE) == 0) {
+                l2.getEntry(id);
+            }
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry;
+    }
+
+    /**
+     * Considers an ID just found in L2 for promotion.
+     * @param id the ID
+     * @param node its L2 entry
+     */
+    void onL2Hit(String id, Node<String, CacheEntity> node) {
+        int hash = spread(id.hashCode());
+        Set<String> pinnedNow = pinned;
+        boolean pin = pinnedNow.contains(id);
+        if (!pin && (promotionThreshold == PINNED_ONLY || promotionThreshold > 1 && countHit(hash) < promotionThreshold)) {
+            return;
+        }
+        int index = hash & mask;
+        Entry incumbent = slots.get(index);
+        if (incumbent != null) {
+            if (incumbent.key.equals(id) || pinnedNow.contains(incumbent.key)) {
+                return;
+            }
+            if (!pin && incumbent.referenced) {
+                incumbent.referenced = false;
+                return;
+            }
+        }
+        if (mode == TieringMode.INCLUSIVE) {
+            promoteInclusive(index, id, node, incumbent);
+        } else {
+            promoteExclusive(index, id, node, incumbent);
+        }
+    }
+
+    /**
+     * Replaces the pinned keys. Keys no longer pinned stay in L1 until displaced as usual; newly pinned ones are
+     * promoted on their next L2 hit.
+     * @param ids the keys to pin
+     */
+    void setPinned(Set<String> ids) {
+        pinned = ids;
+    }
+
+    /**
+     * In exclusive mode, returns the lock that must be held while writing the ID to L2, so that a concurrent
+     * promotion cannot move an older value into L1. Once it is held, {@link #remove} must be called before the write.
+     * @param id the ID about to be written
+     * @return the lock, or null in inclusive mode, where writes need no coordination
+     */
+    ReentrantLock writeLock(String id) {
+        return (locks.length == 0) ? null : locks[(spread(id.hashCode()) & mask) & (LOCK_STRIPES - 1)];
+    }
+
+    /**
+     * Drops the ID from L1, if it is there.
+     * @param id the ID
+     */
+    void remove(String id) {
+        int index = spread(id.hashCode()) & mask;
+        Entry entry = slots.get(index);
+        if (entry != null && entry.key.equals(id)) {
+            slots.compareAndSet(index, entry, null);
+        }
+    }
+
+    /**
+     * In inclusive mode, drops the ID from L1 if its slot points at an L2 node that is no longer mapped,
+     * after the ID was removed from L2.
+     * @param id the ID removed from L2
+     */
+    void onL2Removal(String id) {
+        int index = spread(id.hashCode()) & mask;
+        Entry entry = slots.get(index);
+        if (entry != null && entry.node != null && entry.key.equals(id) && l2.peekEntry(id) != entry.node) {
+            slots.compareAndSet(index, entry, null);
+        }
+    }
+
+    /**
+     * Empties every slot.
+     */
+    void clear() {
+        for (int i = 0; i <= mask; i++) {
+            slots.set(i, null);
+        }
+    }
+
+    /**
+     * @return the number of occupied slots
+     */
+    int size() {
+        int size = 0;
+        for (int i = 0; i <= mask; i++) {
+            if (slots.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the entities held in L1
+     */
+    List<CacheEntity> values() {
+        List<CacheEntity> values = new ArrayList<>();
+        for (int i = 0; i <= mask; i++) {
+            Entry entry = slots.get(i);
+            if (entry != null) {
+                values.add(entry.value());
+            }
+        }
+        return values;
+    }
+
+    private void promoteInclusive(int index, String id, Node<String, CacheEntity> node, Entry incumbent) {
+        Entry entry = new Entry(id, node, null);
+        if (slots.compareAndSet(index, incumbent, entry) && l2.peekEntry(id) != node) {
+            // Removed from L2 before the slot was set, so its removal may not have seen the slot
+            slots.compareAndSet(index, entry, null);
+        }
+    }
+
+    private void promoteExclusive(int index, String id, Node<String, CacheEntity> node, Entry incumbent) {
+        if (l2.canExpire(node)) {
+            return;
+        }
+        ReentrantLock lock = locks[index & (LOCK_STRIPES - 1)];
+        lock.lock();
+        try {
+            // Writes to the ID are excluded, but L2 may have evicted the node meanwhile. The slot is set first so
+            // that readers find the entity in one tier or the other throughout the move.
+            if (!slots.compareAndSet(index, incumbent, new Entry(id, null, node.getValue()))) {
+                return;
+            }
+            if (!l2.detach(id, node)) {
+                slots.set(index, incumbent);
+                return;
+            }
+            if (incumbent != null) {
+                l2.put(incumbent.key, incumbent.value);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns the estimated number of L2 hits of the hash's bucket, including this one
+    private int countHit(int hash) {
+        int count = candidateHits.incrementAndGet((hash >>> 8) * 0x9E3779B9 >>> 16 & (candidateHits.length() - 1));
+        if (candidateSamples.incrementAndGet() >= agingPeriod) {
+            candidateSamples.set(0);
+            for (int i = 0; i < candidateHits.length(); i++) {
+                candidateHits.set(i, candidateHits.get(i) >>> 1);
+            }
+        }
+        return count;
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x45d9f3b;
+    }
+
+    /**
+     * An occupied slot: an L2 node in inclusive mode, or a detached entity in exclusive mode.
+     */
+    static final class Entry {
+        final String key;
+        final Node<String, CacheEntity> node;
+        final CacheEntity value;
+        volatile boolean referenced;
+
+        Entry(String key, Node<String, CacheEntity> node, CacheEntity value) {
+            this.key = key;
+            this.node = node;
+            this.value = value;
+        }
+
+        /**
+         * @return the entity held by the slot
+         */
+        CacheEntity value() {
+            return (node != null) ? node.getValue() : value;
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.OffHeapStats;
+import com.demo.service.engine.Ticker;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * OffHeapStore keeps serialized CacheEntity objects in direct ByteBuffer slabs, outside the garbage-collected heap.
+ * The heap only holds the index from ID to the first block of each record, so its size stays small however
+ * many bytes are stored.
+ * <p>
+ * The store is split into segments, each guarded by its own lock and owning its own slabs. A segment carves its
+ * slabs into fixed-size blocks; a record is written across a chain of blocks, each starting with the index of the
+ * next one. Free blocks are chained the same way, so allocation needs no bookkeeping on the heap and never
+ * fragments. Slabs are allocated lazily, and when a segment is full its oldest records are dropped to make room.
+ * <p>
+ * Record layout: {@code [int idLength][int dataLength or -1 for null][long deadline][long version][id UTF-8]
+ * [data UTF-8]}, where the deadline is the ticker time the entity expires at, or {@link Long#MAX_VALUE} if it never
+ * does. The version is kept so that a promoted entity still orders correctly against invalidations.
+ */
+class OffHeapStore implements VictimTier {
+    static final int DEFAULT_BLOCK_SIZE = 128;
+    static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    static final int DEFAULT_SEGMENTS = 16;
+
+    private static final int NO_BLOCK = -1;
+    private static final int LINK_SIZE = Integer.BYTES;
+    private static final int DEADLINE_OFFSET = 2 * Integer.BYTES;
+    private static final int HEADER_SIZE = DEADLINE_OFFSET + 2 * Long.BYTES;
+
+    private final Segment[] segments;
+    private final long capacityBytes;
+    private final Ticker ticker;
+
+    private final AtomicLong demotions = new AtomicLong();
+    private final AtomicLong promotions = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    /**
+     * Creates a store with the default block size, slab size and number of segments.
+     * @param capacityBytes the maximum number of off-heap bytes to allocate
+     */
+    OffHeapStore(long capacityBytes) {
+        this(capacityBytes, DEFAULT_BLOCK_SIZE, DEFAULT_SLAB_SIZE, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * @param capacityBytes the maximum number of off-heap bytes to allocate
+     * @param blockSize the size of a block, the unit records are stored in
+     * @param slabSize the size of each direct buffer allocated; rounded down to a whole number of blocks
+     * @param segmentCount the number of independently locked segments, a power of two
+     */
+    OffHeapStore(long capacityBytes, int blockSize, int slabSize, int segmentCount) {
+        this(capacityBytes, blockSize, slabSize, segmentCount, Ticker.system());
+    }
+
+    /**
+     * @param capacityBytes the maximum number of off-heap bytes to allocate
+     * @param blockSize the size of a block, the unit records are stored in
+     * @param slabSize the size of each direct buffer allocated; rounded down to a whole number of blocks
+     * @param segmentCount the number of independently locked segments, a power of two
+     * @param ticker the clock deadlines are kept in, the same as the heap cache's
+     */
+    OffHeapStore(long capacityBytes, int blockSize, int slabSize, int segmentCount, Ticker ticker) {
+        if (capacityBytes <= 0 || blockSize <= HEADER_SIZE + LINK_SIZE || slabSize < blockSize
+                || segmentCount <= 0 || Integer.bitCount(segmentCount) != 1) {
+            throw new IllegalArgumentException("Invalid off-heap store configuration");
+        }
+        long blocksPerSegment = Math.max(1, capacityBytes / blockSize / segmentCount);
+        if (blocksPerSegment > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("capacityBytes is too large for the block size");
+        }
+        this.segments = new Segment[segmentCount];
+        long capacity = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(blockSize, slabSize, (int) blocksPerSegment);
+            capacity += (long) segments[i].maxBlocks * blockSize;
+        }
+        this.capacityBytes = capacity;
+        this.ticker = ticker;
+    }
+
+    /**
+     * Stores the entity, replacing any record with the same ID and dropping the oldest records if space runs out.
+     * @param entity the entity to store
+     * @param timeToLiveNanos how long the entity has left to live, or {@link Long#MAX_VALUE} if it never expires
+     * @return false if the entity is too large to ever fit in its segment
+     */
+    @Override
+    public boolean put(CacheEntity entity, long timeToLiveNanos) {
+        byte[] record = serialize(entity, VictimTier.deadline(timeToLiveNanos, ticker.read()));
+        Segment segment = segmentFor(entity.getId());
+        segment.lock.lock();
+        try {
+            segment.delete(entity.getId());
+            int head = segment.allocate(record.length);
+            if (head == NO_BLOCK) {
+                rejections.incrementAndGet();
+                return false;
+            }
+            segment.write(head, record);
+            segment.index.put(entity.getId(), head);
+        } finally {
+            segment.lock.unlock();
+        }
+        demotions.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Removes the record for the ID and returns it as a heap object, to be promoted back into the on-heap cache.
+     * @param id the ID to take
+     * @return the stored entity and its time to live left, or null if there is none or it has expired
+     */
+    @Override
+    public Taken take(String id) {
+        Segment segment = segmentFor(id);
+        byte[] record;
+        segment.lock.lock();
+        try {
+            Integer head = segment.index.remove(id);
+            if (head == null) {
+                return null;
+            }
+            record = segment.read(head);
+            segment.release(head);
+        } finally {
+            segment.lock.unlock();
+        }
+        long timeToLive = VictimTier.timeToLive(ByteBuffer.wrap(record).getLong(DEADLINE_OFFSET), ticker.read());
+        if (timeToLive < 0) {
+            return null;
+        }
+        promotions.incrementAndGet();
+        return new Taken(deserialize(record), timeToLive);
+    }
+
+    /**
+     * Drops the record for the ID, if any, without reading it.
+     * @param id the ID to drop
+     */
+    @Override
+    public void remove(String id) {
+        Segment segment = segmentFor(id);
+        segment.lock.lock();
+        try {
+            segment.delete(id);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    @Override
+    public int removeIf(Predicate<String> filter) {
+        int removed = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                for (Iterator<Map.Entry<String, Integer>> records = segment.index.entrySet().iterator(); records.hasNext(); ) {
+                    Map.Entry<String, Integer> record = records.next();
+                    if (filter.test(record.getKey())) {
+                        records.remove();
+                        segment.release(record.getValue());
+                        removed++;
+                    }
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Drops every record. The slabs are kept for reuse.
+     */
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.clear();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the number of records stored
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                size += segment.index.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return a snapshot of the store's occupancy and counters
+     */
+    OffHeapStats stats() {
+        int entries = 0;
+        long usedBytes = 0;
+        long allocatedBytes = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                entries += segment.index.size();
+                usedBytes += (long) segment.usedBlocks * segment.blockSize;
+                allocatedBytes += (long) segment.slabs.size() * segment.blocksPerSlab * segment.blockSize;
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return new OffHeapStats(true, entries, usedBytes, allocatedBytes, capacityBytes,
+                demotions.get(), promotions.get(), evictions.get(), rejections.get());
+    }
+
+    private Segment segmentFor(String id) {
+        int hash = id.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+
+    private static byte[] serialize(CacheEntity entity, long deadline) {
+        byte[] id = entity.getId().getBytes(StandardCharsets.UTF_8);
+        byte[] data = (entity.getData() == null) ? null : entity.getData().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + id.length + ((data == null) ? 0 : data.length));
+        record.putInt(id.length).putInt((data == null) ? -1 : data.length).putLong(deadline).putLong(entity.getVersion()).put(id);
+        if (data != null) {
+            record.put(data);
+        }
+        return record.array();
+    }
+
+    private static CacheEntity deserialize(byte[] record) {
+        ByteBuffer buffer = ByteBuffer.wrap(record);
+        int idLength = buffer.getInt();
+        int dataLength = buffer.getInt();
+        long version = buffer.getLong(DEADLINE_OFFSET + Long.BYTES);
+        String id = new String(record, HEADER_SIZE, idLength, StandardCharsets.UTF_8);
+        String data = (dataLength < 0) ? null : new String(record, HEADER_SIZE + idLength, dataLength, StandardCharsets.UTF_8);
+        return new CacheEntity(id, data, version);
+    }
+
+    /**
+     * A share of the store with its own lock, slabs, free list and index. All methods require the lock.
+     */
+    private final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final int blockSize;
+        final int blocksPerSlab;
+        final int maxBlocks;
+        final List<ByteBuffer> slabs = new ArrayList<>();
+        // Insertion ordered, so the first entry is the record demoted longest ago
+        final LinkedHashMap<String, Integer> index = new LinkedHashMap<>();
+        int freeHead = NO_BLOCK;
+        int freeBlocks;
+        int usedBlocks;
+
+        Segment(int blockSize, int slabSize, int maxBlocks) {
+            this.blockSize = blockSize;
+            this.blocksPerSlab = Math.min(slabSize / blockSize, maxBlocks);
+            // Only whole slabs are ever allocated
+            this.maxBlocks = maxBlocks / blocksPerSlab * blocksPerSlab;
+        }
+
+        // Returns the head of a chain of enough blocks for the record, or NO_BLOCK if it can never fit
+        int allocate(int recordLength) {
+            int payload = blockSize - LINK_SIZE;
+            int needed = (recordLength + payload - 1) / payload;
+            if (needed > maxBlocks) {
+                return NO_BLOCK;
+            }
+            while (freeBlocks < needed) {
+                if (!addSlab() && !evictOldest()) {
+                    return NO_BLOCK;
+                }
+            }
+            int head = freeHead;
+            int tail = head;
+            for (int i = 1; i < needed; i++) {
+                tail = next(tail);
+            }
+            freeHead = next(tail);
+            setNext(tail, NO_BLOCK);
+            freeBlocks -= needed;
+            usedBlocks += needed;
+            return head;
+        }
+
+        void write(int head, byte[] record) {
+            int payload = blockSize - LINK_SIZE;
+            int block = head;
+            for (int offset = 0; offset < record.length; offset += payload) {
+                slab(block).position(offsetOf(block) + LINK_SIZE);
+                slab(block).put(record, offset, Math.min(payload, record.length - offset));
+                block = next(block);
+            }
+        }
+
+        byte[] read(int head) {
+            ByteBuffer first = slab(head);
+            int start = offsetOf(head) + LINK_SIZE;
+            int idLength = first.getInt(start);
+            int dataLength = first.getInt(start + Integer.BYTES);
+            byte[] record = new byte[HEADER_SIZE + idLength + Math.max(dataLength, 0)];
+            int payload = blockSize - LINK_SIZE;
+            int block = head;
+            for (int offset = 0; offset < record.length; offset += payload) {
+                slab(block).position(offsetOf(block) + LINK_SIZE);
+                slab(block).get(record, offset, Math.min(payload, record.length - offset));
+                block = next(block);
+            }
+            return record;
+        }
+
+        void delete(String id) {
+            Integer head = index.remove(id);
+            if (head != null) {
+                release(head);
+            }
+        }
+
+        // Returns a chain of blocks to the free list
+        void release(int head) {
+            int count = 1;
+            int tail = head;
+            for (int block = next(tail); block != NO_BLOCK; block = next(tail)) {
+                tail = block;
+                count++;
+            }
+            setNext(tail, freeHead);
+            freeHead = head;
+            freeBlocks += count;
+            usedBlocks -= count;
+        }
+
+        void clear() {
+            index.clear();
+            freeHead = NO_BLOCK;
+            freeBlocks = 0;
+            usedBlocks = 0;
+            for (int slab = 0; slab < slabs.size(); slab++) {
+                linkFree(slab);
+            }
+        }
+
+        private boolean addSlab() {
+            if ((slabs.size() + 1L) * blocksPerSlab > maxBlocks) {
+                return false;
+            }
+            slabs.add(ByteBuffer.allocateDirect(blocksPerSlab * blockSize));
+            linkFree(slabs.size() - 1);
+            return true;
+        }
+
+        private boolean evictOldest() {
+            Iterator<Map.Entry<String, Integer>> oldest = index.entrySet().iterator();
+            if (!oldest.hasNext()) {
+                return false;
+            }
+            int head = oldest.next().getValue();
+            oldest.remove();
+            release(head);
+            evictions.incrementAndGet();
+            return true;
+        }
+
+        // Pushes every block of a slab onto the free list, in address order
+        private void linkFree(int slab) {
+            int first = slab * blocksPerSlab;
+            for (int block = first + blocksPerSlab - 1; block >= first; block--) {
+                setNext(block, freeHead);
+                freeHead = block;
+            }
+            freeBlocks += blocksPerSlab;
+        }
+
+        private ByteBuffer slab(int block) {
+            return slabs.get(block / blocksPerSlab);
+        }
+
+        private int offsetOf(int block) {
+            return (block % blocksPerSlab) * blockSize;
+        }
+
+        private int next(int block) {
+            return slab(block).getInt(offsetOf(block));
+        }
+
+        private void setNext(int block, int next) {
+            slab(block).putInt(offsetOf(block), next);
+        }
+    }
+}
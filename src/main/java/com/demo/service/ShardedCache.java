@@ -0,0 +1,312 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.ClusterStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * ShardedCache partitions the keys of a cluster of CachingService nodes with a {@link HashRing}, so that each key is
+ * cached by one node only and the cluster's capacity adds up. Keys this node owns are served by its local
+ * CachingService; the others are forwarded to their owner through its {@link CacheNode}. The membership is a static
+ * list every node is configured with; there is no coordination service, so it is changed on each node with
+ * {@link #setPeers}, which also hands the entities this node no longer owns off to their new owners.
+ * <p>
+ * Requests racing a membership change may still be routed by the previous ring. A write that lands on the previous
+ * owner that way is then missed by the new one until it is loaded again from the database. A handoff only fills the
+ * new owner's cache, and never replaces what it caches already, so it cannot undo a write the new owner served; an
+ * entity the new owner removed while the handoff was on its way may still be cached again by it, until it expires.
+ */
+public class ShardedCache {
+    private static final Logger logger = LoggerFactory.getLogger(ShardedCache.class);
+
+    private final String self;
+    private final CachingService local;
+    private final int virtualNodes;
+    private volatile Membership membership;
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder handedOff = new LongAdder();
+
+    /**
+     * Constructs a ShardedCache.
+     * @param self the name of this node on the ring
+     * @param local this node's cache
+     * @param peers the other nodes by name; empty for a single node, which serves everything locally
+     * @param virtualNodes the number of ring points per node
+     */
+    public ShardedCache(String self, CachingService local, Map<String, CacheNode> peers, int virtualNodes) {
+        this.self = self;
+        this.local = local;
+        this.virtualNodes = virtualNodes;
+        this.membership = membership(peers);
+    }
+
+    /**
+     * @param id the ID of an entity
+     * @return the name of the node that caches it
+     */
+    public String ownerOf(String id) {
+        return membership.ring.nodeFor(id);
+    }
+
+    /**
+     * Retrieves a CacheEntity from the node that owns it.
+     * @param id the ID of the entity
+     * @param loadFromDB whether to load it from the database on a miss
+     * @return the entity, or null if not found
+     */
+    public CacheEntity get(String id, boolean loadFromDB) {
+        CacheNode owner = owner(id);
+        return (owner == null) ? local.get(new CacheEntity(id, null), loadFromDB) : await(owner.get(id, loadFromDB));
+    }
+
+    /**
+     * Retrieves a CacheEntity from the node that owns it without blocking on a local load or a remote node.
+     * @param id the ID of the entity
+     * @param loadFromDB whether to load it from the database on a miss
+     * @return a future completed with the entity, or with null if not found
+     */
+    public CompletableFuture<CacheEntity> getAsync(String id, boolean loadFromDB) {
+        CacheNode owner = owner(id);
+        return (owner == null) ? local.getAsync(new CacheEntity(id, null), loadFromDB) : owner.get(id, loadFromDB);
+    }
+
+    /**
+     * Retrieves a batch of CacheEntity objects, asking each owner for its share of the IDs at the same time.
+     * @param ids the IDs of the entities
+     * @param loadFromDB whether to load the misses from the database
+     * @return the entities found, keyed by ID in request order
+     */
+    public Map<String, CacheEntity> getAll(Collection<String> ids, boolean loadFromDB) {
+        Set<String> distinct = new LinkedHashSet<>(ids);
+        distinct.remove(null);
+        Map<CacheNode, List<String>> remote = new HashMap<>();
+        List<String> owned = partition(distinct, Function.identity(), remote);
+        List<CompletableFuture<List<CacheEntity>>> requests = new ArrayList<>(remote.size());
+        for (Map.Entry<CacheNode, List<String>> share : remote.entrySet()) {
+            requests.add(share.getKey().getAll(share.getValue(), loadFromDB));
+        }
+        Map<String, CacheEntity> found = new HashMap<>(local.getAll(owned, loadFromDB));
+        for (CompletableFuture<List<CacheEntity>> request : requests) {
+            for (CacheEntity entity : await(request)) {
+                found.put(entity.getId(), entity);
+            }
+        }
+        Map<String, CacheEntity> result = new LinkedHashMap<>();
+        for (String id : distinct) {
+            CacheEntity entity = found.get(id);
+            if (entity != null) {
+                result.put(id, entity);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a CacheEntity on the node that owns it.
+     * @param entity the entity to add
+     * @param ttl how long the entity may stay cached, or null to use the default
+     */
+    public void add(CacheEntity entity, Duration ttl) {
+        CacheNode owner = (entity == null || entity.getId() == null) ? null : owner(entity.getId());
+        if (owner == null) {
+            local.add(entity, ttl);
+        } else {
+            await(owner.add(entity, ttl));
+        }
+    }
+
+    /**
+     * Adds a batch of CacheEntity objects, sending each owner its share at the same time.
+     * @param entities the entities to add
+     */
+    public void putAll(Collection<CacheEntity> entities) {
+        Map<CacheNode, List<CacheEntity>> remote = new HashMap<>();
+        List<CacheEntity> owned = partition(entities, entity -> (entity == null) ? null : entity.getId(), remote);
+        List<CompletableFuture<Void>> requests = new ArrayList<>(remote.size());
+        for (Map.Entry<CacheNode, List<CacheEntity>> share : remote.entrySet()) {
+            requests.add(share.getKey().putAll(share.getValue()));
+        }
+        local.putAll(owned);
+        requests.forEach(ShardedCache::await);
+    }
+
+    /**
+     * Removes a CacheEntity from the node that owns it, and from the database.
+     * @param id the ID of the entity
+     */
+    public void remove(String id) {
+        removeAll(Collections.singletonList(id));
+    }
+
+    /**
+     * Removes a batch of CacheEntity objects, sending each owner its share at the same time.
+     * @param ids the IDs of the entities
+     */
+    public void removeAll(Collection<String> ids) {
+        Map<CacheNode, List<String>> remote = new HashMap<>();
+        List<String> owned = partition(ids, Function.identity(), remote);
+        List<CompletableFuture<Void>> requests = new ArrayList<>(remote.size());
+        for (Map.Entry<CacheNode, List<String>> share : remote.entrySet()) {
+            requests.add(share.getKey().removeAll(share.getValue()));
+        }
+        local.removeAll(owned);
+        requests.forEach(ShardedCache::await);
+    }
+
+    /**
+     * Removes every CacheEntity from every node of the cluster, and from their databases, asking the other nodes at
+     * the same time.
+     */
+    public void removeAll() {
+        Collection<CacheNode> peers = membership.peers.values();
+        List<CompletableFuture<Void>> requests = new ArrayList<>(peers.size());
+        for (CacheNode peer : peers) {
+            requests.add(peer.removeAll());
+        }
+        local.removeAll();
+        requests.forEach(ShardedCache::await);
+    }
+
+    /**
+     * Changes the cluster's membership. The entities this node caches but no longer owns are handed off to their new
+     * owners and dropped here; if a handoff fails they are dropped all the same, and the new owner loads them from the
+     * database. A handoff is cache-only: the new owner writes nothing to the database and keeps the entities it caches
+     * already. Entities this node demoted to its off-heap or compact tier are not handed off; those it no longer owns
+     * are dropped, so that a stale copy is never promoted if it owns them again later. Nodes that are not members any
+     * more are closed.
+     *
+     * @param peers the other nodes by name
+     * @return the number of entities handed off, including those the new owner already had
+     */
+    public synchronized int setPeers(Map<String, CacheNode> peers) {
+        Membership previous = membership;
+        Membership updated = membership(peers);
+        membership = updated;
+
+        Map<String, List<CacheEntity>> moved = new HashMap<>();
+        for (CacheEntity entity : local.entities()) {
+            String owner = updated.ring.nodeFor(entity.getId());
+            if (!self.equals(owner)) {
+                moved.computeIfAbsent(owner, node -> new ArrayList<>()).add(entity);
+            }
+        }
+        int count = 0;
+        for (Map.Entry<String, List<CacheEntity>> share : moved.entrySet()) {
+            try {
+                await(updated.peers.get(share.getKey()).fill(share.getValue()));
+                count += share.getValue().size();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to hand off {} entities to {}: {}", share.getValue().size(), share.getKey(), e.toString());
+            }
+            for (CacheEntity entity : share.getValue()) {
+                local.invalidate(entity.getId());
+            }
+        }
+        handedOff.add(count);
+        // After the loop, so it also catches entities demoted while they were being handed off
+        int dropped = local.invalidateDemoted(id -> !self.equals(updated.ring.nodeFor(id)));
+        for (CacheNode node : previous.peers.values()) {
+            if (!updated.peers.containsValue(node)) {
+                node.close();
+            }
+        }
+        logger.info("Cluster membership is now {}; handed off {} entities and dropped {} demoted ones.",
+                updated.ring.getNodes(), count, dropped);
+        return count;
+    }
+
+    /**
+     * @return the membership of the cluster and how many requests this node forwarded
+     */
+    public ClusterStats getStats() {
+        Membership current = membership;
+        return new ClusterStats(self, new ArrayList<>(current.ring.getNodes()), virtualNodes, local.cacheSize(),
+                forwarded.sum(), handedOff.sum());
+    }
+
+    /**
+     * Closes the connections to the other nodes; the local cache belongs to the caller.
+     */
+    public void close() {
+        for (CacheNode node : membership.peers.values()) {
+            node.close();
+        }
+    }
+
+    // The node to forward an ID to, or null if this node owns it
+    private CacheNode owner(String id) {
+        Membership current = membership;
+        if (current.peers.isEmpty()) {
+            return null;
+        }
+        CacheNode owner = current.peers.get(current.ring.nodeFor(id));
+        if (owner != null) {
+            forwarded.increment();
+        }
+        return owner;
+    }
+
+    // Splits items by owner: returns this node's, in order, and adds the others' to remote. Items without an ID stay
+    // local, where they are rejected as usual.
+    private <T> List<T> partition(Collection<T> items, Function<T, String> id, Map<CacheNode, List<T>> remote) {
+        List<T> owned = new ArrayList<>();
+        for (T item : items) {
+            String key = id.apply(item);
+            CacheNode owner = (key == null) ? null : owner(key);
+            if (owner == null) {
+                owned.add(item);
+            } else {
+                remote.computeIfAbsent(owner, node -> new ArrayList<>()).add(item);
+            }
+        }
+        return owned;
+    }
+
+    private Membership membership(Map<String, CacheNode> peers) {
+        if (peers.containsKey(self)) {
+            throw new IllegalArgumentException("The peers must not include this node, " + self);
+        }
+        List<String> nodes = new ArrayList<>(peers.size() + 1);
+        nodes.add(self);
+        nodes.addAll(peers.keySet());
+        return new Membership(new HashRing(nodes, virtualNodes), new HashMap<>(peers));
+    }
+
+    private static <T> T await(CompletableFuture<T> request) {
+        try {
+            return request.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // The ring and the nodes on it, replaced together
+    private static final class Membership {
+        final HashRing ring;
+        final Map<String, CacheNode> peers;
+
+        Membership(HashRing ring, Map<String, CacheNode> peers) {
+            this.ring = ring;
+            this.peers = peers;
+        }
+    }
+}
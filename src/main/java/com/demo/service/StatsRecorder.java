@@ -0,0 +1,121 @@
+package com.demo.service;
+
+import com.demo.model.CacheStats;
+import com.demo.service.engine.RemovalCause;
+
+/**
+ * StatsRecorder receives the events CachingService counts: hits, misses, loads, removals and operation latencies.
+ * The service always calls it; with statistics turned off it is given {@link Disabled#INSTANCE}, whose methods do
+ * nothing and whose {@link #startTime()} does not even read the clock.
+ */
+interface StatsRecorder {
+
+    /** The kinds of operation whose latency is recorded. */
+    enum Operation {
+        GET, ADD, LOAD
+    }
+
+    /**
+     * @return the current time to pass to the latency methods, or 0 when nothing is recorded
+     */
+    long startTime();
+
+    /**
+     * Records a read served from the cache.
+     */
+    void recordHit();
+
+    /**
+     * Records a read served from the near cache (L1) of a tiered cache, without touching the main cache.
+     */
+    void recordL1Hit();
+
+    /**
+     * Records a read that did not find the entity in the cache.
+     */
+    void recordMiss();
+
+    /**
+     * Records a miss answered by a cached database miss, without calling the loader.
+     */
+    void recordNegativeHit();
+
+    /**
+     * Records a call to a loader that returned, whether or not it found anything.
+     * @param startTime the {@link #startTime()} taken before the call
+     */
+    void recordLoadSuccess(long startTime);
+
+    /**
+     * Records a call to a loader that threw.
+     * @param startTime the {@link #startTime()} taken before the call
+     */
+    void recordLoadFailure(long startTime);
+
+    /**
+     * Records an entry leaving the cache.
+     * @param cause why it left
+     */
+    void recordRemoval(RemovalCause cause);
+
+    /**
+     * Records how long an operation took, up to now.
+     * @param operation the kind of operation
+     * @param startTime the {@link #startTime()} taken when it began
+     */
+    void recordLatency(Operation operation, long startTime);
+
+    /**
+     * @return the statistics recorded so far
+     */
+    CacheStats snapshot();
+
+    /**
+     * The recorder used when statistics are turned off.
+     */
+    enum Disabled implements StatsRecorder {
+        INSTANCE;
+
+        @Override
+        public long startTime() {
+            return 0;
+        }
+
+        @Override
+        public void recordHit() {
+        }
+
+        @Override
+        public void recordL1Hit() {
+        }
+
+        @Override
+        public void recordMiss() {
+        }
+
+        @Override
+        public void recordNegativeHit() {
+        }
+
+        @Override
+        public void recordLoadSuccess(long startTime) {
+        }
+
+        @Override
+        public void recordLoadFailure(long startTime) {
+        }
+
+        @Override
+        public void recordRemoval(RemovalCause cause) {
+        }
+
+        @Override
+        public void recordLatency(Operation operation, long startTime) {
+        }
+
+        @Override
+        public CacheStats snapshot() {
+            return CacheStats.DISABLED;
+        }
+    }
+}
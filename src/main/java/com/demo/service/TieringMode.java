@@ -0,0 +1,18 @@
+package com.demo.service;
+
+/**
+ * How the near cache (L1) relates to the main cache (L2) when a CachingService is tiered.
+ */
+public enum TieringMode {
+    /**
+     * L1 holds a subset of L2: a promoted entity stays in L2 and L1 only points at it, so writes need no extra work
+     * and the capacity of the service is that of L2.
+     */
+    INCLUSIVE,
+    /**
+     * An entity is in L1 or in L2, never both: a promoted entity moves out of L2 and moves back when it is
+     * displaced from L1, so the capacity of the service is that of L2 plus the L1 slots. Entities that can expire
+     * are never promoted.
+     */
+    EXCLUSIVE
+}
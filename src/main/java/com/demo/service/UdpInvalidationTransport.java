@@ -0,0 +1,174 @@
+package com.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * An InvalidationTransport that sends each batch as UDP datagrams to a static list of peers. Delivery is best effort,
+ * which suits invalidations: a lost datagram leaves stale copies until they expire, and nothing waits for a peer
+ * that is down. The peer list may include this node, as every node can be given the same list; datagrams carry the
+ * sender's random ID, and a node drops its own.
+ * <p>
+ * Datagram layout: {@code [long sender][int count]} followed by {@code count} entries of
+ * {@code [long version][int idLength, -1 for all][UTF-8 id]}. A batch is split over as many datagrams as needed.
+ */
+public final class UdpInvalidationTransport implements InvalidationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+    // Well below the 65,507 byte limit of a UDP payload
+    static final int MAX_DATAGRAM_SIZE = 60_000;
+    private static final int HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final DatagramChannel channel;
+    private final List<InetSocketAddress> peers;
+    private final long sender = ThreadLocalRandom.current().nextLong();
+    private volatile boolean running = true;
+
+    /**
+     * Binds the transport; it receives nothing until started.
+     * @param port the UDP port to receive on, 0 for any free port
+     * @param peers the addresses of the other nodes' transports
+     * @throws IOException if the port cannot be bound
+     */
+    public UdpInvalidationTransport(int port, List<InetSocketAddress> peers) throws IOException {
+        this.channel = DatagramChannel.open().bind(new InetSocketAddress(port));
+        this.peers = new ArrayList<>(peers);
+    }
+
+    /**
+     * @return the UDP port the transport receives on
+     */
+    public int getPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    @Override
+    public void start(Consumer<List<Invalidation>> receiver) {
+        Thread thread = new Thread(() -> receive(receiver), "cache-invalidation-receiver");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void send(List<Invalidation> batch) {
+        ByteBuffer datagram = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        int count = 0;
+        datagram.position(HEADER_SIZE);
+        for (Invalidation invalidation : batch) {
+            byte[] id = (invalidation.getId() == null) ? null : invalidation.getId().getBytes(StandardCharsets.UTF_8);
+            int size = Long.BYTES + Integer.BYTES + ((id == null) ? 0 : id.length);
+            if (HEADER_SIZE + size > MAX_DATAGRAM_SIZE) {
+                logger.warn("Dropped an invalidation of an ID too long for a datagram.");
+                continue;
+            }
+            if (datagram.remaining() < size) {
+                sendToPeers(datagram, count);
+                datagram.clear().position(HEADER_SIZE);
+                count = 0;
+            }
+            datagram.putLong(invalidation.getVersion());
+            if (id == null) {
+                datagram.putInt(-1);
+            } else {
+                datagram.putInt(id.length).put(id);
+            }
+            count++;
+        }
+        if (count > 0) {
+            sendToPeers(datagram, count);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // Nothing left to do with it
+        }
+    }
+
+    private void sendToPeers(ByteBuffer datagram, int count) {
+        datagram.putLong(0, sender).putInt(Long.BYTES, count).flip();
+        for (InetSocketAddress peer : peers) {
+            try {
+                channel.send(datagram.duplicate(), peer);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Best effort: the peer misses this batch
+                logger.debug("Failed to send invalidations to {}: {}", peer, e.toString());
+            }
+        }
+    }
+
+    private void receive(Consumer<List<Invalidation>> receiver) {
+        ByteBuffer datagram = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        while (running) {
+            try {
+                datagram.clear();
+                SocketAddress from = channel.receive(datagram);
+                datagram.flip();
+                List<Invalidation> batch = decode(datagram);
+                if (batch == null) {
+                    logger.debug("Dropped a malformed invalidation datagram from {}.", from);
+                } else if (!batch.isEmpty()) {
+                    receiver.accept(batch);
+                }
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                if (running) {
+                    throw new UncheckedIOException("Invalidation receiver failed", e);
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Failed to apply invalidations.", e);
+            }
+        }
+    }
+
+    // The batch in a datagram, an empty one for this node's own datagrams, or null if it is malformed
+    private List<Invalidation> decode(ByteBuffer datagram) {
+        try {
+            if (datagram.getLong() == sender) {
+                return new ArrayList<>();
+            }
+            int count = datagram.getInt();
+            if (count < 0) {
+                return null;
+            }
+            List<Invalidation> batch = new ArrayList<>(Math.min(count, datagram.remaining() / (Long.BYTES + Integer.BYTES)));
+            for (int i = 0; i < count; i++) {
+                long version = datagram.getLong();
+                int length = datagram.getInt();
+                String id = null;
+                if (length > datagram.remaining()) {
+                    return null;
+                }
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    datagram.get(bytes);
+                    id = new String(bytes, StandardCharsets.UTF_8);
+                }
+                batch.add(new Invalidation(id, version));
+            }
+            return batch;
+        } catch (BufferUnderflowException e) {
+            return null;
+        }
+    }
+}
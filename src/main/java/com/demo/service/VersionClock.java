@@ -0,0 +1,38 @@
+package com.demo.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hybrid logical clock that versions writes across nodes. A version is the wall clock time in milliseconds shifted
+ * left by 16 bits plus a counter, so versions from different nodes compare roughly by time, and every version this
+ * node issues is greater than any it issued or {@link #observe observed} before, whatever the clock skew.
+ */
+final class VersionClock {
+    private static final int COUNTER_BITS = 16;
+
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * @return a version greater than every version issued or observed so far
+     */
+    long next() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        return last.updateAndGet(previous -> Math.max(previous + 1, now));
+    }
+
+    /**
+     * Moves the clock past a version received from another node.
+     * @param version the version
+     */
+    void observe(long version) {
+        last.accumulateAndGet(version, Math::max);
+    }
+
+    /**
+     * @param version a version
+     * @return the wall clock time it was issued at, in milliseconds
+     */
+    static long millis(long version) {
+        return version >>> COUNTER_BITS;
+    }
+}
@@ -0,0 +1,93 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+
+import java.util.function.Predicate;
+
+/**
+ * A tier below the heap cache that keeps the entities the heap evicts until a read promotes them back. Entities
+ * move in one direction at a time: demoted by {@link #put}, promoted by {@link #take}. An entity keeps the deadline
+ * it had in the heap, so it is never promoted after it would have expired there. Implementations are thread-safe.
+ */
+interface VictimTier {
+
+    /**
+     * Stores the entity, replacing any stored under the same ID and dropping the oldest ones if space runs out.
+     * @param entity the entity evicted from the heap
+     * @param timeToLiveNanos how long the entity has left to live, or {@link Long#MAX_VALUE} if it never expires
+     * @return false if the entity is too large to ever fit, or cannot be stored with its deadline
+     */
+    boolean put(CacheEntity entity, long timeToLiveNanos);
+
+    /**
+     * Removes the entity stored for the ID and returns it, to be promoted back into the heap. An entity found past
+     * its deadline is dropped instead.
+     * @param id the ID to take
+     * @return the stored entity and how long it has left to live, or null if there is none
+     */
+    Taken take(String id);
+
+    /**
+     * Drops the entity stored for the ID, if any, without reading it.
+     * @param id the ID to drop
+     */
+    void remove(String id);
+
+    /**
+     * Drops the entities whose ID matches, without reading them.
+     * @param filter selects the IDs to drop
+     * @return the number of entities dropped
+     */
+    int removeIf(Predicate<String> filter);
+
+    /**
+     * Drops every entity.
+     */
+    void clear();
+
+    /**
+     * @return the number of entities stored
+     */
+    int size();
+
+    /**
+     * Returns the time to live left at a deadline, in the form the heap cache takes it.
+     * @param deadline the ticker time the entity expires at, or {@link Long#MAX_VALUE} for never
+     * @param now the current ticker time
+     * @return the nanoseconds left, 0 if the entity never expires, or -1 if it has expired
+     */
+    static long timeToLive(long deadline, long now) {
+        if (deadline == Long.MAX_VALUE) {
+            return 0;
+        }
+        long left = deadline - now;
+        return (left > 0) ? left : -1;
+    }
+
+    /**
+     * Returns the ticker time a time to live ends at, saturating instead of overflowing.
+     * @param timeToLiveNanos the time to live, or {@link Long#MAX_VALUE} for never
+     * @param now the current ticker time
+     * @return the deadline, or {@link Long#MAX_VALUE} for never
+     */
+    static long deadline(long timeToLiveNanos, long now) {
+        if (timeToLiveNanos == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long deadline = now + timeToLiveNanos;
+        return (((now ^ deadline) & (timeToLiveNanos ^ deadline)) < 0) ? Long.MAX_VALUE - 1 : Math.min(deadline, Long.MAX_VALUE - 1);
+    }
+
+    /**
+     * An entity taken from the tier, with the time to live it has left.
+     */
+    final class Taken {
+        final CacheEntity entity;
+        final long timeToLiveNanos; // 0 if it never expires, as the heap cache's put takes it
+
+        Taken(CacheEntity entity, long timeToLiveNanos) {
+            this.entity = entity;
+            this.timeToLiveNanos = timeToLiveNanos;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.demo.service;
+
+import com.demo.dao.DatabaseDao;
+import com.demo.model.CacheEntity;
+import com.demo.model.WriteBehindStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * WriteBehindQueue defers database writes so that callers return as soon as the cache is updated.
+ * Pending writes are coalesced per ID, so only the latest value (or removal) of a key is persisted,
+ * and are flushed to the database in batches by a background thread, either when a batch fills up or
+ * when the flush interval elapses. The number of distinct pending IDs is bounded: once the queue is full,
+ * writers block until a flush makes room, and fail if none is made in time, e.g. while the database is down, or if
+ * the queue is closed. Entries stay visible to readers until they have been persisted.
+ */
+class WriteBehindQueue {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindQueue.class);
+    private static final long DEFAULT_MAX_WAIT_MILLIS = 10_000;
+
+    private final DatabaseDao database;
+    private final int batchSize;
+    private final long maxWaitMillis;
+    private final ConcurrentHashMap<String, PendingWrite> pending = new ConcurrentHashMap<>();
+    private final Semaphore capacity;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+    private volatile boolean closed;
+
+    private final AtomicLong flushedWrites = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    /**
+     * Creates a queue and starts its background flusher; a writer waits up to ten seconds for room in a full queue.
+     * @param database the database pending writes are flushed to
+     * @param batchSize the maximum number of writes per database batch; reaching it triggers a flush
+     * @param flushIntervalMillis how often pending writes are flushed regardless of the batch size
+     * @param queueCapacity the maximum number of distinct pending IDs before writers are blocked
+     */
+    WriteBehindQueue(DatabaseDao database, int batchSize, long flushIntervalMillis, int queueCapacity) {
+        this(database, batchSize, flushIntervalMillis, queueCapacity, DEFAULT_MAX_WAIT_MILLIS);
+    }
+
+    /**
+     * Creates a queue and starts its background flusher.
+     * @param database the database pending writes are flushed to
+     * @param batchSize the maximum number of writes per database batch; reaching it triggers a flush
+     * @param flushIntervalMillis how often pending writes are flushed regardless of the batch size
+     * @param queueCapacity the maximum number of distinct pending IDs before writers are blocked
+     * @param maxWaitMillis how long a writer waits for room in a full queue before its write fails
+     */
+    WriteBehindQueue(DatabaseDao database, int batchSize, long flushIntervalMillis, int queueCapacity, long maxWaitMillis) {
+        if (batchSize <= 0 || flushIntervalMillis <= 0 || queueCapacity <= 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("batchSize, flushInterval and queueCapacity must be positive and maxWait not negative");
+        }
+        this.database = database;
+        this.batchSize = batchSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.capacity = new Semaphore(queueCapacity);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues a save, replacing any pending write for the same ID.
+     * @param id the ID to write
+     * @param entity the entity to persist
+     * @throws IllegalStateException if the queue stayed full for too long, or is closed
+     */
+    void save(String id, CacheEntity entity) {
+        enqueue(id, entity);
+    }
+
+    /**
+     * Queues a removal, replacing any pending write for the same ID.
+     * @param id the ID to remove
+     * @throws IllegalStateException if the queue stayed full for too long, or is closed
+     */
+    void remove(String id) {
+        enqueue(id, null);
+    }
+
+    /**
+     * Returns the write for an ID that has not been persisted yet, so reads never observe older database state.
+     * @param id the ID to look up
+     * @return the pending write, or null if the database is up to date for this ID
+     */
+    PendingWrite pending(String id) {
+        return pending.get(id);
+    }
+
+    /**
+     * Drops every pending write and clears the database, ordered after any flush in progress.
+     */
+    void removeAll() {
+        flushLock.lock();
+        try {
+            for (String id : pending.keySet()) {
+                if (pending.remove(id) != null) {
+                    capacity.release();
+                }
+            }
+            database.removeAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes every pending entry to the database in batches. Entries that fail to persist stay queued for the next flush.
+     */
+    void flush() {
+        flushRequested.set(false);
+        flushLock.lock();
+        try {
+            List<Map.Entry<String, PendingWrite>> batch = new ArrayList<>(batchSize);
+            boolean more = true;
+            while (more) {
+                batch.clear();
+                for (Map.Entry<String, PendingWrite> entry : pending.entrySet()) {
+                    batch.add(Map.entry(entry.getKey(), entry.getValue()));
+                    if (batch.size() == batchSize) {
+                        break;
+                    }
+                }
+                if (batch.isEmpty() || !writeBatch(batch)) {
+                    return;
+                }
+                more = batch.size() == batchSize;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background flusher after persisting everything still pending. Writers waiting for room fail, and so
+     * do later writes.
+     */
+    void close() {
+        closed = true;
+        // Wakes a waiting writer, which hands the permit on to the next one as it fails
+        capacity.release();
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            logger.error("Write-behind queue closed with {} unpersisted writes.", pending.size());
+        }
+    }
+
+    /**
+     * @return a snapshot of the queue's depth, persistence lag and flush counters
+     */
+    WriteBehindStats stats() {
+        long now = System.currentTimeMillis();
+        long oldest = now;
+        for (PendingWrite write : pending.values()) {
+            oldest = Math.min(oldest, write.dirtySince);
+        }
+        return new WriteBehindStats(true, pending.size(), now - oldest,
+                flushedWrites.get(), flushes.get(), failedFlushes.get());
+    }
+
+    private void enqueue(String id, CacheEntity entity) {
+        if (closed) {
+            throw new IllegalStateException("Write-behind queue closed");
+        }
+        while (true) {
+            // Coalesce with a pending write for the same ID, keeping the time it first became dirty
+            if (pending.computeIfPresent(id, (key, old) -> new PendingWrite(entity, old.dirtySince)) != null) {
+                return;
+            }
+            acquireCapacity();
+            if (pending.putIfAbsent(id, new PendingWrite(entity, System.currentTimeMillis())) == null) {
+                if (pending.size() >= batchSize) {
+                    requestFlush();
+                }
+                return;
+            }
+            capacity.release();
+        }
+    }
+
+    private void acquireCapacity() {
+        if (capacity.tryAcquire()) {
+            return;
+        }
+        requestFlush();
+        boolean acquired;
+        try {
+            acquired = capacity.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write-behind capacity", e);
+        }
+        if (!acquired) {
+            throw new IllegalStateException("Write-behind queue still full after " + maxWaitMillis + " ms");
+        }
+        if (closed) {
+            capacity.release();
+            throw new IllegalStateException("Write-behind queue closed");
+        }
+    }
+
+    private void requestFlush() {
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                flusher.execute(this::flush);
+            } catch (RuntimeException e) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    // Requires flushLock
+    private boolean writeBatch(List<Map.Entry<String, PendingWrite>> batch) {
+        List<CacheEntity> saves = new ArrayList<>(batch.size());
+        List<String> removals = new ArrayList<>();
+        try {
+            for (Map.Entry<String, PendingWrite> entry : batch) {
+                CacheEntity entity = entry.getValue().entity;
+                if (entity != null) {
+                    saves.add(entity);
+                } else {
+                    removals.add(entry.getKey());
+                }
+            }
+            if (!saves.isEmpty()) {
+                database.saveAll(saves);
+            }
+            if (!removals.isEmpty()) {
+                database.removeAll(removals);
+            }
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            logger.error("Failed to flush {} write-behind entries.", batch.size(), e);
+            return false;
+        }
+        for (Map.Entry<String, PendingWrite> entry : batch) {
+            // A newer write for the same ID stays queued
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                capacity.release();
+            }
+        }
+        flushedWrites.addAndGet(batch.size());
+        flushes.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * The latest unpersisted state of one ID: an entity to save, or null for a removal.
+     */
+    static final class PendingWrite {
+        final CacheEntity entity;
+        final long dirtySince;
+
+        PendingWrite(CacheEntity entity, long dirtySince) {
+            this.entity = entity;
+            this.dirtySince = dirtySince;
+        }
+    }
+}
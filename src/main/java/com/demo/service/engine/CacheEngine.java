@@ -0,0 +1,659 @@
+package com.demo.service.engine;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * CacheEngine is a bounded, thread-safe key/value store with a pluggable eviction policy and optional expiration.
+ * Reads never block: a hit is served straight from a ConcurrentHashMap and the access is recorded
+ * in a striped, lossy read buffer. Buffered accesses are replayed against the policy in batches
+ * by whichever thread holds the eviction lock, which readers only ever try to acquire without waiting.
+ * Writes take the eviction lock and drain the read buffer first, so the policy's view and the size
+ * bound are exact whenever an eviction decision is made. The bound is either a number of entries or,
+ * with a {@link Weigher}, a total weight such as an estimate of the bytes held.
+ * Expiration deadlines are checked on every read, so an expired value is never returned, while expired entries
+ * are removed by advancing a timer wheel as part of the same maintenance pass, never by scanning the cache.
+ * Entries older than the refresh-after-write threshold are still served, but report themselves as due for a refresh
+ * so that the owner can reload them in the background before they expire.
+ * The bound can be changed at runtime. When it is lowered, the excess is evicted a batch at a time by the following
+ * writes and maintenance passes, so no single call holds the eviction lock for a long eviction run.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class CacheEngine<K, V> {
+    static final long NEVER = Long.MAX_VALUE;
+    // Evictions per pass while the excess left by a lowered bound is drained
+    static final int MAX_EVICTIONS_PER_PASS = 256;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+    private final RemovalListener<K, V> removalListener;
+    private final EvictionListener<K, V> evictionListener;
+    private volatile long maximum;
+    private final Weigher<K, V> weigher;
+    private final EvictionPolicyType policyType;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final long refreshAfterWriteNanos;
+    private final Ticker ticker;
+    private final Predicate<Node<K, V>> expirer = this::tryExpire;
+
+    // Guarded by evictionLock
+    private final EvictionPolicy<K, V> policy;
+    private final TimerWheel<K, V> timerWheel;
+    private List<Node<K, V>> expiredBatch;
+    private boolean shrinking; // the bound was lowered below the weighted size, which is not yet evicted down to it
+    private volatile long weightedSize;
+
+    /**
+     * Creates an LRU engine bounded to the given number of entries.
+     * @param maximumSize the maximum number of entries to hold
+     * @param removalListener notified of every entry that leaves the cache, or null
+     */
+    public CacheEngine(long maximumSize, RemovalListener<K, V> removalListener) {
+        this(maximumSize, EvictionPolicyType.LRU, removalListener);
+    }
+
+    /**
+     * Creates an engine bounded to the given number of entries.
+     * @param maximumSize the maximum number of entries to hold
+     * @param policyType the policy choosing which entries to evict
+     * @param removalListener notified of every entry that leaves the cache, or null
+     */
+    public CacheEngine(long maximumSize, EvictionPolicyType policyType, RemovalListener<K, V> removalListener) {
+        this(CacheEngine.<K, V>builder()
+                .maximumSize(maximumSize)
+                .evictionPolicy(policyType)
+                .removalListener(removalListener));
+    }
+
+    private CacheEngine(Builder<K, V> builder) {
+        if ((builder.maximumSize < 0) == (builder.maximumWeight < 0)) {
+            throw new IllegalArgumentException("Exactly one of maximumSize and maximumWeight must be set, and not negative");
+        }
+        if (builder.maximumWeight >= 0 && builder.weigher == null) {
+            throw new IllegalArgumentException("maximumWeight requires a weigher");
+        }
+        if (builder.policyType == null) {
+            throw new IllegalArgumentException("policyType must not be null");
+        }
+        this.maximum = (builder.maximumSize >= 0) ? builder.maximumSize : builder.maximumWeight;
+        this.weigher = (builder.maximumSize >= 0) ? Weigher.singleton() : builder.weigher;
+        this.policyType = builder.policyType;
+        this.policy = policyType.create();
+        this.policy.setMaximum(maximum);
+        this.removalListener = builder.removalListener;
+        this.evictionListener = builder.evictionListener;
+        this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+        this.expireAfterAccessNanos = builder.expireAfterAccessNanos;
+        this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+        this.ticker = builder.ticker;
+        this.timerWheel = new TimerWheel<>(ticker.read());
+        this.data = new ConcurrentHashMap<>((builder.maximumSize >= 0) ? (int) Math.min(maximum, 1 << 16) : 16);
+    }
+
+    /**
+     * Creates a builder for an engine with expiration or a custom ticker.
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return a new builder
+     */
+    public static <K, V> Builder<K, V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * Returns the value mapped to the key and records the access for the eviction policy.
+     * @param key the key to look up
+     * @return the value, or null if absent or expired
+     */
+    public V get(K key) {
+        Node<K, V> node = getEntry(key);
+        return (node == null) ? null : node.getValue();
+    }
+
+    /**
+     * Returns the entry mapped to the key and records the access for the eviction policy.
+     * Use this instead of {@link #get} when the entry's write time matters, e.g. to check {@link #isRefreshDue}.
+     * @param key the key to look up
+     * @return the entry, or null if absent or expired
+     */
+    public Node<K, V> getEntry(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.writeDeadline != NEVER || expireAfterAccessNanos > 0) {
+            long now = ticker.read();
+            if (hasExpired(node, now)) {
+                tryMaintenance();
+                return null;
+            }
+            if (expireAfterAccessNanos > 0) {
+                node.accessTime = now;
+            }
+        }
+        if (readBuffer.offer(node) == ReadBuffer.FULL) {
+            tryMaintenance();
+        }
+        return node;
+    }
+
+    /**
+     * Tells whether an entry was written longer ago than the refresh-after-write threshold.
+     * @param node an entry returned by {@link #getEntry}
+     * @return true if refresh-after-write is enabled and the entry's value is older than the threshold
+     */
+    public boolean isRefreshDue(Node<K, V> node) {
+        return refreshAfterWriteNanos > 0 && ticker.read() - node.writeTime >= refreshAfterWriteNanos;
+    }
+
+    /**
+     * Maps the key to the value, evicting the entries chosen by the policy if the cache grows past its bound.
+     * An entry weighing more than the whole bound is still written, and then evicted right away.
+     * The entry expires after the engine's default expire-after-write duration, if any.
+     * @param key the key
+     * @param value the value
+     * @return the previous value, or null if there was none
+     */
+    public V put(K key, V value) {
+        return put(key, value, 0);
+    }
+
+    /**
+     * Maps the key to the value with its own time to live, overriding the default expire-after-write duration.
+     * @param key the key
+     * @param value the value
+     * @param timeToLiveNanos how long the entry may live after this write, or 0 to use the default
+     * @return the previous value, or null if there was none
+     */
+    public V put(K key, V value, long timeToLiveNanos) {
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must not be negative: " + weight);
+        }
+        V oldValue = null;
+        List<Node<K, V>> expired;
+        List<Node<K, V>> evicted;
+        evictionLock.lock();
+        try {
+            long now = ticker.read();
+            expired = maintenance(now);
+            long writeDeadline = deadline(now, (timeToLiveNanos > 0) ? timeToLiveNanos : expireAfterWriteNanos);
+            Node<K, V> node = data.get(key);
+            if (node != null) {
+                oldValue = node.getValue();
+                node.setValue(value);
+                node.writeTime = now;
+                node.writeDeadline = writeDeadline;
+                node.accessTime = now;
+                int weightDifference = weight - node.weight;
+                node.weight = weight;
+                weightedSize += weightDifference;
+                policy.onUpdate(node, weightDifference);
+                timerWheel.deschedule(node);
+            } else {
+                node = new Node<>(key, value);
+                node.writeTime = now;
+                node.writeDeadline = writeDeadline;
+                node.accessTime = now;
+                node.weight = weight;
+                data.put(key, node);
+                policy.onAdd(node);
+                weightedSize += weight;
+            }
+            schedule(node);
+            evicted = evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemovals(expired, RemovalCause.EXPIRED);
+        notifyRemovals(evicted, RemovalCause.SIZE);
+        return oldValue;
+    }
+
+    /**
+     * Removes the mapping for the key.
+     * @param key the key to remove
+     * @return the removed value, or null if there was none
+     */
+    public V remove(K key) {
+        Node<K, V> node;
+        evictionLock.lock();
+        try {
+            node = data.remove(key);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        if (node == null) {
+            return null;
+        }
+        notifyRemoval(node, RemovalCause.EXPLICIT);
+        return node.getValue();
+    }
+
+    /**
+     * Returns the entry mapped to the key without recording an access or checking expiration.
+     * @param key the key to look up
+     * @return the entry, or null if absent
+     */
+    public Node<K, V> peekEntry(K key) {
+        return data.get(key);
+    }
+
+    /**
+     * Removes an entry without notifying the removal listener, if the key still maps to it. This is for moving
+     * an entry to another tier, where it has not really left the cache.
+     * @param key the key of the entry
+     * @param node the entry, as returned by {@link #getEntry}
+     * @return false if the entry was removed or replaced in the meantime
+     */
+    public boolean detach(K key, Node<K, V> node) {
+        evictionLock.lock();
+        try {
+            if (!data.remove(key, node)) {
+                return false;
+            }
+            unlink(node);
+            return true;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Tells whether an entry can ever expire, because it has a time to live or the cache expires entries after access.
+     * @param node an entry returned by {@link #getEntry}
+     * @return true if the entry can expire
+     */
+    public boolean canExpire(Node<K, V> node) {
+        return node.writeDeadline != NEVER || expireAfterAccessNanos > 0;
+    }
+
+    /**
+     * Tells whether an entry has expired since it was returned. The ticker is only read if the entry can expire.
+     * @param node an entry returned by {@link #getEntry}
+     * @return true if the entry has expired
+     */
+    public boolean isExpired(Node<K, V> node) {
+        return canExpire(node) && hasExpired(node, ticker.read());
+    }
+
+    /**
+     * Removes every entry.
+     */
+    public void clear() {
+        List<Node<K, V>> removed;
+        evictionLock.lock();
+        try {
+            // Pending reads refer to nodes that are about to be discarded
+            readBuffer.drainTo(node -> { });
+            removed = new ArrayList<>(data.values());
+            for (Node<K, V> node : removed) {
+                data.remove(node.getKey(), node);
+                node.alive = false;
+            }
+            policy.clear();
+            timerWheel.clear();
+            weightedSize = 0;
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemovals(removed, RemovalCause.EXPLICIT);
+    }
+
+    /**
+     * Replays any buffered reads against the eviction policy and removes expired entries.
+     * This happens automatically as the cache is used; calling it is only needed to observe an exact state.
+     */
+    public void cleanUp() {
+        List<Node<K, V>> expired;
+        List<Node<K, V>> evicted;
+        evictionLock.lock();
+        try {
+            expired = maintenance(ticker.read());
+            evicted = evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemovals(expired, RemovalCause.EXPIRED);
+        notifyRemovals(evicted, RemovalCause.SIZE);
+    }
+
+    /**
+     * Changes the bound. Raising it takes effect at once; after lowering it, the entries over the new bound are
+     * evicted in batches of at most {@value #MAX_EVICTIONS_PER_PASS} by each later write and maintenance pass, so the
+     * cache may stay above the bound for a while. {@link #cleanUp()} evicts one batch.
+     * @param maximum the new maximum number of entries, or maximum total weight if the cache is bounded by weight
+     */
+    public void setMaximum(long maximum) {
+        if (maximum < 0) {
+            throw new IllegalArgumentException("maximum must not be negative");
+        }
+        evictionLock.lock();
+        try {
+            this.maximum = maximum;
+            policy.setMaximum(maximum);
+            shrinking = weightedSize > maximum;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the live entries ordered from the one the policy would evict first to the one it values most,
+     * after replaying buffered reads so the order is current. Inserting them in this order into an empty cache
+     * with the same policy approximates this cache's state.
+     * @return a copy of the entries; expired entries are left out
+     */
+    public List<Node<K, V>> entriesInRetentionOrder() {
+        List<Node<K, V>> entries;
+        List<Node<K, V>> expired;
+        evictionLock.lock();
+        try {
+            long now = ticker.read();
+            expired = maintenance(now);
+            entries = new ArrayList<>(data.size());
+            policy.forEachInRetentionOrder(node -> {
+                if (!hasExpired(node, now)) {
+                    entries.add(node);
+                }
+            });
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyRemovals(expired, RemovalCause.EXPIRED);
+        return entries;
+    }
+
+    /**
+     * @return the number of entries currently held, which may include expired entries not yet cleaned up
+     */
+    public int size() {
+        return data.size();
+    }
+
+    /**
+     * @return the total weight of the entries currently held, which equals {@link #size()} without a weigher
+     */
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    /**
+     * @return the maximum number of entries, or the maximum total weight if the cache is bounded by weight
+     */
+    public long getMaximum() {
+        return maximum;
+    }
+
+    /**
+     * @return the eviction policy in use
+     */
+    public EvictionPolicyType getPolicyType() {
+        return policyType;
+    }
+
+    private void tryMaintenance() {
+        if (evictionLock.tryLock()) {
+            List<Node<K, V>> expired;
+            List<Node<K, V>> evicted;
+            try {
+                expired = maintenance(ticker.read());
+                evicted = shrinking ? evict() : null;
+            } finally {
+                evictionLock.unlock();
+            }
+            notifyRemovals(expired, RemovalCause.EXPIRED);
+            notifyRemovals(evicted, RemovalCause.SIZE);
+        }
+    }
+
+    // Requires evictionLock; returns the entries that expired, to be notified once the lock is released
+    private List<Node<K, V>> maintenance(long now) {
+        readBuffer.drainTo(this::onAccess);
+        timerWheel.advance(now, expirer);
+        List<Node<K, V>> expired = expiredBatch;
+        expiredBatch = null;
+        return expired;
+    }
+
+    // Requires evictionLock
+    private void onAccess(Node<K, V> node) {
+        // The node may have been removed after its read was buffered
+        if (node.alive) {
+            policy.onAccess(node);
+            if (expireAfterAccessNanos > 0) {
+                timerWheel.deschedule(node);
+                schedule(node);
+            }
+        }
+    }
+
+    // Requires evictionLock; called by the timer wheel for an entry whose bucket has passed
+    private boolean tryExpire(Node<K, V> node) {
+        long now = timerWheel.getNanos();
+        if (!hasExpired(node, now)) {
+            // Read after its last reschedule, so its deadline has moved
+            node.expiresAt = expirationDeadline(node);
+            return false;
+        }
+        data.remove(node.getKey(), node);
+        unlink(node);
+        if (expiredBatch == null) {
+            expiredBatch = new ArrayList<>();
+        }
+        expiredBatch.add(node);
+        return true;
+    }
+
+    // Requires evictionLock
+    private void schedule(Node<K, V> node) {
+        node.expiresAt = expirationDeadline(node);
+        if (node.expiresAt != NEVER) {
+            timerWheel.schedule(node);
+        }
+    }
+
+    private long expirationDeadline(Node<K, V> node) {
+        if (expireAfterAccessNanos <= 0) {
+            return node.writeDeadline;
+        }
+        return Math.min(node.writeDeadline, deadline(node.accessTime, expireAfterAccessNanos));
+    }
+
+    private boolean hasExpired(Node<K, V> node, long now) {
+        long writeDeadline = node.writeDeadline;
+        return (writeDeadline != NEVER && now - writeDeadline >= 0)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private static long deadline(long now, long durationNanos) {
+        if (durationNanos <= 0) {
+            return NEVER;
+        }
+        long deadline = now + durationNanos;
+        // Saturate instead of overflowing into the past
+        return (((now ^ deadline) & (durationNanos ^ deadline)) < 0) ? NEVER - 1 : Math.min(deadline, NEVER - 1);
+    }
+
+    // Requires evictionLock; after the bound was lowered, evicts one batch of the excess only
+    private List<Node<K, V>> evict() {
+        List<Node<K, V>> evicted = null;
+        int limit = shrinking ? MAX_EVICTIONS_PER_PASS : Integer.MAX_VALUE;
+        while (weightedSize > maximum && (evicted == null || evicted.size() < limit)) {
+            Node<K, V> victim = policy.selectVictim();
+            if (victim == null) {
+                break;
+            }
+            data.remove(victim.getKey(), victim);
+            unlink(victim);
+            if (evictionListener != null) {
+                long expiresAt = expirationDeadline(victim);
+                long timeToLive = (expiresAt == NEVER) ? Long.MAX_VALUE : expiresAt - ticker.read();
+                evictionListener.onEviction(victim.getKey(), victim.getValue(), timeToLive);
+            }
+            if (evicted == null) {
+                evicted = new ArrayList<>(1);
+            }
+            evicted.add(victim);
+        }
+        if (weightedSize <= maximum) {
+            shrinking = false;
+        }
+        return evicted;
+    }
+
+    // Requires evictionLock
+    private void unlink(Node<K, V> node) {
+        policy.onRemove(node);
+        timerWheel.deschedule(node);
+        node.alive = false;
+        weightedSize -= node.weight;
+    }
+
+    private void notifyRemovals(List<Node<K, V>> nodes, RemovalCause cause) {
+        if (nodes != null) {
+            for (Node<K, V> node : nodes) {
+                notifyRemoval(node, cause);
+            }
+        }
+    }
+
+    private void notifyRemoval(Node<K, V> node, RemovalCause cause) {
+        if (removalListener != null) {
+            removalListener.onRemoval(node.getKey(), node.getValue(), cause);
+        }
+    }
+
+    /**
+     * Builder for CacheEngine. Exactly one of the maximum size and the maximum weight is required.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    public static final class Builder<K, V> {
+        private long maximumSize = -1;
+        private long maximumWeight = -1;
+        private Weigher<K, V> weigher;
+        private EvictionPolicyType policyType = EvictionPolicyType.LRU;
+        private long expireAfterWriteNanos;
+        private long expireAfterAccessNanos;
+        private long refreshAfterWriteNanos;
+        private Ticker ticker = Ticker.system();
+        private RemovalListener<K, V> removalListener;
+        private EvictionListener<K, V> evictionListener;
+
+        private Builder() {
+        }
+
+        /**
+         * @param maximumSize the maximum number of entries to hold
+         * @return this builder
+         */
+        public Builder<K, V> maximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        /**
+         * @param maximumWeight the maximum total weight of the entries to hold, as computed by the weigher
+         * @return this builder
+         */
+        public Builder<K, V> maximumWeight(long maximumWeight) {
+            this.maximumWeight = maximumWeight;
+            return this;
+        }
+
+        /**
+         * @param weigher computes the weight of each entry; required with {@link #maximumWeight}
+         * @return this builder
+         */
+        public Builder<K, V> weigher(Weigher<K, V> weigher) {
+            this.weigher = weigher;
+            return this;
+        }
+
+        /**
+         * @param policyType the policy choosing which entries to evict
+         * @return this builder
+         */
+        public Builder<K, V> evictionPolicy(EvictionPolicyType policyType) {
+            this.policyType = policyType;
+            return this;
+        }
+
+        /**
+         * @param duration how long an entry lives after it was last written, or null/zero for no limit
+         * @return this builder
+         */
+        public Builder<K, V> expireAfterWrite(Duration duration) {
+            this.expireAfterWriteNanos = (duration == null) ? 0 : duration.toNanos();
+            return this;
+        }
+
+        /**
+         * @param duration how long an entry lives after it was last read or written, or null/zero for no limit
+         * @return this builder
+         */
+        public Builder<K, V> expireAfterAccess(Duration duration) {
+            this.expireAfterAccessNanos = (duration == null) ? 0 : duration.toNanos();
+            return this;
+        }
+
+        /**
+         * @param duration how old an entry's value may get before {@link #isRefreshDue} reports it, or null/zero to disable
+         * @return this builder
+         */
+        public Builder<K, V> refreshAfterWrite(Duration duration) {
+            this.refreshAfterWriteNanos = (duration == null) ? 0 : duration.toNanos();
+            return this;
+        }
+
+        /**
+         * @param ticker the time source used for expiration
+         * @return this builder
+         */
+        public Builder<K, V> ticker(Ticker ticker) {
+            this.ticker = ticker;
+            return this;
+        }
+
+        /**
+         * @param removalListener notified of every entry that leaves the cache, or null
+         * @return this builder
+         */
+        public Builder<K, V> removalListener(RemovalListener<K, V> removalListener) {
+            this.removalListener = removalListener;
+            return this;
+        }
+
+        /**
+         * Sets a listener called for each entry evicted by size while the eviction lock is still held, so that
+         * it runs before any later write to the same key. It must be fast and must not call back into the engine.
+         * @param evictionListener notified synchronously of every size eviction, with the entry's remaining time to
+         *                         live, or null
+         * @return this builder
+         */
+        public Builder<K, V> evictionListener(EvictionListener<K, V> evictionListener) {
+            this.evictionListener = evictionListener;
+            return this;
+        }
+
+        /**
+         * @return a new engine with this builder's settings
+         */
+        public CacheEngine<K, V> build() {
+            return new CacheEngine<>(this);
+        }
+    }
+}
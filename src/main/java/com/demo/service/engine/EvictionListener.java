@@ -0,0 +1,20 @@
+package com.demo.service.engine;
+
+/**
+ * Receives each entry evicted by size while the engine's eviction lock is still held, with how long it had left to
+ * live, so that a tier keeping evicted entries can expire them when the engine would have.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@FunctionalInterface
+public interface EvictionListener<K, V> {
+    /**
+     * Called for an entry just evicted by size.
+     * @param key the key of the evicted entry
+     * @param value the value of the evicted entry
+     * @param timeToLiveNanos how long the entry had left before expiring, at most 0 if it already had, or
+     *                        {@link Long#MAX_VALUE} if it could not expire
+     */
+    void onEviction(K key, V value, long timeToLiveNanos);
+}
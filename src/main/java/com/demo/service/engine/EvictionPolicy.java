@@ -0,0 +1,65 @@
+package com.demo.service.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Decides which entry leaves the cache when it grows past its bound.
+ * The engine calls every method while holding its eviction lock, so implementations need no
+ * synchronization of their own; accesses arrive in batches as the read buffer is drained.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface EvictionPolicy<K, V> {
+
+    /**
+     * Sets the capacity the policy sizes its internal regions against.
+     * Capacities and entry weights share one unit: entries when the cache is bounded by size, or the
+     * weigher's unit when it is bounded by weight.
+     * @param maximum the maximum total weight the cache holds
+     */
+    void setMaximum(long maximum);
+
+    /**
+     * Called when a new entry is inserted.
+     * @param node the new entry
+     */
+    void onAdd(Node<K, V> node);
+
+    /**
+     * Called when an entry is read.
+     * @param node the entry that was read
+     */
+    void onAccess(Node<K, V> node);
+
+    /**
+     * Called when the value of an existing entry is replaced.
+     * @param node the entry that was updated, already carrying its new weight
+     * @param weightDifference the new weight minus the old weight
+     */
+    void onUpdate(Node<K, V> node, int weightDifference);
+
+    /**
+     * Called when an entry leaves the cache for any reason, including eviction.
+     * @param node the entry that was removed
+     */
+    void onRemove(Node<K, V> node);
+
+    /**
+     * Chooses the next entry to evict. The engine removes it and then calls {@link #onRemove}.
+     * @return the victim, or null if the policy tracks no entries
+     */
+    Node<K, V> selectVictim();
+
+    /**
+     * Passes every tracked entry to the action, starting with the one the policy would evict first and ending with
+     * the one it values most. Re-inserting entries in this order into an empty cache approximates the same state.
+     * @param action called for each entry; it must not modify the cache
+     */
+    void forEachInRetentionOrder(Consumer<Node<K, V>> action);
+
+    /**
+     * Forgets every tracked entry.
+     */
+    void clear();
+}
@@ -0,0 +1,48 @@
+package com.demo.service.engine;
+
+/**
+ * The eviction policies available to a CacheEngine.
+ */
+public enum EvictionPolicyType {
+    /** Evicts the least recently used entry. */
+    LRU {
+        @Override
+        <K, V> EvictionPolicy<K, V> create() {
+            return new LruPolicy<>();
+        }
+    },
+    /** Evicts the least frequently used entry, breaking ties by recency. */
+    LFU {
+        @Override
+        <K, V> EvictionPolicy<K, V> create() {
+            return new LfuPolicy<>();
+        }
+    },
+    /** Evicts the oldest inserted entry regardless of reads. */
+    FIFO {
+        @Override
+        <K, V> EvictionPolicy<K, V> create() {
+            return new FifoPolicy<>();
+        }
+    },
+    /** Segmented LRU: entries must be read twice to reach the protected segment. */
+    SLRU {
+        @Override
+        <K, V> EvictionPolicy<K, V> create() {
+            return new SlruPolicy<>();
+        }
+    },
+    /** Window TinyLFU: a small LRU window in front of an SLRU main region guarded by a frequency sketch. */
+    TINY_LFU {
+        @Override
+        <K, V> EvictionPolicy<K, V> create() {
+            return new TinyLfuPolicy<>();
+        }
+    };
+
+    /**
+     * Creates a new, empty instance of the policy.
+     * @return the policy
+     */
+    abstract <K, V> EvictionPolicy<K, V> create();
+}
@@ -0,0 +1,50 @@
+package com.demo.service.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * First in, first out: entries are evicted in insertion order and reads are ignored.
+ */
+final class FifoPolicy<K, V> implements EvictionPolicy<K, V> {
+    private final NodeDeque<K, V> insertionOrder = new NodeDeque<>();
+
+    @Override
+    public void setMaximum(long maximum) {
+        // A single queue needs no sizing
+    }
+
+    @Override
+    public void onAdd(Node<K, V> node) {
+        insertionOrder.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        // Reads do not affect insertion order
+    }
+
+    @Override
+    public void onUpdate(Node<K, V> node, int weightDifference) {
+        // Overwrites keep their original position
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        insertionOrder.remove(node);
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        return insertionOrder.peekFirst();
+    }
+
+    @Override
+    public void forEachInRetentionOrder(Consumer<Node<K, V>> action) {
+        insertionOrder.forEach(action);
+    }
+
+    @Override
+    public void clear() {
+        insertionOrder.clear();
+    }
+}
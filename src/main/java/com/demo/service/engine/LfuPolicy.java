@@ -0,0 +1,141 @@
+package com.demo.service.engine;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Least frequently used: entries are grouped into buckets by access count, and the victim is the
+ * least recently used entry of the lowest bucket. The buckets form a list ordered by count, so
+ * every operation is O(1). The entry that was just inserted is passed over when choosing a victim,
+ * otherwise a newcomer with a single use would always be the one evicted.
+ */
+final class LfuPolicy<K, V> implements EvictionPolicy<K, V> {
+    private final Map<Integer, Bucket<K, V>> buckets = new HashMap<>();
+    private Bucket<K, V> lowest;
+    private Node<K, V> newest;
+
+    @Override
+    public void setMaximum(long maximum) {
+        // Buckets grow and shrink with their contents
+    }
+
+    @Override
+    public void onAdd(Node<K, V> node) {
+        newest = node;
+        node.frequency = 1;
+        Bucket<K, V> bucket = buckets.get(1);
+        if (bucket == null) {
+            bucket = new Bucket<>(1);
+            buckets.put(1, bucket);
+            bucket.next = lowest;
+            if (lowest != null) {
+                lowest.prev = bucket;
+            }
+            lowest = bucket;
+        }
+        bucket.nodes.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        if (node.frequency == Integer.MAX_VALUE) {
+            buckets.get(node.frequency).nodes.moveToLast(node);
+            return;
+        }
+        Bucket<K, V> current = buckets.get(node.frequency);
+        int frequency = node.frequency + 1;
+        Bucket<K, V> next = current.next;
+        if (next == null || next.frequency != frequency) {
+            next = new Bucket<>(frequency);
+            buckets.put(frequency, next);
+            next.prev = current;
+            next.next = current.next;
+            if (current.next != null) {
+                current.next.prev = next;
+            }
+            current.next = next;
+        }
+        current.nodes.remove(node);
+        node.frequency = frequency;
+        next.nodes.addLast(node);
+        if (current.nodes.peekFirst() == null) {
+            unlink(current);
+        }
+    }
+
+    @Override
+    public void onUpdate(Node<K, V> node, int weightDifference) {
+        onAccess(node);
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        if (node == newest) {
+            newest = null;
+        }
+        Bucket<K, V> bucket = buckets.get(node.frequency);
+        bucket.nodes.remove(node);
+        if (bucket.nodes.peekFirst() == null) {
+            unlink(bucket);
+        }
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        if (lowest == null) {
+            return null;
+        }
+        Node<K, V> victim = lowest.nodes.peekFirst();
+        if (victim != newest) {
+            return victim;
+        }
+        if (victim.next != null) {
+            return victim.next;
+        }
+        return (lowest.next != null) ? lowest.next.nodes.peekFirst() : victim;
+    }
+
+    @Override
+    public void forEachInRetentionOrder(Consumer<Node<K, V>> action) {
+        for (Bucket<K, V> bucket = lowest; bucket != null; bucket = bucket.next) {
+            bucket.nodes.forEach(action);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Bucket<K, V> bucket : buckets.values()) {
+            bucket.nodes.clear();
+        }
+        buckets.clear();
+        lowest = null;
+        newest = null;
+    }
+
+    private void unlink(Bucket<K, V> bucket) {
+        buckets.remove(bucket.frequency);
+        if (bucket.prev == null) {
+            lowest = bucket.next;
+        } else {
+            bucket.prev.next = bucket.next;
+        }
+        if (bucket.next != null) {
+            bucket.next.prev = bucket.prev;
+        }
+    }
+
+    /**
+     * The entries sharing one access count, in recency order.
+     */
+    private static final class Bucket<K, V> {
+        final int frequency;
+        final NodeDeque<K, V> nodes = new NodeDeque<>();
+        Bucket<K, V> prev;
+        Bucket<K, V> next;
+
+        Bucket(int frequency) {
+            this.frequency = frequency;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.demo.service.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Least recently used: reads and writes move an entry to the end of a single deque.
+ */
+final class LruPolicy<K, V> implements EvictionPolicy<K, V> {
+    private final NodeDeque<K, V> accessOrder = new NodeDeque<>();
+
+    @Override
+    public void setMaximum(long maximum) {
+        // A single queue needs no sizing
+    }
+
+    @Override
+    public void onAdd(Node<K, V> node) {
+        accessOrder.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        accessOrder.moveToLast(node);
+    }
+
+    @Override
+    public void onUpdate(Node<K, V> node, int weightDifference) {
+        accessOrder.moveToLast(node);
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        accessOrder.remove(node);
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        return accessOrder.peekFirst();
+    }
+
+    @Override
+    public void forEachInRetentionOrder(Consumer<Node<K, V>> action) {
+        accessOrder.forEach(action);
+    }
+
+    @Override
+    public void clear() {
+        accessOrder.clear();
+    }
+}
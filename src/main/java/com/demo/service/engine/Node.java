@@ -0,0 +1,62 @@
+package com.demo.service.engine;
+
+/**
+ * A cache entry as seen by the eviction machinery.
+ * The value and the expiration timestamps are volatile so that lock-free readers always observe the latest write,
+ * while the links, the timer deadline and the lifecycle flag are only touched under the engine's eviction lock.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public final class Node<K, V> {
+    private final K key;
+    private volatile V value;
+    volatile long writeTime;
+    volatile long writeDeadline = CacheEngine.NEVER;
+    volatile long accessTime;
+
+    // Guarded by the eviction lock
+    Node<K, V> prev;
+    Node<K, V> next;
+    boolean alive = true;
+
+    // Policy bookkeeping, guarded by the eviction lock
+    int queue;
+    int frequency;
+    int weight;
+
+    // Timer wheel bookkeeping, guarded by the eviction lock
+    long expiresAt = CacheEngine.NEVER;
+    Node<K, V> timerPrev;
+    Node<K, V> timerNext;
+
+    Node(K key, V value) {
+        this.key = key;
+        this.value = value;
+    }
+
+    /**
+     * @return the key of the entry
+     */
+    public K getKey() {
+        return key;
+    }
+
+    /**
+     * @return the current value of the entry
+     */
+    public V getValue() {
+        return value;
+    }
+
+    /**
+     * @return the ticker time at which the current value was written
+     */
+    public long getWriteTime() {
+        return writeTime;
+    }
+
+    void setValue(V value) {
+        this.value = value;
+    }
+}
@@ -0,0 +1,99 @@
+package com.demo.service.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * An intrusive doubly linked list of nodes, ordered from the first (oldest) to the last (newest) element.
+ * Linking through the nodes themselves means reordering an entry is O(1) and allocation-free.
+ * Not thread-safe; callers must hold the engine's eviction lock.
+ */
+final class NodeDeque<K, V> {
+    private Node<K, V> first;
+    private Node<K, V> last;
+
+    /**
+     * Appends a node to the end of the deque.
+     * @param node the node to append; it must not currently be linked into any deque
+     */
+    void addLast(Node<K, V> node) {
+        node.prev = last;
+        node.next = null;
+        if (last == null) {
+            first = node;
+        } else {
+            last.next = node;
+        }
+        last = node;
+    }
+
+    /**
+     * Unlinks a node from the deque.
+     * @param node the node to unlink; it must currently be linked into this deque
+     */
+    void remove(Node<K, V> node) {
+        Node<K, V> prev = node.prev;
+        Node<K, V> next = node.next;
+        if (prev == null) {
+            first = next;
+        } else {
+            prev.next = next;
+        }
+        if (next == null) {
+            last = prev;
+        } else {
+            next.prev = prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * Moves a node that is already in the deque to its end.
+     * @param node the node to move
+     */
+    void moveToLast(Node<K, V> node) {
+        if (node != last) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    /**
+     * @return the oldest node, or null if the deque is empty
+     */
+    Node<K, V> peekFirst() {
+        return first;
+    }
+
+    /**
+     * @return the newest node, or null if the deque is empty
+     */
+    Node<K, V> peekLast() {
+        return last;
+    }
+
+    /**
+     * Passes every node to the action, from the first to the last.
+     * @param action called for each node; it must not modify the deque
+     */
+    void forEach(Consumer<Node<K, V>> action) {
+        for (Node<K, V> node = first; node != null; node = node.next) {
+            action.accept(node);
+        }
+    }
+
+    /**
+     * Unlinks every node.
+     */
+    void clear() {
+        Node<K, V> node = first;
+        while (node != null) {
+            Node<K, V> next = node.next;
+            node.prev = null;
+            node.next = null;
+            node = next;
+        }
+        first = null;
+        last = null;
+    }
+}
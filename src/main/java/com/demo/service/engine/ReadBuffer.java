@@ -0,0 +1,102 @@
+package com.demo.service.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A striped, lossy, multiple-producer / single-consumer buffer used to record cache hits.
+ * Readers publish into one of several small ring buffers chosen by thread, so concurrent hits
+ * do not contend on a single location. When a ring is full the element is dropped: losing a few
+ * access events only makes the recency order slightly less precise, it never breaks correctness.
+ * The single consumer is whoever holds the engine's eviction lock.
+ */
+final class ReadBuffer<E> {
+    static final int SUCCESS = 0;
+    static final int FULL = 1;
+    static final int FAILED = -1;
+
+    private static final int RING_SIZE = 16;
+    private static final int RING_MASK = RING_SIZE - 1;
+
+    private final Ring<E>[] rings;
+    private final int stripeMask;
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        int stripes = ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors());
+        this.rings = new Ring[stripes];
+        for (int i = 0; i < stripes; i++) {
+            rings[i] = new Ring<>();
+        }
+        this.stripeMask = stripes - 1;
+    }
+
+    /**
+     * Records an element in the calling thread's stripe.
+     * @param e the element to record
+     * @return SUCCESS if recorded, FULL if the stripe is full and should be drained, FAILED on CAS contention
+     */
+    int offer(E e) {
+        return rings[stripe()].offer(e);
+    }
+
+    /**
+     * Drains every stripe into the consumer. Must only be called by a single thread at a time.
+     * @param consumer receives each buffered element
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Ring<E> ring : rings) {
+            ring.drainTo(consumer);
+        }
+    }
+
+    private int stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+
+    private static int ceilingPowerOfTwo(int x) {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+
+    /**
+     * A bounded ring buffer; producers claim a slot by CAS on the write counter.
+     */
+    private static final class Ring<E> {
+        private final AtomicLong readCounter = new AtomicLong();
+        private final AtomicLong writeCounter = new AtomicLong();
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(RING_SIZE);
+
+        int offer(E e) {
+            long head = readCounter.get();
+            long tail = writeCounter.get();
+            if (tail - head >= RING_SIZE) {
+                return FULL;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & RING_MASK), e);
+                return SUCCESS;
+            }
+            return FAILED;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter.get();
+            long tail = writeCounter.get();
+            while (head < tail) {
+                int index = (int) (head & RING_MASK);
+                E e = buffer.get(index);
+                if (e == null) {
+                    // The producer claimed the slot but has not published yet; pick it up next time
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+                head++;
+            }
+            readCounter.lazySet(head);
+        }
+    }
+}
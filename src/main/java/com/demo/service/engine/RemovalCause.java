@@ -0,0 +1,13 @@
+package com.demo.service.engine;
+
+/**
+ * The reason an entry left the cache.
+ */
+public enum RemovalCause {
+    /** The entry was removed by the caller, individually or through a clear. */
+    EXPLICIT,
+    /** The entry was evicted to keep the cache within its capacity. */
+    SIZE,
+    /** The entry outlived its expire-after-write or expire-after-access duration. */
+    EXPIRED
+}
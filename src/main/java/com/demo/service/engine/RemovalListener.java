@@ -0,0 +1,20 @@
+package com.demo.service.engine;
+
+/**
+ * Receives a notification whenever an entry leaves the cache.
+ * Notifications are delivered on the calling thread after the eviction lock has been released,
+ * so implementations may safely call back into the cache.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+    /**
+     * Called after an entry has been removed.
+     * @param key the key of the removed entry
+     * @param value the value of the removed entry
+     * @param cause why the entry was removed
+     */
+    void onRemoval(K key, V value, RemovalCause cause);
+}
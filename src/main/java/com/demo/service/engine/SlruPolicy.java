@@ -0,0 +1,95 @@
+package com.demo.service.engine;
+
+import java.util.function.Consumer;
+
+/**
+ * Segmented LRU: new entries start in a probation segment and are promoted to a protected segment
+ * when read again. Entries demoted from the protected segment get a second chance in probation,
+ * so a burst of one-off keys only ever churns probation.
+ */
+final class SlruPolicy<K, V> implements EvictionPolicy<K, V> {
+    static final int PROBATION = 0;
+    static final int PROTECTED = 1;
+
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final NodeDeque<K, V> probation = new NodeDeque<>();
+    private final NodeDeque<K, V> protectedQueue = new NodeDeque<>();
+    private long protectedWeight;
+    private long maxProtected;
+
+    @Override
+    public void setMaximum(long maximum) {
+        maxProtected = (long) (maximum * PROTECTED_RATIO);
+        demoteOverflow();
+    }
+
+    @Override
+    public void onAdd(Node<K, V> node) {
+        node.queue = PROBATION;
+        probation.addLast(node);
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        if (node.queue == PROTECTED) {
+            protectedQueue.moveToLast(node);
+            return;
+        }
+        probation.remove(node);
+        node.queue = PROTECTED;
+        protectedQueue.addLast(node);
+        protectedWeight += node.weight;
+        demoteOverflow();
+    }
+
+    @Override
+    public void onUpdate(Node<K, V> node, int weightDifference) {
+        if (node.queue == PROTECTED) {
+            protectedWeight += weightDifference;
+        }
+        onAccess(node);
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        if (node.queue == PROTECTED) {
+            protectedQueue.remove(node);
+            protectedWeight -= node.weight;
+        } else {
+            probation.remove(node);
+        }
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        Node<K, V> victim = probation.peekFirst();
+        return (victim != null) ? victim : protectedQueue.peekFirst();
+    }
+
+    @Override
+    public void forEachInRetentionOrder(Consumer<Node<K, V>> action) {
+        probation.forEach(action);
+        protectedQueue.forEach(action);
+    }
+
+    @Override
+    public void clear() {
+        probation.clear();
+        protectedQueue.clear();
+        protectedWeight = 0;
+    }
+
+    private void demoteOverflow() {
+        while (protectedWeight > maxProtected) {
+            Node<K, V> demoted = protectedQueue.peekFirst();
+            if (demoted == null) {
+                break;
+            }
+            protectedQueue.remove(demoted);
+            protectedWeight -= demoted.weight;
+            demoted.queue = PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.demo.service.engine;
+
+/**
+ * A source of monotonic time in nanoseconds, replaceable in tests.
+ */
+@FunctionalInterface
+public interface Ticker {
+
+    /**
+     * @return the current time in nanoseconds, only meaningful relative to other readings
+     */
+    long read();
+
+    /**
+     * @return a ticker backed by {@link System#nanoTime()}
+     */
+    static Ticker system() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,170 @@
+package com.demo.service.engine;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+/**
+ * Window TinyLFU. New entries land in a small LRU window (1% of capacity, by weight) that absorbs bursts;
+ * entries leaving the window become candidates for the main SLRU region and are only admitted if a
+ * count-min sketch estimates them to be more popular than the main region's eviction victim.
+ * One-off keys from a scan therefore cycle through the window without displacing the hot set.
+ */
+final class TinyLfuPolicy<K, V> implements EvictionPolicy<K, V> {
+    static final int WINDOW = 0;
+    static final int PROBATION = 1;
+    static final int PROTECTED = 2;
+
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    // Candidates at least this warm are occasionally admitted so an attacker cannot pin the victim
+    private static final int ADMIT_HASHDOS_THRESHOLD = 6;
+    private static final long INITIAL_SKETCH_CAPACITY = 1 << 16;
+
+    private final FrequencySketch<K> sketch = new FrequencySketch<>();
+    private final NodeDeque<K, V> window = new NodeDeque<>();
+    private final NodeDeque<K, V> probation = new NodeDeque<>();
+    private final NodeDeque<K, V> protectedQueue = new NodeDeque<>();
+    private long entries;
+    private long sketchCapacity;
+    private long windowWeight;
+    private long protectedWeight;
+    private long maxWindow;
+    private long maxProtected;
+
+    @Override
+    public void setMaximum(long maximum) {
+        maxWindow = Math.min(maximum, Math.max(1, (long) (maximum * WINDOW_RATIO)));
+        maxProtected = (long) ((maximum - maxWindow) * PROTECTED_RATIO);
+        // Bounded by weight the maximum says little about the entry count, so the sketch also grows in onAdd.
+        // The extra slot covers the entry that is briefly held past the bound before its eviction.
+        sketchCapacity = Math.min(maximum, INITIAL_SKETCH_CAPACITY) + 1;
+        sketch.ensureCapacity(sketchCapacity);
+        drainWindowOverflow();
+        demoteProtectedOverflow();
+    }
+
+    @Override
+    public void onAdd(Node<K, V> node) {
+        if (++entries > sketchCapacity) {
+            sketchCapacity = 2 * entries;
+            sketch.ensureCapacity(sketchCapacity);
+        }
+        sketch.increment(node.getKey());
+        node.queue = WINDOW;
+        window.addLast(node);
+        windowWeight += node.weight;
+        drainWindowOverflow();
+    }
+
+    @Override
+    public void onAccess(Node<K, V> node) {
+        sketch.increment(node.getKey());
+        if (node.queue == WINDOW) {
+            window.moveToLast(node);
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.moveToLast(node);
+        } else {
+            probation.remove(node);
+            node.queue = PROTECTED;
+            protectedQueue.addLast(node);
+            protectedWeight += node.weight;
+            demoteProtectedOverflow();
+        }
+    }
+
+    @Override
+    public void onUpdate(Node<K, V> node, int weightDifference) {
+        if (node.queue == WINDOW) {
+            windowWeight += weightDifference;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += weightDifference;
+        }
+        onAccess(node);
+        drainWindowOverflow();
+    }
+
+    @Override
+    public void onRemove(Node<K, V> node) {
+        entries--;
+        if (node.queue == WINDOW) {
+            window.remove(node);
+            windowWeight -= node.weight;
+        } else if (node.queue == PROTECTED) {
+            protectedQueue.remove(node);
+            protectedWeight -= node.weight;
+        } else {
+            probation.remove(node);
+        }
+    }
+
+    @Override
+    public Node<K, V> selectVictim() {
+        // The most recent arrival in probation competes against the oldest entry of the main region
+        Node<K, V> candidate = probation.peekLast();
+        if (candidate == null) {
+            Node<K, V> victim = protectedQueue.peekFirst();
+            return (victim != null) ? victim : window.peekFirst();
+        }
+        Node<K, V> victim = probation.peekFirst();
+        if (victim == candidate) {
+            victim = protectedQueue.peekFirst();
+            if (victim == null) {
+                return candidate;
+            }
+        }
+        return admit(candidate, victim) ? victim : candidate;
+    }
+
+    @Override
+    public void forEachInRetentionOrder(Consumer<Node<K, V>> action) {
+        probation.forEach(action);
+        window.forEach(action);
+        protectedQueue.forEach(action);
+    }
+
+    @Override
+    public void clear() {
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        entries = 0;
+        windowWeight = 0;
+        protectedWeight = 0;
+    }
+
+    private boolean admit(Node<K, V> candidate, Node<K, V> victim) {
+        int candidateFrequency = sketch.frequency(candidate.getKey());
+        int victimFrequency = sketch.frequency(victim.getKey());
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        return candidateFrequency >= ADMIT_HASHDOS_THRESHOLD
+                && (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void drainWindowOverflow() {
+        while (windowWeight > maxWindow) {
+            Node<K, V> node = window.peekFirst();
+            if (node == null) {
+                break;
+            }
+            window.remove(node);
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedWeight > maxProtected) {
+            Node<K, V> node = protectedQueue.peekFirst();
+            if (node == null) {
+                break;
+            }
+            protectedQueue.remove(node);
+            protectedWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.demo.service.engine;
+
+/**
+ * Computes the weight of an entry, so a cache can be bounded by total weight (for example bytes)
+ * instead of by number of entries. The weight of an entry is computed once per write and must not change
+ * while the entry is cached.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * @param key the key of the entry
+     * @param value the value of the entry
+     * @return the weight of the entry; must not be negative
+     */
+    int weigh(K key, V value);
+
+    /**
+     * @param <K> the key type
+     * @param <V> the value type
+     * @return a weigher giving every entry a weight of one, which bounds the cache by entry count
+     */
+    static <K, V> Weigher<K, V> singleton() {
+        return (key, value) -> 1;
+    }
+}
@@ -0,0 +1,183 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import com.demo.service.CachingService;
+import com.demo.service.ShardedCache;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the BinaryCacheClient class, and for a cluster of nodes on localhost ports forwarding through it.
+ */
+public class BinaryCacheClientTest {
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    /**
+     * Stops the servers and closes the clients.
+     */
+    @After
+    public void tearDown() throws Exception {
+        Collections.reverse(resources);
+        for (AutoCloseable resource : resources) {
+            resource.close();
+        }
+    }
+
+    /**
+     * Tests each operation, and that requests from many threads pipelined over one connection get their own answers.
+     */
+    @Test
+    public void testOperations() throws Exception {
+        CachingService service = service();
+        BinaryCacheClient client = client(server(service).getPort());
+
+        client.add(new CacheEntity("1", "A"), null).join();
+        client.add(new CacheEntity("2", "B"), Duration.ofMinutes(1)).join();
+        client.putAll(Arrays.asList(new CacheEntity("3", "C"), new CacheEntity("4", null))).join();
+        assertEquals("A", client.get("1", false).join().getData());
+        assertNull(client.get("missing", true).join());
+        List<CacheEntity> found = client.getAll(Arrays.asList("4", "missing", "2"), false).join();
+        assertEquals(2, found.size());
+        assertEquals("B", found.get(1).getData());
+        client.removeAll(Arrays.asList("1", "2")).join();
+        assertEquals(2, service.cacheSize());
+
+        List<CompletableFuture<CacheEntity>> gets = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            service.add(new CacheEntity("key-" + i, "value-" + i));
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int first = t * 500;
+            Thread thread = new Thread(() -> {
+                for (int i = first; i < first + 500; i++) {
+                    CompletableFuture<CacheEntity> get = client.get("key-" + i, false);
+                    synchronized (gets) {
+                        gets.add(get);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (CompletableFuture<CacheEntity> get : gets) {
+            CacheEntity entity = get.join();
+            assertEquals(entity.getId().replace("key", "value"), entity.getData());
+        }
+    }
+
+    /**
+     * Tests that requests fail while the member is down, and succeed again once it is back.
+     */
+    @Test
+    public void testReconnects() throws IOException {
+        CachingService service = service();
+        BinaryCacheServer server = new BinaryCacheServer(service, 0, ForkJoinPool.commonPool());
+        int port = server.getPort();
+        BinaryCacheClient client = client(port);
+        client.add(new CacheEntity("1", "A"), null).join();
+        server.close();
+
+        try {
+            client.get("1", false).join();
+            client.get("1", false).join();
+            fail("Expected CompletionException");
+        } catch (CompletionException expected) {
+            // Expected
+        }
+        resources.add(new BinaryCacheServer(service, port, ForkJoinPool.commonPool()));
+        assertEquals("A", client.get("1", false).join().getData());
+    }
+
+    /**
+     * Tests that a member that does not accept the connection fails the request within the timeout, and that closing
+     * the client meanwhile does not wait for the connection attempt.
+     */
+    @Test
+    public void testConnectTimesOut() throws InterruptedException {
+        // Not routable: the connection attempt hangs until it times out, unless the network is down altogether
+        BinaryCacheClient client = new BinaryCacheClient(new InetSocketAddress("10.255.255.1", 9), Duration.ofMillis(500));
+        CompletableFuture<CacheEntity> get = CompletableFuture.supplyAsync(() -> client.get("1", false).join());
+        Thread.sleep(100);
+        long start = System.nanoTime();
+        client.close();
+        assertTrue(System.nanoTime() - start < 200_000_000L);
+        try {
+            get.join();
+            fail("Expected CompletionException");
+        } catch (CompletionException expected) {
+            // Expected
+        }
+        assertTrue("Should fail within the timeout", System.nanoTime() - start < 2_000_000_000L);
+    }
+
+    /**
+     * Tests a cluster of two nodes on localhost ports: each key is cached by one node, and found through both, and
+     * removing everything through one node empties both.
+     */
+    @Test
+    public void testClusterOverTcp() throws IOException {
+        CachingService a = service();
+        CachingService b = service();
+        int portA = server(a).getPort();
+        int portB = server(b).getPort();
+        ShardedCache nodeA = new ShardedCache("a", a, Collections.singletonMap("b", client(portB)), 64);
+        ShardedCache nodeB = new ShardedCache("b", b, Collections.singletonMap("a", client(portA)), 64);
+
+        for (int i = 0; i < 100; i++) {
+            nodeA.add(new CacheEntity("key-" + i, "value-" + i), null);
+        }
+        assertEquals(100, a.cacheSize() + b.cacheSize());
+        assertTrue(a.cacheSize() > 20 && b.cacheSize() > 20);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("value-" + i, nodeB.get("key-" + i, false).getData());
+        }
+        assertEquals(100, nodeB.getAll(Arrays.asList(keys(100)), false).size());
+
+        nodeA.removeAll();
+        assertEquals(0, a.cacheSize() + b.cacheSize());
+        assertEquals(0, a.dbSize() + b.dbSize());
+    }
+
+    private CachingService service() {
+        CachingService service = new CachingService(10_000);
+        resources.add(service::close);
+        return service;
+    }
+
+    private BinaryCacheServer server(CachingService service) throws IOException {
+        BinaryCacheServer server = new BinaryCacheServer(service, 0, ForkJoinPool.commonPool());
+        resources.add(server);
+        return server;
+    }
+
+    private BinaryCacheClient client(int port) {
+        BinaryCacheClient client = new BinaryCacheClient(new InetSocketAddress("localhost", port), Duration.ofSeconds(5));
+        resources.add(client::close);
+        return client;
+    }
+
+    private static String[] keys(int count) {
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = "key-" + i;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,141 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheEntityCodec;
+import com.demo.service.CachingService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the BinaryCacheServer class, talking the BinaryProtocol over a real socket.
+ */
+public class BinaryCacheServerTest {
+    private CachingService service;
+    private BinaryCacheServer server;
+    private SocketChannel channel;
+    private DataInputStream in;
+
+    /**
+     * Starts a server on a free port and connects to it.
+     */
+    @Before
+    public void setup() throws IOException {
+        service = new CachingService(100);
+        server = new BinaryCacheServer(service, 0, ForkJoinPool.commonPool());
+        channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()));
+        in = new DataInputStream(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Disconnects and stops the server.
+     */
+    @After
+    public void tearDown() throws IOException {
+        channel.close();
+        server.close();
+        service.close();
+    }
+
+    /**
+     * Tests that pipelined requests sent in one write are executed and answered in order, so a read after a write
+     * on the same connection sees the write.
+     */
+    @Test
+    public void testPipelinedRequests() throws IOException {
+        send(BinaryProtocol.put(new CacheEntity("1", "Alpha")),
+                BinaryProtocol.get("1", false),
+                BinaryProtocol.putAll(Arrays.asList(new CacheEntity("2", "Beta"), new CacheEntity("3", null))),
+                BinaryProtocol.getAll(Arrays.asList("3", "missing", "2"), false),
+                BinaryProtocol.remove("1"),
+                BinaryProtocol.get("1", true));
+
+        assertEquals(BinaryProtocol.OK, readResponse().get());
+        ByteBuffer get = readResponse();
+        assertEquals(BinaryProtocol.OK, get.get());
+        assertEquals("Alpha", CacheEntityCodec.decode(get).getData());
+        assertEquals(BinaryProtocol.OK, readResponse().get());
+        ByteBuffer getAll = readResponse();
+        assertEquals(BinaryProtocol.OK, getAll.get());
+        List<CacheEntity> found = CacheEntityCodec.decodeBatch(getAll);
+        assertEquals(2, found.size());
+        assertEquals("3", found.get(0).getId());
+        assertNull(found.get(0).getData());
+        assertEquals("Beta", found.get(1).getData());
+        assertEquals(BinaryProtocol.OK, readResponse().get());
+        assertEquals(BinaryProtocol.NOT_FOUND, readResponse().get());
+        assertEquals(2, service.cacheSize());
+    }
+
+    /**
+     * Tests that a malformed request is answered with an error, and that the connection keeps serving afterwards.
+     */
+    @Test
+    public void testErrors() throws IOException {
+        ByteBuffer truncated = ByteBuffer.allocate(10).putInt(6).put(BinaryProtocol.GET).put((byte) 0).putInt(100).flip();
+        ByteBuffer unknown = ByteBuffer.allocate(5).putInt(1).put((byte) 42).flip();
+        send(truncated, unknown, BinaryProtocol.put(new CacheEntity("1", "Alpha")), BinaryProtocol.get("1", false));
+
+        ByteBuffer error = readResponse();
+        assertEquals(BinaryProtocol.ERROR, error.get());
+        assertTrue(CacheEntityCodec.readString(error).contains("Malformed"));
+        assertEquals(BinaryProtocol.ERROR, readResponse().get());
+        assertEquals(BinaryProtocol.OK, readResponse().get());
+        ByteBuffer get = readResponse();
+        assertEquals(BinaryProtocol.OK, get.get());
+        assertEquals("Alpha", CacheEntityCodec.decode(get).getData());
+    }
+
+    /**
+     * Tests that many requests in flight on one connection, more than the server reads ahead, are all answered.
+     */
+    @Test
+    public void testBackpressure() throws IOException {
+        int requests = 5_000;
+        ByteBuffer[] frames = new ByteBuffer[requests];
+        for (int i = 0; i < requests; i++) {
+            frames[i] = (i % 2 == 0) ? BinaryProtocol.put(new CacheEntity(Integer.toString(i % 50), "V" + i))
+                    : BinaryProtocol.get(Integer.toString((i - 1) % 50), false);
+        }
+        Thread writer = new Thread(() -> {
+            try {
+                send(frames);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        writer.start();
+        for (int i = 0; i < requests; i++) {
+            ByteBuffer response = readResponse();
+            assertEquals(BinaryProtocol.OK, response.get());
+            if (i % 2 == 1) {
+                assertEquals("V" + (i - 1), CacheEntityCodec.decode(response).getData());
+            }
+        }
+    }
+
+    private void send(ByteBuffer... frames) throws IOException {
+        while (frames[frames.length - 1].hasRemaining()) {
+            channel.write(frames);
+        }
+    }
+
+    // Returns the response after its length: the status, then the payload
+    private ByteBuffer readResponse() throws IOException {
+        byte[] response = new byte[in.readInt()];
+        in.readFully(response);
+        return ByteBuffer.wrap(response);
+    }
+}
@@ -0,0 +1,104 @@
+package com.demo.controlller;
+
+import com.demo.model.CacheEntity;
+import org.junit.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheEntityHttpMessageConverter class.
+ */
+public class CacheEntityHttpMessageConverterTest {
+    private static final Type ENTITY_LIST = new ParameterizedTypeReference<List<CacheEntity>>() { }.getType();
+    private static final Type ENTITY_SET = new ParameterizedTypeReference<Set<CacheEntity>>() { }.getType();
+    private static final Type STRING_LIST = new ParameterizedTypeReference<List<String>>() { }.getType();
+
+    private final CacheEntityHttpMessageConverter converter = new CacheEntityHttpMessageConverter();
+
+    /**
+     * Tests that only entities and lists of entities in the binary content type are handled.
+     */
+    @Test
+    public void testSupportedTypes() {
+        MediaType binary = CacheEntityHttpMessageConverter.MEDIA_TYPE;
+        assertTrue(converter.canRead(CacheEntity.class, null, binary));
+        assertTrue(converter.canRead(ENTITY_LIST, null, binary));
+        assertFalse(converter.canRead(ENTITY_SET, null, binary));
+        assertFalse(converter.canRead(STRING_LIST, null, binary));
+        assertFalse(converter.canRead(CacheEntity.class, null, MediaType.APPLICATION_JSON));
+        assertTrue(converter.canWrite(ENTITY_LIST, List.class, binary));
+        assertFalse(converter.canWrite(String.class, String.class, binary));
+    }
+
+    /**
+     * Tests that an entity and a batch written by the converter are read back, and that malformed bodies are
+     * reported as unreadable.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testReadWrite() throws Exception {
+        CacheEntity entity = new CacheEntity("1", "Alpha");
+        byte[] body = write(entity, CacheEntity.class);
+        CacheEntity read = (CacheEntity) converter.read(CacheEntity.class, null, input(body));
+        assertEquals("Alpha", read.getData());
+
+        List<CacheEntity> batch = Arrays.asList(entity, new CacheEntity("2", null));
+        List<CacheEntity> readBatch = (List<CacheEntity>) converter.read(ENTITY_LIST, null, input(write(batch, ENTITY_LIST)));
+        assertEquals(2, readBatch.size());
+        assertNull(readBatch.get(1).getData());
+
+        try {
+            converter.read(CacheEntity.class, null, input(Arrays.copyOf(body, body.length + 1)));
+            fail("Expected HttpMessageNotReadableException");
+        } catch (HttpMessageNotReadableException expected) {
+            // Expected
+        }
+    }
+
+    private byte[] write(Object value, Type type) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpHeaders headers = new HttpHeaders();
+        converter.write(value, type, CacheEntityHttpMessageConverter.MEDIA_TYPE, new HttpOutputMessage() {
+            @Override
+            public OutputStream getBody() {
+                return out;
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return headers;
+            }
+        });
+        assertEquals(CacheEntityHttpMessageConverter.MEDIA_TYPE, headers.getContentType());
+        return out.toByteArray();
+    }
+
+    private static HttpInputMessage input(byte[] body) {
+        return new HttpInputMessage() {
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(body);
+            }
+
+            @Override
+            public HttpHeaders getHeaders() {
+                return new HttpHeaders();
+            }
+        };
+    }
+}
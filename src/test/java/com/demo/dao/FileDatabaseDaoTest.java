@@ -0,0 +1,222 @@
+package com.demo.dao;
+
+import com.demo.model.CacheEntity;
+import com.demo.service.CachingService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the FileDatabaseDao class.
+ * This class tests persistence across reopening, compaction and recovery from a torn write.
+ */
+public class FileDatabaseDaoTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private FileDatabaseDao dao;
+
+    /**
+     * Opens a store with small segments so that tests roll over several of them.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("store").toPath();
+        dao = new FileDatabaseDao(directory, 1024, true);
+    }
+
+    /**
+     * Closes the store.
+     */
+    @After
+    public void tearDown() {
+        dao.close();
+    }
+
+    /**
+     * Tests that saves, overwrites and removals are all visible after the store is reopened.
+     */
+    @Test
+    public void testDataSurvivesReopen() {
+        dao.save(new CacheEntity("1", "A"));
+        dao.save(new CacheEntity("2", null));
+        dao.save(new CacheEntity("3", "C"));
+        dao.save(new CacheEntity("1", "A2"));
+        dao.remove("3");
+        dao.saveAll(List.of(new CacheEntity("4", "é中"), new CacheEntity("5", "E")));
+
+        reopen();
+        assertEquals(4, dao.size());
+        assertEquals("A2", dao.get("1").getData());
+        assertNotNull(dao.get("2"));
+        assertNull(dao.get("2").getData());
+        assertNull(dao.get("3"));
+        assertEquals("é中", dao.get("4").getData());
+    }
+
+    /**
+     * Tests that batch lookups and batch removals are durable like single ones.
+     */
+    @Test
+    public void testBatchOperations() {
+        dao.saveAll(List.of(new CacheEntity("1", "A"), new CacheEntity("2", "B"), new CacheEntity("3", "C")));
+        dao.removeAll(List.of("1", "3", "missing"));
+
+        reopen();
+        Map<String, CacheEntity> found = dao.getAll(List.of("1", "2", "3"));
+        assertEquals(1, found.size());
+        assertEquals("B", found.get("2").getData());
+    }
+
+    /**
+     * Tests that removeAll empties the store, also after reopening, and that it can be written again.
+     */
+    @Test
+    public void testRemoveAll() {
+        for (int i = 0; i < 100; i++) {
+            dao.save(new CacheEntity(String.valueOf(i), "value" + i));
+        }
+        dao.removeAll();
+        assertEquals(0, dao.size());
+        dao.save(new CacheEntity("new", "N"));
+
+        reopen();
+        assertEquals(1, dao.size());
+        assertEquals("N", dao.get("new").getData());
+    }
+
+    /**
+     * Tests that compaction deletes the space of overwritten records while keeping the latest values readable.
+     */
+    @Test
+    public void testCompactionReclaimsOverwrittenRecords() throws IOException {
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < 10; i++) {
+                dao.save(new CacheEntity(String.valueOf(i), "round" + round));
+            }
+        }
+        dao.remove("9");
+        dao.compact();
+        long compactedBytes = directorySize();
+        assertTrue("Compaction should leave little more than the live records: " + compactedBytes,
+                compactedBytes < 2 * 1024);
+        for (int i = 0; i < 9; i++) {
+            assertEquals("round19", dao.get(String.valueOf(i)).getData());
+        }
+
+        reopen();
+        assertEquals(9, dao.size());
+        assertNull("A compacted removal must not resurrect the entity", dao.get("9"));
+        assertEquals("round19", dao.get("0").getData());
+    }
+
+    /**
+     * Tests that a record torn by a crash is dropped on recovery without losing the records before it.
+     */
+    @Test
+    public void testRecoveryTruncatesTornRecord() throws IOException {
+        dao.save(new CacheEntity("1", "A"));
+        dao.save(new CacheEntity("2", "B"));
+        dao.close();
+        Path last = segmentFiles().get(segmentFiles().size() - 1);
+        try (FileChannel channel = FileChannel.open(last, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+            channel.write(ByteBuffer.wrap(new byte[]{42}), channel.size());
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), channel.size());
+        }
+
+        dao = new FileDatabaseDao(directory, 1024, true);
+        assertEquals(1, dao.size());
+        assertEquals("A", dao.get("1").getData());
+        dao.save(new CacheEntity("3", "C"));
+        reopen();
+        assertEquals("C", dao.get("3").getData());
+    }
+
+    /**
+     * Tests that concurrent writers and readers sharing group commits and background compaction see consistent data.
+     */
+    @Test
+    public void testConcurrentWritesAndReads() throws Exception {
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int writer = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    String id = writer + "-" + (i % 20);
+                    dao.save(new CacheEntity(id, String.valueOf(i)));
+                    CacheEntity read = dao.get(id);
+                    assertEquals(String.valueOf(i), read.getData());
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        reopen();
+        assertEquals(threads * 20, dao.size());
+        assertEquals("499", dao.get("0-19").getData());
+    }
+
+    /**
+     * Tests that a CachingService backed by the file store serves data written before a restart.
+     */
+    @Test
+    public void testCachingServiceSurvivesRestart() {
+        dao.close();
+        CachingService service = CachingService.builder().maxSize(10).database(new FileDatabaseDao(directory)).build();
+        service.add(new CacheEntity("1", "A"));
+        service.close();
+
+        CachingService restarted = CachingService.builder().maxSize(10).database(new FileDatabaseDao(directory)).build();
+        assertEquals(1, restarted.dbSize());
+        assertEquals("A", restarted.get(new CacheEntity("1", null), true).getData());
+        restarted.close();
+        dao = new FileDatabaseDao(directory);
+    }
+
+    private void reopen() {
+        dao.close();
+        dao = new FileDatabaseDao(directory, 1024, true);
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private long directorySize() throws IOException {
+        long size = 0;
+        for (Path file : segmentFiles()) {
+            size += Files.size(file);
+        }
+        return size;
+    }
+}
@@ -5,6 +5,9 @@ import com.demo.model.CacheEntity;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.Assert.*;
 /** Unit tests for the MockDatabaseDao class.
  * This class tests the basic CRUD operations of the MockDatabaseDao.
@@ -62,4 +65,31 @@ public class MockDatabaseDaoTest {
         dao.save(entity);
         assertEquals(1, dao.size());
     }
-}
\ No newline at end of file
+    /**
+     * Tests the saveAll operation of the MockDatabaseDao.
+     * It verifies that every entity of a batch is stored and existing entities are overwritten.
+     */
+    @Test
+    public void testSaveAll() {
+        dao.save(entity);
+        dao.saveAll(List.of(new CacheEntity("1", "Updated"), new CacheEntity("2", "Data2")));
+        assertEquals(2, dao.size());
+        assertEquals("Updated", dao.get("1").getData());
+        assertEquals("Data2", dao.get("2").getData());
+    }
+    /**
+     * Tests the batch get and remove operations of the MockDatabaseDao.
+     * It verifies that only stored IDs are returned and that a batch removal leaves other entities in place.
+     */
+    @Test
+    public void testGetAllAndRemoveAll() {
+        dao.saveAll(List.of(new CacheEntity("1", "Data1"), new CacheEntity("2", "Data2"), new CacheEntity("3", "Data3")));
+        Map<String, CacheEntity> found = dao.getAll(List.of("1", "3", "4"));
+        assertEquals(2, found.size());
+        assertEquals("Data3", found.get("3").getData());
+
+        dao.removeAll(List.of("1", "2", "4"));
+        assertEquals(1, dao.size());
+        assertNotNull(dao.get("3"));
+    }
+}
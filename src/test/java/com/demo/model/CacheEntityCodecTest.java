@@ -0,0 +1,78 @@
+package com.demo.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheEntityCodec class.
+ */
+public class CacheEntityCodecTest {
+
+    /**
+     * Tests that entities, including null data, non-ASCII text and versions, survive a round trip, alone and in a
+     * batch.
+     */
+    @Test
+    public void testRoundTrip() throws Exception {
+        List<CacheEntity> entities = Arrays.asList(new CacheEntity("1", "Alpha"), new CacheEntity("2", null, 7),
+                new CacheEntity("ключ", "värde ✓", Long.MAX_VALUE));
+        for (CacheEntity entity : entities) {
+            ByteBuffer encoded = CacheEntityCodec.encode(entity);
+            assertEquals(CacheEntityCodec.encodedSize(entity), encoded.remaining());
+            CacheEntity decoded = CacheEntityCodec.decode(encoded);
+            assertEquals(entity.getId(), decoded.getId());
+            assertEquals(entity.getData(), decoded.getData());
+            assertEquals(entity.getVersion(), decoded.getVersion());
+            assertFalse(encoded.hasRemaining());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CacheEntityCodec.writeBatch(entities, out);
+        List<CacheEntity> decoded = CacheEntityCodec.decodeBatch(ByteBuffer.wrap(out.toByteArray()));
+        assertEquals(3, decoded.size());
+        assertEquals("ключ", decoded.get(2).getId());
+        assertNull(decoded.get(1).getData());
+        assertEquals(7, decoded.get(1).getVersion());
+    }
+
+    /**
+     * Tests that the size counted without encoding matches the encoded form for every width of UTF-8 character,
+     * including characters outside the basic plane and unpaired surrogates.
+     */
+    @Test
+    public void testEncodedSizeMatchesEncoding() {
+        List<String> texts = Arrays.asList("", "a", "é", "✓", "\uD83D\uDE00", "x\uD83D", "\uDE00y",
+                "ab\uD83D\uDE00é✓");
+        for (String text : texts) {
+            CacheEntity entity = new CacheEntity(text, text);
+            assertEquals(text, CacheEntityCodec.encode(entity).remaining(), CacheEntityCodec.encodedSize(entity));
+        }
+    }
+
+    /**
+     * Tests that truncated input and impossible lengths are rejected rather than over-allocated.
+     */
+    @Test
+    public void testMalformedInput() {
+        ByteBuffer truncated = CacheEntityCodec.encode(new CacheEntity("1", "Alpha"));
+        truncated.limit(truncated.limit() - 1);
+        try {
+            CacheEntityCodec.decode(truncated);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+        try {
+            CacheEntityCodec.decodeBatch(ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE).flip());
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.demo.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheEntityCompressor class.
+ */
+public class CacheEntityCompressorTest {
+    private final CacheEntityCompressor compressor = new CacheEntityCompressor(100);
+
+    /**
+     * Tests that long repetitive data is compressed several times over and reads back unchanged, on every read.
+     */
+    @Test
+    public void testCompressesLargeText() {
+        String text = "The quick brown fox jumps over the lazy dog. ".repeat(200) + "ünïcödé";
+        CacheEntity compressed = compressor.compress(new CacheEntity("1", text));
+        assertTrue(compressed.isCompressed());
+        assertTrue(compressed.getCompressedSize() * 5 < text.length());
+        assertEquals(text, compressed.getData());
+        assertEquals(text, compressed.getData());
+        assertSame(compressed, compressor.compress(compressed));
+
+        CompressionStats stats = compressor.stats();
+        assertEquals(1, stats.getCompressions());
+        assertEquals(2, stats.getDecompressions());
+        assertTrue(stats.getCompressionRatio() > 5);
+        assertTrue(stats.getCompressNanos() > 0);
+    }
+
+    /**
+     * Tests that short, null and incompressible data is left as it is.
+     */
+    @Test
+    public void testLeavesSmallAndIncompressibleData() {
+        CacheEntity small = new CacheEntity("1", "short");
+        assertSame(small, compressor.compress(small));
+        CacheEntity empty = new CacheEntity("2", null);
+        assertSame(empty, compressor.compress(empty));
+
+        byte[] random = new byte[2_000];
+        new Random(42).nextBytes(random);
+        StringBuilder noise = new StringBuilder();
+        for (byte b : random) {
+            // Uniform 7-bit characters carry 7 bits in each UTF-8 byte, so they cannot fit in 7/8 of the raw size
+            noise.append((char) (b & 0x7F));
+        }
+        CacheEntity incompressible = new CacheEntity("3", noise.toString());
+        assertSame(incompressible, compressor.compress(incompressible));
+        assertEquals(1, compressor.stats().getIncompressible());
+        assertEquals(0, compressor.stats().getCompressions());
+    }
+
+    /**
+     * Tests that a compressed entity serializes to the same JSON as an uncompressed one.
+     */
+    @Test
+    public void testJsonIsUnchanged() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        CacheEntity entity = new CacheEntity("1", "x".repeat(500));
+        CacheEntity compressed = compressor.compress(entity);
+        assertTrue(compressed.isCompressed());
+        assertEquals(mapper.writeValueAsString(entity), mapper.writeValueAsString(compressed));
+    }
+}
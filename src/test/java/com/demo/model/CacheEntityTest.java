@@ -1,6 +1,7 @@
 package com.demo.model;
 
 import com.demo.model.CacheEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import static org.junit.Assert.*;
 /**
@@ -19,4 +20,14 @@ public class CacheEntityTest {
         assertEquals("TestData", entity.getData());
     }
 
-}
\ No newline at end of file
+    /**
+     * Tests that a CacheEntity can be read from JSON, as request bodies are.
+     */
+    @Test
+    public void testJsonDeserialization() throws Exception {
+        CacheEntity entity = new ObjectMapper().readValue("{\"id\":\"1\",\"data\":\"TestData\"}", CacheEntity.class);
+        assertEquals("1", entity.getId());
+        assertEquals("TestData", entity.getData());
+        assertFalse(entity.isCompressed());
+    }
+}
@@ -0,0 +1,108 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheEventDispatcher class and the event listeners of CachingService.
+ */
+public class CacheEventDispatcherTest {
+
+    /**
+     * Tests that every event is counted while at most maxSamples are kept, and that the rest are reported as dropped.
+     */
+    @Test
+    public void testCountsAndBoundedSamples() {
+        List<CacheEventSummary> summaries = new CopyOnWriteArrayList<>();
+        CacheEventDispatcher dispatcher = new CacheEventDispatcher(1, 10, 60_000);
+        dispatcher.addListener(summaries::add);
+        for (int i = 0; i < 25; i++) {
+            dispatcher.record(CacheEvent.Type.EVICTION, Integer.toString(i));
+        }
+        dispatcher.record(CacheEvent.Type.LOAD, "x");
+        dispatcher.close();
+
+        assertEquals(1, summaries.size());
+        CacheEventSummary summary = summaries.get(0);
+        assertEquals(25, summary.getCount(CacheEvent.Type.EVICTION));
+        assertEquals(1, summary.getCount(CacheEvent.Type.LOAD));
+        assertEquals(0, summary.getCount(CacheEvent.Type.REMOVAL));
+        assertEquals(10, summary.getSamples().size());
+        assertEquals("0", summary.getSamples().get(0).getId());
+        assertEquals(16, summary.getDroppedSamples());
+    }
+
+    /**
+     * Tests that with sampling only a fraction of events is kept, and that intervals without events publish nothing.
+     */
+    @Test
+    public void testSampling() {
+        List<CacheEventSummary> summaries = new CopyOnWriteArrayList<>();
+        CacheEventDispatcher dispatcher = new CacheEventDispatcher(100, 100_000, 60_000);
+        dispatcher.addListener(summaries::add);
+        dispatcher.publish();
+        assertTrue(summaries.isEmpty());
+
+        for (int i = 0; i < 100_000; i++) {
+            dispatcher.record(CacheEvent.Type.LOAD, "id");
+        }
+        dispatcher.close();
+
+        assertEquals(100_000, summaries.get(0).getCount(CacheEvent.Type.LOAD));
+        assertEquals(1_000, summaries.get(0).getSamples().size(), 200);
+    }
+
+    /**
+     * Tests that a failing listener does not keep the others from receiving the summary.
+     */
+    @Test
+    public void testFailingListenerIsIsolated() {
+        List<CacheEventSummary> summaries = new CopyOnWriteArrayList<>();
+        CacheEventDispatcher dispatcher = new CacheEventDispatcher(1, 10, 60_000);
+        dispatcher.addListener(summary -> {
+            throw new IllegalStateException("listener failed");
+        });
+        dispatcher.addListener(summaries::add);
+        dispatcher.record(CacheEvent.Type.REMOVAL, "1");
+        dispatcher.close();
+
+        assertEquals(1, summaries.size());
+    }
+
+    /**
+     * Tests that the service reports evictions, loads and removals to its listeners.
+     */
+    @Test
+    public void testServiceEvents() {
+        List<CacheEventSummary> summaries = new CopyOnWriteArrayList<>();
+        CachingService cache = CachingService.builder()
+                .maxSize(2)
+                .eventSampling(1, 100, Duration.ofMillis(20))
+                .eventListener(summaries::add)
+                .build();
+        cache.add(new CacheEntity("1", "A"));
+        cache.add(new CacheEntity("2", "B"));
+        cache.add(new CacheEntity("3", "C"));
+        cache.get(new CacheEntity("1", null), true);
+        cache.remove(new CacheEntity("3", null));
+        cache.close();
+
+        long evictions = 0;
+        long loads = 0;
+        long removals = 0;
+        for (CacheEventSummary summary : summaries) {
+            evictions += summary.getCount(CacheEvent.Type.EVICTION);
+            loads += summary.getCount(CacheEvent.Type.LOAD);
+            removals += summary.getCount(CacheEvent.Type.REMOVAL);
+        }
+        assertEquals(2, evictions);
+        assertEquals(1, loads);
+        assertEquals(1, removals);
+    }
+}
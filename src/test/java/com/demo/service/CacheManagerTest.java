@@ -0,0 +1,102 @@
+package com.demo.service;
+
+import com.demo.dao.MockDatabaseDao;
+import com.demo.model.CacheEntity;
+import com.demo.model.RegionStats;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheManager class.
+ */
+public class CacheManagerTest {
+    private static final long ENTRY_WEIGHT = new CacheEntityWeigher().weigh("key-0", new CacheEntity("key-0", "value-0"));
+
+    /**
+     * Tests that regions are independent: each has its own entities and database, and filling one evicts nothing
+     * from another.
+     */
+    @Test
+    public void testRegionsAreIsolated() {
+        MockDatabaseDao sessionsDatabase = new MockDatabaseDao();
+        try (CacheManager manager = CacheManager.builder()
+                .region("default", CachingService.builder().maxSize(10))
+                .region("sessions", CachingService.builder().maxSize(2).database(sessionsDatabase))
+                .build()) {
+            CachingService sessions = manager.getRegion("sessions");
+            CachingService defaults = manager.getRegion(CacheManager.DEFAULT_REGION);
+            defaults.add(new CacheEntity("hot", "A"));
+            for (int i = 0; i < 100; i++) {
+                sessions.add(new CacheEntity("key-" + i, "value-" + i));
+            }
+            assertEquals(2, sessions.cacheSize());
+            assertEquals(100, sessionsDatabase.size());
+            assertEquals("A", defaults.get(new CacheEntity("hot", null), false).getData());
+            assertNull(sessions.get(new CacheEntity("hot", null), true));
+            assertEquals(1, defaults.dbSize());
+
+            assertNull(manager.getRegion("missing"));
+            assertEquals(Arrays.asList("default", "sessions"), List.copyOf(manager.getRegionNames()));
+            RegionStats stats = manager.getRegionStats().get(1);
+            assertEquals("sessions", stats.getName());
+            assertEquals(2, stats.getSize());
+            assertEquals(2, stats.getMaxSize());
+            assertEquals(-1, stats.getMaxWeight());
+        }
+    }
+
+    /**
+     * Tests that regions without a bound share what the others leave of the memory budget, and that each stays
+     * within its share.
+     */
+    @Test
+    public void testMemoryBudgetIsSplit() {
+        try (CacheManager manager = CacheManager.builder()
+                .memoryBudget(100 * ENTRY_WEIGHT)
+                .region("reserved", CachingService.builder().maxWeight(40 * ENTRY_WEIGHT))
+                .region("a", CachingService.builder())
+                .region("b", CachingService.builder())
+                .build()) {
+            List<RegionStats> stats = manager.getRegionStats();
+            assertEquals(40 * ENTRY_WEIGHT, stats.get(0).getMaxWeight());
+            assertEquals(30 * ENTRY_WEIGHT, stats.get(1).getMaxWeight());
+            assertEquals(30 * ENTRY_WEIGHT, stats.get(2).getMaxWeight());
+
+            CachingService a = manager.getRegion("a");
+            for (int i = 0; i < 1_000; i++) {
+                a.add(new CacheEntity("key-" + i, "value-" + (i % 10)));
+            }
+            assertTrue(a.cacheWeight() <= 30 * ENTRY_WEIGHT);
+            long total = manager.getRegionStats().stream().mapToLong(RegionStats::getWeight).sum();
+            assertTrue(total <= manager.getMemoryBudget());
+        }
+    }
+
+    /**
+     * Tests that a budget the regions would exceed, or a region bounded by size within a budget, is rejected.
+     */
+    @Test
+    public void testInvalidBudgetsAreRejected() {
+        assertThrows(IllegalStateException.class, () -> CacheManager.builder()
+                .memoryBudget(1_000)
+                .region("a", CachingService.builder().maxWeight(600))
+                .region("b", CachingService.builder().maxWeight(600))
+                .build());
+        assertThrows(IllegalStateException.class, () -> CacheManager.builder()
+                .memoryBudget(1_000)
+                .region("a", CachingService.builder().maxWeight(1_000))
+                .region("b", CachingService.builder())
+                .build());
+        assertThrows(IllegalStateException.class, () -> CacheManager.builder()
+                .memoryBudget(1_000)
+                .region("a", CachingService.builder().maxSize(10))
+                .build());
+        assertThrows(IllegalArgumentException.class, () -> CacheManager.builder()
+                .region("a", CachingService.builder().maxSize(10))
+                .region("a", CachingService.builder().maxSize(10)));
+    }
+}
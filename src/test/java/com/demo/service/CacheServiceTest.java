@@ -1,8 +1,26 @@
 package com.demo.service;
 
+import com.demo.dao.MockDatabaseDao;
 import com.demo.model.CacheEntity;
+import com.demo.service.engine.EvictionPolicyType;
 import org.junit.Before;
 import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
 import static org.junit.Assert.*;
 
 
@@ -212,4 +230,400 @@ public class CacheServiceTest {
         assertEquals("DB size should be 1 after adding entity with null data", 1, cache.dbSize());
         assertNull("Data for the entity should be null", cache.get(new CacheEntity("1", ""),true).getData());
     }
+
+    /**
+     * Tests that the eviction policy chosen at construction time is used by the cache.
+     * With FIFO, reading the oldest entry does not save it from eviction.
+     */
+    @Test
+    public void testConfiguredEvictionPolicy() {
+        CachingService fifo = new CachingService(2, EvictionPolicyType.FIFO);
+        fifo.add(new CacheEntity("1", "A"));
+        fifo.add(new CacheEntity("2", "B"));
+        fifo.get(new CacheEntity("1", ""), false);
+        fifo.add(new CacheEntity("3", "C"));
+
+        assertNull(fifo.get(new CacheEntity("1", ""), false));
+        assertEquals("B", fifo.get(new CacheEntity("2", ""), false).getData());
+    }
+
+    /**
+     * Tests that concurrent misses for the same ID trigger a single load whose result every caller receives.
+     */
+    @Test
+    public void testConcurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<CacheEntity>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> cache.get("1", id -> {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new CacheEntity(id, "Loaded");
+            })));
+        }
+        Thread.sleep(100);
+        release.countDown();
+        for (Future<CacheEntity> result : results) {
+            assertEquals("Loaded", result.get(5, TimeUnit.SECONDS).getData());
+        }
+        executor.shutdown();
+
+        assertEquals("Only one load should reach the backend", 1, loads.get());
+        assertEquals("Loaded", cache.get(new CacheEntity("1", ""), false).getData());
+    }
+
+    /**
+     * Tests that a loader failure is propagated to the caller and nothing is cached.
+     */
+    @Test
+    public void testLoaderFailureIsPropagated() {
+        try {
+            cache.get("1", id -> {
+                throw new IllegalStateException("backend down");
+            });
+            fail("Expected the loader failure to propagate");
+        } catch (IllegalStateException e) {
+            assertEquals("backend down", e.getMessage());
+        }
+        assertEquals(0, cache.cacheSize());
+        assertEquals("Recovered", cache.get("1", id -> new CacheEntity(id, "Recovered")).getData());
+    }
+
+    /**
+     * Tests that getAsync loads on a miss, caches the result and completes exceptionally on failure.
+     */
+    @Test
+    public void testGetAsync() throws Exception {
+        CompletableFuture<CacheEntity> loaded = cache.getAsync("1", id -> new CacheEntity(id, "Async"));
+        assertEquals("Async", loaded.get(5, TimeUnit.SECONDS).getData());
+        assertEquals("Async", cache.get(new CacheEntity("1", ""), false).getData());
+
+        CompletableFuture<CacheEntity> failed = cache.getAsync("2", id -> {
+            throw new IllegalStateException("backend down");
+        });
+        try {
+            failed.get(5, TimeUnit.SECONDS);
+            fail("Expected the future to complete exceptionally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    /**
+     * Tests that many concurrent slow misses through getAsync(CacheEntity, boolean) wait on the load executor rather
+     * than on the caller, and all wait at once instead of one pool thread at a time.
+     */
+    @Test
+    public void testGetAsyncFromDatabaseDoesNotBlockCaller() throws Exception {
+        int misses = 500;
+        CountDownLatch waiting = new CountDownLatch(misses);
+        CountDownLatch release = new CountDownLatch(1);
+        MockDatabaseDao slowDatabase = new MockDatabaseDao() {
+            @Override
+            public CacheEntity get(String id) {
+                waiting.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.get(id);
+            }
+        };
+        ExecutorService loadExecutor = Executors.newCachedThreadPool();
+        CachingService slowCache = CachingService.builder()
+                .maxSize(1_000)
+                .database(slowDatabase)
+                .loadExecutor(loadExecutor)
+                .build();
+        for (int i = 0; i < misses; i++) {
+            slowDatabase.save(new CacheEntity(Integer.toString(i), "V" + i));
+        }
+
+        List<CompletableFuture<CacheEntity>> futures = new ArrayList<>();
+        for (int i = 0; i < misses; i++) {
+            futures.add(slowCache.getAsync(new CacheEntity(Integer.toString(i), null), true));
+        }
+        assertTrue(waiting.await(5, TimeUnit.SECONDS));
+        for (CompletableFuture<CacheEntity> future : futures) {
+            assertFalse(future.isDone());
+        }
+        release.countDown();
+        for (int i = 0; i < misses; i++) {
+            assertEquals("V" + i, futures.get(i).get(5, TimeUnit.SECONDS).getData());
+        }
+        assertEquals("V1", slowCache.getAsync(new CacheEntity("1", null), false).get().getData());
+        assertNull(slowCache.getAsync(new CacheEntity("missing", null), false).get());
+        slowCache.close();
+        loadExecutor.shutdown();
+    }
+
+    /**
+     * Tests that a write during a load wins over the value the load returns.
+     */
+    @Test
+    public void testWriteDuringLoadIsNotOverwritten() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<CacheEntity> load = CompletableFuture.supplyAsync(() -> cache.get("1", id -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new CacheEntity(id, "Stale");
+        }));
+        assertTrue(loading.await(5, TimeUnit.SECONDS));
+        cache.add(new CacheEntity("1", "Fresh"));
+        release.countDown();
+        load.get(5, TimeUnit.SECONDS);
+
+        assertEquals("Fresh", cache.get(new CacheEntity("1", ""), false).getData());
+    }
+
+    /**
+     * Tests that an entity added with a TTL disappears from the cache once it expires but can be reloaded from the DB.
+     */
+    @Test
+    public void testAddWithTtl() throws Exception {
+        cache.add(new CacheEntity("1", "Short"), Duration.ofMillis(1));
+        cache.add(new CacheEntity("2", "Long"), Duration.ofHours(1));
+
+        Thread.sleep(20);
+        assertNull(cache.get(new CacheEntity("1", ""), false));
+        assertEquals("Long", cache.get(new CacheEntity("2", ""), false).getData());
+        assertEquals("Short", cache.get(new CacheEntity("1", ""), true).getData());
+    }
+
+    /**
+     * Tests that a read of an entry past its refresh threshold returns the current value at once
+     * and that a single background reload replaces it.
+     */
+    @Test
+    public void testRefreshAfterWrite() throws Exception {
+        CachingService refreshing = CachingService.builder()
+                .maxSize(10)
+                .refreshAfterWrite(Duration.ofMillis(1))
+                .build();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        refreshing.add(new CacheEntity("1", "Old"));
+        Thread.sleep(10);
+
+        for (int i = 0; i < 10; i++) {
+            // Served from the cache while the refresh is blocked
+            assertEquals("Old", refreshing.get("1", id -> {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new CacheEntity(id, "New");
+            }).getData());
+        }
+        release.countDown();
+
+        // Polling must not refresh from the DB, which still holds the old value
+        Function<String, CacheEntity> reloader = id -> new CacheEntity(id, "New");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!"New".equals(refreshing.get("1", reloader).getData()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals("New", refreshing.get("1", reloader).getData());
+        assertEquals("Concurrent stale reads should share one refresh", 1, loads.get());
+        refreshing.close();
+    }
+
+    /**
+     * Tests that with value compression large entities are stored compressed in the cache and the database, read back
+     * unchanged, and weigh their compressed size.
+     */
+    @Test
+    public void testCompressValues() {
+        MockDatabaseDao database = new MockDatabaseDao();
+        CachingService compressing = CachingService.builder()
+                .maxWeight(100_000)
+                .compressValues(256)
+                .database(database)
+                .build();
+        String text = "lorem ipsum dolor sit amet ".repeat(1_000);
+        compressing.add(new CacheEntity("1", text));
+        compressing.add(new CacheEntity("2", "small"));
+
+        assertTrue(database.get("1").isCompressed());
+        assertFalse(database.get("2").isCompressed());
+        assertEquals(text, compressing.get(new CacheEntity("1", null), false).getData());
+        assertTrue(compressing.cacheWeight() < text.length() / 10);
+
+        compressing.clear();
+        assertEquals(text, compressing.get(new CacheEntity("1", null), true).getData());
+        assertEquals(1, compressing.getCompressionStats().getCompressions());
+        assertEquals(2, compressing.getCompressionStats().getDecompressions());
+        assertFalse(new CachingService(2).getCompressionStats().isEnabled());
+    }
+
+    /**
+     * Tests that a service bounded by weight evicts by estimated bytes and reports its weight.
+     */
+    @Test
+    public void testMaxWeight() {
+        long entryWeight = new CacheEntityWeigher().weigh("1", new CacheEntity("1", "x".repeat(100)));
+        CachingService weighted = CachingService.builder().maxWeight(3 * entryWeight).build();
+        weighted.add(new CacheEntity("1", "x".repeat(100)));
+        weighted.add(new CacheEntity("2", "x".repeat(100)));
+        assertEquals(2 * entryWeight, weighted.cacheWeight());
+
+        weighted.add(new CacheEntity("3", "x".repeat(1_000)));
+        assertTrue(weighted.cacheWeight() <= 3 * entryWeight);
+        assertEquals(3, weighted.dbSize());
+    }
+
+    /**
+     * Tests that putAll writes a batch through to the database and that removeAll drops a batch from both.
+     */
+    @Test
+    public void testPutAllAndRemoveAll() {
+        CachingService batch = new CachingService(10);
+        batch.putAll(List.of(new CacheEntity("1", "A"), new CacheEntity("2", "B"), new CacheEntity("3", "C")));
+        assertEquals(3, batch.cacheSize());
+        assertEquals(3, batch.dbSize());
+
+        batch.removeAll(List.of("1", "3"));
+        assertEquals(1, batch.cacheSize());
+        assertEquals(1, batch.dbSize());
+        assertEquals("B", batch.get(new CacheEntity("2", null), false).getData());
+    }
+
+    /**
+     * Tests that getAll serves hits from the cache and loads every miss with one batched database call, in request order.
+     */
+    @Test
+    public void testGetAllLoadsMissesInOneBatch() {
+        AtomicInteger batchLoads = new AtomicInteger();
+        AtomicInteger singleLoads = new AtomicInteger();
+        MockDatabaseDao database = new MockDatabaseDao() {
+            @Override
+            public Map<String, CacheEntity> getAll(Collection<String> ids) {
+                batchLoads.incrementAndGet();
+                return super.getAll(ids);
+            }
+
+            @Override
+            public CacheEntity get(String id) {
+                singleLoads.incrementAndGet();
+                return super.get(id);
+            }
+        };
+        CachingService batch = CachingService.builder().maxSize(10).database(database).build();
+        batch.putAll(List.of(new CacheEntity("1", "A"), new CacheEntity("2", "B"), new CacheEntity("3", "C")));
+        batch.clear();
+        batch.add(new CacheEntity("4", "D"));
+
+        Map<String, CacheEntity> found = batch.getAll(List.of("3", "4", "missing", "1", "3"), true);
+        assertEquals(List.of("3", "4", "1"), new ArrayList<>(found.keySet()));
+        assertEquals(1, batchLoads.get());
+        assertEquals(0, singleLoads.get());
+        assertEquals(3, batch.cacheSize());
+
+        assertEquals(List.of("4"), new ArrayList<>(batch.getAll(List.of("4", "2"), false).keySet()));
+    }
+
+    /**
+     * Tests that a database miss is remembered, so reading the ID again does not reach the database, and that adding
+     * the ID forgets it.
+     */
+    @Test
+    public void testNegativeCaching() {
+        AtomicInteger loads = new AtomicInteger();
+        MockDatabaseDao database = new MockDatabaseDao() {
+            @Override
+            public CacheEntity get(String id) {
+                loads.incrementAndGet();
+                return super.get(id);
+            }
+
+            @Override
+            public Map<String, CacheEntity> getAll(Collection<String> ids) {
+                loads.addAndGet(ids.size());
+                return super.getAll(ids);
+            }
+        };
+        CachingService negative = CachingService.builder().maxSize(10).database(database)
+                .negativeCaching(100, Duration.ofMinutes(1)).build();
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(negative.get(new CacheEntity("missing", null), true));
+        }
+        assertNull(negative.getAsync(new CacheEntity("missing", null), true).join());
+        assertTrue(negative.getAll(List.of("missing"), true).isEmpty());
+        assertEquals(1, loads.get());
+        assertEquals(1, negative.negativeCacheSize());
+        assertEquals(0, negative.cacheSize());
+        assertEquals(6, negative.getStats().getNegativeHits());
+
+        negative.add(new CacheEntity("missing", "Found"));
+        assertEquals(0, negative.negativeCacheSize());
+        negative.clear();
+        assertEquals("Found", negative.get(new CacheEntity("missing", null), true).getData());
+        assertEquals(2, loads.get());
+    }
+
+    /**
+     * Tests that remembered misses expire after their own time to live and are bounded by their own capacity.
+     */
+    @Test
+    public void testNegativeCachingIsBounded() throws Exception {
+        CachingService negative = CachingService.builder().maxSize(10)
+                .negativeCaching(3, Duration.ofMillis(50)).build();
+        negative.add(new CacheEntity("present", "A"));
+        for (int i = 0; i < 10; i++) {
+            assertNull(negative.get(new CacheEntity("missing-" + i, null), true));
+        }
+        assertEquals(3, negative.negativeCacheSize());
+        assertEquals(1, negative.cacheSize());
+
+        Thread.sleep(100);
+        assertNull(negative.get(new CacheEntity("missing-9", null), true));
+        assertEquals(0, negative.getStats().getNegativeHits());
+    }
+
+    /**
+     * Tests that auto-sizing shrinks an oversized cache to the smallest size its miss ratio curve says still reaches
+     * the target hit rate, keeping the entities being read.
+     */
+    @Test
+    public void testAutoSize() {
+        CachingService sized = CachingService.builder().maxSize(1_000)
+                .missRatioCurve(1.0, 4_096)
+                .autoSize(0.8, 10, Duration.ofHours(1))
+                .build();
+        for (int i = 0; i < 1_000; i++) {
+            sized.add(new CacheEntity("key-" + i, "value-" + i));
+        }
+        // 50 keys read over and over: a cache of 64 entries, the curve's first point past 50, hits nearly every read
+        for (int round = 0; round < 40; round++) {
+            for (int i = 0; i < 50; i++) {
+                assertNotNull(sized.get(new CacheEntity("key-" + i, null), false));
+            }
+        }
+        sized.autoSize();
+
+        assertEquals(64, sized.cacheMaximum());
+        assertEquals(64, sized.cacheSize());
+        assertEquals(64, sized.getMissRatioCurve().getAutoSizeTarget());
+        assertTrue(sized.getMissRatioCurve().missRatioAt(64) < 0.2);
+        for (int i = 0; i < 50; i++) {
+            assertNotNull(sized.get(new CacheEntity("key-" + i, null), false));
+        }
+        sized.close();
+    }
 }
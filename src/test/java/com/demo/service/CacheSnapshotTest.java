@@ -0,0 +1,103 @@
+package com.demo.service;
+
+import com.demo.dao.MockDatabaseDao;
+import com.demo.model.CacheEntity;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheSnapshot class and the warm restart of CachingService.
+ */
+public class CacheSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that entries, including null and non-ASCII data, survive a round trip through the file format.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("cache.snapshot");
+        String large = "é中".repeat(100);
+        CacheSnapshot.write(file, List.of(new CacheEntity("1", "A"), new CacheEntity("2", null),
+                new CacheEntity("3", large)), true);
+
+        try (CacheSnapshot.Reader reader = CacheSnapshot.open(file)) {
+            assertTrue(reader.includesValues());
+            assertEquals(3, reader.count());
+            assertEquals("A", reader.next().getData());
+            assertNull(reader.next().getData());
+            assertEquals(large, reader.next().getData());
+            assertNull(reader.next());
+        }
+    }
+
+    /**
+     * Tests that a snapshot with values restores the cache without the database and keeps its eviction order.
+     */
+    @Test
+    public void testWarmUpWithValuesKeepsEvictionOrder() {
+        Path file = folder.getRoot().toPath().resolve("cache.snapshot");
+        CachingService original = new CachingService(3);
+        original.add(new CacheEntity("1", "A"));
+        original.add(new CacheEntity("2", "B"));
+        original.add(new CacheEntity("3", "C"));
+        original.get(new CacheEntity("1", null), false);
+        assertEquals(3, original.saveSnapshot(file, true));
+
+        CachingService restarted = new CachingService(3);
+        assertEquals(3, restarted.warmUp(file));
+        assertEquals(0, restarted.dbSize());
+        assertEquals("A", restarted.get(new CacheEntity("1", null), false).getData());
+
+        // "2" was the least recently used entry when the snapshot was taken
+        restarted.add(new CacheEntity("4", "D"));
+        assertNull(restarted.get(new CacheEntity("2", null), false));
+        assertEquals("C", restarted.get(new CacheEntity("3", null), false).getData());
+    }
+
+    /**
+     * Tests that a key-only snapshot saved on close is loaded from the database at startup, in chunks,
+     * skipping IDs the database no longer has.
+     */
+    @Test
+    public void testKeyOnlySnapshotWarmsUpFromDatabase() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("cache.snapshot");
+        MockDatabaseDao database = new MockDatabaseDao();
+        CachingService original = CachingService.builder().maxSize(1_000).database(database).snapshot(file, false).build();
+        for (int i = 0; i < 600; i++) {
+            original.add(new CacheEntity(String.valueOf(i), "value" + i));
+        }
+        original.close();
+        assertTrue(Files.exists(file));
+        database.remove("0");
+        database.save(new CacheEntity("1", "changed"));
+
+        CachingService restarted = CachingService.builder().maxSize(1_000).database(database).snapshot(file, false).build();
+        assertEquals(Integer.valueOf(599), restarted.getWarmUp().get(10, TimeUnit.SECONDS));
+        assertEquals(599, restarted.cacheSize());
+        assertEquals("changed", restarted.get(new CacheEntity("1", null), false).getData());
+        assertEquals("value599", restarted.get(new CacheEntity("599", null), false).getData());
+        restarted.close();
+    }
+
+    /**
+     * Tests that warming up from a missing file is a no-op.
+     */
+    @Test
+    public void testWarmUpWithoutSnapshot() throws Exception {
+        CachingService service = CachingService.builder().maxSize(10)
+                .snapshot(folder.getRoot().toPath().resolve("missing.snapshot"), true).build();
+        assertEquals(Integer.valueOf(0), service.getWarmUp().get(10, TimeUnit.SECONDS));
+        assertEquals(0, service.cacheSize());
+    }
+}
@@ -0,0 +1,178 @@
+package com.demo.service;
+
+import com.demo.dao.MockDatabaseDao;
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheStats;
+import com.demo.model.LatencyStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the statistics recorded by CachingService, its LatencyHistogram and its Micrometer meters.
+ */
+public class CacheStatsTest {
+
+    /**
+     * Tests that every value maps to a bucket whose upper bound is within about 3% above it.
+     */
+    @Test
+    public void testHistogramBucketPrecision() {
+        for (long value = 0; value < 1_000_000; value = value * 2 + 1) {
+            for (long v = value; v < value + 100; v++) {
+                long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(v));
+                assertTrue(highest >= v);
+                assertTrue(highest - v <= v / 32);
+            }
+        }
+        assertEquals(LatencyHistogram.indexOf(Long.MAX_VALUE), LatencyHistogram.indexOf(1L << 50));
+    }
+
+    /**
+     * Tests that percentiles of a uniform distribution come out close to their true values.
+     */
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+        LatencyStats stats = histogram.snapshot();
+        assertEquals(10_000, stats.getCount());
+        assertEquals(5_000_500, stats.getMeanNanos());
+        assertEquals(5_000_000, stats.getP50Nanos(), 5_000_000 * 0.04);
+        assertEquals(9_900_000, stats.getP99Nanos(), 9_900_000 * 0.04);
+        assertEquals(10_000_000, stats.getMaxNanos());
+        assertTrue(stats.getP999Nanos() <= stats.getMaxNanos());
+        assertSame(LatencyStats.EMPTY, new LatencyHistogram().snapshot());
+    }
+
+    /**
+     * Tests that reads, loads and evictions through the service are counted.
+     */
+    @Test
+    public void testServiceRecordsStats() {
+        CachingService cache = new CachingService(2);
+        cache.add(new CacheEntity("1", "A"));
+        cache.add(new CacheEntity("2", "B"));
+        cache.add(new CacheEntity("3", "C"));
+
+        cache.get(new CacheEntity("3", null), false);
+        cache.get(new CacheEntity("1", null), false);
+        cache.get(new CacheEntity("1", null), true);
+        CacheStats stats = cache.getStats();
+
+        assertTrue(stats.isEnabled());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+        assertEquals(1.0 / 3, stats.getHitRate(), 1e-9);
+        assertEquals(1, stats.getLoads());
+        assertEquals(0, stats.getLoadFailures());
+        assertEquals(2, stats.getEvictions());
+        assertEquals(3, stats.getGetLatency().getCount());
+        assertEquals(3, stats.getAddLatency().getCount());
+        assertEquals(1, stats.getLoadLatency().getCount());
+    }
+
+    /**
+     * Tests that asynchronous reads record their latency once they complete, whether they hit, load or fail.
+     */
+    @Test
+    public void testAsyncReadsRecordLatency() {
+        CachingService cache = new CachingService(2);
+        cache.add(new CacheEntity("1", "A"));
+        assertEquals("A", cache.getAsync(new CacheEntity("1", null), false).join().getData());
+        assertEquals("B", cache.getAsync("2", id -> new CacheEntity(id, "B")).join().getData());
+        CompletableFuture<CacheEntity> failed = cache.getAsync("3", id -> {
+            throw new IllegalStateException("loader failed");
+        });
+        try {
+            failed.join();
+            fail("Expected CompletionException");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(3, cache.getStats().getGetLatency().getCount());
+    }
+
+    /**
+     * Tests that a loader that throws is counted as a failed load.
+     */
+    @Test
+    public void testLoadFailureRecorded() {
+        CachingService cache = CachingService.builder().maxSize(2).database(new MockDatabaseDao() {
+            @Override
+            public CacheEntity get(String id) {
+                throw new IllegalStateException("database down");
+            }
+        }).build();
+        try {
+            cache.get(new CacheEntity("1", null), true);
+            fail("Expected the database failure to propagate");
+        } catch (IllegalStateException e) {
+            assertEquals("database down", e.getMessage());
+        }
+
+        CacheStats stats = cache.getStats();
+        assertEquals(1, stats.getLoads());
+        assertEquals(1, stats.getLoadFailures());
+    }
+
+    /**
+     * Tests that with a victim tier, cache-only misses and fills are not counted as loads, while a database load still is.
+     */
+    @Test
+    public void testCacheOnlyMissesAndFillsAreNotLoads() {
+        CachingService cache = CachingService.builder().maxSize(2).offHeap(1 << 20).build();
+        assertNull(cache.get(new CacheEntity("1", null), false));
+        assertNull(cache.getAsync(new CacheEntity("2", null), false).join());
+        assertTrue(cache.getAll(Arrays.asList("3", "4"), false).isEmpty());
+        assertEquals(1, cache.fill(Collections.singletonList(new CacheEntity("5", "E"))));
+        assertEquals(0, cache.getStats().getLoads());
+
+        cache.get(new CacheEntity("6", null), true);
+        assertEquals(1, cache.getStats().getLoads());
+    }
+
+    /**
+     * Tests that with recording turned off the service reports the disabled statistics.
+     */
+    @Test
+    public void testDisabled() {
+        CachingService cache = CachingService.builder().maxSize(2).recordStats(false).build();
+        cache.add(new CacheEntity("1", "A"));
+        cache.get(new CacheEntity("1", null), false);
+
+        assertSame(CacheStats.DISABLED, cache.getStats());
+        assertFalse(cache.getStats().isEnabled());
+    }
+
+    /**
+     * Tests that the statistics are published as Micrometer meters tagged with the cache name, and that the results
+     * of cache.gets add up to the number of reads.
+     */
+    @Test
+    public void testMicrometerMeters() {
+        CachingService cache = new CachingService(2);
+        cache.add(new CacheEntity("1", "A"));
+        cache.get(new CacheEntity("1", null), false);
+        cache.get(new CacheEntity("2", null), false);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new CacheMetrics(cache, "test").bindTo(registry);
+
+        assertEquals(1.0, registry.get("cache.gets").tags("cache", "test", "result", "hit").functionCounter().count(), 0);
+        assertEquals(1.0, registry.get("cache.gets").tags("result", "miss").functionCounter().count(), 0);
+        assertEquals(2.0, registry.get("cache.gets").functionCounters().stream().mapToDouble(FunctionCounter::count).sum(), 0);
+        assertEquals(0.0, registry.get("cache.negative.hits").functionCounter().count(), 0);
+        assertEquals(1.0, registry.get("cache.size").gauge().value(), 0);
+        assertTrue(registry.get("cache.latency").tags("operation", "get", "percentile", "1.0").gauge().value() > 0);
+    }
+}
@@ -0,0 +1,185 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.FootprintStats;
+import com.demo.service.engine.Ticker;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CompactStore class and the compact tier of CachingService.
+ */
+public class CompactStoreTest {
+
+    /**
+     * Tests that entities with non-ASCII, empty or null data keep their data and version through a round trip.
+     */
+    @Test
+    public void testRoundTrip() {
+        CompactStore store = new CompactStore(64 * 1024, 2, Ticker.system());
+        String large = "é中".repeat(500);
+        assertTrue(store.put(new CacheEntity("1", large, 7), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("2", null), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("3", ""), Long.MAX_VALUE));
+        assertEquals(3, store.size());
+
+        CacheEntity taken = store.take("1").entity;
+        assertEquals(large, taken.getData());
+        assertEquals(7, taken.getVersion());
+        assertNull(store.take("2").entity.getData());
+        assertEquals("", store.take("3").entity.getData());
+        assertNull(store.take("1"));
+        assertEquals(0, store.footprint().getPayloadBytes());
+    }
+
+    /**
+     * Tests that many entities survive the table and arena growing, and that removing some of them, which shifts
+     * others back along their probe sequence, leaves the rest reachable.
+     */
+    @Test
+    public void testGrowthAndRemoval() {
+        CompactStore store = new CompactStore(1 << 24, 4, Ticker.system());
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(store.put(new CacheEntity("key-" + i, "value-" + i, i), Long.MAX_VALUE));
+        }
+        for (int i = 0; i < 50_000; i += 3) {
+            store.remove("key-" + i);
+        }
+        assertEquals(50_000 - 16_667, store.size());
+        for (int i = 0; i < 50_000; i++) {
+            VictimTier.Taken taken = store.take("key-" + i);
+            if (i % 3 == 0) {
+                assertNull(taken);
+            } else {
+                assertEquals("value-" + i, taken.entity.getData());
+                assertEquals(i, taken.entity.getVersion());
+            }
+        }
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * Tests that a full store drops its oldest entries, replaces an entry stored again under the same ID, reuses the
+     * space of removed entries and rejects an entry larger than a segment.
+     */
+    @Test
+    public void testFullStoreDropsOldest() {
+        // One segment of 100 bytes: each entry below takes 10
+        CompactStore store = new CompactStore(100, 1, Ticker.system());
+        for (int i = 0; i < 10; i++) {
+            assertTrue(store.put(new CacheEntity("key-" + i, "val-" + i), Long.MAX_VALUE));
+        }
+        assertTrue(store.put(new CacheEntity("key-0", "new-0"), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("key-a", "val-a"), Long.MAX_VALUE));
+        assertEquals(10, store.size());
+        assertNull("The oldest entry should have been dropped", store.take("key-1"));
+        assertEquals("new-0", store.take("key-0").entity.getData());
+        assertEquals("val-a", store.take("key-a").entity.getData());
+
+        // Fits in the space the entries taken left
+        assertTrue(store.put(new CacheEntity("key-b", "val-b"), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("key-c", "val-c"), Long.MAX_VALUE));
+        assertEquals(10, store.size());
+        assertEquals("val-2", store.take("key-2").entity.getData());
+        assertFalse(store.put(new CacheEntity("big", "x".repeat(200)), Long.MAX_VALUE));
+        assertEquals(9, store.size());
+
+        store.clear();
+        assertEquals(0, store.size());
+    }
+
+    /**
+     * Tests that an entry is dropped once its deadline passes and that a taken entry keeps only the time it had left.
+     */
+    @Test
+    public void testExpiredEntryIsDropped() {
+        AtomicLong now = new AtomicLong();
+        CompactStore store = new CompactStore(64 * 1024, 2, now::get);
+        assertTrue(store.put(new CacheEntity("1", "A"), 100));
+        assertTrue(store.put(new CacheEntity("2", "B"), 100));
+        assertTrue(store.put(new CacheEntity("3", "C"), Long.MAX_VALUE));
+        now.set(40);
+        assertEquals(60, store.take("1").timeToLiveNanos);
+
+        now.set(100);
+        assertNull("An expired entry must not be promoted", store.take("2"));
+        assertEquals(1, store.size());
+        assertEquals(0, store.take("3").timeToLiveNanos);
+        assertEquals(0, store.footprint().getPayloadBytes());
+    }
+
+    /**
+     * Tests that the footprint is measured from the arrays and is a fraction of the heap cache's per entry.
+     */
+    @Test
+    public void testFootprint() {
+        CompactStore store = new CompactStore(1 << 24, 1, Ticker.system());
+        for (int i = 0; i < 1_000; i++) {
+            store.put(new CacheEntity(String.format("key-%04d", i), "v"), Long.MAX_VALUE);
+        }
+        FootprintStats.Tier tier = store.footprint();
+        assertEquals("compact", tier.getName());
+        assertFalse(tier.isEstimated());
+        assertEquals(1_000, tier.getEntries());
+        assertEquals(9_000, tier.getPayloadBytes());
+        // 1,024 entries' worth of arrays and an arena grown to 16KB
+        assertEquals(1_024 * CompactStore.ENTRY_BYTES + 16_384 + 10 * 16, tier.getBytes());
+        assertTrue(tier.getOverheadPerEntry() < CacheEntityWeigher.ENTRY_OVERHEAD);
+    }
+
+    /**
+     * Tests that the service demotes evicted entities to the compact tier, promotes them on read, never resurrects
+     * removed ones, and reports the footprint of both tiers.
+     */
+    @Test
+    public void testCachingServiceCompactTier() {
+        CachingService service = CachingService.builder().maxSize(2).compactTier(1 << 20).build();
+        for (int i = 1; i <= 4; i++) {
+            service.add(new CacheEntity(String.valueOf(i), "value-" + i));
+        }
+        assertEquals(2, service.cacheSize());
+        List<FootprintStats.Tier> tiers = service.getFootprint().getTiers();
+        assertEquals("heap", tiers.get(0).getName());
+        assertEquals(2, tiers.get(0).getEntries());
+        assertEquals(14, tiers.get(0).getObjects());
+        assertEquals(2, tiers.get(1).getEntries());
+        assertEquals(2 * 8, tiers.get(1).getPayloadBytes());
+
+        assertEquals("value-1", service.get(new CacheEntity("1", ""), false).getData());
+        service.remove(new CacheEntity("2", ""));
+        assertNull(service.get(new CacheEntity("2", ""), false));
+        service.add(new CacheEntity("3", "new"));
+        assertEquals("new", service.get(new CacheEntity("3", ""), false).getData());
+
+        service.clear();
+        assertEquals(0, service.getFootprint().getTiers().get(1).getEntries());
+        service.close();
+    }
+
+    /**
+     * Tests that an entity evicted before its time to live ran out is not read back from the compact tier after it.
+     */
+    @Test
+    public void testCachingServiceCompactTierHonoursTtl() throws InterruptedException {
+        CachingService service = CachingService.builder().maxSize(1).compactTier(1 << 20).build();
+        service.add(new CacheEntity("k", "stale"), Duration.ofMillis(100));
+        service.add(new CacheEntity("a", "A"));
+        service.add(new CacheEntity("b", "B"));
+        Thread.sleep(300);
+        assertNull(service.get(new CacheEntity("k", null), false));
+        service.close();
+    }
+
+    /**
+     * Tests that only one tier can hold the entities evicted from the heap.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testCompactAndOffHeapTiersExclude() {
+        CachingService.builder().maxSize(2).compactTier(1 << 20).offHeap(1 << 20).build();
+    }
+}
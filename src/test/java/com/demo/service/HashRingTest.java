@@ -0,0 +1,67 @@
+package com.demo.service;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the HashRing class.
+ */
+public class HashRingTest {
+
+    /**
+     * Tests that virtual nodes give every node a share of the keys close to an even split.
+     */
+    @Test
+    public void testKeysAreSpreadEvenly() {
+        HashRing ring = new HashRing(Arrays.asList("a", "b", "c"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        int keys = 60_000;
+        for (int i = 0; i < keys; i++) {
+            counts.merge(ring.nodeFor("key-" + i), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertEquals(keys / 3.0, count, keys / 3.0 * 0.2);
+        }
+    }
+
+    /**
+     * Tests that adding a node only moves keys to that node, about its fair share of them, and that removing it
+     * again moves exactly those keys back.
+     */
+    @Test
+    public void testMembershipChangeMovesFewKeys() {
+        HashRing three = new HashRing(Arrays.asList("a", "b", "c"), 128);
+        HashRing four = new HashRing(Arrays.asList("a", "b", "c", "d"), 128);
+        int keys = 40_000;
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String key = "key-" + i;
+            String before = three.nodeFor(key);
+            String after = four.nodeFor(key);
+            if (!before.equals(after)) {
+                assertEquals("d", after);
+                moved++;
+            }
+        }
+        assertEquals(keys / 4.0, moved, keys / 4.0 * 0.2);
+    }
+
+    /**
+     * Tests that every node computes the same ring whatever the order it was given the names in.
+     */
+    @Test
+    public void testOrderIndependence() {
+        HashRing ring = new HashRing(Arrays.asList("a", "b", "c"), 16);
+        HashRing reordered = new HashRing(Arrays.asList("c", "a", "b"), 16);
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(ring.nodeFor("key-" + i), reordered.nodeFor("key-" + i));
+        }
+        assertEquals("a", new HashRing(Arrays.asList("a"), 1).nodeFor("anything"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.demo.service;
+
+import com.demo.model.HotKeyStats;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the HotKeyTracker class.
+ */
+public class HotKeyTrackerTest {
+
+    /**
+     * Tests that the hottest keys of a skewed stream are found with their counts, among far more distinct cold keys
+     * than there are counters, and that hits, misses and writes are told apart.
+     */
+    @Test
+    public void testTopKeysOfSkewedStream() {
+        HotKeyTracker tracker = new HotKeyTracker(64, 60_000_000_000L, () -> 0, 1, 0, null);
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 10 == 0) {
+                tracker.record("hot-" + (i / 10 % 5), (i % 20 == 0) ? HotKeyTracker.Access.HIT : HotKeyTracker.Access.MISS);
+            } else {
+                tracker.record("cold-" + i, HotKeyTracker.Access.WRITE);
+            }
+        }
+        HotKeyStats stats = tracker.snapshot(5);
+        assertTrue(stats.isEnabled());
+        assertEquals(60_000, stats.getWindowMillis());
+        Set<String> ids = new HashSet<>();
+        for (HotKeyStats.HotKey key : stats.getKeys()) {
+            ids.add(key.getId());
+            // Never an underestimate, and never more over than the error
+            assertTrue(key.getCount() >= 2_000);
+            assertTrue(key.getCount() - key.getError() <= 2_000);
+            assertTrue(key.getHits() + key.getMisses() <= 2_000);
+            assertTrue(key.getHits() > 0 && key.getMisses() > 0);
+            assertEquals(0, key.getWrites());
+        }
+        assertEquals(Set.of("hot-0", "hot-1", "hot-2", "hot-3", "hot-4"), ids);
+    }
+
+    /**
+     * Tests that a sampled tracker still finds the hottest keys of a skewed stream, with counts scaled back up to
+     * estimates of all the accesses.
+     */
+    @Test
+    public void testSampledCounts() {
+        HotKeyTracker tracker = new HotKeyTracker(64, 60_000_000_000L, () -> 0, 8, 0, null);
+        for (int i = 0; i < 400_000; i++) {
+            tracker.record((i % 10 == 0) ? "hot-" + (i / 10 % 5) : "cold-" + i, HotKeyTracker.Access.HIT);
+        }
+        HotKeyStats stats = tracker.snapshot(5);
+        assertEquals(8, stats.getSampleOneIn());
+        Set<String> ids = new HashSet<>();
+        for (HotKeyStats.HotKey key : stats.getKeys()) {
+            ids.add(key.getId());
+            // 8,000 accesses each, of which about 1,000 are counted
+            assertEquals(0, key.getCount() % 8);
+            assertTrue(key.getCount() > 6_000);
+            assertTrue(key.getCount() - key.getError() < 10_000);
+        }
+        assertEquals(Set.of("hot-0", "hot-1", "hot-2", "hot-3", "hot-4"), ids);
+    }
+
+    /**
+     * Tests that accesses leave the window once its six parts have passed, and that the parts still in it are added up.
+     */
+    @Test
+    public void testWindowSlides() {
+        AtomicLong now = new AtomicLong();
+        HotKeyTracker tracker = new HotKeyTracker(16, 600, now::get, 1, 0, null);
+        tracker.record("a", HotKeyTracker.Access.HIT);
+        now.set(100);
+        tracker.record("a", HotKeyTracker.Access.HIT);
+        tracker.record("b", HotKeyTracker.Access.HIT);
+        assertEquals(2, tracker.snapshot(10).getKeys().get(0).getCount());
+
+        now.set(600);
+        List<HotKeyStats.HotKey> keys = tracker.snapshot(10).getKeys();
+        assertEquals(2, keys.size());
+        assertEquals(1, keys.get(0).getCount());
+
+        now.set(10_000);
+        assertTrue(tracker.snapshot(10).getKeys().isEmpty());
+    }
+
+    /**
+     * Tests that the hottest keys are reported for pinning at the start of each part, leaving out keys accessed once.
+     */
+    @Test
+    public void testPinnedKeys() {
+        AtomicLong now = new AtomicLong();
+        AtomicReference<Set<String>> pinned = new AtomicReference<>();
+        HotKeyTracker tracker = new HotKeyTracker(16, 600, now::get, 1, 2, pinned::set);
+        for (int i = 0; i < 10; i++) {
+            tracker.record("a", HotKeyTracker.Access.HIT);
+            tracker.record((i < 5) ? "b" : "c", HotKeyTracker.Access.HIT);
+        }
+        tracker.record("d", HotKeyTracker.Access.HIT);
+        assertNull(pinned.get());
+        now.set(100);
+        tracker.record("d", HotKeyTracker.Access.HIT);
+        assertEquals(2, pinned.get().size());
+        assertTrue(pinned.get().contains("a"));
+        assertEquals(pinned.get(), tracker.pinned());
+        assertFalse(pinned.get().contains("d"));
+        assertTrue(tracker.snapshot(1).getKeys().get(0).isPinned());
+    }
+}
@@ -0,0 +1,147 @@
+package com.demo.service;
+
+import com.demo.dao.MockDatabaseDao;
+import com.demo.model.CacheEntity;
+import com.demo.model.InvalidationStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the invalidation bus of CachingService, with two instances sharing a database over a loopback transport.
+ */
+public class InvalidationBusTest {
+    private final MockDatabaseDao database = new MockDatabaseDao();
+    private final LoopbackInvalidationTransport.Hub hub = new LoopbackInvalidationTransport.Hub();
+    private CachingService a;
+    private CachingService b;
+    // Sends crafted invalidations to both instances
+    private LoopbackInvalidationTransport injector;
+
+    /**
+     * Builds the two instances and the injector.
+     */
+    @Before
+    public void setup() {
+        a = instance();
+        b = instance();
+        injector = hub.transport();
+        injector.start(batch -> { });
+    }
+
+    /**
+     * Closes the instances.
+     */
+    @After
+    public void tearDown() {
+        a.close();
+        b.close();
+        injector.close();
+    }
+
+    /**
+     * Tests that a write on one instance drops the other's copy, which then reads the new value from the database.
+     */
+    @Test
+    public void testWriteInvalidatesPeers() throws InterruptedException {
+        a.add(new CacheEntity("1", "A"));
+        assertEquals("A", b.get(new CacheEntity("1", null), true).getData());
+
+        a.add(new CacheEntity("1", "B"));
+        awaitTrue(() -> b.get(new CacheEntity("1", null), false) == null);
+        assertEquals("B", b.get(new CacheEntity("1", null), true).getData());
+        assertEquals("B", a.get(new CacheEntity("1", null), false).getData());
+
+        a.remove(new CacheEntity("1", null));
+        awaitTrue(() -> b.get(new CacheEntity("1", null), false) == null);
+        assertTrue(a.get(new CacheEntity("1", null), false) == null);
+    }
+
+    /**
+     * Tests that repeated writes to an ID are coalesced into few invalidations, and that batches and removal of
+     * everything are propagated.
+     */
+    @Test
+    public void testCoalescingAndBatches() throws InterruptedException {
+        for (int i = 0; i < 1_000; i++) {
+            a.add(new CacheEntity("hot", Integer.toString(i)));
+        }
+        a.putAll(Arrays.asList(new CacheEntity("2", "B"), new CacheEntity("3", "C")));
+        b.get(new CacheEntity("2", null), true);
+        b.get(new CacheEntity("3", null), true);
+        a.removeAll(Collections.singletonList("2"));
+        awaitTrue(() -> b.get(new CacheEntity("2", null), false) == null);
+        assertEquals("C", b.get(new CacheEntity("3", null), false).getData());
+
+        a.removeAll();
+        awaitTrue(() -> b.cacheSize() == 0);
+        InvalidationStats stats = a.getInvalidationStats();
+        assertTrue(stats.isEnabled());
+        assertEquals(1_000 + 2 + 1 + 1, stats.getPublished());
+        assertTrue(stats.getSent() < 100);
+        assertEquals(stats.getSent(), b.getInvalidationStats().getReceived());
+    }
+
+    /**
+     * Tests that an invalidation older than the cached copy is ignored, so messages arriving out of order never drop
+     * a newer write.
+     */
+    @Test
+    public void testOlderInvalidationIsIgnored() {
+        b.add(new CacheEntity("1", "A"));
+        long older = b.get(new CacheEntity("1", null), false).getVersion() - 1;
+        injector.send(Collections.singletonList(new Invalidation("1", older)));
+        assertEquals("A", b.get(new CacheEntity("1", null), false).getData());
+        assertEquals(1, b.getInvalidationStats().getStale());
+    }
+
+    /**
+     * Tests that a value older than an invalidation already received is returned but not cached, so a load that read
+     * the database before the write landed cannot bring the old value back.
+     */
+    @Test
+    public void testOlderLoadIsNotCached() {
+        database.save(new CacheEntity("1", "old", 1));
+        injector.send(Collections.singletonList(new Invalidation("1", Long.MAX_VALUE >>> 1)));
+        assertEquals("old", b.get(new CacheEntity("1", null), true).getData());
+        assertNull(b.get(new CacheEntity("1", null), false));
+
+        // A write made after the invalidation is newer, and cached
+        b.add(new CacheEntity("1", "new"));
+        assertEquals("new", b.get(new CacheEntity("1", null), false).getData());
+    }
+
+    /**
+     * Tests that an instance without a bus does not version its writes.
+     */
+    @Test
+    public void testDisabled() {
+        CachingService plain = new CachingService(10);
+        plain.add(new CacheEntity("1", "A"));
+        assertEquals(0, plain.get(new CacheEntity("1", null), false).getVersion());
+        assertFalse(plain.getInvalidationStats().isEnabled());
+    }
+
+    private CachingService instance() {
+        return CachingService.builder()
+                .maxSize(100)
+                .database(database)
+                .invalidationBus(hub.transport(), 100, Duration.ofMillis(5))
+                .build();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("Timed out", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.demo.service;
+
+import com.demo.model.MissRatioCurve;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the MissRatioCurveEstimator class.
+ */
+public class MissRatioCurveEstimatorTest {
+
+    /**
+     * Tests the exact curve of a loop over 1,000 keys with every key sampled: an LRU cache smaller than the loop
+     * misses every read, and one that holds it misses only the first read of each key.
+     */
+    @Test
+    public void testLoopWithoutSampling() {
+        MissRatioCurveEstimator estimator = new MissRatioCurveEstimator(1.0, 4_096);
+        for (int pass = 0; pass < 10; pass++) {
+            for (int i = 0; i < 1_000; i++) {
+                estimator.record("key-" + i);
+            }
+        }
+        MissRatioCurve curve = estimator.snapshot(100, -1);
+        assertTrue(curve.isEnabled());
+        assertEquals(10_000, curve.getSampledReads());
+        assertEquals(1_000, curve.getTrackedKeys());
+        assertEquals(1.0, curve.getSamplingRate(), 0);
+        assertEquals(1.0, curve.missRatioAt(900), 1e-9);
+        assertEquals(0.1, curve.missRatioAt(1_100), 1e-9);
+        assertEquals(100, curve.getMaximum());
+    }
+
+    /**
+     * Tests that with one key in a hundred sampled the curve of a hot set read among one-off keys is still close.
+     */
+    @Test
+    public void testSampledHotSet() {
+        MissRatioCurveEstimator estimator = new MissRatioCurveEstimator(0.01, 4_096);
+        // Every other read is of one of 20,000 hot keys, in a loop; the others are of keys never read again
+        for (int i = 0; i < 400_000; i++) {
+            estimator.record((i % 2 == 0) ? "hot-" + (i / 2 % 20_000) : "cold-" + i);
+        }
+        MissRatioCurve curve = estimator.snapshot(0, -1);
+        assertTrue(curve.getSampledReads() < 10_000);
+        // A hot key is read again after 20,000 hot and 20,000 cold keys
+        assertTrue(curve.missRatioAt(30_000) > 0.9);
+        assertEquals(0.55, curve.missRatioAt(50_000), 0.1);
+    }
+
+    /**
+     * Tests that the number of tracked keys stays bounded by lowering the sampling rate.
+     */
+    @Test
+    public void testTrackedKeysAreBounded() {
+        MissRatioCurveEstimator estimator = new MissRatioCurveEstimator(1.0, 100);
+        for (int i = 0; i < 100_000; i++) {
+            estimator.record("key-" + i);
+        }
+        MissRatioCurve curve = estimator.snapshot(0, -1);
+        assertTrue(curve.getTrackedKeys() <= 100);
+        assertTrue(curve.getSamplingRate() < 0.01);
+        assertEquals(1.0, curve.missRatioAt(1_000_000), 0);
+    }
+}
@@ -0,0 +1,212 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.CacheStats;
+import com.demo.model.HotKeyStats;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the near cache (L1) tier of CachingService, in both tiering modes.
+ */
+public class NearCacheTest {
+
+    /**
+     * Tests that in inclusive mode a key is promoted after the threshold of L2 hits, that L1 hits are counted
+     * separately, and that updates and removals through L2 are seen by L1.
+     */
+    @Test
+    public void testInclusivePromotionAndInvalidation() {
+        CachingService cache = CachingService.builder()
+                .maxSize(100)
+                .nearCache(16, TieringMode.INCLUSIVE, 2)
+                .build();
+        cache.add(new CacheEntity("1", "A"));
+        for (int i = 0; i < 5; i++) {
+            assertEquals("A", cache.get(new CacheEntity("1", null), false).getData());
+        }
+        CacheStats stats = cache.getStats();
+        assertEquals(5, stats.getHits());
+        assertEquals(2, stats.getL2Hits());
+        assertEquals(3, stats.getL1Hits());
+        assertEquals(1, cache.cacheSize());
+
+        cache.add(new CacheEntity("1", "B"));
+        assertEquals("B", cache.get(new CacheEntity("1", null), false).getData());
+        assertEquals(4, cache.getStats().getL1Hits());
+
+        cache.clear();
+        assertNull(cache.get(new CacheEntity("1", null), false));
+        assertEquals("B", cache.get(new CacheEntity("1", null), true).getData());
+        assertEquals(4, cache.getStats().getL1Hits());
+    }
+
+    /**
+     * Tests that an inclusive L1 entry is dropped when L2 evicts the key.
+     */
+    @Test
+    public void testInclusiveEvictionClearsL1() {
+        CachingService cache = CachingService.builder()
+                .maxSize(1)
+                .nearCache(16, TieringMode.INCLUSIVE, 1)
+                .build();
+        cache.add(new CacheEntity("1", "A"));
+        cache.get(new CacheEntity("1", null), false);
+        cache.add(new CacheEntity("2", "B"));
+        assertNull(cache.get(new CacheEntity("1", null), false));
+        assertEquals(0, cache.getStats().getL1Hits());
+    }
+
+    /**
+     * Tests that an inclusive L1 entry is not served once its time to live has passed.
+     */
+    @Test
+    public void testInclusiveExpiration() throws InterruptedException {
+        CachingService cache = CachingService.builder()
+                .maxSize(10)
+                .nearCache(16, TieringMode.INCLUSIVE, 1)
+                .build();
+        cache.add(new CacheEntity("1", "A"), Duration.ofMillis(50));
+        cache.get(new CacheEntity("1", null), false);
+        assertNotNull(cache.get(new CacheEntity("1", null), false));
+        assertEquals(1, cache.getStats().getL1Hits());
+        Thread.sleep(100);
+        assertNull(cache.get(new CacheEntity("1", null), false));
+    }
+
+    /**
+     * Tests that in exclusive mode a promoted entity leaves L2 without being reported as removed, is still counted
+     * in the size, and is replaced by writes and dropped by removals.
+     */
+    @Test
+    public void testExclusivePromotionAndWrites() {
+        CachingService cache = CachingService.builder()
+                .maxSize(1)
+                .nearCache(16, TieringMode.EXCLUSIVE, 1)
+                .build();
+        cache.add(new CacheEntity("1", "A"));
+        cache.get(new CacheEntity("1", null), false);
+        // L2 has room for one entity again, so "1" is held in L1 alongside "2"
+        cache.add(new CacheEntity("2", "B"));
+        assertEquals(2, cache.cacheSize());
+        assertEquals("A", cache.get(new CacheEntity("1", null), false).getData());
+        assertEquals(1, cache.getStats().getL1Hits());
+        assertEquals(0, cache.getStats().getEvictions());
+
+        cache.add(new CacheEntity("1", "C"));
+        assertEquals("C", cache.get(new CacheEntity("1", null), false).getData());
+        cache.remove(new CacheEntity("1", null));
+        assertNull(cache.get(new CacheEntity("1", null), false));
+    }
+
+    /**
+     * Tests that in exclusive mode entities that can expire stay in L2, and that refresh-after-write is rejected.
+     */
+    @Test
+    public void testExclusiveRestrictions() {
+        CachingService cache = CachingService.builder()
+                .maxSize(10)
+                .nearCache(16, TieringMode.EXCLUSIVE, 1)
+                .build();
+        cache.add(new CacheEntity("1", "A"), Duration.ofMinutes(1));
+        cache.get(new CacheEntity("1", null), false);
+        cache.get(new CacheEntity("1", null), false);
+        assertEquals(0, cache.getStats().getL1Hits());
+
+        try {
+            CachingService.builder()
+                    .maxSize(10)
+                    .refreshAfterWrite(Duration.ofMinutes(1))
+                    .nearCache(16, TieringMode.EXCLUSIVE, 1)
+                    .build();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests that concurrent promotions, demotions and writes in exclusive mode never lose a write: each thread owns
+     * some keys and must always read back the value it wrote last, while the other threads churn the L1 slots.
+     */
+    @Test
+    public void testExclusiveConcurrentWrites() throws Exception {
+        CachingService cache = CachingService.builder()
+                .maxSize(1_000)
+                .nearCache(8, TieringMode.EXCLUSIVE, 1)
+                .build();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String id = thread + "-" + (i % 16);
+                    String data = Integer.toString(i);
+                    cache.add(new CacheEntity(id, data));
+                    for (int r = 0; r < 3; r++) {
+                        assertEquals(data, cache.get(new CacheEntity(id, null), false).getData());
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(threads * 16, cache.cacheSize());
+        assertTrue(cache.getStats().getL1Hits() > 0);
+    }
+
+    /**
+     * Tests that without a near cache of its own, pinning the hottest key creates one that serves only that key,
+     * once a step of the hot key window has passed.
+     */
+    @Test
+    public void testPinnedHotKeys() throws InterruptedException {
+        CachingService cache = CachingService.builder()
+                .maxSize(100)
+                .hotKeys(16, Duration.ofMillis(600), 1)
+                .pinHotKeys(1)
+                .build();
+        cache.add(new CacheEntity("1", "A"));
+        cache.add(new CacheEntity("2", "B"));
+        for (int i = 0; i < 10; i++) {
+            assertEquals("A", cache.get(new CacheEntity("1", null), false).getData());
+            assertEquals("B", cache.get(new CacheEntity("2", null), false).getData());
+        }
+        assertEquals("B", cache.get(new CacheEntity("2", null), false).getData());
+        assertNull(cache.get(new CacheEntity("3", null), false));
+        assertEquals(0, cache.getStats().getL1Hits());
+
+        Thread.sleep(150);
+        // The first access of the new step pins key 2, the hottest; its next read promotes it and the rest hit L1
+        for (int i = 0; i < 5; i++) {
+            assertEquals("B", cache.get(new CacheEntity("2", null), false).getData());
+            assertEquals("A", cache.get(new CacheEntity("1", null), false).getData());
+        }
+        assertEquals(4, cache.getStats().getL1Hits());
+
+        HotKeyStats hotKeys = cache.getHotKeys(3);
+        HotKeyStats.HotKey hottest = hotKeys.getKeys().get(0);
+        assertEquals("2", hottest.getId());
+        assertTrue(hottest.isPinned());
+        assertEquals(17, hottest.getCount());
+        assertEquals(16, hottest.getHits());
+        assertEquals(1, hottest.getWrites());
+        assertEquals("1", hotKeys.getKeys().get(1).getId());
+        assertFalse(hotKeys.getKeys().get(1).isPinned());
+        assertEquals("3", hotKeys.getKeys().get(2).getId());
+        assertEquals(1, hotKeys.getKeys().get(2).getMisses());
+        cache.close();
+    }
+}
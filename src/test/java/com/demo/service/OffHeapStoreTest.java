@@ -0,0 +1,149 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import com.demo.model.OffHeapStats;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the OffHeapStore class and the off-heap tier of CachingService.
+ */
+public class OffHeapStoreTest {
+
+    /**
+     * Tests that entities spanning several blocks, with non-ASCII or null data, survive a round trip with their
+     * versions.
+     */
+    @Test
+    public void testRoundTrip() {
+        OffHeapStore store = new OffHeapStore(64 * 1024, 32, 4096, 2);
+        String large = "é中".repeat(500);
+        assertTrue(store.put(new CacheEntity("1", large), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("2", null, 42), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("3", ""), Long.MAX_VALUE));
+        assertEquals(3, store.size());
+
+        assertEquals(large, store.take("1").entity.getData());
+        CacheEntity versioned = store.take("2").entity;
+        assertNull(versioned.getData());
+        assertEquals(42, versioned.getVersion());
+        assertEquals("", store.take("3").entity.getData());
+        assertNull(store.take("1"));
+        assertEquals(0, store.stats().getUsedBytes());
+    }
+
+    /**
+     * Tests that a full store drops its oldest records, and replaces a record stored again under the same ID.
+     */
+    @Test
+    public void testFullStoreDropsOldest() {
+        // One segment of 8 blocks, each holding 28 bytes of payload: every record below needs exactly one block
+        OffHeapStore store = new OffHeapStore(8 * 32, 32, 8 * 32, 1);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(store.put(new CacheEntity(String.valueOf(i), "v" + i), Long.MAX_VALUE));
+        }
+        assertTrue(store.put(new CacheEntity("0", "new"), Long.MAX_VALUE));
+        assertTrue(store.put(new CacheEntity("8", "v8"), Long.MAX_VALUE));
+
+        assertNull("The oldest record should have been dropped", store.take("1"));
+        assertEquals("new", store.take("0").entity.getData());
+        assertEquals("v8", store.take("8").entity.getData());
+        assertEquals(1, store.stats().getEvictions());
+    }
+
+    /**
+     * Tests that a record larger than a segment is rejected without disturbing the others, and that cleared space is reused.
+     */
+    @Test
+    public void testRejectsOversizedRecordAndReusesClearedSpace() {
+        OffHeapStore store = new OffHeapStore(4 * 32, 32, 4 * 32, 1);
+        assertTrue(store.put(new CacheEntity("1", "A"), Long.MAX_VALUE));
+        assertFalse(store.put(new CacheEntity("2", "x".repeat(200)), Long.MAX_VALUE));
+        assertEquals("A", store.take("1").entity.getData());
+
+        store.put(new CacheEntity("3", "C"), Long.MAX_VALUE);
+        store.clear();
+        assertEquals(0, store.size());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(store.put(new CacheEntity(String.valueOf(i), "v"), Long.MAX_VALUE));
+        }
+        OffHeapStats stats = store.stats();
+        assertEquals(4, stats.getEntries());
+        assertEquals(stats.getCapacityBytes(), stats.getAllocatedBytes());
+        assertEquals(1, stats.getRejections());
+    }
+
+    /**
+     * Tests that a record keeps its deadline: taken before it, the entity has the rest of its time to live; taken
+     * after it, the record is dropped.
+     */
+    @Test
+    public void testExpiredRecordIsDropped() {
+        AtomicLong now = new AtomicLong();
+        OffHeapStore store = new OffHeapStore(64 * 1024, 32, 4096, 2, now::get);
+        assertTrue(store.put(new CacheEntity("1", "A"), 100));
+        assertTrue(store.put(new CacheEntity("2", "B"), 100));
+        assertTrue(store.put(new CacheEntity("3", "C"), Long.MAX_VALUE));
+        now.set(40);
+        assertEquals(60, store.take("1").timeToLiveNanos);
+
+        now.set(100);
+        assertNull("An expired record must not be promoted", store.take("2"));
+        assertEquals(1, store.size());
+        assertEquals(0, store.take("3").timeToLiveNanos);
+        assertEquals(2, store.stats().getPromotions());
+    }
+
+    /**
+     * Tests that an entity evicted before its time to live ran out is not read back from the off-heap tier after it,
+     * and that a promoted entity keeps only the time to live it had left.
+     */
+    @Test
+    public void testCachingServiceOffHeapTierHonoursTtl() throws InterruptedException {
+        CachingService service = CachingService.builder().maxSize(1).offHeap(1 << 20).build();
+        service.add(new CacheEntity("k", "stale"), Duration.ofMillis(100));
+        service.add(new CacheEntity("a", "A"));
+        service.add(new CacheEntity("b", "B"));
+        Thread.sleep(300);
+        assertNull(service.get(new CacheEntity("k", null), false));
+
+        service.add(new CacheEntity("k", "fresh"), Duration.ofMillis(300));
+        service.add(new CacheEntity("a", "A"));
+        assertEquals("fresh", service.get(new CacheEntity("k", null), false).getData());
+        Thread.sleep(400);
+        assertNull(service.get(new CacheEntity("k", null), false));
+        service.close();
+    }
+
+    /**
+     * Tests that the service demotes evicted entities off-heap, promotes them on read, and never resurrects removed ones.
+     */
+    @Test
+    public void testCachingServiceOffHeapTier() {
+        CachingService service = CachingService.builder().maxSize(2).offHeap(1 << 20).build();
+        service.add(new CacheEntity("1", "A"));
+        service.add(new CacheEntity("2", "B"));
+        service.add(new CacheEntity("3", "C"));
+        service.add(new CacheEntity("4", "D"));
+        assertEquals(2, service.cacheSize());
+        assertEquals(2, service.getOffHeapStats().getEntries());
+
+        // Without loading from the database, "1" is still found off-heap and moves back onto the heap
+        assertEquals("A", service.get(new CacheEntity("1", ""), false).getData());
+        assertEquals(1, service.getOffHeapStats().getPromotions());
+        assertEquals(2, service.getOffHeapStats().getEntries());
+
+        service.remove(new CacheEntity("2", ""));
+        assertNull(service.get(new CacheEntity("2", ""), false));
+        service.add(new CacheEntity("3", "C2"));
+        assertEquals("C2", service.get(new CacheEntity("3", ""), false).getData());
+
+        service.clear();
+        assertEquals(0, service.getOffHeapStats().getEntries());
+        service.close();
+    }
+}
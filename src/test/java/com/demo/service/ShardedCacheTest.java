@@ -0,0 +1,249 @@
+package com.demo.service;
+
+import com.demo.model.CacheEntity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the ShardedCache class, with a cluster of three nodes in one JVM.
+ */
+public class ShardedCacheTest {
+    private static final List<String> NAMES = Arrays.asList("a", "b", "c");
+
+    private final Map<String, CachingService> services = new LinkedHashMap<>();
+    private final Map<String, ShardedCache> nodes = new LinkedHashMap<>();
+
+    /**
+     * Builds three nodes, each forwarding to the other two.
+     */
+    @Before
+    public void setup() {
+        for (String name : NAMES) {
+            services.put(name, new CachingService(1_000));
+        }
+        for (String name : NAMES) {
+            nodes.put(name, new ShardedCache(name, services.get(name), peers(name, NAMES), 64));
+        }
+    }
+
+    /**
+     * Tests that an entity added through any node is cached by its owner only, and read and removed through any node.
+     */
+    @Test
+    public void testKeysArePartitioned() {
+        for (int i = 0; i < 300; i++) {
+            nodes.get(NAMES.get(i % 3)).add(new CacheEntity("key-" + i, "value-" + i), null);
+        }
+        int total = 0;
+        for (String name : NAMES) {
+            int size = services.get(name).cacheSize();
+            assertTrue(size > 50);
+            total += size;
+        }
+        assertEquals(300, total);
+
+        for (int i = 0; i < 300; i++) {
+            String id = "key-" + i;
+            assertEquals("value-" + i, nodes.get(NAMES.get((i + 1) % 3)).get(id, false).getData());
+            String owner = nodes.get("a").ownerOf(id);
+            assertNotNull(services.get(owner).get(new CacheEntity(id, null), false));
+        }
+        assertEquals("value-7", nodes.get("c").getAsync("key-7", false).join().getData());
+
+        nodes.get("b").remove("key-7");
+        assertNull(nodes.get("a").get("key-7", true));
+        assertEquals(299, services.values().stream().mapToInt(CachingService::cacheSize).sum());
+        assertTrue(nodes.get("a").getStats().getForwarded() > 0);
+    }
+
+    /**
+     * Tests that batches are split by owner and merged back in request order.
+     */
+    @Test
+    public void testBatches() {
+        List<CacheEntity> entities = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            entities.add(new CacheEntity("key-" + i, "value-" + i));
+            ids.add("key-" + (49 - i));
+        }
+        nodes.get("a").putAll(entities);
+        Map<String, CacheEntity> found = nodes.get("b").getAll(ids, false);
+        assertEquals(ids, new ArrayList<>(found.keySet()));
+        assertEquals("value-3", found.get("key-3").getData());
+
+        nodes.get("c").removeAll(ids.subList(0, 25));
+        assertEquals(25, nodes.get("a").getAll(ids, true).size());
+    }
+
+    /**
+     * Tests that removing every entity through one node empties the caches and databases of all of them.
+     */
+    @Test
+    public void testRemoveAllReachesEveryNode() {
+        for (int i = 0; i < 300; i++) {
+            nodes.get("a").add(new CacheEntity("key-" + i, "value-" + i), null);
+        }
+        nodes.get("b").removeAll();
+        for (CachingService service : services.values()) {
+            assertEquals(0, service.cacheSize());
+            assertEquals(0, service.dbSize());
+        }
+    }
+
+    /**
+     * Tests that a time to live is applied by the owner of a forwarded entity.
+     */
+    @Test
+    public void testTimeToLiveIsForwarded() throws InterruptedException {
+        String id = remoteKey("a");
+        nodes.get("a").add(new CacheEntity(id, "A"), Duration.ofMillis(50));
+        assertNotNull(nodes.get("a").get(id, false));
+        Thread.sleep(100);
+        assertNull(nodes.get("a").get(id, false));
+    }
+
+    /**
+     * Tests that when a node leaves its keys are routed to the others, and that when it joins again the others hand
+     * the keys it now owns over to it.
+     */
+    @Test
+    public void testMembershipChangeHandsOffEntities() {
+        // "c" leaves: "a" and "b" forget about it, and own every key between them
+        List<String> remaining = Arrays.asList("a", "b");
+        assertEquals(0, nodes.get("a").setPeers(peers("a", remaining)));
+        assertEquals(0, nodes.get("b").setPeers(peers("b", remaining)));
+        services.get("c").clear();
+        for (int i = 0; i < 300; i++) {
+            nodes.get("a").add(new CacheEntity("key-" + i, "value-" + i), null);
+        }
+        assertEquals(300, services.get("a").cacheSize() + services.get("b").cacheSize());
+        assertEquals(0, services.get("c").cacheSize());
+
+        // "c" joins again empty; "a" and "b" hand the keys it owns over to it
+        nodes.put("c", new ShardedCache("c", services.get("c"), peers("c", NAMES), 64));
+        int handedOff = nodes.get("a").setPeers(peers("a", NAMES)) + nodes.get("b").setPeers(peers("b", NAMES));
+        assertTrue(handedOff > 50);
+        assertEquals(handedOff, services.get("c").cacheSize());
+        for (int i = 0; i < 300; i++) {
+            String id = "key-" + i;
+            String owner = nodes.get("a").ownerOf(id);
+            assertEquals("value-" + i, services.get(owner).get(new CacheEntity(id, null), false).getData());
+            assertEquals("value-" + i, nodes.get("b").get(id, false).getData());
+        }
+        assertEquals(300, services.values().stream().mapToInt(CachingService::cacheSize).sum());
+        assertEquals(handedOff, nodes.get("a").getStats().getHandedOff() + nodes.get("b").getStats().getHandedOff());
+    }
+
+    /**
+     * Tests that a handoff neither writes to the new owner's database nor replaces an entity it already caches, one
+     * written there since the membership changed.
+     */
+    @Test
+    public void testHandoffKeepsNewerEntities() {
+        List<String> remaining = Arrays.asList("a", "b");
+        nodes.get("a").setPeers(peers("a", remaining));
+        nodes.get("b").setPeers(peers("b", remaining));
+        for (int i = 0; i < 300; i++) {
+            nodes.get("a").add(new CacheEntity("key-" + i, "value-" + i), null);
+        }
+
+        services.get("c").clear();
+        nodes.put("c", new ShardedCache("c", services.get("c"), peers("c", NAMES), 64));
+        String id = "key-0";
+        for (int i = 1; !nodes.get("c").ownerOf(id).equals("c"); i++) {
+            id = "key-" + i;
+        }
+        // Written to "c" once it owns the key, before the others hand it off
+        services.get("c").add(new CacheEntity(id, "newer"));
+        int handedOff = nodes.get("a").setPeers(peers("a", NAMES)) + nodes.get("b").setPeers(peers("b", NAMES));
+        assertTrue(handedOff > 50);
+        assertEquals(handedOff, services.get("c").cacheSize());
+        assertEquals("newer", services.get("c").get(new CacheEntity(id, null), false).getData());
+        assertEquals(1, services.get("c").dbSize());
+    }
+
+    /**
+     * Tests that a membership change drops the demoted entities a node no longer owns from its off-heap and compact
+     * tiers, so that they are not promoted when the node owns them again.
+     */
+    @Test
+    public void testMembershipChangeDropsDemotedEntities() {
+        assertDemotedEntitiesDropped(CachingService.builder().maxSize(10).offHeap(1 << 20).build());
+        assertDemotedEntitiesDropped(CachingService.builder().maxSize(10).compactTier(1 << 20).build());
+    }
+
+    private void assertDemotedEntitiesDropped(CachingService tiered) {
+        ShardedCache alone = new ShardedCache("a", tiered, Collections.emptyMap(), 64);
+        for (int i = 0; i < 300; i++) {
+            alone.add(new CacheEntity("key-" + i, "value-" + i), null);
+        }
+        assertEquals(10, tiered.cacheSize());
+
+        CachingService other = new CachingService(1_000);
+        int handedOff = alone.setPeers(Collections.singletonMap("b", new LocalCacheNode(other)));
+        assertEquals(handedOff, other.cacheSize());
+        int kept = 0;
+        for (int i = 0; i < 300; i++) {
+            String id = "key-" + i;
+            CacheEntity demoted = tiered.get(new CacheEntity(id, null), false);
+            if (alone.ownerOf(id).equals("b")) {
+                assertNull(id + " is owned by b", demoted);
+            } else if (demoted != null) {
+                kept++;
+            }
+        }
+        assertTrue("The entities still owned should stay demoted", kept > 50);
+
+        // b takes a write, then leaves: a must not serve its stale copy
+        String moved = "key-0";
+        for (int i = 1; !alone.ownerOf(moved).equals("b"); i++) {
+            moved = "key-" + i;
+        }
+        other.add(new CacheEntity(moved, "newer"));
+        alone.setPeers(Collections.emptyMap());
+        assertNull(tiered.get(new CacheEntity(moved, null), false));
+        tiered.close();
+    }
+
+    /**
+     * Tests that a node alone owns every key.
+     */
+    @Test
+    public void testSingleNode() {
+        CachingService service = new CachingService(10);
+        ShardedCache single = new ShardedCache("local", service, Collections.emptyMap(), 64);
+        single.add(new CacheEntity("1", "A"), null);
+        assertEquals("A", service.get(new CacheEntity("1", null), false).getData());
+        assertEquals(0, single.getStats().getForwarded());
+        assertEquals(Collections.singletonList("local"), single.getStats().getMembers());
+    }
+
+    private Map<String, CacheNode> peers(String self, List<String> members) {
+        Map<String, CacheNode> peers = new LinkedHashMap<>();
+        for (String name : members) {
+            if (!name.equals(self)) {
+                peers.put(name, new LocalCacheNode(services.get(name)));
+            }
+        }
+        return peers;
+    }
+
+    private String remoteKey(String node) {
+        for (int i = 0; ; i++) {
+            if (!nodes.get(node).ownerOf("key-" + i).equals(node)) {
+                return "key-" + i;
+            }
+        }
+    }
+}
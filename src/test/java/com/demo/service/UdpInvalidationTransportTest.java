@@ -0,0 +1,63 @@
+package com.demo.service;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the UdpInvalidationTransport class, over the loopback interface.
+ */
+public class UdpInvalidationTransportTest {
+
+    /**
+     * Tests that a batch too large for one datagram is split and received whole, and that a node given the same
+     * peer list as the others, itself included, does not receive its own batches.
+     */
+    @Test
+    public void testBatchesAreDelivered() throws Exception {
+        List<InetSocketAddress> everyone = Arrays.asList(
+                new InetSocketAddress("localhost", freePort()), new InetSocketAddress("localhost", freePort()));
+        UdpInvalidationTransport a = new UdpInvalidationTransport(everyone.get(0).getPort(), everyone);
+        UdpInvalidationTransport b = new UdpInvalidationTransport(everyone.get(1).getPort(), everyone);
+
+        BlockingQueue<Invalidation> receivedByA = new LinkedBlockingQueue<>();
+        BlockingQueue<Invalidation> receivedByB = new LinkedBlockingQueue<>();
+        a.start(receivedByA::addAll);
+        b.start(receivedByB::addAll);
+        try {
+            List<Invalidation> batch = new ArrayList<>();
+            batch.add(new Invalidation(null, 1));
+            for (int i = 0; i < 5_000; i++) {
+                batch.add(new Invalidation("key-" + i, i + 2));
+            }
+            a.send(batch);
+
+            for (int i = 0; i < batch.size(); i++) {
+                Invalidation invalidation = receivedByB.poll(5, TimeUnit.SECONDS);
+                assertNotNull(invalidation);
+                assertEquals(batch.get(i).getId(), invalidation.getId());
+                assertEquals(batch.get(i).getVersion(), invalidation.getVersion());
+            }
+            assertNull(receivedByA.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            a.close();
+            b.close();
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (DatagramChannel channel = DatagramChannel.open().bind(new InetSocketAddress(0))) {
+            return channel.socket().getLocalPort();
+        }
+    }
+}
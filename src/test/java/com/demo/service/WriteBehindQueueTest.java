@@ -0,0 +1,151 @@
+package com.demo.service;
+
+import com.demo.dao.MockDatabaseDao;
+import com.demo.model.CacheEntity;
+import com.demo.model.WriteBehindStats;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the WriteBehindQueue class and the write-behind mode of CachingService.
+ */
+public class WriteBehindQueueTest {
+    private MockDatabaseDao database;
+    private WriteBehindQueue queue;
+
+    /**
+     * Sets up a queue whose timed flush is too slow to interfere with the tests.
+     */
+    @Before
+    public void setUp() {
+        database = new MockDatabaseDao();
+        queue = new WriteBehindQueue(database, 10, TimeUnit.HOURS.toMillis(1), 100);
+    }
+
+    /**
+     * Stops the background flusher.
+     */
+    @After
+    public void tearDown() {
+        queue.close();
+    }
+
+    /**
+     * Tests that writes are coalesced per ID and only reach the database on flush.
+     */
+    @Test
+    public void testWritesAreCoalescedUntilFlush() {
+        queue.save("1", new CacheEntity("1", "A"));
+        queue.save("1", new CacheEntity("1", "B"));
+        queue.save("2", new CacheEntity("2", "C"));
+        queue.remove("2");
+
+        assertEquals(0, database.size());
+        assertEquals(2, queue.stats().getPendingWrites());
+        assertEquals("B", queue.pending("1").entity.getData());
+        assertNull(queue.pending("2").entity);
+
+        queue.flush();
+        assertEquals(1, database.size());
+        assertEquals("B", database.get("1").getData());
+        assertNull(queue.pending("1"));
+
+        WriteBehindStats stats = queue.stats();
+        assertEquals(0, stats.getPendingWrites());
+        assertEquals(0, stats.getLagMillis());
+        assertEquals(2, stats.getFlushedWrites());
+    }
+
+    /**
+     * Tests that a full queue blocks the writer only until a flush makes room.
+     */
+    @Test
+    public void testFullQueueAppliesBackpressure() throws Exception {
+        WriteBehindQueue small = new WriteBehindQueue(database, 100, TimeUnit.HOURS.toMillis(1), 2);
+        try {
+            small.save("1", new CacheEntity("1", "A"));
+            small.save("2", new CacheEntity("2", "B"));
+            CompletableFuture.runAsync(() -> small.save("3", new CacheEntity("3", "C"))).get(5, TimeUnit.SECONDS);
+
+            assertTrue("The blocked write should have forced a flush", database.size() >= 2);
+        } finally {
+            small.close();
+        }
+        assertEquals(3, database.size());
+    }
+
+    /**
+     * Tests that while the database keeps failing, a writer to a full queue fails once the wait runs out rather than
+     * blocking forever, and that one still waiting when the queue is closed fails right away.
+     */
+    @Test
+    public void testFullQueueFailsWritesWhenDatabaseIsDown() throws Exception {
+        MockDatabaseDao down = new MockDatabaseDao() {
+            @Override
+            public void saveAll(Collection<CacheEntity> entities) {
+                throw new IllegalStateException("Database down");
+            }
+        };
+        WriteBehindQueue stuck = new WriteBehindQueue(down, 100, TimeUnit.HOURS.toMillis(1), 1, 100);
+        stuck.save("1", new CacheEntity("1", "A"));
+        try {
+            stuck.save("2", new CacheEntity("2", "B"));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        assertNull(stuck.pending("2"));
+        stuck.close();
+
+        WriteBehindQueue closing = new WriteBehindQueue(down, 100, TimeUnit.HOURS.toMillis(1), 1, TimeUnit.HOURS.toMillis(1));
+        closing.save("1", new CacheEntity("1", "A"));
+        CompletableFuture<Void> blocked = CompletableFuture.runAsync(() -> closing.save("2", new CacheEntity("2", "B")));
+        Thread.sleep(100);
+        assertFalse(blocked.isDone());
+        closing.close();
+        try {
+            blocked.get(5, TimeUnit.SECONDS);
+            fail("Expected ExecutionException");
+        } catch (ExecutionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        try {
+            closing.remove("3");
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+    }
+
+    /**
+     * Tests that a write-behind CachingService serves unflushed writes and persists them on close.
+     */
+    @Test
+    public void testCachingServiceWriteBehindMode() {
+        CachingService service = CachingService.builder()
+                .maxSize(2)
+                .writeBehind(10, Duration.ofHours(1), 100)
+                .build();
+        service.add(new CacheEntity("1", "A"));
+        service.add(new CacheEntity("2", "B"));
+        service.add(new CacheEntity("3", "C"));
+        assertEquals(0, service.dbSize());
+        assertEquals(3, service.getWriteBehindStats().getPendingWrites());
+
+        // "1" was evicted but its write is still queued, so it must not be lost on reload
+        assertEquals("A", service.get(new CacheEntity("1", ""), true).getData());
+
+        service.close();
+        assertEquals(3, service.dbSize());
+        assertEquals(0, service.getWriteBehindStats().getPendingWrites());
+    }
+}
@@ -0,0 +1,321 @@
+package com.demo.service.engine;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the CacheEngine class.
+ * This class tests the LRU ordering, the size bound and the removal notifications of the engine.
+ */
+public class CacheEngineTest {
+    private List<String> evicted;
+    private CacheEngine<String, String> engine;
+
+    /**
+     * Sets up an engine bounded to three entries that records the keys it evicts.
+     */
+    @Before
+    public void setUp() {
+        evicted = new ArrayList<>();
+        engine = new CacheEngine<>(3, (key, value, cause) -> {
+            if (cause == RemovalCause.SIZE) {
+                evicted.add(key);
+            }
+        });
+    }
+
+    /**
+     * Tests that the least recently inserted entry is evicted when nothing has been read.
+     */
+    @Test
+    public void testEvictsEldestEntry() {
+        engine.put("1", "A");
+        engine.put("2", "B");
+        engine.put("3", "C");
+        engine.put("4", "D");
+
+        assertNull(engine.get("1"));
+        assertEquals(3, engine.size());
+        assertEquals(List.of("1"), evicted);
+    }
+
+    /**
+     * Tests that a buffered read refreshes the recency of an entry before the next eviction.
+     */
+    @Test
+    public void testReadProtectsEntryFromEviction() {
+        engine.put("1", "A");
+        engine.put("2", "B");
+        engine.put("3", "C");
+        assertEquals("A", engine.get("1"));
+        engine.put("4", "D");
+
+        assertEquals("A", engine.get("1"));
+        assertNull(engine.get("2"));
+        assertEquals(List.of("2"), evicted);
+    }
+
+    /**
+     * Tests that overwriting a key replaces its value without growing the cache.
+     */
+    @Test
+    public void testPutReplacesValue() {
+        assertNull(engine.put("1", "A"));
+        assertEquals("A", engine.put("1", "B"));
+
+        assertEquals("B", engine.get("1"));
+        assertEquals(1, engine.size());
+    }
+
+    /**
+     * Tests that explicit removals and clears are not reported as evictions and free capacity.
+     */
+    @Test
+    public void testRemoveAndClear() {
+        engine.put("1", "A");
+        engine.put("2", "B");
+        assertEquals("A", engine.remove("1"));
+        assertNull(engine.remove("1"));
+        engine.put("3", "C");
+        engine.put("4", "D");
+        assertTrue(evicted.isEmpty());
+
+        engine.clear();
+        assertEquals(0, engine.size());
+        engine.put("5", "E");
+        engine.put("6", "F");
+        engine.put("7", "G");
+        assertTrue(evicted.isEmpty());
+    }
+
+    /**
+     * Tests that a weight-bounded engine evicts until the total weight fits, counting the new weight of a rewritten entry.
+     */
+    @Test
+    public void testMaximumWeight() {
+        CacheEngine<String, String> weighted = CacheEngine.<String, String>builder()
+                .maximumWeight(10)
+                .weigher((key, value) -> value.length())
+                .removalListener((key, value, cause) -> {
+                    if (cause == RemovalCause.SIZE) {
+                        evicted.add(key);
+                    }
+                })
+                .build();
+        weighted.put("1", "AAAA");
+        weighted.put("2", "BBBB");
+        assertEquals(8, weighted.weightedSize());
+
+        weighted.put("2", "BBBBBBB");
+        assertEquals(List.of("1"), evicted);
+        assertEquals(7, weighted.weightedSize());
+
+        weighted.put("3", "CCCCCCCCCCCC");
+        assertNull("An entry heavier than the bound cannot stay", weighted.get("3"));
+        assertEquals(0, weighted.weightedSize());
+        assertEquals(0, weighted.size());
+    }
+
+    /**
+     * Tests that entries are listed from the next victim to the most recently used, including buffered reads.
+     */
+    @Test
+    public void testEntriesInRetentionOrder() {
+        engine.put("1", "A");
+        engine.put("2", "B");
+        engine.put("3", "C");
+        engine.get("1");
+
+        List<String> keys = new ArrayList<>();
+        for (Node<String, String> node : engine.entriesInRetentionOrder()) {
+            keys.add(node.getKey());
+        }
+        assertEquals(List.of("2", "3", "1"), keys);
+    }
+
+    /**
+     * Tests that concurrent readers and writers never push the engine past its bound.
+     */
+    @Test
+    public void testConcurrentAccessRespectsBound() throws Exception {
+        CacheEngine<Integer, Integer> shared = new CacheEngine<>(64, null);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 20_000; i++) {
+                    int key = (i * 31 + seed) % 256;
+                    if (i % 4 == 0) {
+                        shared.put(key, key);
+                    } else {
+                        Integer value = shared.get(key);
+                        assertTrue(value == null || value == key);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        shared.cleanUp();
+        assertTrue(shared.size() <= 64);
+    }
+
+    /**
+     * Tests that an entry expires after its write deadline and is removed by the timer wheel with the EXPIRED cause.
+     */
+    @Test
+    public void testExpireAfterWrite() {
+        AtomicLong time = new AtomicLong();
+        List<String> expired = new ArrayList<>();
+        CacheEngine<String, String> expiring = CacheEngine.<String, String>builder()
+                .maximumSize(10)
+                .expireAfterWrite(Duration.ofMinutes(1))
+                .ticker(time::get)
+                .removalListener((key, value, cause) -> {
+                    if (cause == RemovalCause.EXPIRED) {
+                        expired.add(key);
+                    }
+                })
+                .build();
+        expiring.put("1", "A");
+        time.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertEquals("A", expiring.get("1"));
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(31));
+        assertNull("An expired entry must never be returned", expiring.get("1"));
+        expiring.cleanUp();
+        assertEquals(0, expiring.size());
+        assertEquals(List.of("1"), expired);
+    }
+
+    /**
+     * Tests that the eviction listener is told how long each evicted entry had left to live.
+     */
+    @Test
+    public void testEvictionListenerGetsTimeToLive() {
+        AtomicLong time = new AtomicLong();
+        List<Long> timesToLive = new ArrayList<>();
+        CacheEngine<String, String> expiring = CacheEngine.<String, String>builder()
+                .maximumSize(1)
+                .ticker(time::get)
+                .evictionListener((key, value, timeToLive) -> timesToLive.add(timeToLive))
+                .build();
+        expiring.put("1", "A", 100);
+        time.addAndGet(30);
+        expiring.put("2", "B");
+        expiring.put("3", "C");
+        assertEquals(List.of(70L, Long.MAX_VALUE), timesToLive);
+    }
+
+    /**
+     * Tests that reads extend the lifetime of an entry under expire-after-access.
+     */
+    @Test
+    public void testExpireAfterAccess() {
+        AtomicLong time = new AtomicLong();
+        CacheEngine<String, String> expiring = CacheEngine.<String, String>builder()
+                .maximumSize(10)
+                .expireAfterAccess(Duration.ofSeconds(10))
+                .ticker(time::get)
+                .build();
+        expiring.put("1", "A");
+        expiring.put("2", "B");
+        for (int i = 0; i < 5; i++) {
+            time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+            assertEquals("A", expiring.get("1"));
+        }
+        expiring.cleanUp();
+
+        assertNull(expiring.get("2"));
+        assertEquals(1, expiring.size());
+    }
+
+    /**
+     * Tests that a per-entry time to live overrides the default and cascades correctly through the wheel levels.
+     */
+    @Test
+    public void testPerEntryTimeToLive() {
+        AtomicLong time = new AtomicLong(-TimeUnit.DAYS.toNanos(3));
+        CacheEngine<String, String> expiring = CacheEngine.<String, String>builder()
+                .maximumSize(10)
+                .expireAfterWrite(Duration.ofSeconds(5))
+                .ticker(time::get)
+                .build();
+        expiring.put("short", "A");
+        expiring.put("long", "B", TimeUnit.HOURS.toNanos(2));
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(6));
+        expiring.cleanUp();
+        assertNull(expiring.get("short"));
+        assertEquals("B", expiring.get("long"));
+        assertEquals(1, expiring.size());
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(119));
+        expiring.cleanUp();
+        assertEquals("B", expiring.get("long"));
+
+        time.addAndGet(TimeUnit.MINUTES.toNanos(2));
+        expiring.cleanUp();
+        assertEquals(0, expiring.size());
+    }
+
+    /**
+     * Tests that raising the bound takes effect at once, and that after lowering it the excess is evicted one batch
+     * per maintenance pass, least recently used first.
+     */
+    @Test
+    public void testSetMaximumShrinksIncrementally() {
+        List<Integer> evictedKeys = new ArrayList<>();
+        CacheEngine<Integer, Integer> resizable = new CacheEngine<>(10, (key, value, cause) -> {
+            if (cause == RemovalCause.SIZE) {
+                evictedKeys.add(key);
+            }
+        });
+        resizable.setMaximum(1_000);
+        for (int i = 0; i < 1_000; i++) {
+            resizable.put(i, i);
+        }
+        assertEquals(1_000, resizable.size());
+        assertTrue(evictedKeys.isEmpty());
+
+        resizable.setMaximum(100);
+        assertEquals(100, resizable.getMaximum());
+        assertEquals(1_000, resizable.size());
+        resizable.cleanUp();
+        assertEquals(1_000 - CacheEngine.MAX_EVICTIONS_PER_PASS, resizable.size());
+        resizable.put(1_000, 1_000);
+        assertEquals(1_001 - 2 * CacheEngine.MAX_EVICTIONS_PER_PASS, resizable.size());
+        while (resizable.size() > 100) {
+            resizable.cleanUp();
+        }
+        assertEquals(100, resizable.size());
+        assertEquals(901, evictedKeys.size());
+        assertEquals(Integer.valueOf(0), evictedKeys.get(0));
+        assertEquals(Integer.valueOf(1_000), resizable.get(1_000));
+
+        // Back within its bound, a write evicts whatever it overflows by again
+        resizable.put(2_000, 2_000);
+        assertEquals(100, resizable.size());
+    }
+}
@@ -0,0 +1,142 @@
+package com.demo.service.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the eviction policies.
+ * Each policy is exercised through a CacheEngine so that buffered reads are replayed as in production.
+ */
+public class EvictionPolicyTest {
+
+    /**
+     * Tests that FIFO evicts in insertion order even when the oldest entry is read.
+     */
+    @Test
+    public void testFifoIgnoresReads() {
+        CacheEngine<String, String> engine = new CacheEngine<>(2, EvictionPolicyType.FIFO, null);
+        engine.put("1", "A");
+        engine.put("2", "B");
+        engine.get("1");
+        engine.put("3", "C");
+
+        assertNull(engine.get("1"));
+        assertEquals("B", engine.get("2"));
+    }
+
+    /**
+     * Tests that LFU evicts the least frequently read entry rather than the least recent one.
+     */
+    @Test
+    public void testLfuEvictsLeastFrequent() {
+        CacheEngine<String, String> engine = new CacheEngine<>(2, EvictionPolicyType.LFU, null);
+        engine.put("1", "A");
+        engine.put("2", "B");
+        engine.get("1");
+        engine.get("1");
+        engine.get("2");
+        engine.put("3", "C");
+
+        assertEquals("A", engine.get("1"));
+        assertNull(engine.get("2"));
+    }
+
+    /**
+     * Tests that SLRU keeps entries that were read twice when new keys arrive.
+     */
+    @Test
+    public void testSlruProtectsReusedEntries() {
+        CacheEngine<String, String> engine = new CacheEngine<>(3, EvictionPolicyType.SLRU, null);
+        engine.put("1", "A");
+        engine.put("2", "B");
+        engine.get("1");
+        engine.put("3", "C");
+        engine.put("4", "D");
+        engine.put("5", "E");
+
+        assertEquals("A", engine.get("1"));
+        assertEquals(3, engine.size());
+    }
+
+    /**
+     * Tests that a scan of one-off keys does not flush the hot set under TinyLFU, while it does under LRU.
+     */
+    @Test
+    public void testTinyLfuResistsScan() {
+        assertTrue(hotKeysRetainedAfterScan(EvictionPolicyType.TINY_LFU) >= 45);
+        assertEquals(0, hotKeysRetainedAfterScan(EvictionPolicyType.LRU));
+    }
+
+    /**
+     * Tests that every policy honours the size bound and supports removal and clearing.
+     */
+    @Test
+    public void testAllPoliciesRespectBound() {
+        for (EvictionPolicyType type : EvictionPolicyType.values()) {
+            CacheEngine<Integer, Integer> engine = new CacheEngine<>(10, type, null);
+            for (int i = 0; i < 1_000; i++) {
+                engine.put(i % 37, i);
+                engine.get((i * 7) % 37);
+                if (i % 11 == 0) {
+                    engine.remove(i % 37);
+                }
+            }
+            assertTrue(type + " exceeded its bound", engine.size() <= 10);
+            engine.clear();
+            assertEquals(0, engine.size());
+            engine.put(1, 1);
+            assertEquals(Integer.valueOf(1), engine.get(1));
+        }
+    }
+
+    /**
+     * Tests that every policy honours a weight bound, including when entries are rewritten with a different weight.
+     */
+    @Test
+    public void testAllPoliciesRespectWeightBound() {
+        for (EvictionPolicyType type : EvictionPolicyType.values()) {
+            CacheEngine<Integer, String> engine = CacheEngine.<Integer, String>builder()
+                    .maximumWeight(100)
+                    .weigher((key, value) -> value.length())
+                    .evictionPolicy(type)
+                    .build();
+            for (int i = 0; i < 1_000; i++) {
+                engine.put(i % 37, "x".repeat(1 + (i * 13) % 20));
+                engine.get((i * 7) % 37);
+                if (i % 11 == 0) {
+                    engine.remove(i % 37);
+                }
+                assertTrue(type + " exceeded its weight bound", engine.weightedSize() <= 100);
+            }
+            engine.cleanUp();
+            long total = 0;
+            for (int key = 0; key < 37; key++) {
+                String value = engine.get(key);
+                total += (value == null) ? 0 : value.length();
+            }
+            assertEquals(type + " lost track of its weight", total, engine.weightedSize());
+        }
+    }
+
+    private int hotKeysRetainedAfterScan(EvictionPolicyType type) {
+        CacheEngine<String, String> engine = new CacheEngine<>(100, type, null);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                if (engine.get("hot" + i) == null) {
+                    engine.put("hot" + i, "H");
+                }
+            }
+        }
+        for (int i = 0; i < 1_000; i++) {
+            engine.put("cold" + i, "C");
+        }
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (engine.get("hot" + i) != null) {
+                retained++;
+            }
+        }
+        return retained;
+    }
+}